@@ -272,8 +272,8 @@ public class RobotOperationTracker {
 	
 	private static boolean exitAvailable(int[] xy, Distance distance){
 		int
-			width = distance.getAllDistanceValues().length,
-			height = distance.getAllDistanceValues()[0].length;
+			width = distance.getWidth(),
+			height = distance.getHeight();
 		
 		return ( 1==distance.getDistanceValue(xy)
 				&&
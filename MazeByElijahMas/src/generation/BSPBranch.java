@@ -3,6 +3,8 @@
  */
 package generation;
 
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -21,8 +23,13 @@ import gui.MazeFileWriter;
  * Refactored by Peter Kemper
  */
 public class BSPBranch extends BSPNode {
-	// left and right branches of the binary tree
-	private BSPNode lbranch, rbranch; 
+	// left and right branches of the binary tree, replaced by their subtree once a branch is expanded
+	private volatile BSPNode lbranch, rbranch; 
+	// replace a branch by its subtree only if no one else replaced the branch in the meantime
+	private static final AtomicReferenceFieldUpdater<BSPBranch, BSPNode> LEFT =
+			AtomicReferenceFieldUpdater.newUpdater(BSPBranch.class, BSPNode.class, "lbranch");
+	private static final AtomicReferenceFieldUpdater<BSPBranch, BSPNode> RIGHT =
+			AtomicReferenceFieldUpdater.newUpdater(BSPBranch.class, BSPNode.class, "rbranch");
 	// (x,y) coordinates and (dx,dy) direction
 	private int x;
 	private int y;
@@ -52,11 +59,39 @@ public class BSPBranch extends BSPNode {
 		// note: own values of this node do not matter
 		// obviously tree is built from valid subtrees in a bottom up manner
 		// or there must be some update later 
+		updateBounds(left, right);
+	}
+	/**
+	 * Sets the bounds to the bounds of both given branches.
+	 */
+	private void updateBounds(BSPNode left, BSPNode right) {
 		setLowerBoundX(Math.min(left.getLowerBoundX(), right.getLowerBoundX()));
 		setUpperBoundX(Math.max(left.getUpperBoundX(), right.getUpperBoundX()));
 		setLowerBoundY(Math.min(left.getLowerBoundY(), right.getLowerBoundY()));
 		setUpperBoundY(Math.max(left.getUpperBoundY(), right.getUpperBoundY()));
 	}
+	/**
+	 * Replaces both branches and updates the bounds, used by the {@link BSPUpdater}.
+	 * @param left child, assumes bounds are valid
+	 * @param right child, assumes bounds are valid
+	 */
+	void setBranches(BSPNode left, BSPNode right) {
+		lbranch = left;
+		rbranch = right;
+		updateBounds(left, right);
+	}
+	/**
+	 * Makes this node a copy of the given branch, such that a node that others keep a reference to,
+	 * i.e. the root of a tree, can take the place of the given one. Used by the {@link BSPUpdater}.
+	 * @param other the branch to copy
+	 */
+	void copyFrom(BSPBranch other) {
+		x = other.x;
+		y = other.y;
+		dx = other.dx;
+		dy = other.dy;
+		setBranches(other.lbranch, other.rbranch);
+	}
 	/**
 	 * @return tells if object is a leaf node
 	 */
@@ -65,11 +100,49 @@ public class BSPBranch extends BSPNode {
 		return false ;
 	}
 
+	/**
+	 * Gives the left branch, builds it first if it is built on demand.
+	 * The subtree takes the place of the branch only if the branch is still in place,
+	 * so a branch that the {@link BSPUpdater} sets while the subtree is built, 
+	 * e.g. on a background thread, is not overwritten.
+	 * @return the left branch, a BSPBranch or a BSPLeaf
+	 */
 	public BSPNode getLeftBranch(){
-		return lbranch;
+		final BSPNode node = lbranch;
+		final BSPNode expanded = node.expand();
+		if (expanded != node)
+			LEFT.compareAndSet(this, node, expanded);
+		return expanded;
 	}
 
+	/**
+	 * Gives the right branch, builds it first if it is built on demand.
+	 * Same as {@link #getLeftBranch()}, a branch that is set in the meantime is not overwritten.
+	 * @return the right branch, a BSPBranch or a BSPLeaf
+	 */
 	public BSPNode getRightBranch(){
+		final BSPNode node = rbranch;
+		final BSPNode expanded = node.expand();
+		if (expanded != node)
+			RIGHT.compareAndSet(this, node, expanded);
+		return expanded;
+	}
+
+	/**
+	 * Gives the left branch as it is, which may be a node that is built on demand
+	 * and only has its bounds, see {@link BSPNode#expand()}.
+	 * @return the left branch
+	 */
+	public BSPNode peekLeftBranch(){
+		return lbranch;
+	}
+
+	/**
+	 * Gives the right branch as it is, which may be a node that is built on demand
+	 * and only has its bounds, see {@link BSPNode#expand()}.
+	 * @return the right branch
+	 */
+	public BSPNode peekRightBranch(){
 		return rbranch;
 	}
 
@@ -106,7 +179,7 @@ public class BSPBranch extends BSPNode {
 			// recursion
 			number++ ;
 			//number = MazeFileWriter.storeBSPNode(lbranch, doc, mazeXML, number) ;
-			number = lbranch.store(doc, mazeXML, number) ;
+			number = getLeftBranch().store(doc, mazeXML, number) ;
 		}
 		// it is important that the recursion on the left branch updates the number value
 		// such that for the nodes on the right branch we use new unique numbers
@@ -121,7 +194,7 @@ public class BSPBranch extends BSPNode {
 			// recursion
 			number++ ;
 			//number = MazeFileWriter.storeBSPNode(rbranch, doc, mazeXML, number) ;
-			number = rbranch.store(doc, mazeXML, number) ;
+			number = getRightBranch().store(doc, mazeXML, number) ;
 		}
 		return number ; // return the last number that was used
 	}
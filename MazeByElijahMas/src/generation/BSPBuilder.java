@@ -3,10 +3,31 @@ package generation;
 import gui.Constants;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class has the responsibility to obtain the tree of BSP nodes for a given maze.
  * 
+ * Once a node is split by a partition wall, its two subtrees are independent:
+ * each wall ends up in exactly one of the two lists and walls that are split are new objects.
+ * So the subtrees of large nodes are built in parallel on the common ForkJoinPool, see {@link #PARALLEL_THRESHOLD},
+ * which gives the same tree as building them one after the other.
+ * The pool is shared with the tiles of a {@link MazeBuilderParallel} and the rays of the raycast view.
+ * Background generation, e.g. for the {@link MazePool}, builds on its own thread only, see {@link MazeBuilder#setParallelBSP(boolean)}.
+ * The trees were only timed on a single core, so how the build scales with more cores has not been measured.
+ * 
+ * A partition wall is chosen by grading every candidate of a node exactly with a {@link PartitionGrader}.
+ * The original heuristic that grades about 50 candidates against a sample of about 50 walls
+ * is kept for comparison, see {@link #setExactGrading(boolean)}.
+ * 
+ * In lazy mode, see {@link #setLazy(boolean)}, only the root is split and subtrees with many walls
+ * are left as {@link BSPLazyNode}s, which are built when they are first needed
+ * or in the background, see {@link #completeInBackground(BSPNode)}.
+ * 
  * This code is refactored code from MazeBuilder.java by Paul Falstad, www.falstad.com, Copyright (C) 1998, all rights reserved
  * Paul Falstad granted permission to modify and use code for teaching purposes.
  * Refactored by Peter Kemper
@@ -19,10 +40,39 @@ public class BSPBuilder {
 	private final Floorplan floorplan ;		// floorplan with maze layout
 	private final int colchange ;			// comes from a random number, purpose unclear, 
 	// colchange: reason for randomization unclear, used to determine color of wall 
-	private final int expectedPartiters ; 	// comes from Constants partct array, entry chosen according to skill level
+	private final int expectedPartiters ; 	// comes from Constants partct array for the skill level or is estimated from the size of the maze
 	// only usage is in updateProgressBar to estimate progress made in the BSP tree construction
-	int partiters = 0 ; // relocated from MazeBuilder attribute partiters here. 
+	final AtomicInteger partiters = new AtomicInteger() ; // relocated from MazeBuilder attribute partiters here, shared by all threads that build subtrees
+	final AtomicInteger splits = new AtomicInteger() ; // number of walls that a partition cut in two, for benchmarks
+	private int reportedPercentage = -1 ; // last percentage given to the order, guarded by this
 	private final Order order ; 		// current order
+	private final Progress progress ; 	// channel to publish progress to, null to call the order instead
+	private final CancellationToken cancellation ; // checked while building the tree to stop if the order is cancelled
+	private boolean parallel = true ; // if true, subtrees of large nodes are built in parallel
+	private boolean exactGrading = true ; // if true, all candidates are graded against all walls, otherwise samples of them
+	private boolean lazy = false ; // if true, subtrees with many walls are built on demand
+	private BSPBuilder expander ; // builds the subtrees of lazy nodes, created in lazy mode
+	
+	/**
+	 * a node with at least this many walls builds its two subtrees in parallel,
+	 * smaller nodes are not worth the overhead of a task
+	 */
+	static final int PARALLEL_THRESHOLD = 1000;
+	/**
+	 * in lazy mode, a subtree with at least this many walls is built on demand,
+	 * smaller subtrees are built right away as they take less time than a frame to build
+	 */
+	static final int LAZY_THRESHOLD = 256;
+	/**
+	 * token for building lazy subtrees after delivery, which cannot be cancelled,
+	 * not even by interrupting the thread that draws the maze
+	 */
+	private static final CancellationToken NEVER_CANCELLED = new CancellationToken() {
+		@Override
+		public boolean isCancelled() {
+			return false;
+		}
+	};
 	/**
 	 * Constructor
 	 * @param order
@@ -32,180 +82,398 @@ public class BSPBuilder {
 	 * @param height
 	 * @param colchange
 	 * @param expectedPartiters
+	 * @param cancellation
 	 */
-	public BSPBuilder(Order order, Distance dists, Floorplan floorplan, int width, int height, int colchange, int expectedPartiters) {
+	public BSPBuilder(Order order, Distance dists, Floorplan floorplan, int width, int height, int colchange, int expectedPartiters,
+			CancellationToken cancellation) {
 		super() ;
 		this.order = order ;
+		this.progress = (null == order) ? null : order.getProgress() ;
 		this.dists = dists ;
 		this.floorplan = floorplan ;
 		this.width = width ;
 		this.height = height ;
 		this.colchange = colchange ;
 		this.expectedPartiters = expectedPartiters ;
+		this.cancellation = cancellation ;
 
-		partiters = 0 ; // counter for keeping track of progress made in BSP calculation, starts at 0
+		partiters.set(0) ; // counter for keeping track of progress made in BSP calculation, starts at 0
+	}
+	/**
+	 * Constructor for the builder of lazy subtrees, see {@link BSPLazyNode},
+	 * with the same settings as the given builder. It builds after delivery,
+	 * so it reports no progress and cannot be cancelled.
+	 * @param builder the builder that delivers the tree
+	 */
+	private BSPBuilder(BSPBuilder builder) {
+		this(null, null, null, builder.width, builder.height, builder.colchange, builder.expectedPartiters, NEVER_CANCELLED) ;
+		exactGrading = builder.exactGrading ;
+		parallel = false ;
+		lazy = true ;
+		expander = this ;
+	}
+	
+	/**
+	 * Sets if subtrees of large nodes are built in parallel, both ways give the same tree.
+	 * @param parallel true to build in parallel (default), false to build on the calling thread only
+	 */
+	void setParallel(boolean parallel) {
+		this.parallel = parallel ;
+	}
+	/**
+	 * Sets how a partition wall is chosen for a node.
+	 * @param exactGrading true to grade every candidate against all walls with a {@link PartitionGrader} (default),
+	 * false for the original heuristic that grades a sample of candidates against a sample of walls
+	 */
+	void setExactGrading(boolean exactGrading) {
+		this.exactGrading = exactGrading ;
+	}
+	/**
+	 * Sets if subtrees with many walls are built on demand, both ways give the same tree.
+	 * @param lazy true to build only the root and leave large subtrees for later,
+	 * false to build the whole tree before delivery (default)
+	 */
+	void setLazy(boolean lazy) {
+		this.lazy = lazy ;
 	}
 
 	/**
 	 * Method generates the nodes. In every node, it has two section, left and right. It chooses the wall
 	 * which has the minimum grade value and then split this node into two nodes through this wall.
 	 * If all the walls in one node are partitioned, it will stop to split.
-	 * @param sl
+	 * The walls of the node are the walls of the given list from position from to its end,
+	 * which are removed from the list when the subtree is complete.
+	 * The walls for the left node are moved to the front of that range and the walls for the right node
+	 * are put behind them, so the right subtree is built first and gives the space back for the left one.
+	 * @param sl list of walls, the walls of the node are at its end
+	 * @param from position of the first wall of the node
+	 * @param scratch list to collect the walls for the right node
 	 * @return root node for BSP tree
 	 * @throws InterruptedException 
 	 */
-	private BSPNode genNodes(ArrayList<Wall> sl) throws InterruptedException {
+	private BSPNode genNodes(WallList sl, int from, WallList scratch) throws InterruptedException {
+		cancellation.throwIfCancelled();
+		final int size = sl.size;
 		// if there is no wall with a partition bit set to false, there is nothing else to do and we are at a leaf node
-		if (countNonPartitions(sl) == 0)
-			return new BSPLeaf(sl);
+		if (sl.countNonPartitions(from, size) == 0)
+			return leaf(sl, from);
 		// from the ones that have a partition bit set to false, pick a candidate with a low grade
-		Wall pe = findPartitionCandidate(sl);
+		final int pe = findPartitionCandidate(sl, from);
 		// work on wall pe
 		// mark pe as partitioned
-		pe.setPartition(true);
-		final int x  = pe.getStartPositionX();
-		final int y  = pe.getStartPositionY();
-		final int dx = pe.getExtensionX();
-		final int dy = pe.getExtensionY();
-		final ArrayList<Wall> lsl = new ArrayList<Wall>();
-		final ArrayList<Wall> rsl = new ArrayList<Wall>();
-		for (int i = 0; i != sl.size(); i++) {
+		sl.partition[pe] = true;
+		final int x  = sl.x[pe];
+		final int y  = sl.y[pe];
+		final int dx = sl.dx[pe];
+		final int dy = sl.dy[pe];
+		final int dir = sl.getDir(pe);
+		// each wall puts at most one piece into the left range, so the left range never overtakes the loop
+		int lsize = from;
+		final WallList rsl = scratch;
+		rsl.size = 0;
+		for (int i = from; i != size; i++) {
 		    // MEMO: code very similar to Seg.calculateGrade method
-			Wall se = (Wall) sl.get(i);
-			int df1x = se.getStartPositionX() - x;
-			int df1y = se.getStartPositionY() - y;
-			int sendx = se.getEndPositionX();
-			int sendy = se.getEndPositionY();
+			final int sx = sl.x[i];
+			final int sy = sl.y[i];
+			final int sdx = sl.dx[i];
+			final int sdy = sl.dy[i];
+			final int sdist = sl.dist[i];
+			final boolean spartition = sl.partition[i];
+			final int sdir = sl.getDir(i);
+			int df1x = sx - x;
+			int df1y = sy - y;
+			int sendx = sx + sdx;
+			int sendy = sy + sdy;
 			int df2x = sendx - x; 
 			int df2y = sendy - y; 
 			int nx = dy;
 			int ny = -dx;
-			int dot1 = df1x * nx + df1y * ny;
-			int dot2 = df2x * nx + df2y * ny;
+			// coordinates of large mazes scaled by MAP_UNIT give products beyond the range of an int
+			long dot1 = (long)df1x * nx + (long)df1y * ny;
+			long dot2 = (long)df2x * nx + (long)df2y * ny;
 			if (getSign(dot1) != getSign(dot2)) {
 				if (dot1 == 0)
 					dot1 = dot2;
 				else if (dot2 != 0) {
 					// we need to split this
-					int spx = se.getStartPositionX();
-					int spy = se.getStartPositionY();
+					int spx = sx;
+					int spy = sy;
 					if (dx == 0)
 						spx = x;
 					else
 						spy = y;
-					//Seg sps1 = new Seg(se.x, se.y, spx-se.x, spy-se.y, se.dist, colchange);
-					//Seg sps2 = new Seg(spx, spy, sendx-spx, sendy-spy, se.dist, colchange);
-					Wall sps1 = new Wall(se.getStartPositionX(), se.getStartPositionY(), spx-se.getStartPositionX(), spy-se.getStartPositionY(), se.getDistance(), colchange);
-					Wall sps2 = new Wall(spx, spy, sendx-spx, sendy-spy, se.getDistance(), colchange);
 					if (dot1 > 0) {
-						rsl.add(sps1);
-						lsl.add(sps2);
+						rsl.add(sx, sy, spx-sx, spy-sy, sdist, spartition);
+						sl.set(lsize++, spx, spy, sendx-spx, sendy-spy, sdist, spartition);
 					} else {
-						rsl.add(sps2);
-						lsl.add(sps1);
+						rsl.add(spx, spy, sendx-spx, sendy-spy, sdist, spartition);
+						sl.set(lsize++, sx, sy, spx-sx, spy-sy, sdist, spartition);
 					}
-					sps1.setPartition(se.isPartition());
-					sps2.setPartition(se.isPartition());
+					splits.incrementAndGet();
 					continue;
 				}
 			}
-			// decide where to add current wall
-			if (dot1 > 0 || (dot1 == 0 && se.hasSameDirection(pe))) {
-				rsl.add(se);
-				if (dot1 == 0)
-					se.setPartition(true);
-			} else if (dot1 < 0 || (dot1 == 0 && se.hasOppositeDirection(pe))) { 
-				lsl.add(se);
-				if (dot1 == 0)
-					se.setPartition(true);
+			// decide where to add current wall, a wall on the partition line is marked as partitioned
+			if (dot1 > 0 || (dot1 == 0 && sdir == dir)) {
+				rsl.add(sx, sy, sdx, sdy, sdist, spartition || dot1 == 0);
+			} else if (dot1 < 0 || (dot1 == 0 && sdir == -dir)) { 
+				sl.set(lsize++, sx, sy, sdx, sdy, sdist, spartition || dot1 == 0);
 			} else {
 				dbg("error xx 1 "+dot1);
 			}
 		}
-		if (lsl.size() == 0)
-			return new BSPLeaf(rsl);
-		if (rsl.size() == 0)
-			return new BSPLeaf(lsl);
-		return new BSPBranch(x, y, dx, dy, genNodes(lsl), genNodes(rsl)); // recursion on both branches
+		sl.size = lsize;
+		if (lsize == from) {
+			sl.addAll(rsl, 0, rsl.size);
+			return leaf(sl, from);
+		}
+		if (rsl.size == 0)
+			return leaf(sl, from);
+		if (lazy) {
+			// large subtrees get lists of their own and are built when they are needed
+			final BSPNode right;
+			if (rsl.size >= LAZY_THRESHOLD) {
+				final WallList own = new WallList(rsl.size);
+				own.addAll(rsl, 0, rsl.size);
+				right = new BSPLazyNode(own, expander);
+			}
+			else {
+				sl.addAll(rsl, 0, rsl.size);
+				right = genNodes(sl, lsize, scratch);
+			}
+			final BSPNode left;
+			if (lsize - from >= LAZY_THRESHOLD) {
+				final WallList own = new WallList(lsize - from);
+				own.addAll(sl, from, lsize);
+				sl.size = from;
+				left = new BSPLazyNode(own, expander);
+			}
+			else
+				left = genNodes(sl, from, scratch);
+			return new BSPBranch(x, y, dx, dy, left, right);
+		}
+		if (parallel && size - from >= PARALLEL_THRESHOLD) {
+			// recursion on both branches at the same time, this runs on the pool, see generateBSPNodes
+			// the right subtree gets lists of its own, the left one keeps working on this list
+			final WallList own = new WallList(rsl.size);
+			own.addAll(rsl, 0, rsl.size);
+			final SubtreeTask left = new SubtreeTask(sl, from, scratch);
+			final SubtreeTask right = new SubtreeTask(own, 0, new WallList(rsl.size));
+			ForkJoinTask.invokeAll(left, right);
+			return new BSPBranch(x, y, dx, dy, left.join(), right.join());
+		}
+		sl.addAll(rsl, 0, rsl.size);
+		// recursion on both branches, right first as its walls are on top
+		final BSPNode right = genNodes(sl, lsize, scratch);
+		final BSPNode left = genNodes(sl, from, scratch);
+		return new BSPBranch(x, y, dx, dy, left, right);
 	}
-
-    /**
-	 * Counts how many elements in the wall vector have their partition bit set to false
-	 * @param sl all walls
-	 * @return number of walls where the partition flag is not set
+	
+	/**
+	 * Builds the subtree for the walls of a lazy node, its large subtrees are built on demand again.
+	 * @param walls the walls of the node
+	 * @return root node of the subtree
+	 */
+	BSPNode expand(WallList walls) {
+		try {
+			return genNodes(walls, 0, new WallList(walls.size));
+		}
+		catch (InterruptedException ex) {
+			throw new AssertionError("BSPBuilder: lazy subtrees cannot be cancelled", ex);
+		}
+	}
+	
+	/**
+	 * Starts to build all subtrees of the given tree that are left for later on the common pool.
+	 * A subtree that is expanded in the meantime is not built twice.
+	 * @param root root of a tree that may have nodes that are built on demand
+	 * @return the task that builds them, to wait for if needed
+	 */
+	public static ForkJoinTask<?> completeInBackground(BSPNode root) {
+		return ForkJoinPool.commonPool().submit(new CompletionTask(root));
+	}
+	
+	/**
+	 * Task that expands all nodes of a subtree, the branches of large nodes in parallel.
 	 */
-	private static int countNonPartitions(ArrayList<Wall> sl) {
-		int result = 0 ;
-		for (int i = 0; i != sl.size(); i++)
-		{
-			if (!(sl.get(i)).isPartition())
-				result++;
+	private static final class CompletionTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final BSPNode node;
+		
+		CompletionTask(BSPNode node) {
+			this.node = node;
+		}
+		@Override
+		protected void compute() {
+			if (node.isIsleaf())
+				return;
+			final BSPBranch branch = (BSPBranch) node;
+			ForkJoinTask.invokeAll(new CompletionTask(branch.getLeftBranch()), new CompletionTask(branch.getRightBranch()));
 		}
+	}
+	
+	/**
+	 * Creates a leaf with the walls of the given list from position from to its end
+	 * and removes them from the list.
+	 */
+	private BSPLeaf leaf(WallList sl, int from) {
+		final BSPLeaf result = new BSPLeaf(sl.toWalls(from, sl.size, colchange));
+		sl.size = from;
 		return result;
 	}
+	
+	/**
+	 * Task that builds the subtree for a list of walls with {@link #genNodes(WallList, int, WallList)}.
+	 */
+	private final class SubtreeTask extends RecursiveTask<BSPNode> {
+		private static final long serialVersionUID = 1L;
+		private final WallList walls;
+		private final int from;
+		private final WallList scratch;
+		
+		SubtreeTask(WallList walls, int from, WallList scratch) {
+			this.walls = walls;
+			this.from = from;
+			this.scratch = scratch;
+		}
+		@Override
+		protected BSPNode compute() {
+			try {
+				return genNodes(walls, from, scratch);
+			}
+			catch (InterruptedException ex) {
+				throw new CancelledException(ex);
+			}
+		}
+	}
+	/**
+	 * Carries an InterruptedException out of a {@link SubtreeTask}, which cannot throw checked exceptions.
+	 */
+	private static final class CancelledException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		
+		CancelledException(InterruptedException cause) {
+			super(cause);
+		}
+	}
 
 	/**
 	 * It finds the wall which has the minimum grade value.
-	 * @param sl vector of walls
-	 * @return wall that is best candidate according to grade partition (smallest grade)
+	 * @param sl vector of walls, the walls of the node are at its end
+	 * @param from position of the first wall of the node
+	 * @return position of the wall that is best candidate according to grade partition (smallest grade)
 	 * @throws InterruptedException 
 	 */
-	private Wall findPartitionCandidate(ArrayList<Wall> sl) throws InterruptedException {
-		Wall result = null ;
+	private int findPartitionCandidate(WallList sl, int from) throws InterruptedException {
+		if (exactGrading)
+			return findBestPartition(sl, from);
+		final int n = sl.size - from;
+		int result = -1 ;
 		int bestgrade = 5000; // used to compute the minimum of all observed grade values, set to some high initial value
 		final int maxtries = 50; // constant, only used to determine skip
 		// consider a subset of walls proportional to the number of tries, here 50, seems to randomize the access a bit
-		int skip = (sl.size() / maxtries);
+		int skip = (n / maxtries);
 		if (skip == 0)
 			skip = 1;
 		assert (0 < skip) : "Increment for loop must be positive";
-		for (int i = 0; i < sl.size(); i += skip) {
-			Wall element = sl.get(i);
+		// grades consider a sample of about 50 walls, see Wall.calculateGrade
+		final int inc = (n >= 100) ? n / 50 : 1 ;
+		for (int i = from; i < sl.size; i += skip) {
 			// skip walls where the partition flag was set
-			if (element.isPartition())
+			if (sl.partition[i])
 				continue;
 			// provide feedback for progress bar every 32 iterations
-			partiters++;
-			if ((partiters & 31) == 0) {
-				updateProgressBar(partiters); // side effect: update progress bar
+			final int iterations = partiters.incrementAndGet();
+			if ((iterations & 31) == 0) {
+				updateProgressBar(iterations); // side effect: update progress bar
 			}
 			// check grade and keep track of minimum
-			int grade = grade_partition(sl, element);
+			int grade = sl.calculateGrade(i, from, sl.size, inc);
+			if (grade < bestgrade) {
+				bestgrade = grade;
+				result = i; // determine wall with smallest grade
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * It finds the wall which has the minimum grade value among all candidates,
+	 * graded against all walls. Among candidates with the same grade, the first one in the list is chosen.
+	 * @param sl vector of walls, the walls of the node are at its end
+	 * @param from position of the first wall of the node
+	 * @return position of the wall that is best candidate according to grade partition (smallest grade)
+	 * @throws InterruptedException 
+	 */
+	private int findBestPartition(WallList sl, int from) throws InterruptedException {
+		final PartitionGrader grader = new PartitionGrader(sl, from, sl.size);
+		int result = -1 ;
+		int bestgrade = Integer.MAX_VALUE;
+		// progress counts the candidates the heuristic would have graded, such that expectedPartiters still fits
+		int skip = ((sl.size - from) / 50);
+		if (skip == 0)
+			skip = 1;
+		for (int i = from; i < sl.size; i++) {
+			// skip walls where the partition flag was set
+			if (sl.partition[i])
+				continue;
+			if ((i - from) % skip == 0) {
+				final int iterations = partiters.incrementAndGet();
+				if ((iterations & 31) == 0) {
+					updateProgressBar(iterations); // side effect: update progress bar
+				}
+			}
+			int grade = grader.grade(sl, i);
 			if (grade < bestgrade) {
 				bestgrade = grade;
-				result = element; // determine wall with smallest grade
+				result = i; // determine wall with smallest grade
 			}
 		}
 		return result;
 	}
 
 	/**
-	 * Push information on progress into maze such that UI can update progress bar
+	 * Push information on progress into maze such that UI can update progress bar.
+	 * Threads that build subtrees in parallel may call this in any order,
+	 * the order only gets percentages that increase.
+	 * If the order has a progress channel, the percentage is published there without a lock
+	 * and the order is not called.
 	 * @param partiters
+	 * @throws InterruptedException if the order is cancelled
 	 */
 	private void updateProgressBar(int partiters) throws InterruptedException {
 		// During maze generation, the most time consuming part needs to occasionally update the current screen
 		// 
-		int percentage = partiters*100/expectedPartiters ;
-		if (null != order) {
-			order.updateProgress(percentage) ;
-			if (percentage < 100) {
-				// give main thread a chance to process keyboard events
-				Thread.currentThread().sleep(10);
+		int percentage = (int)(partiters*100L/expectedPartiters) ;
+		if (null != progress) {
+			progress.update(Progress.Phase.BSP, percentage) ;
+		}
+		else if (null != order) {
+			synchronized (this) {
+				if (percentage > reportedPercentage) {
+					reportedPercentage = percentage ;
+					order.updateProgress(percentage) ;
+				}
 			}
 		}
+		// recognize cancel requests in long running loops
+		cancellation.throwIfCancelled();
 	}
 
 	/**
 	 * Set the partition bit to true for walls on the border and where the direction is 0
 	 * @param sl
 	 */
-	private void setPartitionBitForCertainWalls(ArrayList<Wall> sl) {
+	private void setPartitionBitForCertainWalls(WallList sl) {
 	    // TODO: check if seg just works with width and height or needs map_unit adjustment
 	    //System.out.println("set Partition bit in BSP builder with scaled width and height values");
-		for (Wall se : sl) {
-			//se.updatePartitionIfBorderCase(width, height);
-		    se.updatePartitionIfBorderCase(width*Constants.MAP_UNIT, height*Constants.MAP_UNIT);
+		// same as Wall.updatePartitionIfBorderCase with scaled width and height values
+		final int w = width*Constants.MAP_UNIT;
+		final int h = height*Constants.MAP_UNIT;
+		for (int i = 0; i < sl.size; i++) {
+			if (((sl.x[i] == 0 || sl.x[i] == w) && sl.dx[i] == 0)
+					|| ((sl.y[i] == 0 || sl.y[i] == h) && sl.dy[i] == 0))
+				sl.partition[i] = true;
 		}
 	}
 
@@ -215,8 +483,8 @@ public class BSPBuilder {
 	 * Identifies continuous sequences of wallboards on the maze and fills the wall list 
 	 * @return vector of walls
 	 */
-	private ArrayList<Wall> generateWalls() {
-		ArrayList<Wall> sl = new ArrayList<Wall>();
+	private WallList generateWalls() {
+		WallList sl = new WallList(2*(width + height));
 		// this is left over from changes made in a refactoring step
 		// it is an example to show how one can operate the old and the new
 		// version of the code in parallel and test if they deliver same results.
@@ -224,9 +492,11 @@ public class BSPBuilder {
 		// instead of the new variant that uses the iterator for walls
 		// TODO: clean up code, remove unnecessary deprecated methods
 		if (false) {
-		generateWallsForHorizontalWallboards(sl); 
+		ArrayList<Wall> walls = new ArrayList<Wall>();
+		generateWallsForHorizontalWallboards(walls); 
 
-		generateWallsForVerticalWallboards(sl);
+		generateWallsForVerticalWallboards(walls);
+		sl = WallList.of(walls);
 		}
 		else {
 		    generateWallsForHorizontalWallboardsNew(sl); 
@@ -286,7 +556,7 @@ public class BSPBuilder {
      * Identify continuous sequences of wallboards in a vertical direction
      * @param sl
      */
-	   private void generateWallsForVerticalWallboardsNew(ArrayList<Wall> sl) {
+	   private void generateWallsForVerticalWallboardsNew(WallList sl) {
 	        int x;
 	        int y;
 	        Iterator<int[]> it;
@@ -300,8 +570,8 @@ public class BSPBuilder {
 	                y = cur[1];
 	                // create wall with (x,starty) being the actual start position of the wall, 
                     // y-starty being the positive length
-                    sl.add(new Wall(x*Constants.MAP_UNIT, starty*Constants.MAP_UNIT,
-                            0, (y-starty)*Constants.MAP_UNIT, dists.getDistanceValue(x, starty), colchange));
+                    sl.add(x*Constants.MAP_UNIT, starty*Constants.MAP_UNIT,
+                            0, (y-starty)*Constants.MAP_UNIT, dists.getDistanceValue(x, starty), false);
 	            }
 	            
 	            it = floorplan.iterator(x, 0, CardinalDirection.East);
@@ -312,8 +582,8 @@ public class BSPBuilder {
                     // create wall with (x+1,y) being being one off in both directions from the last cell in this wall, starty-y being the negative length
                     // since we are looking at right wallboards, one off in the right direction (x+1) are then cells that have this wall on its left hand side
                     // for some reason the end position is used as a starting position and therefore the length & direction is inverse 
-                    sl.add(new Wall((x+1)*Constants.MAP_UNIT, y*Constants.MAP_UNIT,
-                            0, (starty-y)*Constants.MAP_UNIT, dists.getDistanceValue(x, starty), colchange));
+                    sl.add((x+1)*Constants.MAP_UNIT, y*Constants.MAP_UNIT,
+                            0, (starty-y)*Constants.MAP_UNIT, dists.getDistanceValue(x, starty), false);
                 }
 	        }
 	    }
@@ -399,7 +669,7 @@ public class BSPBuilder {
      * Identify continuous sequences of wallboards in a horizontal direction
      * @param sl
      */
-    private void generateWallsForHorizontalWallboardsNew(ArrayList<Wall> sl) {
+    private void generateWallsForHorizontalWallboardsNew(WallList sl) {
         int x;
         int y;
         Iterator<int[]> it;
@@ -414,8 +684,8 @@ public class BSPBuilder {
                 x = cur[1];
                 // create wall with (x,y) being the end positions, startx-x being the negative length
                 // note the (x,y) is not part of the wall
-                sl.add(new Wall(x*Constants.MAP_UNIT, y*Constants.MAP_UNIT,
-                        (startx-x)*Constants.MAP_UNIT, 0, dists.getDistanceValue(startx, y), colchange));
+                sl.add(x*Constants.MAP_UNIT, y*Constants.MAP_UNIT,
+                        (startx-x)*Constants.MAP_UNIT, 0, dists.getDistanceValue(startx, y), false);
             }
             // second round through rows, same for bottom wallboards
             it = floorplan.iterator(0,y, CardinalDirection.South);
@@ -425,68 +695,11 @@ public class BSPBuilder {
                 x = cur[1];
                 // create wall with (startx,y+1) being one below the start position, x-startx being the positive length
                 // so this may represent a wallboard at the bottom of the wall as the top wallboard one below
-                sl.add(new Wall(startx*Constants.MAP_UNIT, (y+1)*Constants.MAP_UNIT,
-                        (x-startx)*Constants.MAP_UNIT, 0, dists.getDistanceValue(startx, y), colchange));
+                sl.add(startx*Constants.MAP_UNIT, (y+1)*Constants.MAP_UNIT,
+                        (x-startx)*Constants.MAP_UNIT, 0, dists.getDistanceValue(startx, y), false);
             }
         }
     }
-	/**
-	 * Method called in genNodes to determine the minimum of all such grades. 
-	 * The method is static, i.e. it does not update internal attributes and just calculates the returned value.
-	 * @param sl vector of walls
-	 * @param pe particular wall
-	 * @return undocumented
-	 */
-	private int grade_partition(ArrayList<Wall> sl, Wall pe) {
-	    // code relocated to Seg.java
-	    ///* original code
-		// copy attributes of parameter pe
-		final int x  = pe.getStartPositionX();
-		final int y  = pe.getStartPositionY();
-		final int dx = pe.getExtensionX();
-		final int dy = pe.getExtensionY();
-		final int inc = (sl.size() >= 100) ? sl.size() / 50 : 1 ; // increment for iteration below
-		// define some local counter
-		int lcount = 0, rcount = 0, splits = 0;
-		// check all walls, loop calculates lcount, rcount and splits
-		for (int i = 0; i < sl.size(); i += inc) {
-			Wall se = (Wall) sl.get(i);
-			// extract information from wall
-			int df1x = se.getStartPositionX() - x; // difference between beginning of wall and x
-			int df1y = se.getStartPositionY() - y; // difference between beginning of wall and y
-			int df2x = se.getEndPositionX() - x; // difference between end of wall and x
-			int df2y = se.getEndPositionY() - y; // difference between end of wall and y
-			int nx = dy;
-			int ny = -dx;
-			int dot1 = df1x * nx + df1y * ny;
-			int dot2 = df2x * nx + df2y * ny;
-			// update splits if necessary
-			if (getSign(dot1) != getSign(dot2)) {
-				if (dot1 == 0)
-					dot1 = dot2;
-				else if (dot2 != 0) {
-					splits++;
-					continue;
-				}
-			}
-			// update lcount, rcount values
-			if (dot1 > 0 ||
-					(dot1 == 0 && se.hasSameDirection(pe))) {
-				rcount++;
-			} else if (dot1 < 0 ||
-					(dot1 == 0 && se.hasOppositeDirection(pe))) {
-				lcount++;
-			} else {
-				dbg("grade_partition problem: dot1 = "+dot1+", dot2 = "+dot2);
-			}
-		}
-		int result_old = Math.abs(lcount-rcount) + splits * 3;
-		//*/
-	    // new code
-	    int result_new = pe.calculateGrade(sl);
-	    assert (result_old == result_new) : "BSPBuilder grade calculation fails";
-	    return result_new;
-	}
 	/**
 	 * Generate tree of BSP nodes for a given maze
 	 * @return
@@ -494,7 +707,7 @@ public class BSPBuilder {
 	 */
 	public BSPNode generateBSPNodes() throws InterruptedException {
 		// determine walls, i.e. wallboards over multiple cells in a vertical or horizontal direction
-		ArrayList<Wall> seglist = generateWalls();
+		WallList seglist = generateWalls();
 
 		setPartitionBitForCertainWalls(seglist); // partition bit true means that those are not considered any further for node generation
 
@@ -502,7 +715,21 @@ public class BSPBuilder {
 		Wallboard wallboard = new Wallboard(0, 0, CardinalDirection.North) ;
 		floorplan.addWallboard(wallboard, false);
 
-		return genNodes(seglist); // creates a data structure to quickly search for walls
+		if (lazy)
+			expander = new BSPBuilder(this);
+		if (lazy || !parallel || seglist.size < PARALLEL_THRESHOLD)
+			return genNodes(seglist, 0, new WallList(seglist.size)); // creates a data structure to quickly search for walls
+		try {
+			return ForkJoinPool.commonPool().invoke(new SubtreeTask(seglist, 0, new WallList(seglist.size)));
+		}
+		catch (RuntimeException ex) {
+			// the pool may rethrow a copy of the exception with the original one as its cause
+			for (Throwable cause = ex; null != cause; cause = cause.getCause()) {
+				if (cause instanceof InterruptedException)
+					throw (InterruptedException)cause;
+			}
+			throw ex;
+		}
 	}
 	/**
 	 * Provides the sign of a given integer number
@@ -512,6 +739,12 @@ public class BSPBuilder {
 	static int getSign(int num) {
 		return (num < 0) ? -1 : (num > 0) ? 1 : 0;
 	}
+	/**
+	 * Same as {@link #getSign(int)} for dot products of large coordinates.
+	 */
+	static int getSign(long num) {
+		return (num < 0) ? -1 : (num > 0) ? 1 : 0;
+	}
 	/**
 	 * Produce output for debugging purposes
 	 * @param str
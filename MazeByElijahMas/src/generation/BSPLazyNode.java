@@ -0,0 +1,76 @@
+package generation;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * A node of a BSP tree whose subtree is built on demand, see {@link BSPBuilder#setLazy(boolean)}.
+ * It keeps the walls of its subtree unsplit and builds the subtree the first time it is expanded,
+ * which happens when a {@link BSPBranch} gives it out as a branch, e.g. when the FirstPersonView
+ * descends into it. Its bounds are known from the start: splitting a wall gives pieces within the wall,
+ * so the bounds of the walls are the bounds of the subtree.
+ *
+ * Several threads may expand the same node, the subtree is built once.
+ *
+ * @author Elijah Mas
+ */
+final class BSPLazyNode extends BSPNode {
+	/**
+	 * the walls of the subtree, null once the subtree is built
+	 */
+	private WallList walls;
+	/**
+	 * builds the subtree, see {@link BSPBuilder#expand(WallList)}
+	 */
+	private final BSPBuilder builder;
+	/**
+	 * the subtree, null till the node is expanded
+	 */
+	private BSPNode subtree;
+
+	/**
+	 * Constructor
+	 * @param walls the walls of the subtree, not empty, the node takes the list over
+	 * @param builder the builder for the subtree
+	 */
+	BSPLazyNode(WallList walls, BSPBuilder builder) {
+		assert (walls.size > 0) : "BSPLazyNode needs walls, list is empty!" ;
+		this.walls = walls;
+		this.builder = builder;
+		setLowerBoundX(Integer.MAX_VALUE);
+		setUpperBoundX(Integer.MIN_VALUE);
+		setLowerBoundY(Integer.MAX_VALUE);
+		setUpperBoundY(Integer.MIN_VALUE);
+		for (int i = 0; i < walls.size; i++) {
+			updateBounds(walls.x[i], walls.y[i]);
+			updateBounds(walls.x[i] + walls.dx[i], walls.y[i] + walls.dy[i]);
+		}
+	}
+
+	/**
+	 * Builds the subtree the first time it is called.
+	 * @return the root of the subtree, whose branches may be built on demand as well
+	 */
+	@Override
+	public synchronized BSPNode expand() {
+		if (null == subtree) {
+			subtree = builder.expand(walls);
+			walls = null;
+		}
+		return subtree;
+	}
+	/**
+	 * @return tells if the subtree is a leaf node, builds it if needed
+	 */
+	@Override
+	public boolean isIsleaf() {
+		return expand().isIsleaf();
+	}
+	/**
+	 * Stores the subtree, builds it if needed.
+	 */
+	@Override
+	public int store(Document doc, Element mazeXML, int number) {
+		return expand().store(doc, mazeXML, number);
+	}
+}
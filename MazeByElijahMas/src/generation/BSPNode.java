@@ -59,6 +59,16 @@ public class BSPNode {
 		return false ;
 	}
 
+	/**
+	 * Gives the node that stands for this one in the tree.
+	 * A node whose subtree is built on demand builds it now and gives its root,
+	 * all other nodes give themselves.
+	 * @return the node with the same bounds that is a BSPBranch or a BSPLeaf
+	 */
+	public BSPNode expand() {
+		return this ;
+	}
+
 	/**
 	 * Updates internal fields for upper and lower bounds of (x,y) coordinates.
 	 * Given parameter values are taken for bounds if they exceed what is already
@@ -0,0 +1,463 @@
+package generation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import gui.Constants;
+
+/**
+ * Updates the BSP tree of a maze when its walls change after generation,
+ * e.g. in a level editor or when a script opens a wall, without building the tree again.
+ *
+ * A wall that is inserted follows the partitions of the branches down to the leaves,
+ * a partition cuts it in two if it crosses the partition line, just like the {@link BSPBuilder} does.
+ * A leaf that gets a wall is split by the line of that wall into a branch with two leaves,
+ * such that the walls of a leaf never hide each other. A wall that is removed follows the same path
+ * and is cut out of the walls of the leaves it ends up in, a leaf without walls is dropped and
+ * its sibling takes the place of its parent. Only the nodes on these paths change and
+ * their bounds are updated on the way back to the root, walls that are not cut keep their color
+ * and seen flag.
+ *
+ * Each insert can make a path one branch longer. If more than {@link #MAX_ADDED_DEPTH} branches
+ * on a path were added by updates, the subtree below the first of them is built again
+ * with exactly graded partitions, see {@link PartitionGrader}, which keeps the depth of the tree
+ * close to the depth of a tree that is built from scratch.
+ *
+ * Branches that are built on demand are only built if a change reaches them.
+ * The root of the tree keeps its identity as long as it is a branch, so a view that
+ * holds on to it shows changes right away. Updates should run on the thread that draws the maze,
+ * a frame drawn at the same time may show some nodes before and others after the change.
+ * A tree that is completed in the background, see {@link BSPBuilder#completeInBackground(BSPNode)},
+ * can be updated at the same time, a subtree that is built does not replace a branch that was changed.
+ *
+ * @author Elijah Mas
+ */
+public class BSPUpdater {
+	/**
+	 * a path with more branches that were added by inserts is rebuilt
+	 */
+	static final int MAX_ADDED_DEPTH = 6;
+
+	private final Maze maze;
+	private final int colchange; // used to determine the color of new walls, see Wall
+	/**
+	 * branches that inserts added to the tree, weak such that branches that drop out of the tree are collected,
+	 * compared by identity as BSPNode does not override equals
+	 */
+	private final Set<BSPNode> added = Collections.newSetFromMap(new WeakHashMap<BSPNode, Boolean>());
+	/**
+	 * branch whose subtree is rebuilt once the current insert returns to it, null if none
+	 */
+	private BSPBranch rebuildAt;
+	/**
+	 * number of subtrees that were rebuilt, for tests
+	 */
+	int rebuilds;
+
+	/**
+	 * Constructor
+	 * @param maze the maze whose floorplan and tree are updated, its tree must be complete or built on demand
+	 * @param colchange used to determine the color of new walls, as for the {@link BSPBuilder}
+	 */
+	public BSPUpdater(Maze maze, int colchange) {
+		this.maze = maze;
+		this.colchange = colchange;
+	}
+
+	/**
+	 * Adds a wallboard to the floorplan and its sides to the tree.
+	 * Both sides are added if the neighbor in the given direction is in the maze,
+	 * otherwise the wallboard is on the border and has a single side.
+	 * @param x coordinate of cell, {@code 0 <= x < width}
+	 * @param y coordinate of cell, {@code 0 <= y < height}
+	 * @param cd direction of the wallboard
+	 */
+	public void addWallboard(int x, int y, CardinalDirection cd) {
+		final Floorplan floorplan = maze.getFloorplan();
+		final int nx = x + cd.getDx();
+		final int ny = y + cd.getDy();
+		final boolean internal = maze.isValidPosition(nx, ny);
+		final boolean hasSide = floorplan.hasWall(x, y, cd);
+		final boolean hasOtherSide = !internal || floorplan.hasWall(nx, ny, cd.oppositeDirection());
+		floorplan.addWallboard(new Wallboard(x, y, cd), internal);
+		if (!hasSide)
+			insertWall(side(x, y, cd));
+		if (!hasOtherSide)
+			insertWall(side(nx, ny, cd.oppositeDirection()));
+	}
+
+	/**
+	 * Deletes a wallboard between two cells from the floorplan and its sides from the tree.
+	 * Same as {@link Floorplan#deleteWallboard(int, int, CardinalDirection)}, it cannot open the border.
+	 * @param x coordinate of cell, {@code 0 <= x < width}
+	 * @param y coordinate of cell, {@code 0 <= y < height}
+	 * @param cd direction of the wallboard
+	 * @throws IllegalArgumentException if the neighbor in the given direction is not in the maze
+	 */
+	public void deleteWallboard(int x, int y, CardinalDirection cd) {
+		final Floorplan floorplan = maze.getFloorplan();
+		final int nx = x + cd.getDx();
+		final int ny = y + cd.getDy();
+		if (!maze.isValidPosition(nx, ny))
+			throw new IllegalArgumentException("BSPUpdater: cannot delete a wallboard on the border at " + x + "," + y);
+		final boolean hasSide = floorplan.hasWall(x, y, cd);
+		final boolean hasOtherSide = floorplan.hasWall(nx, ny, cd.oppositeDirection());
+		floorplan.deleteWallboard(x, y, cd);
+		if (hasSide)
+			removeWall(side(x, y, cd));
+		if (hasOtherSide)
+			removeWall(side(nx, ny, cd.oppositeDirection()));
+	}
+
+	/**
+	 * Inserts a wall into the tree, the floorplan is left as is.
+	 * A maze without a tree, see {@link MazeBuilder#setBuildBSP(boolean)}, is left as is.
+	 * @param wall the wall, which the tree takes over
+	 */
+	public void insertWall(Wall wall) {
+		final BSPNode root = maze.getRootnode();
+		if (null == root)
+			return;
+		setRoot(root, insert(root, wall, new ArrayList<BSPBranch>()));
+	}
+
+	/**
+	 * Removes a segment from the walls of the tree, the floorplan is left as is.
+	 * Walls that face the same way as the segment and overlap with it are cut, other walls are left as is.
+	 * A maze without a tree is left as is.
+	 * @param segment gives position, direction and length of the segment
+	 * @throws IllegalStateException if no wall would be left
+	 */
+	public void removeWall(Wall segment) {
+		final BSPNode root = maze.getRootnode();
+		if (null == root)
+			return;
+		final BSPNode result = remove(root, segment);
+		if (null == result)
+			throw new IllegalStateException("BSPUpdater: cannot remove the last wall of a maze");
+		setRoot(root, result);
+	}
+
+	///////////////////////// private methods ///////////////////////////////////
+	/**
+	 * Gives the side of a wallboard that faces into cell (x,y),
+	 * with the same position and extension that the BSPBuilder uses for a wall of a single wallboard.
+	 */
+	private Wall side(int x, int y, CardinalDirection cd) {
+		final int u = Constants.MAP_UNIT;
+		final int dist = maze.getMazedists().getDistanceValue(x, y);
+		switch (cd) {
+		case North:
+			return new Wall((x+1)*u, y*u, -u, 0, dist, colchange);
+		case South:
+			return new Wall(x*u, (y+1)*u, u, 0, dist, colchange);
+		case West:
+			return new Wall(x*u, y*u, 0, u, dist, colchange);
+		default: // East
+			return new Wall((x+1)*u, (y+1)*u, 0, -u, dist, colchange);
+		}
+	}
+
+	/**
+	 * Puts the new root in place of the old one. A branch keeps its identity,
+	 * it becomes a copy of a new root that is a branch as well.
+	 */
+	private void setRoot(BSPNode root, BSPNode result) {
+		if (result == root)
+			return;
+		if (root instanceof BSPBranch && result instanceof BSPBranch) {
+			((BSPBranch) root).copyFrom((BSPBranch) result);
+			if (added.contains(result))
+				added.add(root);
+			else
+				added.remove(root);
+			return;
+		}
+		maze.setRootnode(result);
+	}
+
+	/**
+	 * Inserts a wall into the subtree of the given node.
+	 * @param node root of the subtree
+	 * @param wall the wall
+	 * @param path the branches from the root of the tree to the node
+	 * @return the node that takes the place of the given one
+	 */
+	private BSPNode insert(BSPNode node, Wall wall, ArrayList<BSPBranch> path) {
+		if (node.isIsleaf()) {
+			// count the branches on the path that inserts added, the split adds one more
+			int count = 1;
+			BSPBranch first = null;
+			for (BSPBranch branch : path) {
+				if (added.contains(branch)) {
+					count++;
+					if (null == first)
+						first = branch;
+				}
+			}
+			if (count > MAX_ADDED_DEPTH && null == rebuildAt)
+				rebuildAt = first;
+			return split((BSPLeaf) node, wall);
+		}
+		final BSPBranch branch = (BSPBranch) node;
+		final ArrayList<Wall> left = new ArrayList<Wall>(2);
+		final ArrayList<Wall> right = new ArrayList<Wall>(2);
+		partition(wall, branch.getX(), branch.getY(), branch.getDx(), branch.getDy(), left, right);
+		BSPNode lnode = branch.getLeftBranch();
+		BSPNode rnode = branch.getRightBranch();
+		path.add(branch);
+		for (Wall piece : left)
+			lnode = insert(lnode, piece, path);
+		for (Wall piece : right)
+			rnode = insert(rnode, piece, path);
+		path.remove(path.size() - 1);
+		branch.setBranches(lnode, rnode);
+		if (branch == rebuildAt) {
+			rebuildAt = null;
+			return rebuild(branch, path);
+		}
+		return branch;
+	}
+
+	/**
+	 * Splits a leaf by the line of the given wall, which is marked as partition.
+	 * @return a branch with two leaves, or a leaf if all walls are on one side of the line
+	 */
+	private BSPNode split(BSPLeaf leaf, Wall wall) {
+		final int x = wall.getStartPositionX();
+		final int y = wall.getStartPositionY();
+		final int dx = wall.getExtensionX();
+		final int dy = wall.getExtensionY();
+		final ArrayList<Wall> left = new ArrayList<Wall>();
+		final ArrayList<Wall> right = new ArrayList<Wall>();
+		for (Wall w : leaf.getSlist())
+			partition(w, x, y, dx, dy, left, right);
+		partition(wall, x, y, dx, dy, left, right); // goes to the right and becomes a partition
+		if (left.isEmpty())
+			return new BSPLeaf(right);
+		final BSPBranch branch = new BSPBranch(x, y, dx, dy, new BSPLeaf(left), new BSPLeaf(right));
+		added.add(branch);
+		return branch;
+	}
+
+	/**
+	 * Builds the subtree of the given branch again from its walls.
+	 * @param branch root of the subtree
+	 * @param path the branches from the root of the tree to the parent of the branch
+	 * @return root of the new subtree
+	 */
+	private BSPNode rebuild(BSPBranch branch, ArrayList<BSPBranch> path) {
+		final ArrayList<Wall> walls = new ArrayList<Wall>();
+		collectWalls(branch, walls);
+		// walls on the partition lines above the subtree and on the border stay partitions, others may be chosen again
+		final int width = maze.getWidth()*Constants.MAP_UNIT;
+		final int height = maze.getHeight()*Constants.MAP_UNIT;
+		for (Wall w : walls) {
+			w.setPartition(isOnPartitionLine(w, path));
+			w.updatePartitionIfBorderCase(width, height);
+		}
+		rebuilds++;
+		return build(walls);
+	}
+
+	/**
+	 * Collects the walls in the leaves of a subtree.
+	 */
+	private static void collectWalls(BSPNode node, ArrayList<Wall> walls) {
+		if (node.isIsleaf()) {
+			walls.addAll(((BSPLeaf) node).getSlist());
+			return;
+		}
+		collectWalls(((BSPBranch) node).getLeftBranch(), walls);
+		collectWalls(((BSPBranch) node).getRightBranch(), walls);
+	}
+
+	/**
+	 * Tells if both ends of the wall are on the partition line of one of the given branches.
+	 */
+	private static boolean isOnPartitionLine(Wall w, ArrayList<BSPBranch> path) {
+		for (BSPBranch b : path) {
+			final long dot1 = (long)(w.getStartPositionX() - b.getX()) * b.getDy() - (long)(w.getStartPositionY() - b.getY()) * b.getDx();
+			final long dot2 = (long)(w.getEndPositionX() - b.getX()) * b.getDy() - (long)(w.getEndPositionY() - b.getY()) * b.getDx();
+			if (dot1 == 0 && dot2 == 0)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Builds a tree for the given walls like the {@link BSPBuilder} with exact grading,
+	 * but keeps the wall objects that are not split.
+	 */
+	private BSPNode build(ArrayList<Wall> walls) {
+		final WallList list = WallList.of(walls);
+		PartitionGrader grader = null;
+		int best = -1;
+		int bestgrade = Integer.MAX_VALUE;
+		for (int i = 0; i < list.size; i++) {
+			if (list.partition[i])
+				continue;
+			if (null == grader)
+				grader = new PartitionGrader(list, 0, list.size);
+			final int grade = grader.grade(list, i);
+			if (grade < bestgrade) {
+				bestgrade = grade;
+				best = i;
+			}
+		}
+		if (best < 0)
+			return new BSPLeaf(walls);
+		final Wall pe = walls.get(best);
+		pe.setPartition(true);
+		final int x = pe.getStartPositionX();
+		final int y = pe.getStartPositionY();
+		final int dx = pe.getExtensionX();
+		final int dy = pe.getExtensionY();
+		final ArrayList<Wall> left = new ArrayList<Wall>();
+		final ArrayList<Wall> right = new ArrayList<Wall>();
+		for (Wall w : walls)
+			partition(w, x, y, dx, dy, left, right);
+		if (left.isEmpty())
+			return new BSPLeaf(right);
+		if (right.isEmpty())
+			return new BSPLeaf(left);
+		return new BSPBranch(x, y, dx, dy, build(left), build(right));
+	}
+
+	/**
+	 * Removes a segment from the walls in the subtree of the given node.
+	 * @return the node that takes the place of the given one, null if no wall is left
+	 */
+	private BSPNode remove(BSPNode node, Wall segment) {
+		if (node.isIsleaf()) {
+			final ArrayList<Wall> walls = ((BSPLeaf) node).getSlist();
+			final ArrayList<Wall> rest = new ArrayList<Wall>(walls.size());
+			boolean changed = false;
+			for (Wall w : walls)
+				changed |= cut(w, segment, rest);
+			if (!changed)
+				return node;
+			return rest.isEmpty() ? null : new BSPLeaf(rest);
+		}
+		final BSPBranch branch = (BSPBranch) node;
+		final ArrayList<Wall> left = new ArrayList<Wall>(2);
+		final ArrayList<Wall> right = new ArrayList<Wall>(2);
+		partition(segment, branch.getX(), branch.getY(), branch.getDx(), branch.getDy(), left, right);
+		BSPNode lnode = branch.getLeftBranch();
+		BSPNode rnode = branch.getRightBranch();
+		for (int i = 0; i < left.size() && null != lnode; i++)
+			lnode = remove(lnode, left.get(i));
+		for (int i = 0; i < right.size() && null != rnode; i++)
+			rnode = remove(rnode, right.get(i));
+		if (null == lnode)
+			return rnode;
+		if (null == rnode)
+			return lnode;
+		branch.setBranches(lnode, rnode);
+		return branch;
+	}
+
+	/**
+	 * Adds the parts of wall w that are not covered by the segment to the result.
+	 * Only a wall that faces the same way as the segment on the same line is cut.
+	 * @return true if the segment covers a part of the wall, false if the wall is added as is
+	 */
+	private static boolean cut(Wall w, Wall segment, ArrayList<Wall> result) {
+		final int wdx = w.getExtensionX();
+		final int wdy = w.getExtensionY();
+		final boolean horizontal = wdx != 0;
+		if (WallList.getDir(wdx, wdy) != WallList.getDir(segment.getExtensionX(), segment.getExtensionY())
+				|| (horizontal ? w.getStartPositionY() != segment.getStartPositionY()
+						: w.getStartPositionX() != segment.getStartPositionX())) {
+			result.add(w);
+			return false;
+		}
+		// compare the ranges on the line
+		final int wstart = horizontal ? w.getStartPositionX() : w.getStartPositionY();
+		final int wend = horizontal ? w.getEndPositionX() : w.getEndPositionY();
+		final int sstart = horizontal ? segment.getStartPositionX() : segment.getStartPositionY();
+		final int send = horizontal ? segment.getEndPositionX() : segment.getEndPositionY();
+		final int wlow = Math.min(wstart, wend);
+		final int whigh = Math.max(wstart, wend);
+		final int slow = Math.min(sstart, send);
+		final int shigh = Math.max(sstart, send);
+		if (shigh <= wlow || slow >= whigh) {
+			result.add(w);
+			return false;
+		}
+		// pieces keep the direction of the wall
+		final boolean positive = (wend > wstart);
+		if (wlow < slow)
+			result.add(positive ? piece(w, horizontal, wlow, slow) : piece(w, horizontal, slow, wlow));
+		if (shigh < whigh)
+			result.add(positive ? piece(w, horizontal, shigh, whigh) : piece(w, horizontal, whigh, shigh));
+		return true;
+	}
+
+	/**
+	 * Gives the piece of wall w on its line from start to end.
+	 */
+	private static Wall piece(Wall w, boolean horizontal, int start, int end) {
+		return horizontal ? piece(w, start, w.getStartPositionY(), end - start, 0)
+				: piece(w, w.getStartPositionX(), start, 0, end - start);
+	}
+
+	/**
+	 * Gives a piece of wall w with the given position and extension and the color and flags of w.
+	 */
+	private static Wall piece(Wall w, int x, int y, int dx, int dy) {
+		final Wall result = new Wall(x, y, dx, dy, w.getDistance(), 0);
+		result.setColorIndex(w.getColorIndex());
+		result.setPartition(w.isPartition());
+		result.setSeen(w.isSeen());
+		return result;
+	}
+
+	/**
+	 * Puts a wall on the left or right side of the partition line through (x,y) with extension (dx,dy),
+	 * or a piece on each side if the line crosses it, with the same rules as the {@link BSPBuilder}.
+	 * A wall on the line becomes a partition.
+	 */
+	private static void partition(Wall w, int x, int y, int dx, int dy, ArrayList<Wall> left, ArrayList<Wall> right) {
+		// MEMO: same as in BSPBuilder.genNodes
+		final int sx = w.getStartPositionX();
+		final int sy = w.getStartPositionY();
+		final int sendx = w.getEndPositionX();
+		final int sendy = w.getEndPositionY();
+		long dot1 = (long)(sx - x) * dy - (long)(sy - y) * dx;
+		final long dot2 = (long)(sendx - x) * dy - (long)(sendy - y) * dx;
+		if (BSPBuilder.getSign(dot1) != BSPBuilder.getSign(dot2)) {
+			if (dot1 == 0)
+				dot1 = dot2;
+			else if (dot2 != 0) {
+				// we need to split this
+				int spx = sx;
+				int spy = sy;
+				if (dx == 0)
+					spx = x;
+				else
+					spy = y;
+				final Wall start = piece(w, sx, sy, spx-sx, spy-sy);
+				final Wall end = piece(w, spx, spy, sendx-spx, sendy-spy);
+				if (dot1 > 0) {
+					right.add(start);
+					left.add(end);
+				} else {
+					right.add(end);
+					left.add(start);
+				}
+				return;
+			}
+		}
+		final int dir = WallList.getDir(dx, dy);
+		final int sdir = WallList.getDir(w.getExtensionX(), w.getExtensionY());
+		if (dot1 == 0)
+			w.setPartition(true);
+		if (dot1 > 0 || (dot1 == 0 && sdir == dir))
+			right.add(w);
+		else
+			left.add(w);
+	}
+}
@@ -0,0 +1,58 @@
+package generation;
+
+/**
+ * A cancellation token is shared between the party that runs a maze generation
+ * and the party that may want to stop it, e.g. the MazeFactory when the user
+ * hits escape on the generating screen.
+ * 
+ * Cancellation is cooperative: the generation code checks the token
+ * in its loops and stops by throwing an InterruptedException,
+ * which the MazeBuilder catches in its run method to clean up.
+ * A check is a single read of a volatile field plus a check of the interrupt
+ * flag of the current thread, so it is cheap enough to perform inside loops.
+ * Loops that run over many cells check every {@link #CHECK_INTERVAL} iterations.
+ * An interrupted thread counts as cancelled, so interrupting the builder thread
+ * keeps working as before.
+ * 
+ * @author Elijah Mas
+ */
+public class CancellationToken {
+	/**
+	 * Loops over cells or wallboards check the token every CHECK_INTERVAL iterations,
+	 * the value is a power of 2 such that {@code (i & CHECK_MASK) == 0} can be used.
+	 */
+	public static final int CHECK_INTERVAL = 4096;
+	/**
+	 * Bitmask that matches {@link #CHECK_INTERVAL}
+	 */
+	public static final int CHECK_MASK = CHECK_INTERVAL - 1;
+	
+	/**
+	 * set once when cancel is called, never reset
+	 */
+	private volatile boolean cancelled = false;
+	
+	/**
+	 * Requests cancellation. The generation stops at its next check.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+	
+	/**
+	 * Tells if cancellation was requested or the current thread was interrupted.
+	 * @return true if the work should stop, false otherwise
+	 */
+	public boolean isCancelled() {
+		return cancelled || Thread.currentThread().isInterrupted();
+	}
+	
+	/**
+	 * Checks the token and throws an exception if cancellation was requested.
+	 * @throws InterruptedException if cancel was called or the current thread was interrupted
+	 */
+	public void throwIfCancelled() throws InterruptedException {
+		if (isCancelled())
+			throw new InterruptedException("maze generation cancelled");
+	}
+}
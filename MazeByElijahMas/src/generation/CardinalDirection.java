@@ -67,7 +67,16 @@ public enum CardinalDirection {
 	 * @return a random direction, distribution is uniform
 	 */
 	public CardinalDirection randomDirection() {
-		int i = SingleRandom.getRandom().nextIntWithinInterval(0, 3) ;
+		return randomDirection(SingleRandom.getRandom()) ;
+	}
+	/**
+	 * Gives a random direction drawn from the given random number stream.
+	 * Values are picked with equal probabilities.
+	 * @param random the random number stream to draw from
+	 * @return a random direction, distribution is uniform
+	 */
+	public CardinalDirection randomDirection(RandomSource random) {
+		int i = random.nextIntWithinInterval(0, 3) ;
 		switch(i) {
 		case 0 : 
 			return CardinalDirection.North ;
@@ -121,6 +130,37 @@ public enum CardinalDirection {
 		return CardinalDirection.getDirection(dx_dy[0], dx_dy[1]);
 	}
 	
+	/**
+	 * Gives the dx value of the (dx,dy) pair for the current direction
+	 * without allocating an array as {@link #getDirection()} does.
+	 * @return dx in {-1,0,1}
+	 */
+	public int getDx() {
+		switch(this) {
+		case East : 
+			return 1 ;
+		case West : 
+			return -1 ;
+		default:
+			return 0 ;
+		}
+	}
+	/**
+	 * Gives the dy value of the (dx,dy) pair for the current direction
+	 * without allocating an array as {@link #getDirection()} does.
+	 * @return dy in {-1,0,1}
+	 */
+	public int getDy() {
+		switch(this) {
+		case South : 
+			return 1 ;
+		case North : 
+			return -1 ;
+		default:
+			return 0 ;
+		}
+	}
+	
 	/**
 	 * Gives the (dx,dy) pair as in Cells.java for the current direction
 	 * @return (dx,dy) pair, dx,dy in {-1,0,1}
@@ -0,0 +1,104 @@
+package generation;
+
+/**
+ * A disjoint-set forest (union-find) over the integers {@code 0,1,...,size-1}.
+ * 
+ * Sets are trees stored in int arrays, a root is its own parent.
+ * Finding the root of an element compresses the path to the root,
+ * merging two sets attaches the root with the smaller rank to the other root.
+ * With both optimizations, a sequence of operations runs in
+ * almost linear time and no objects are allocated beyond the two arrays.
+ * 
+ * Maze builders use it to keep track of which cells are already connected,
+ * an element is a cell (x,y) encoded as x*height+y (Kruskal)
+ * or the set label of a cell in one of two rows (Eller).
+ * 
+ * @author Elijah Mas
+ */
+final class DisjointSets {
+	/**
+	 * parent of each element, a root is its own parent
+	 */
+	private final int[] parent;
+	/**
+	 * upper bound for the height of the tree of each root
+	 */
+	private final int[] rank;
+	
+	/**
+	 * Constructor, each element starts out in a set of its own.
+	 * @param size number of elements
+	 */
+	DisjointSets(int size) {
+		parent = new int[size];
+		rank = new int[size];
+		for (int i = 0; i < size; i++) {
+			parent[i] = i;
+		}
+	}
+	
+	/**
+	 * Puts each element back into a set of its own,
+	 * such that the instance can be reused without allocating new arrays.
+	 */
+	void reset() {
+		for (int i = 0; i < parent.length; i++) {
+			parent[i] = i;
+			rank[i] = 0;
+		}
+	}
+
+	/**
+	 * Finds the root of the tree that contains the given element.
+	 * Compresses the path such that all elements on the path point to the root afterwards.
+	 * @param element in range {@code 0 <= element < size}
+	 * @return the root element that represents the set
+	 */
+	int find(int element) {
+		int root = element;
+		while (parent[root] != root) {
+			root = parent[root];
+		}
+		// path compression
+		while (parent[element] != root) {
+			final int next = parent[element];
+			parent[element] = root;
+			element = next;
+		}
+		return root;
+	}
+	
+	/**
+	 * Merges the sets of the given elements. 
+	 * @param element1 one element
+	 * @param element2 other element
+	 * @return true if both elements were in different sets, false if they were already in the same set
+	 */
+	boolean union(int element1, int element2) {
+		final int root1 = find(element1);
+		final int root2 = find(element2);
+		if (root1 == root2)
+			return false;
+		if (rank[root1] < rank[root2]) {
+			parent[root1] = root2;
+		}
+		else if (rank[root1] > rank[root2]) {
+			parent[root2] = root1;
+		}
+		else {
+			parent[root2] = root1;
+			rank[root1]++;
+		}
+		return true;
+	}
+	
+	/**
+	 * Tells if the given elements are in the same set.
+	 * @param element1 one element
+	 * @param element2 other element
+	 * @return true if both elements are in the same set, false otherwise
+	 */
+	boolean connected(int element1, int element2) {
+		return find(element1) == find(element2);
+	}
+}
@@ -1,5 +1,9 @@
 package generation;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 /**
  * This class has the responsibility to provide the distance
  * for each cell to the exit of a maze.
@@ -23,6 +27,12 @@ package generation;
  * for specific positions as well as information about 
  * the exit or starting position for the maze.
  * 
+ * Distance values are stored in a 2D array on the heap by default.
+ * For mazes that are too large for the heap, they can be stored in a file
+ * that is mapped into memory, see {@link #Distance(int, int, Path)}.
+ * Once the distances of a maze are complete, they are frozen into a compact encoding
+ * with as many bits per value as the maximum distance needs, see {@link #freeze()}.
+ * 
  * This code is refactored code from MazeBuilder.java by 
  * Paul Falstad, www.falstad.com, Copyright (C) 1998, all rights reserved
  * Paul Falstad granted permission to modify and use code for teaching purposes.
@@ -47,7 +57,7 @@ public class Distance {
 	 * on dists. There are ways to set this reference,
 	 * obtain it and manipulate its content. 
 	 */
-	private int[][] dists; 
+	private IntGrid dists; 
 	/** 
 	 * The exit position has a distance of 1
 	 * which is also the minimum of all values in dists.
@@ -65,6 +75,32 @@ public class Distance {
 	 * to this instance.
 	 */
 	private int[] startPosition;
+	/**
+	 * The file with the distance values if they are mapped, null if they are on the heap.
+	 */
+	private Path mappedFile;
+	/**
+	 * True if the distance values are packed, see {@link #freeze()}.
+	 */
+	private boolean frozen;
+	/**
+	 * Position on the border with the maximum distance
+	 * as observed by the last breadth-first search, 
+	 * ties are broken in favor of the position with the smallest {@link #getBorderRank(int, int)}.
+	 */
+	private final int[] remoteBorderPosition = new int[2];
+	/**
+	 * Position with the maximum distance
+	 * as observed by the last breadth-first search,
+	 * ties are broken as in {@link #getPositionWithMaxDistance()}.
+	 */
+	private final int[] remotePosition = new int[2];
+	
+	// Direction tables for the breadth-first search, 
+	// index order matches CardinalDirection.values(): North, East, South, West
+	private static final int[] DIR_X = { 0, 1, 0, -1 };
+	private static final int[] DIR_Y = { -1, 0, 1, 0 };
+	private static final int[] DIR_WALL = { Floorplan.CW_TOP, Floorplan.CW_RIGHT, Floorplan.CW_BOT, Floorplan.CW_LEFT };
 	
 	/**
 	 * Constructor
@@ -76,6 +112,21 @@ public class Distance {
 		// exitPosition and startPosition
 		setAllDistanceValues(new int[w][h]);
 	}
+	/**
+	 * Constructor for distance values that are stored in the given file,
+	 * which is mapped into memory instead of being held on the heap.
+	 * The file is created if needed, values in an existing file are kept.
+	 * The work queue of {@link #computeDistances(Floorplan)} is mapped
+	 * to a temporary file in the same directory as well.
+	 * @param w is the width of the maze in the horizontal direction
+	 * @param h is the height of the maze in the vertical direction
+	 * @param file the file with the distance values
+	 * @throws IOException if the file cannot be mapped
+	 */
+	public Distance(int w, int h, Path file) throws IOException {
+		setAllDistanceValues(new MappedIntGrid(file, 0, w, h));
+		mappedFile = file;
+	}
 	/**
 	 * Constructor that directly uses the given reference.
 	 * Warning: the given parameter is shared, not copied. 
@@ -100,10 +151,18 @@ public class Distance {
 	 * @param array with distance values, can not be null
 	 */
 	public void setAllDistanceValues(int[][] distances) {
-		// side constraint: dists must be of dimension width x height
-		width = distances.length;
-		height = distances[0].length;
+		setAllDistanceValues(new HeapIntGrid(distances));
+		mappedFile = null;
+	}
+	/**
+	 * Sets the storage for the distance values, which is shared, not copied.
+	 * @param distances storage of dimension width x height
+	 */
+	private void setAllDistanceValues(IntGrid distances) {
+		width = distances.getWidth();
+		height = distances.getHeight();
 		this.dists = distances;
+		frozen = false;
 		// reset exit and start positions
 		// note: lazy evaluation in the sense that positions are
 		// computed on demand and then cached on corresponding
@@ -111,15 +170,59 @@ public class Distance {
 		exitPosition = null;
 		startPosition = null;
 	}
+	/**
+	 * Packs the distance values of a complete maze into a compact read-only encoding
+	 * that needs as many bits per value as the maximum distance, see {@link NarrowIntGrid},
+	 * e.g. 14 bits instead of an int for a maze with 100 x 100 cells.
+	 * All methods work as before, computing the distances again
+	 * unpacks them first.
+	 * Only distances on the heap are packed, and only if they are not negative.
+	 * @return true if the distances are frozen, false if they are left as is
+	 */
+	public boolean freeze() {
+		if (frozen)
+			return true;
+		if (!(dists instanceof HeapIntGrid))
+			return false;
+		final NarrowIntGrid packed = NarrowIntGrid.pack(dists);
+		if (null == packed)
+			return false;
+		dists = packed;
+		frozen = true;
+		return true;
+	}
+	/**
+	 * Tells if the distance values are frozen into the compact encoding.
+	 * @return true if frozen, false otherwise
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
 	/**
 	 * Gets access to a width x height array of distances. 
 	 * Warning, this exposes the internal attribute
 	 * and is intended for read access only. 
 	 * Do not modify entries of the returned array.
+	 * Distance values that are stored in a mapped file or frozen are copied into a new array,
+	 * use {@link #getDistanceValue(int, int)} for those.
 	 * @return array with distance values
 	 */
 	public int[][] getAllDistanceValues() {
-		return dists;
+		return dists.toArray();
+	}
+	/**
+	 * Gives the width of the distance matrix, same as the width of the maze.
+	 * @return width, the number of cells in x direction
+	 */
+	public int getWidth() {
+		return width;
+	}
+	/**
+	 * Gives the height of the distance matrix, same as the height of the maze.
+	 * @return height, the number of cells in y direction
+	 */
+	public int getHeight() {
+		return height;
 	}
 	/**
 	 * Gets the distance value for the given (x,y) position
@@ -128,7 +231,7 @@ public class Distance {
 	 * @return the distance value for the given (x,y) position
 	 */
 	public int getDistanceValue(int x, int y) {
-		return dists[x][y] ;
+		return dists.get(x, y) ;
 	}
 	
 	/**
@@ -137,7 +240,7 @@ public class Distance {
 	 * @return the distance value for the given (x,y) position
 	 */
 	public int getDistanceValue(int[] xy) {
-		return dists[xy[0]][xy[1]] ;
+		return dists.get(xy[0], xy[1]) ;
 	}
 	
 	/**
@@ -158,22 +261,51 @@ public class Distance {
 	 * @return exit position somewhere on the  border
 	 */
 	public int[] computeDistances(Floorplan cells) {
+		try {
+			return computeDistances(cells, null, null);
+		} catch (InterruptedException e) {
+			// cannot happen without a cancellation token
+			throw new IllegalStateException("Distance.computeDistances: unexpected cancellation", e);
+		}
+	}
+	
+	/**
+	 * Compute distances for given cells object of a maze,
+	 * same as {@link #computeDistances(Floorplan)} but
+	 * the computation stops if the given token is cancelled
+	 * and publishes its progress, each of the two passes covers half of the phase.
+	 * @param cells with information on wallboards for a maze, can not be null, read only
+	 * @param cancellation is checked during the computation, can be null for no checks
+	 * @param progress gets the progress of the {@link Progress.Phase#Distances} phase, can be null
+	 * @return exit position somewhere on the  border
+	 * @throws InterruptedException if the computation is cancelled
+	 */
+	public int[] computeDistances(Floorplan cells, CancellationToken cancellation, Progress progress)
+			throws InterruptedException {
 		// constraint: cells must be of size (width x height)
+		if (frozen)
+			setAllDistanceValues(new HeapIntGrid(width, height)); // unpack, all values are computed again
+		// work queue for the breadth-first search, shared by both passes
+		// it is as large as the distance matrix, so it is mapped if the matrix is
+		final IntGrid queue = createQueue();
 		
 		// Step 1: find a suitable exit position
 		// Heuristic:
 		// compute temporary distances for a starting point 
 		// (x,y) = (width/2,height/2) 
 		// which is located in the center of the maze
-		computeDists(cells, width/2, height/2);
-		// figure out which position is the farthest on the border 
-		// to find a candidate for the exit position
-		exitPosition = getPositionWithMaxDistanceOnBorder();
+		// the search memorizes the farthest position on the border
+		// as a candidate for the exit position
+		computeDists(cells, width/2, height/2, queue, cancellation, progress, 0);
+		exitPosition = new int[] {remoteBorderPosition[0], remoteBorderPosition[1]};
 		// Step 2: compute distances with regards to the exit position
-		computeDists(cells, exitPosition[0], exitPosition[1]);
+		// the search memorizes the farthest position overall 
+		// which is the starting position
+		computeDists(cells, exitPosition[0], exitPosition[1], queue, cancellation, progress, 50);
+		startPosition = new int[] {remotePosition[0], remotePosition[1]};
 		return exitPosition ;
 	}
-
+	
 	/**
 	 * Gets the starting position.
 	 * Assumes that computeDistances() was called before.
@@ -229,27 +361,6 @@ public class Distance {
 	//////////////////////////////////////////////////////////////////////////
 	//////////////// private, internal methods ///////////////////////////////
 	//////////////////////////////////////////////////////////////////////////
-	/**
-	 * Finds the most remote point in the maze somewhere on the border. 
-	 * Requires that distances have been computed beforehand.
-	 * @return array of length 2 encodes position 
-	 * {@code (x,y)=(array[0],array[1])}
-	 */
-	private int[] getPositionWithMaxDistanceOnBorder() {
-		// return result in an array of length 2
-		int[] result = new int[2] ;
-		int remoteDist = 0;
-		for (int x = 0; x < width; x++) {
-			remoteDist = keepMaxDistance(x, 0, remoteDist, result);
-			remoteDist = keepMaxDistance(x, height-1, remoteDist, result);
-		}
-		for (int y = 0; y < height; y++) {
-			remoteDist = keepMaxDistance(0, y, remoteDist, result);
-			remoteDist = keepMaxDistance(width-1, y, remoteDist, result);
-		}
-		return result;
-	}
-
 	/**
 	 * Get the position of the entry with the highest value.
 	 * @return array of length 2 encodes position
@@ -278,10 +389,10 @@ public class Distance {
 	 * @return the new maximum distance after the comparison
 	 */
 	private int keepMaxDistance(int x, int y, int d, int[] result) {
-		if (dists[x][y] > d) {
+		if (dists.get(x, y) > d) {
 			result[0] = x;
 			result[1] = y;
-			d = dists[x][y];
+			d = dists.get(x, y);
 		}
 		return d;
 	}
@@ -296,10 +407,10 @@ public class Distance {
 		int[] result = new int[2] ;
 		for (int x = 0; x != width; x++)
 			for (int y = 0; y != height; y++) {
-				if (dists[x][y] < d) {
+				if (dists.get(x, y) < d) {
 					result[0] = x;
 					result[1] = y;
-					d = dists[x][y];
+					d = dists.get(x, y);
 				}
 			}
 		return result ;
@@ -312,160 +423,148 @@ public class Distance {
 	 */
 	static final int INFINITY = Integer.MAX_VALUE; 
 
+	/**
+	 * Creates the work queue for the breadth-first search, it has the same dimensions
+	 * as the distance matrix and the same kind of storage.
+	 * A mapped queue lives in a temporary file next to the distance values that is deleted on exit.
+	 * @return work queue of dimension width x height
+	 */
+	private IntGrid createQueue() {
+		if (null == mappedFile)
+			return new HeapIntGrid(width, height);
+		try {
+			Path file = Files.createTempFile(mappedFile.toAbsolutePath().getParent(), "queue", ".grid");
+			file.toFile().deleteOnExit();
+			return new MappedIntGrid(file, 0, width, height);
+		} catch (IOException e) {
+			throw new IllegalStateException("Distance.computeDistances: cannot map work queue", e);
+		}
+	}
+
 	/**
 	 * Computes distances to the given position (ax,ay) for all cells in array dists.
+	 * The method performs a single breadth-first search from (ax,ay) such that
+	 * each cell is assigned its final distance value when it is first reached.
+	 * As a side effect, it memorizes the position with the maximum distance
+	 * on the border and the position with the maximum distance overall.
 	 * @param cells with information on wallboards for a maze, can not be null
 	 * @param ax, position, x coordinate
 	 * @param ay, position, y coordinate
+	 * @param queue work queue of dimension width x height, content is overwritten
+	 * @param cancellation is checked every {@link CancellationToken#CHECK_INTERVAL} cells, can be null
+	 * @param progress gets the progress at the same time, can be null
+	 * @param from percentage of the phase that was done before this pass, the pass covers another 50
+	 * @throws InterruptedException if the computation is cancelled
 	 */
-	private void computeDists(Floorplan cells, int ax, int ay) {
-		//int x, y;
+	private void computeDists(Floorplan cells, int ax, int ay, IntGrid queue, CancellationToken cancellation,
+			Progress progress, int from) throws InterruptedException {
 		// initialize the distance array with a value for infinity 
 		setAllDistanceValues(INFINITY) ;
 		// set the final distance at the exit position
-		dists[ax][ay] = 1;
-		// distribute values from this position to get started
-		pushDistanceValuesDFS2(cells, ax, ay);
-		int toDoCounter = countInfinity();
-		int progress; // used to recognize fixpoint, no progress, then stop
-		// go over this array as long as we can find something to do
-		// MEMO: there are likely to be much smarter ways to distribute distances in a breadth first manner...
-		// why not push identified cells with infinite distance on a "work to do" heap
-		// TODO: limit iterations to upperbound which is #cells == width * height
-		// in each iteration at least one cell should benefit from neighbor
-		// in each iteration at least one cell should receive its final value
-		// TODO: do a final checkup for enclosed areas left over with Max Int
-		do {
-			// check all entries in the distance array
-			for (int x = 0; x != width; x++) {
-				for (int y = 0; y != height; y++) 
-				{
-					if (dists[x][y] == INFINITY) {
-						continue;
+		dists.set(ax, ay, 1);
+		// positions are encoded as x*height+y in the queue
+		// the queue has the shape of the distance matrix, its entry i is at (i/height, i%height),
+		// head and tail keep their position in the queue as a pair of coordinates
+		int head = 0;
+		int headX = 0;
+		int headY = 0;
+		int tail = 0;
+		int tailX = 0;
+		int tailY = 0;
+		queue.set(tailX, tailY++, ax*height + ay);
+		tail++;
+		// maximum distances found so far and the scan order rank of their position
+		// the rank reproduces the tie breaking of a full scan that keeps the first maximum
+		int borderMax = 0;
+		int borderRank = Integer.MAX_VALUE;
+		int max = 0;
+		int maxRank = Integer.MAX_VALUE;
+		remoteBorderPosition[0] = 0;
+		remoteBorderPosition[1] = 0;
+		remotePosition[0] = 0;
+		remotePosition[1] = 0;
+		while (head < tail) {
+			if ((head & CancellationToken.CHECK_MASK) == 0) {
+				if (null != cancellation)
+					cancellation.throwIfCancelled();
+				if (null != progress)
+					progress.update(Progress.Phase.Distances, from + (int)(50L*head/((long)width*height)));
+			}
+			final int pos = queue.get(headX, headY++);
+			head++;
+			if (headY == height) {
+				headY = 0;
+				headX++;
+			}
+			final int x = pos / height;
+			final int y = pos - x*height;
+			final int d = dists.get(x, y);
+			// keep track of the maximum distance overall
+			// the scan order is x first, then y, which is the same as pos
+			if (d > max || (d == max && pos < maxRank)) {
+				max = d;
+				maxRank = pos;
+				remotePosition[0] = x;
+				remotePosition[1] = y;
+			}
+			// keep track of the maximum distance on the border
+			if (d >= borderMax) {
+				final int rank = getBorderRank(x, y);
+				if (0 <= rank && (d > borderMax || rank < borderRank)) {
+					borderMax = d;
+					borderRank = rank;
+					remoteBorderPosition[0] = x;
+					remoteBorderPosition[1] = y;
+				}
+			}
+			// distribute distance to reachable neighbors that have not been reached yet
+			final int value = cells.getValueOfCell(x, y);
+			for (int i = 0; i != 4; i++) {
+				if ((value & DIR_WALL[i]) != 0)
+					continue; // there is a wallboard in the way
+				final int nextX = x + DIR_X[i];
+				final int nextY = y + DIR_Y[i];
+				// check if cell at (nextX,nextY) is within bounds, an exit leads outside
+				if ((0 <= nextX && nextX < width) && (0 <= nextY && nextY < height)
+						&& dists.get(nextX, nextY) == INFINITY) {
+					dists.set(nextX, nextY, d + 1);
+					queue.set(tailX, tailY++, nextX*height + nextY);
+					tail++;
+					if (tailY == height) {
+						tailY = 0;
+						tailX++;
 					}
-					// if the distance is not infinite, 
-					// let's see if the cell has a neighbor that we can update and 
-					// perform a depth first search on.
-					pushDistanceValuesDFS2(cells, x, y);
 				}
 			}
-			progress = toDoCounter - countInfinity();
-			toDoCounter -= progress; // update to current value
-		} while (0 < progress);
-		assert (0 == countInfinity()) : 
+		}
+		assert (tail == width*height) : 
 			"All positions should have a finite distance to the exit";
-		// the computation is not good enough to have truly minimum values
-		saturateDistances(cells);
 	}
 	/**
-	 * Follows a path as far as possible to push small distance values
-	 * into the maze
-	 * @param cells needed for checking wallboards, read only
-	 * @param sx starting position
-	 * @param sy starting position
-	 */
-	private void pushDistanceValuesDFS2(Floorplan cells, int sx, int sy) {
-		while (true) {
-			CardinalDirection nextn = updateNeighborDistancesAndDirection(cells, sx, sy);
-			if (nextn == null)
-				break; // exit the loop if we cannot find another cell to proceed with
-			// update coordinates for next cell
-			int[] dir = nextn.getDirection();
-			sx += dir[0];
-			sy += dir[1];
-			// follow the nextn node on a depth-first-search path
-		}
+	 * Gives the rank of a position on the border in the order in which
+	 * a scan of the border visits positions.
+	 * It first visits top and bottom position for increasing x,
+	 * then left and right positions for increasing y.
+	 * @param x the x coordinate
+	 * @param y the y coordinate
+	 * @return rank of the first visit, -1 if (x,y) is not on the border
+	 */
+	private int getBorderRank(int x, int y) {
+		if (y == 0)
+			return 2*x;
+		if (y == height-1)
+			return 2*x+1;
+		if (x == 0)
+			return 2*width + 2*y;
+		if (x == width-1)
+			return 2*width + 2*y + 1;
+		return -1;
 	}
-
-	
 	/**
 	 * Sets all values in dists to given value
 	 * @param value
 	 */
 	private void setAllDistanceValues(int value) {
-		for (int x = 0; x < width; x++) {
-			for (int y = 0; y < height; y++) {
-				dists[x][y] = value ;
-			}
-		}
-	}
-	/**
-	 * Counts how often infinity values is present in matrix
-	 */
-	private int countInfinity() {
-		int result = 0;
-		for (int x = 0; x < width; x++) {
-			for (int y = 0; y < height; y++) {
-				if (dists[x][y] == INFINITY)
-					result++;
-			}
-		}
-		return result;
-	}
-	/**
-	 * Updates distance values for adjacent cells that are reachable
-	 * if value can be reduced to current distance plus 1. 
-	 * @param cells with information on wallboards for a maze, can not be null, read only
-	 * @param currentX x coordinate of current position
-	 * @param currentY y coordinate of current position
-	 * @return direction for a neighbor that has been updated or null if there is none
-	 */
-	private CardinalDirection updateNeighborDistancesAndDirection(Floorplan cells, int currentX, int currentY) {
-		CardinalDirection result = null; // returns null by default
-		int nextDistance = dists[currentX][currentY] + 1; // distance of a neighbor
-		int[] dir;
-		int nextX;
-		int nextY;
-		// check all four directions, update distance as needed
-		for (CardinalDirection cd: CardinalDirection.values()) {
-			// check for reachable neighbors
-			if (cells.hasNoWall(currentX, currentY, cd)) {
-				// check if neighbor is on board
-				dir = cd.getDirection();
-				nextX = currentX+dir[0];
-				nextY = currentY+dir[1];
-				// check if cell at (nextX,nextY) is within bounds
-				if ((0 <= nextX && nextX < width) && (0 <= nextY && nextY < height)) {
-					// check if neigbor's distance needs update
-					if (dists[nextX][nextY] > nextDistance) {
-						// update the neighbor's distance value
-						// mark that cell as the next one
-						dists[nextX][nextY] = nextDistance;
-						result = cd;
-					}
-				}
-			}
-		}
-		return result;
-	}
-	
-	/**
-	 * Fix-point iteration on distance matrix.
-	 * @param  cells with information on wallboards for a maze, can not be null, read only
-	 */
-	private void saturateDistances(Floorplan cells) {
-		boolean progress = false; 
-		//int count = 0;
-		int[] dir = null;
-		CardinalDirection nextn;
-		do {
-			progress = false; // reset termination criterion
-			// go through all positions
-			// check if we can update a neighbor to 
-			// a shorter distance, if so we made progress
-			for (int x = 0; x < width; x++) {
-				for (int y = 0; y < height; y++) {
-					nextn = updateNeighborDistancesAndDirection(cells, x, y);
-					if (null != nextn) {
-						progress = true; // something changed
-						// follow neighbor on a depth-first-search path
-						dir = nextn.getDirection();
-						pushDistanceValuesDFS2(cells, x+dir[0], y+dir[1]);		
-					}
-				}
-			}
-			//count++;
-		} while (progress);
-		//System.out.println("Distance.saturate: #iterations needed " + count);
+		dists.fill(value);
 	}
 }
\ No newline at end of file
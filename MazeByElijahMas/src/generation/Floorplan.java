@@ -2,6 +2,8 @@ package generation;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -46,6 +48,12 @@ import java.util.NoSuchElementException;
  * and thus error prone. The encapsulation within this class 
  * localizes all bit operations for this encoding.
  * 
+ * The cells are stored in a 2D array on the heap by default.
+ * A floorplan that is too large for the heap can be stored in a file
+ * that is mapped into memory, see {@link #Floorplan(int, int, Path)}.
+ * Once a maze is complete, its floorplan is frozen into a compact encoding
+ * with 4 bits per cell, see {@link #freeze()}.
+ * 
  * This code is refactored code from Maze.java by Paul Falstad, www.falstad.com, Copyright (C) 1998, all rights reserved
  * Paul Falstad granted permission to modify and use code for teaching purposes.
  * The class resulted from refactoring the int[][] cells area in the original Maze and Mazebuilder classes into a class of its own.
@@ -90,7 +98,8 @@ public class Floorplan {
 	
 	private int width;
 	private int height ;
-	private int[][] cells; // width x height array of cells, cells[width][height]
+	private IntGrid cells; // width x height grid of cells, cells.get(x,y) for 0 <= x < width, 0 <= y < height
+	private boolean frozen; // true if cells are packed, see freeze()
 	// each cell contains an integer which encodes presence/absence of wallboards
 	// cells[i][j] can be read as (i,j) coordinates much like (x,y) coordinates
 	// where the first dimension x grows towards the right and 
@@ -108,7 +117,32 @@ public class Floorplan {
 	public Floorplan(int w, int h) {
 		width = w ;
 		height = h ;
-		cells = new int[w][h];
+		cells = new HeapIntGrid(w, h);
+	}
+	
+	/**
+	 * Constructor for a floorplan that is stored in the given file,
+	 * which is mapped into memory instead of being held on the heap.
+	 * The file is created if needed, if it already holds a floorplan
+	 * of the same dimensions, its cells are kept, so a floorplan can be opened again.
+	 * Cells are written to the file by the operating system, there is nothing to close.
+	 * @param w width, {@code 0 < w}
+	 * @param h height, {@code 0 < h}
+	 * @param file the file with the cells
+	 * @throws IOException if the file cannot be mapped
+	 */
+	public Floorplan(int w, int h, Path file) throws IOException {
+		this(new MappedIntGrid(file, 0, w, h));
+	}
+	
+	/**
+	 * Constructor for a floorplan with the given storage, which is shared, not copied.
+	 * @param cells storage for the cells
+	 */
+	Floorplan(IntGrid cells) {
+		width = cells.getWidth();
+		height = cells.getHeight();
+		this.cells = cells;
 	}
 
 	/**
@@ -121,9 +155,10 @@ public class Floorplan {
 		// Alternative, 2d array is a 1d array with arrays as elements
 		width = input.length ;
 		height = input[0].length ;
-		cells = new int[width][];
+		final int[][] copy = new int[width][];
 		for(int i = 0; i < width; i++)
-		    cells[i] = input[i].clone(); // clone row
+		    copy[i] = input[i].clone(); // clone row
+		cells = new HeapIntGrid(copy);
 		/* Basic version
 		this(input.length, input[0].length);
 		for (int i = 0; i < width; i++) {
@@ -134,6 +169,58 @@ public class Floorplan {
 		*/
 	}
 	
+	/**
+	 * Packs the cells of a complete maze into a compact read-mostly encoding
+	 * that needs 4 bits per cell instead of an int, see {@link PackedIntGrid}.
+	 * All methods work as before, a method that changes a cell
+	 * unpacks the floorplan first.
+	 * Only floorplans on the heap are packed, and only if packing keeps all cell values,
+	 * which holds for mazes that a MazeBuilder generates.
+	 * @return true if the floorplan is frozen, false if it is left as is
+	 */
+	public boolean freeze() {
+		if (frozen)
+			return true;
+		if (!(cells instanceof HeapIntGrid))
+			return false;
+		final PackedIntGrid packed = PackedIntGrid.pack(cells);
+		if (null == packed)
+			return false;
+		cells = packed;
+		frozen = true;
+		return true;
+	}
+	/**
+	 * Tells if the floorplan is frozen into the compact encoding.
+	 * @return true if frozen, false otherwise
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+	/**
+	 * Unpacks a frozen floorplan into an array on the heap such that cells can be changed.
+	 */
+	private void thaw() {
+		cells = new HeapIntGrid(cells.toArray());
+		frozen = false;
+	}
+	
+	/**
+	 * Gives the width of the floorplan.
+	 * @return width, the number of cells in x direction
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gives the height of the floorplan.
+	 * @return height, the number of cells in y direction
+	 */
+	public int getHeight() {
+		return height;
+	}
+
 	/**
 	 * Initialize floorplan such that all cells have not been visited,
 	 * all wallboards inside the maze are up,
@@ -181,7 +268,7 @@ public class Floorplan {
 			return false ;
 		for (int i = 0; i < width; i++) {
 			for (int j = 0; j < height; j++) {
-				if (cells[i][j] != o.cells[i][j])
+				if (cells.get(i, j) != o.cells.get(i, j))
 					return false ;
 			}
 		}
@@ -206,7 +293,7 @@ public class Floorplan {
 	 */
 	public int getValueOfCell( int x, int y )
 	{
-		return cells[x][y] ;
+		return cells.get(x, y) ;
 	}
 	
 	/**
@@ -230,6 +317,22 @@ public class Floorplan {
 		// return true if neighbor has not been visited before
 		return isFirstVisit(x+dx, y+dy);
 	}
+	/**
+	 * checks if cell (x,y) and adjacent neighbor in the given direction are not separated by a border
+	 * and the neighbor has not been visited before.
+	 * Same as {@link #canTearDown(Wallboard)} but without a Wallboard object.
+	 * @param x coordinate of cell
+	 * @param y coordinate of cell
+	 * @param cd direction of the wallboard
+	 * precondition borders limit the outside of the maze area
+	 * precondition {@code 0 <= x < width, 0 <= y < height}
+	 * @return true if neighbor in the given direction is new and wallboard can be taken down, false otherwise
+	 */
+	public boolean canTearDown(int x, int y, CardinalDirection cd) {
+		if (isPartOfBorder(x, y, cd))
+			return false;
+		return isFirstVisit(x+cd.getDx(), y+cd.getDy());
+	}
 	/**
 	 * checks if the given wallboard contributes to a border.
 	 * One can think of exterior walls of the maze and its 
@@ -246,6 +349,18 @@ public class Floorplan {
 		// and the outside limit of the maze
 		return hasBorder(x, y, dx, dy);
 	}
+	/**
+	 * checks if the wallboard of cell (x,y) in the given direction contributes to a border.
+	 * Same as {@link #isPartOfBorder(Wallboard)} but without a Wallboard object.
+	 * @param x coordinate of cell
+	 * @param y coordinate of cell
+	 * @param cd direction of the wallboard
+	 * precondition {@code 0 <= x < width, 0 <= y < height}
+	 * @return true if that side is marked as a border, false otherwise
+	 */
+	public boolean isPartOfBorder(int x, int y, CardinalDirection cd) {
+		return hasMaskedBitsTrue(x, y, getBoundForBit(getCWConstantForDirection(cd)));
+	}
 	/**
 	 * checks if cell (x,y) has a border in the given direction (dx,dy)
 	 * @param x coordinate of cell
@@ -432,6 +547,21 @@ public class Floorplan {
 	 * @param ryl 2nd corner, y coordinate
 	 */
 	public void markAreaAsRoom(int rw, int rh, int rx, int ry, int rxl, int ryl) {
+		markAreaAsRoom(rw, rh, rx, ry, rxl, ryl, SingleRandom.getRandom());
+	}
+	/**
+	 * Same as {@link #markAreaAsRoom(int, int, int, int, int, int)} but doors are
+	 * positioned with the given random number stream, such that builders
+	 * with streams of their own do not share the single instance.
+	 * @param rw room width
+	 * @param rh room height
+	 * @param rx 1st corner, x coordinate
+	 * @param ry 1st corner, y coordinate
+	 * @param rxl 2nd corner, x coordinate
+	 * @param ryl 2nd corner, y coordinate
+	 * @param random random number stream to pick the doors
+	 */
+	public void markAreaAsRoom(int rw, int rh, int rx, int ry, int rxl, int ryl, RandomSource random) {
 		// Step 1: 
 		// clear all cells in area of room from all wallboards and borders
 		// mark all cells in area as being inside the room
@@ -454,7 +584,6 @@ public class Floorplan {
 		// so a maze generation algorithm can identify
 		// these wallboards and delete them to get into the room
 		int numBoards = (rw+rh)*2; // counter for the total number of wallboards
-		SingleRandom random = SingleRandom.getRandom() ;
 		// pick at most 5 wallboards
 		for (int ct = 0; ct != 5; ct++) { 
 			int door = random.nextIntWithinInterval(0, numBoards-1); // pick a random wallboard
@@ -623,6 +752,27 @@ public class Floorplan {
 			logWall( x,  y,  dx,  dy);
 		/////////////////// END OF SPECIAL CODE FOR GRADING //////////////////////////////////////////////////////////////
 	}
+	/**
+	 * Delete both wallboards between to adjacent cells (x,y) and its neighbor 
+	 * in the given direction to create an opening.
+	 * Same as {@link #deleteWallboard(Wallboard)} but without a Wallboard object.
+	 * Do not use this method to create an exit as the adjacent location
+	 * is outside of the legal range of values for cell locations.
+	 * @param x coordinate of cell, {@code 0 <= x < width}
+	 * @param y coordinate of cell, {@code 0 <= y < height}
+	 * @param cd direction of the wallboard
+	 */
+	public void deleteWallboard(int x, int y, CardinalDirection cd) {
+		int dx = cd.getDx();
+		int dy = cd.getDy();
+		// delete wallboard on (x,y)
+		setWallToZero(x, y, dx, dy);
+		// delete same wallboard but for adjacent cell
+		setWallToZero(x+dx, y+dy, -dx, -dy);
+		// for debugging: track sequence of walls that are deleted, same as in deleteWallboard(Wallboard)
+		if (deepdebugWall)
+			logWall( x,  y,  dx,  dy);
+	}
     /**
      * Add wallboards in either north or west direction for the given wall.
      * Wall coordinates need to be rescaled by map_unit to translate into
@@ -915,7 +1065,9 @@ public class Floorplan {
 	 * @param cw_bit like CW_LEFT, CW_RIGHT, CW_TOP, CW_BOTTOM
 	 */
 	private void setBitToZero(int x, int y, int cw_bit) {
-		cells[x][y] &= ~cw_bit;
+		if (frozen)
+			thaw();
+		cells.set(x, y, cells.get(x, y) & ~cw_bit);
 	}
 	/**
 	 * Sets all wallboard bits to zero for a given cell
@@ -932,10 +1084,10 @@ public class Floorplan {
 	// better to directly change client classes
 	//
 	protected boolean hasMaskedBitsTrue(int x, int y, int bitmask) {
-		return (cells[x][y] & bitmask) != 0;
+		return cells.getMasked(x, y, bitmask) != 0;
 	}
 	protected boolean hasMaskedBitsFalse(int x, int y, int bitmask) {
-		return (cells[x][y] & bitmask) == 0;
+		return cells.getMasked(x, y, bitmask) == 0;
 	}
 
 	/**
@@ -967,7 +1119,9 @@ public class Floorplan {
 	 * @param bitmask
 	 */
 	private void setBitToOne(int x, int y, int bitmask) {
-		cells[x][y] |= bitmask ;
+		if (frozen)
+			thaw();
+		cells.set(x, y, cells.get(x, y) | bitmask) ;
 	}
 
 	///////////////// code for debugging ///////////////////////////////////////
@@ -985,7 +1139,7 @@ public class Floorplan {
 		{
 			prefix = " i:" + i + " j:";
 			for (int j = 0 ; j < height ; j++)
-				s += prefix + j + "=" + cells[i][j] ;
+				s += prefix + j + "=" + cells.get(i, j) ;
 			s += "\n" ;
 		}
 		return s ;
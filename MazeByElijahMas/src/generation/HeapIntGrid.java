@@ -0,0 +1,61 @@
+package generation;
+
+import java.util.Arrays;
+
+/**
+ * A grid of int values in a 2D array on the heap, the default storage
+ * for floorplans and distances.
+ * 
+ * @author Elijah Mas
+ */
+final class HeapIntGrid implements IntGrid {
+	/**
+	 * values[x][y] is the value at (x,y)
+	 */
+	private final int[][] values;
+	
+	/**
+	 * Constructor for a grid with all values 0.
+	 * @param width number of columns, {@code 0 < width}
+	 * @param height number of values per column, {@code 0 < height}
+	 */
+	HeapIntGrid(int width, int height) {
+		values = new int[width][height];
+	}
+	/**
+	 * Constructor that uses the given array, it is shared, not copied.
+	 * @param values a non-null width x height array
+	 */
+	HeapIntGrid(int[][] values) {
+		this.values = values;
+	}
+	
+	@Override
+	public int getWidth() {
+		return values.length;
+	}
+	@Override
+	public int getHeight() {
+		return values[0].length;
+	}
+	@Override
+	public int get(int x, int y) {
+		return values[x][y];
+	}
+	@Override
+	public void set(int x, int y, int value) {
+		values[x][y] = value;
+	}
+	@Override
+	public void fill(int value) {
+		for (int[] column : values)
+			Arrays.fill(column, value);
+	}
+	/**
+	 * Gives the internal array, it is shared, not copied.
+	 */
+	@Override
+	public int[][] toArray() {
+		return values;
+	}
+}
@@ -0,0 +1,70 @@
+package generation;
+
+/**
+ * Storage for a width x height grid of int values, such as the cells of a {@link Floorplan}
+ * or the distance values of a {@link Distance}.
+ * 
+ * The grid is either a 2D array on the heap, see {@link HeapIntGrid},
+ * or a file that is mapped into memory, see {@link MappedIntGrid},
+ * which holds grids that are larger than the heap,
+ * or a compact read-only encoding of a complete floorplan, see {@link PackedIntGrid},
+ * or of complete distances, see {@link NarrowIntGrid}.
+ * They store the values of column x for increasing y next to each other,
+ * such that (x,y) is at index x*height+y.
+ * 
+ * @author Elijah Mas
+ */
+interface IntGrid {
+	/**
+	 * @return the number of columns
+	 */
+	int getWidth();
+	/**
+	 * @return the number of values per column
+	 */
+	int getHeight();
+	/**
+	 * Gets the value at the given position.
+	 * @param x coordinate, {@code 0 <= x < width}
+	 * @param y coordinate, {@code 0 <= y < height}
+	 * @return the value at (x,y)
+	 */
+	int get(int x, int y);
+	/**
+	 * Gets the bits of the value at the given position that are selected by the mask.
+	 * Grids that compute values can skip the parts that are not selected.
+	 * @param x coordinate, {@code 0 <= x < width}
+	 * @param y coordinate, {@code 0 <= y < height}
+	 * @param mask selects the bits of interest
+	 * @return the value at (x,y) and mask
+	 */
+	default int getMasked(int x, int y, int mask) {
+		return get(x, y) & mask;
+	}
+	/**
+	 * Sets the value at the given position.
+	 * @param x coordinate, {@code 0 <= x < width}
+	 * @param y coordinate, {@code 0 <= y < height}
+	 * @param value the new value at (x,y)
+	 */
+	void set(int x, int y, int value);
+	/**
+	 * Sets all values of the grid to the given value.
+	 * @param value the new value for all positions
+	 */
+	default void fill(int value) {
+		final int width = getWidth();
+		final int height = getHeight();
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				set(x, y, value);
+			}
+		}
+	}
+	/**
+	 * Gives the values as a width x height array.
+	 * A grid on the heap returns its internal array, other grids return a copy.
+	 * @return array with the values of the grid
+	 */
+	int[][] toArray();
+}
@@ -0,0 +1,98 @@
+package generation;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A grid of int values in a file that is mapped into memory.
+ * The values live in the page cache of the operating system instead of the heap,
+ * so a grid can be much larger than the maximum heap size and is read and written
+ * without copying. The operating system writes modified pages back to the file.
+ * 
+ * The file holds the values of column x for increasing y next to each other,
+ * each value as 4 bytes in big-endian order, starting at a given offset.
+ * This is the same layout as the rows of a {@link MazeRowFile}
+ * after its header, so such a file can be mapped as a grid as well.
+ * 
+ * A single mapping is limited to 2GB, so the file is mapped in chunks of {@link #CHUNK_BYTES}.
+ * A mapping stays valid till the grid is garbage collected.
+ * 
+ * @author Elijah Mas
+ */
+final class MappedIntGrid implements IntGrid {
+	/**
+	 * number of bits of a byte position within a chunk
+	 */
+	static final int CHUNK_SHIFT = 30;
+	/**
+	 * size of a chunk, a multiple of 4 such that no value spans two chunks
+	 */
+	static final long CHUNK_BYTES = 1L << CHUNK_SHIFT;
+	private static final long CHUNK_MASK = CHUNK_BYTES - 1;
+	
+	private final int width;
+	private final int height;
+	/**
+	 * mapped chunks of the file, chunk i holds bytes from {@code offset + i*CHUNK_BYTES} on
+	 */
+	private final MappedByteBuffer[] chunks;
+	
+	/**
+	 * Maps the given file as a grid. The file is created or extended as needed,
+	 * values that are in the file already are kept.
+	 * @param file the file to map
+	 * @param offset position of the value at (0,0) in the file, e.g. to skip a header
+	 * @param width number of columns, {@code 0 < width}
+	 * @param height number of values per column, {@code 0 < height}
+	 * @throws IOException if the file cannot be opened or mapped
+	 */
+	MappedIntGrid(Path file, long offset, int width, int height) throws IOException {
+		this.width = width;
+		this.height = height;
+		final long bytes = (long)width * height * Integer.BYTES;
+		chunks = new MappedByteBuffer[(int)((bytes + CHUNK_BYTES - 1) >>> CHUNK_SHIFT)];
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			for (int i = 0; i < chunks.length; i++) {
+				final long position = (long)i << CHUNK_SHIFT;
+				chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, offset + position,
+						Math.min(CHUNK_BYTES, bytes - position));
+			}
+		}
+	}
+	
+	@Override
+	public int getWidth() {
+		return width;
+	}
+	@Override
+	public int getHeight() {
+		return height;
+	}
+	@Override
+	public int get(int x, int y) {
+		final long position = ((long)x * height + y) << 2;
+		return chunks[(int)(position >>> CHUNK_SHIFT)].getInt((int)(position & CHUNK_MASK));
+	}
+	@Override
+	public void set(int x, int y, int value) {
+		final long position = ((long)x * height + y) << 2;
+		chunks[(int)(position >>> CHUNK_SHIFT)].putInt((int)(position & CHUNK_MASK), value);
+	}
+	/**
+	 * Gives a copy of the values on the heap, only feasible for grids that fit into the heap.
+	 */
+	@Override
+	public int[][] toArray() {
+		int[][] values = new int[width][height];
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				values[x][y] = get(x, y);
+			}
+		}
+		return values;
+	}
+}
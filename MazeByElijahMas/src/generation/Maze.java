@@ -80,7 +80,7 @@ public interface Maze {
 	/**
 	 * Gets access to a tree of nodes for segments of wallboards which is
 	 * used for drawing the currently visible part.
-	 * @return the rootnode
+	 * @return the rootnode, null if the maze was built without a tree
 	 */
 	BSPNode getRootnode();
 
@@ -91,6 +91,20 @@ public interface Maze {
 	 */
 	void setRootnode(BSPNode rootnode);
 	
+	/**
+	 * Gets the random number that the colors of the walls were determined with,
+	 * see {@link Wall#selectColorIndex(int, int, boolean)}, such that views without
+	 * a tree can give walls the same colors.
+	 * @return the color change, 0 if not known, e.g. for a maze loaded from a file
+	 */
+	int getColchange();
+	
+	/**
+	 * Sets the random number that the colors of the walls are determined with.
+	 * @param colchange the color change to set
+	 */
+	void setColchange(int colchange);
+	
 	/**
 	 * Tells if (x,y) coordinate is within range.
 	 * @param x is on the horizontal axis
@@ -1,5 +1,9 @@
 package generation;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import gui.Constants;
 
 
@@ -31,25 +35,43 @@ public class MazeBuilder implements Runnable {
 	// the distance to exit for a cell at position (i,j) in the floor plan.
 
 	// class internal local variables
-	protected SingleRandom random ; // random number stream, used to make randomized decisions, e.g for direction to go
+	protected RandomSource random ; // random number stream, used to make randomized decisions, e.g for direction to go
+	protected CancellationToken cancellation ; // checked in loops to stop generation when the order is cancelled
 	Order order; // describes what is wanted, e.g. a perfect maze or not
+	private Progress progress; // channel of the order to publish progress to, null if the order has none
+	private Path storageDirectory; // if not null, floorplan and distances are mapped to files in this directory
+	private boolean lazyBSP; // if true, large subtrees of the BSP tree are built on demand after delivery
+	private boolean completeBSPInBackground; // if true, subtrees left for later are built in the background after delivery
+	private boolean buildBSP = true; // if false, mazes are delivered without a BSP tree
+	private boolean parallelBSP = true; // if true, subtrees of large nodes of the BSP tree are built on the common ForkJoinPool
 	
 	// constants
-	static final long SLEEP_INTERVAL = 100 ; //constant used for brief breaks to recognize interrupted signal, unit is millisecond
 	static final int MAX_TRIES = 250 ; // room generation: max number of tries to find a random location for a room
 	static final int MIN_ROOM_DIMENSION = 3; // room generation: min dimension
 	static final int MAX_ROOM_DIMENSION = 8; // room generation: max dimension
 	
 	static final int MAZE_SEED = 7;
 	
+	// directions for generatePathways, index order matches CardinalDirection.values(): North, East, South, West
+	// such that index+1 modulo 4 is a clockwise rotation
+	private static final CardinalDirection[] DIRECTIONS = CardinalDirection.values();
+	private static final int[] DX = { 0, 1, 0, -1 };
+	private static final int[] DY = { -1, 0, 1, 0 };
+	private static final int EAST = 1;
+	
 	/**
-	 * Constructor for a randomized maze generation
+	 * Constructor for a randomized maze generation.
+	 * The builder gets a random number stream of its own whose seed is drawn from {@link SingleRandom#getRandom()}.
 	 */
 	public MazeBuilder(){
-		random = SingleRandom.getRandom();
+		random = new RandomStream(SingleRandom.newSeed());
+		cancellation = new CancellationToken();
 	}
 	/**
-	 * Constructor with option to make maze generation deterministic or random
+	 * Constructor with option to make maze generation deterministic or random.
+	 * A deterministic builder draws from a {@link SeededRandom} with seed {@link #MAZE_SEED},
+	 * which gives the same mazes as the shared generator with that seed did,
+	 * and also sets that seed for {@link SingleRandom#getRandom()}, which other parts of the program draw from.
 	 */
 	public MazeBuilder(boolean deterministic){
 		if (true == deterministic)
@@ -57,55 +79,193 @@ public class MazeBuilder implements Runnable {
 			SingleRandom.setSeed(MAZE_SEED);
 			//System.out.println("deterministic maze building");
 		}
-		random = SingleRandom.getRandom();
+		random = deterministic ? new SeededRandom(MAZE_SEED) : new RandomStream(SingleRandom.newSeed());
+		cancellation = new CancellationToken();
 	}
 	
 	/**
-	 * Sets internal fields according to given order
+	 * Constructor for a builder with a random number stream of its own,
+	 * used for the tiles of a {@link MazeBuilderParallel} and for orders
+	 * that a {@link MazeFactory} builds concurrently.
+	 * The global seed is left as is.
+	 * @param random random number stream for this builder
+	 */
+	MazeBuilder(RandomSource random){
+		this.random = random;
+		cancellation = new CancellationToken();
+	}
+	
+	/**
+	 * Sets internal fields according to given order.
+	 * If the order has a seed, see {@link Order#getSeed()}, the builder draws from a new stream with that seed.
 	 * @param order
 	 */
 	public void buildOrder(Order order) {
 		this.order = order;
+		progress = order.getProgress();
+		cancellation = new CancellationToken(); // fresh token for each order
+		final Long seed = order.getSeed();
+		if (null != seed)
+			random = new RandomStream(seed);
 		int skill = order.getSkillLevel() ;
-		// derive parameters
-		width = Constants.SKILL_X[skill];
-		height = Constants.SKILL_Y[skill];
+		// derive parameters, an explicit size overrides the skill level
+		if (0 == order.getWidth() && 0 == order.getHeight()) {
+			width = Constants.SKILL_X[skill];
+			height = Constants.SKILL_Y[skill];
+			expectedPartiters = Constants.SKILL_PARTCT[skill];
+		}
+		else {
+			width = order.getWidth();
+			height = order.getHeight();
+			checkDimensions(width, height);
+			expectedPartiters = estimatePartiters(width, height);
+		}
 		// only algorithm without rooms guarantees a perfect maze
 		// rooms can result in loops, so for a perfect maze, set room number to 0
-		rooms = order.isPerfect() ? 0 : Constants.SKILL_ROOMS[skill];
-		expectedPartiters = Constants.SKILL_PARTCT[skill];
+		rooms = order.isPerfect() ? 0 : (order.getRooms() >= 0) ? order.getRooms() : Constants.SKILL_ROOMS[skill];
 		// instantiate data structures
-		floorplan = new Floorplan(width,height) ;
-		dists = new Distance(width,height) ;
+		if (null == storageDirectory) {
+			floorplan = new Floorplan(width,height) ;
+			dists = new Distance(width,height) ;
+		}
+		else {
+			try {
+				floorplan = new Floorplan(width, height, createStorageFile("floorplan"));
+				dists = new Distance(width, height, createStorageFile("distance"));
+			} catch (IOException e) {
+				throw new IllegalStateException("MazeBuilder.buildOrder: cannot map maze to " + storageDirectory, e);
+			}
+		}
+	}
+	/**
+	 * Checks the size of an order that does not come from the skill level.
+	 * @throws IllegalArgumentException if width or height is not on a range [1, Constants.MAX_DIMENSION]
+	 * or the maze has more than Constants.MAX_CELLS cells
+	 */
+	static void checkDimensions(int width, int height) {
+		if (width < 1 || width > Constants.MAX_DIMENSION || height < 1 || height > Constants.MAX_DIMENSION)
+			throw new IllegalArgumentException("MazeBuilder: width and height must be on a range [1, "
+					+ Constants.MAX_DIMENSION + "], got " + width + "x" + height);
+		if ((long)width * height > Constants.MAX_CELLS)
+			throw new IllegalArgumentException("MazeBuilder: a maze of " + width + "x" + height
+					+ " has more than " + Constants.MAX_CELLS + " cells");
+	}
+	/**
+	 * Estimates how many partition candidates the BSPBuilder grades for a maze of the given size,
+	 * which the progress of the BSP phase is measured against.
+	 * The count grows linearly with the number of cells, mazes from 12x12 to 1000x1000
+	 * give 4.9 to 5.3 candidates per cell, so a slight overestimate keeps the progress below 100
+	 * until the tree is complete.
+	 * @return the estimate, at least 1
+	 */
+	static int estimatePartiters(int width, int height) {
+		final long estimate = (long)width * height * 21 / 4;
+		return (int)Math.max(1, Math.min(Integer.MAX_VALUE, estimate));
+	}
+	/**
+	 * Makes the builder store the floorplan and the distances of the next orders
+	 * in files in the given directory that are mapped into memory,
+	 * such that mazes can be built that are too large for the heap.
+	 * The files are temporary and deleted on exit.
+	 * @param directory directory for the files, null to store mazes on the heap (default)
+	 */
+	public void setStorageDirectory(Path directory) {
+		storageDirectory = directory;
+	}
+	/**
+	 * Makes the builder deliver the next orders before the BSP tree is complete:
+	 * only its root is split, large subtrees are built the first time they are needed,
+	 * e.g. when the first person view draws them. The tree is the same as without this option.
+	 * @param lazy true to build large subtrees on demand, false to build the whole tree before delivery (default)
+	 * @param completeInBackground true to build the remaining subtrees on background threads after delivery,
+	 * false to leave subtrees that are never needed unbuilt
+	 */
+	public void setLazyBSP(boolean lazy, boolean completeInBackground) {
+		lazyBSP = lazy;
+		completeBSPInBackground = completeInBackground;
+	}
+	/**
+	 * Makes the builder deliver the next orders without a BSP tree, the root node of the maze is null.
+	 * Such a maze is drawn by the {@link gui.RaycastView}, which reads the walls from the floorplan.
+	 * @param build true to build the BSP tree (default), false to skip it
+	 */
+	public void setBuildBSP(boolean build) {
+		buildBSP = build;
+	}
+	/**
+	 * Sets if the subtrees of large nodes of the BSP tree are built in parallel on the common ForkJoinPool.
+	 * Background generation should build on its own thread only, such that it does not
+	 * hold up the common pool, which also draws the raycast view. Both ways give the same tree.
+	 * @param parallel true to build in parallel (default), false to build on the calling thread only
+	 */
+	public void setParallelBSP(boolean parallel) {
+		parallelBSP = parallel;
+	}
+	/**
+	 * @return true if the subtrees of large nodes of the BSP tree are built in parallel
+	 */
+	boolean isParallelBSP() {
+		return parallelBSP;
+	}
+	/**
+	 * Creates a temporary file in the storage directory.
+	 * @param prefix prefix of the file name
+	 * @return the file
+	 * @throws IOException if the file cannot be created
+	 */
+	private Path createStorageFile(String prefix) throws IOException {
+		Path file = Files.createTempFile(storageDirectory, prefix, ".grid");
+		file.toFile().deleteOnExit();
+		return file;
+	}
+	/**
+	 * Requests to stop the construction of the current maze.
+	 * The run method recognizes the request at its next check,
+	 * stops without delivering a maze and cleans up.
+	 * Can be called from any thread.
+	 */
+	public void cancel() {
+		cancellation.cancel();
 	}
 	/**
 	 * Main method to run construction of a new maze in a thread of its own.
 	 * This method is called by the MazeFactory to generate a maze.
 	 */
 	public void run() {
-		// try-catch block to recognize if thread is interrupted
+		// try-catch block to recognize if generation is cancelled or thread is interrupted
 		try {
+			updateProgress(Progress.Phase.Pathways, 0);
 			// create an initial invalid maze where all wallboards and borders are up
 			floorplan.initialize();
 			// place rooms in maze as needed
 			if (rooms > 0)
 				generateRooms();
 			
-			Thread.sleep(SLEEP_INTERVAL) ; // test if thread has been interrupted, i.e. notified to stop
+			cancellation.throwIfCancelled(); // test if order has been cancelled, i.e. notified to stop
 
 			// put pathways into the maze, determine its starting and end position and calculate distances
-			generate();
+			generate(); // internally checks for cancel requests
 
-			Thread.sleep(SLEEP_INTERVAL) ; // test if thread has been interrupted, i.e. notified to stop
+			cancellation.throwIfCancelled(); // test if order has been cancelled, i.e. notified to stop
 
-			final int colchange = random.nextIntWithinInterval(0, 255); // used in the constructor for Segments  class Seg
-			final BSPBuilder b = new BSPBuilder(order, dists, floorplan, width, height, colchange, expectedPartiters) ;
-			BSPNode root = b.generateBSPNodes(); // takes a long time, updates progressbar, 
-			// it also internally checks for cancel requests
-			// and throws an interrupted exception if that happens
+			// used in the constructor for Segments  class Seg, kept in the maze for views without a tree
+			final int colchange = random.nextIntWithinInterval(0, 255);
+			BSPNode root = null;
+			if (buildBSP) {
+				updateProgress(Progress.Phase.BSP, 0);
+				final BSPBuilder b = new BSPBuilder(order, dists, floorplan, width, height, colchange, expectedPartiters, cancellation) ;
+				b.setLazy(lazyBSP);
+				b.setParallel(parallelBSP);
+				root = b.generateBSPNodes(); // takes a long time, updates progressbar, 
+				// it also internally checks for cancel requests
+				// and throws an interrupted exception if that happens
+			}
 
-			Thread.sleep(SLEEP_INTERVAL) ; // test if thread has been interrupted, i.e. notified to stop
+			cancellation.throwIfCancelled(); // test if order has been cancelled, i.e. notified to stop
 
+			// the maze is complete, keep its floorplan and distances in the compact encodings
+			floorplan.freeze();
+			dists.freeze();
 			// communicate results back to Controller
 			Maze mazeConfig = new MazeContainer();
 			mazeConfig.setHeight(height);
@@ -113,9 +273,14 @@ public class MazeBuilder implements Runnable {
 			mazeConfig.setFloorplan(floorplan);
 			mazeConfig.setMazedists(dists);
 			mazeConfig.setRootnode(root);
+			mazeConfig.setColchange(colchange);
 			mazeConfig.setStartingPosition(startx, starty);
+			if (null != progress)
+				progress.update(100);
 			order.updateProgress(100); // Order interface promises to communicate 100% upon delivery
 			order.deliver(mazeConfig);
+			if (null != root && lazyBSP && completeBSPInBackground)
+				BSPBuilder.completeInBackground(root);
             // reset order and other fields for safe repeated operation and garbage collection
 			reset() ;
 		}
@@ -129,6 +294,26 @@ public class MazeBuilder implements Runnable {
 			reset();
 		}
 	}
+	/**
+	 * Publishes progress to the channel of the order, if it has one.
+	 * Orders without a channel only get updates from the BSPBuilder, as before.
+	 * @param phase the current phase
+	 * @param percentOfPhase how much of the phase is done on a range [0,100]
+	 */
+	protected void updateProgress(Progress.Phase phase, int percentOfPhase) {
+		if (null != progress)
+			progress.update(phase, percentOfPhase);
+	}
+	/**
+	 * Publishes how much of the pathways are generated, called by the algorithms
+	 * where they check for cancellation.
+	 * @param done number of cells (or wallboards, rows, tiles) that are done
+	 * @param total number of cells (or wallboards, rows, tiles) overall, positive
+	 */
+	protected void updatePathwaysProgress(long done, long total) {
+		if (null != progress)
+			progress.update(Progress.Phase.Pathways, (int)(100*done/total));
+	}
 	/**
 	 * Reset all fields to initial values
 	 */
@@ -143,6 +328,7 @@ public class MazeBuilder implements Runnable {
 		dists = null ;
 		// leave random number generator as is
 		order = null ;
+		progress = null ;
 	}
 	
 	
@@ -199,7 +385,7 @@ public class MazeBuilder implements Runnable {
 			return false ;
 		// since the area is available, mark it for this room and remove all wallboards
 		// from this on it is clear that we can place the room on the maze
-		floorplan.markAreaAsRoom(rw, rh, rx, ry, rxl, ryl); 
+		floorplan.markAreaAsRoom(rw, rh, rx, ry, rxl, ryl, random); 
 		return true;
 	}
 
@@ -208,14 +394,16 @@ public class MazeBuilder implements Runnable {
 	/**
 	 * This method generates a maze.
 	 * It computes distances, determines a start and exit position that are as far apart as possible. 
+	 * @throws InterruptedException if the order is cancelled
 	 */
-	protected void generate() {
+	protected void generate() throws InterruptedException {
 		// generate paths in cells such that there is one strongly connected component
 		// i.e. between any two cells in the maze there is a path to get from one to the other
 		// the search algorithms starts at some random point
 		generatePathways(); 
 
-		final int[] remote = dists.computeDistances(floorplan) ;
+		updateProgress(Progress.Phase.Distances, 0);
+		final int[] remote = dists.computeDistances(floorplan, cancellation, progress) ;
 
 		// identify cell with the greatest distance
 		final int[] pos = dists.getStartPosition();
@@ -226,57 +414,86 @@ public class MazeBuilder implements Runnable {
 		floorplan.setExitPosition(remote[0], remote[1]);
 	}
 	/**
-	 * This method generates pathways into the maze.
-	 * Comments have been removed to make students 
-	 * recognize the difference between readable and unreadable code
-	 * and what kind of comments are needed to understand code.
-	 * A previous version is kept below and commented out which is 
-	 * even worse than this one.
+	 * This method generates pathways into the maze with a randomized depth-first search.
+	 * Starting at a random cell in the top row, it keeps tearing down a wallboard
+	 * to a neighbor that has not been visited yet, trying directions clockwise
+	 * from a random one. If all directions fail, it backtracks to the cell it came from
+	 * and continues there clockwise from the direction it came in with.
+	 * 
+	 * The direction each cell was entered with is the only state needed to backtrack,
+	 * it is kept with 2 bits per cell in a long array, see {@link #getEntry(long[], int)}.
+	 * Directions are indices into {@link #DIRECTIONS} with offsets from static tables,
+	 * such that a step allocates nothing.
+	 * The random numbers are drawn in the same order as in the original version
+	 * with a grid of CardinalDirection objects, so a seed gives the same maze as before.
+	 * @throws InterruptedException if the order is cancelled
 	 */
-	protected void generatePathways() {
-		int x = random.nextIntWithinInterval(0, width-1);
-		int y = 0; 
-		final int firstx = x; 
+	protected void generatePathways() throws InterruptedException {
+		final RandomSource rnd = random;
+		final Floorplan plan = floorplan;
+		final int h = height;
+		int x = rnd.nextIntWithinInterval(0, width-1);
+		int y = 0;
+		final int firstx = x;
 		final int firsty = y;
+		// direction each cell was entered with, the first cell has none
+		final long[] entries = new long[(2*width*h + 63) >>> 6];
+		int dir = EAST;
+		int origdir = dir;
 		
-		CardinalDirection[][] origcds = new CardinalDirection[width][height]; 
-		CardinalDirection cd = CardinalDirection.East;
-		CardinalDirection origcd = cd;
-		
-		floorplan.setCellAsVisited(x, y); 
-		Wallboard wallboard = new Wallboard(x, y, cd);
-		while (true) { 
-			wallboard.setLocationDirection(x, y, cd);
-			if (!floorplan.canTearDown(wallboard)) {
-				cd = cd.rotateClockwise();
-				if (origcd == cd) {				
+		plan.setCellAsVisited(x, y);
+		int visited = 1;
+		int steps = 0;
+		while (true) {
+			if ((++steps & CancellationToken.CHECK_MASK) == 0) {
+				cancellation.throwIfCancelled();
+				updatePathwaysProgress(visited, (long)width*h);
+			}
+			if (!plan.canTearDown(x, y, DIRECTIONS[dir])) {
+				dir = (dir + 1) & 3; // rotate clockwise
+				if (origdir == dir) {
+					// all directions tried, backtrack
 					if (x == firstx && y == firsty)
-						break; 			
-					int[] dxy = origcds[x][y].getDirection();
-					x -= dxy[0];
-					y -= dxy[1];
-					if (null == origcds[x][y]) {
-						// Happens at starting position
-						assert (x == firstx && y == firsty) : "catching null elsewhere than starting position" ;
-						cd = cd.randomDirection() ;
-					}
-					else
-						cd = origcds[x][y] ;
-					cd = cd.rotateClockwise();
-					origcd = cd;
+						break;
+					final int entry = getEntry(entries, x*h + y);
+					x -= DX[entry];
+					y -= DY[entry];
+					dir = (x == firstx && y == firsty) ? rnd.nextIntWithinInterval(0, 3) : getEntry(entries, x*h + y);
+					dir = (dir + 1) & 3;
+					origdir = dir;
 				}
 			} else {
-				floorplan.deleteWallboard(wallboard);
-				int[] dxy = cd.getDirection();
-				x += dxy[0];
-				y += dxy[1];
-				floorplan.setCellAsVisited(x, y);
-				origcds[x][y] = cd;
-				cd = cd.randomDirection();
-				origcd = cd;
+				plan.deleteWallboard(x, y, DIRECTIONS[dir]);
+				x += DX[dir];
+				y += DY[dir];
+				plan.setCellAsVisited(x, y);
+				visited++;
+				setEntry(entries, x*h + y, dir);
+				dir = rnd.nextIntWithinInterval(0, 3);
+				origdir = dir;
 			}
 		}
 	}
+	/**
+	 * Gives the direction a cell was entered with.
+	 * @param entries 2 bits per cell
+	 * @param cell index x*height+y of the cell
+	 * @return index of the direction in {@link #DIRECTIONS}
+	 */
+	private static int getEntry(long[] entries, int cell) {
+		final int bit = cell << 1;
+		return (int)(entries[bit >>> 6] >>> bit) & 3;
+	}
+	/**
+	 * Keeps the direction a cell was entered with, a cell is entered only once.
+	 * @param entries 2 bits per cell, the bits of the cell are 0
+	 * @param cell index x*height+y of the cell
+	 * @param dir index of the direction in {@link #DIRECTIONS}
+	 */
+	private static void setEntry(long[] entries, int cell, int dir) {
+		final int bit = cell << 1;
+		entries[bit >>> 6] |= (long)dir << bit;
+	}
 	/* original, kept  for discussion in class !!!!
 	protected void generatePathways() {
 		int[][] origdirs = new int[width][height] ; 
@@ -3,33 +3,37 @@
  */
 package generation;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.IntStream;
 
 /**
- * <p>This class has the responsibility to create a maze of given dimensions (width, height) 
+ * <p>This class has the responsibility to create a maze of given dimensions (width, height)
  * together with a solution based on a distance matrix.
  * The MazeBuilder implements Runnable such that it can be run a separate thread.
  * The MazeFactory has a MazeBuilder and handles the thread management.</p>
- * 
- * <p>The maze is built with Eller's algorithm. 
+ *
+ * <p>The maze is built with Eller's algorithm.
  * Every cell begins as its own set, and sets expand by joining with other adjoining sets.
  * Ultimately every cell in the maze is merged into one all-containing set.</p>
- * 
- * <p>Note: some methods are defined herein that may be used in the future,
- * but which are not currently used,; this may affect the coverage rate.</p>
- * 
- * <p><b>Warning</b> for whatever reasons, there is a long delay for MazeBuilderEller
- * (few minutes? I have not timed it precisely) between the time when the MazeApplication
- * switches to the generating screen and the time when the maze update progress counter
- * moves off of 0% for a maze at level=F. The delay for level E is maybe 10-20 seconds
- * on my computer.
- * 
+ *
+ * <p>Only two rows are kept in memory while the algorithm progresses:
+ * the set labels of the current and of the next row are stored in int arrays,
+ * and sets are merged in a {@link DisjointSets} forest over these labels.
+ * After a row is done, its labels are renumbered to {@code 0,1,...}
+ * and the forest is reset, so the memory needed is proportional to the length of a row
+ * and no objects are created per cell.
+ * Cells of a room share a set from the start as a room has no internal wallboards.</p>
+ *
+ * <p>If a set does not continue into the next row (which happens only
+ * if room handling is postponed, see {@link #ignoreRooms}), the set is closed off
+ * and the algorithm cannot tell from two rows where its cells are. In that case
+ * a final pass labels the connected groups of cells of the whole floorplan
+ * and opens walls around each group until all groups are connected.</p>
+ *
  * @author Elijah Mas
  */
 public class MazeBuilderEller extends MazeBuilder implements Runnable {
@@ -37,24 +41,72 @@ public class MazeBuilderEller extends MazeBuilder implements Runnable {
 	/*	----	----		FIELDS		----	----	*/
 	//--------------------------------------------------//
 	/**
-	 * tracks the sets that maze cells belong to during progression of Eller's algorithm
+	 * set labels of the cells in the current row, an entry is an element of {@link #forest};
+	 * after {@link #compactCurrentRow()} labels are in the range {@code 0 <= label < setCount}
 	 */
-	private int[][] cells;
+	private int[] currentRow;
 	
 	/**
-	 * <p> As sets of cells are created and subsequently merged, cellSets keeps track of them.</p>
-	 * <p>A HashSet allows for easy lookup, but
-	 * Arrays.equals() works by identity, not value; so we cannot use int[]
-	 * &#62;&#62; solution: use {@code List&#60;Integer&#62;} instead,
-	 * as advised here: https://stackoverflow.com/questions/17606839
-	 * </p>
-	*/
-	private HashMap<Integer,HashSet<List<Integer>>> cellSets;
+	 * set labels of the cells in the next row, fresh labels are in the range {@code height <= label < 2*height}
+	 */
+	private int[] nextRow;
+	
+	/**
+	 * merges the sets of the current and next row, holds {@code 2*height} elements
+	 */
+	private DisjointSets forest;
+	
+	/**
+	 * number of distinct sets in the current row after {@link #compactCurrentRow()}
+	 */
+	private int setCount;
+	
+	/**
+	 * scratch array that maps roots of the forest to new labels in {@link #compactCurrentRow()}
+	 */
+	private int[] relabel;
+	
+	/**
+	 * cells (y coordinates) of the current row ordered by set,
+	 * the cells of set s are stored from index {@code groupStart[s]} to {@code groupStart[s+1]-1}
+	 */
+	private int[] groupMembers;
+	
+	/**
+	 * start index of each set in {@link #groupMembers}
+	 */
+	private int[] groupStart;
+	
+	/**
+	 * tells for each set of the current row if it continues into the next row
+	 */
+	private boolean[] carried;
+	
+	/**
+	 * true if some set was closed off, i.e. ended without joining the other sets
+	 */
+	private boolean closedGroups;
 	
 	/**
-	 * keeps track of boundaries around rooms
+	 * cells of the current row in streaming mode, encoded as in {@link Floorplan}, null otherwise
 	 */
-	HashMap<Integer, ArrayList<OrientedWallBoard>> roomWalls;
+	private int[] currentCells;
+	
+	/**
+	 * cells of the next row in streaming mode, null otherwise
+	 */
+	private int[] nextCells;
+	
+	/**
+	 * index of the row held by {@link #currentCells}
+	 */
+	private int currentCellsRow;
+	
+	/**
+	 * floorplan of the last maze built by this instance, kept for testing
+	 * as the MazeBuilder drops its reference when it is done
+	 */
+	private Floorplan builtFloorplan;
 	
 	/**
 	 * Method that allows some of the more expensive in-line assertion tests
@@ -63,14 +115,14 @@ public class MazeBuilderEller extends MazeBuilder implements Runnable {
 	 */
 	protected static boolean ENABLE_TESTS=false;
 	
-	/** 
+	/**
 	 * ignoreRooms:
-	 * 
+	 *
 	 * this is only used for testing purposes
-	 * 
+	 *
 	 * say we want to test what happens if Eller's algorithm finishes,
 	 * but by chance leaves a room with all walls standing
-	 * 
+	 *
 	 * this is not very likely to happen by chance,
 	 * so this flag is used to ensure it happens,
 	 * so that the relevant functionality can be tested
@@ -87,25 +139,44 @@ public class MazeBuilderEller extends MazeBuilder implements Runnable {
 	public MazeBuilderEller(boolean det) {
 		super(det);
 		//System.out.println("MazeBuilderEller uses Eller's algorithm to generate a maze (deterministic enabled).");
-		
+	
+	}
+	
+	/**
+	 * Constructor for a builder with a random number stream of its own, see {@link MazeBuilder#MazeBuilder(RandomSource)}.
+	 * @param random random number stream for this builder
+	 */
+	MazeBuilderEller(RandomSource random) {
+		super(random);
 	}
 	
 	/*	----	----	GETTERS/SETTERS	----	----	*/
 	//--------------------------------------------------//
 	/**
 	 * Get the cells of set values for all coordinates in the maze. Used for testing.
+	 * The builder only keeps two rows while it runs, so the values are computed
+	 * on demand from the floorplan of the last maze: each connected group of cells
+	 * is a set, the set of cell (0,0) has value 1.
 	 * @return int[][] array holding set values.
 	 */
 	protected int[][] retrieve_cells() {
-		return cells;
+		return labelGroups(builtFloorplan);
 	}
 	
 	/**
 	 * Get the HashMap that contains references to set ids (keys) and
-	 * sets of cells that belong to these set ids (values)
+	 * sets of cells that belong to these set ids (values).
+	 * Computed on demand as for {@link #retrieve_cells()}.
 	 * @return {@code HashMap<Integer,HashSet<List<Integer>>>} providing cell sets
 	 */
 	protected HashMap retrieve_cellSets() {
+		final int[][] labels = retrieve_cells();
+		HashMap<Integer,HashSet<List<Integer>>> cellSets = new HashMap<Integer,HashSet<List<Integer>>>();
+		for(int x=0; x<labels.length; x++) {
+			for(int y=0; y<labels[x].length; y++) {
+				cellSets.computeIfAbsent(labels[x][y], k -> new HashSet<List<Integer>>()).add(Arrays.asList(x,y));
+			}
+		}
 		return cellSets;
 	}
 	
@@ -122,14 +193,13 @@ public class MazeBuilderEller extends MazeBuilder implements Runnable {
 	 * <p> Overrides {@link generation.MazeBuilder#generatePathways()}; generates pathways into maze
 	 * via wall removal by way of Eller's algorithm. Eller's algorithm follows these steps:
 	 *   <ol>
-	 *     <li> Initialize every cell in the maze:
+	 *     <li> Initialize every cell in the first row:
 	 *          <ul>
 	 *            <li> to be in its own set, if not in a room </li>
 	 *            <li> if in a room, in the same set with other cells in the room </li>
 	 *          </ul>
 	 *          The first row is the current row. </li>
-	 *     <li> Randomly merge different sets in the current row by removing walls between them;
-	 *          set cell values to be the same when two sets merge. </li>
+	 *     <li> Randomly merge different sets in the current row by removing walls between them. </li>
 	 *     <li> Randomly connect sets in the current row with the next row.
 	 *          This involves joining cells with vertical neighbors and merging sets.
 	 *          Each set in the current row must have at least one vertical connection to the new row. </li>
@@ -137,349 +207,271 @@ public class MazeBuilderEller extends MazeBuilder implements Runnable {
 	 *     <li> Finally, merge all sets in the last row by removing only those walls
 	 *          which sit between cells of distinct sets. </li>
 	 *   </ol>
-	 * 
+	 *
 	 * One extra step is added: on the unlikely chance
-	 * that there is still a closed room after the algorithm finishes,
-	 * we check for rooms, and if one is found, we randomly remove one or two
-	 * walls from its enclosing.
+	 * that a set was closed off before the algorithm finishes (e.g. a room),
+	 * we find the groups of connected cells, and randomly remove one or two
+	 * walls from the enclosing of each group until all are connected.
 	 * </p>
-	 * 
+	 *
+	 * @throws InterruptedException if the order is cancelled
 	 */
 	@Override
-	protected void generatePathways() {
+	protected void generatePathways() throws InterruptedException {
 		initializeCells();
-		
-		// we can afford to do these once in beginning
-		assert testNoDuplicateCells();
-		assert testNoIsolatedCells();
-		assert test_cells_cellSets_Agree();
-		
+	
 		for(int rowIndex=0; rowIndex<width; rowIndex++) {
+			cancellation.throwIfCancelled();
+			updatePathwaysProgress(rowIndex, width);
 			// if first row, no previous row to link with
 			if(rowIndex>0) {
 				link_CurrentRow_NewRow(rowIndex-1);
+				advanceRow(rowIndex);
 			}
 			wallRemovalFromRow(rowIndex);
 		}
-		
+	
 		handleLastRow();
-		
-		// if we forget to reset ignoreRooms, the while loop is infinite,
-		// as we are not allowed to open rooms (sets with value < 0)
+	
+		// if we forget to reset ignoreRooms, closed groups cannot be opened,
+		// as we are not allowed to remove walls next to rooms
 		ignoreRooms=false;
-		while(true) {
-			Set<Integer> roomValues = new HashSet<Integer>(cellSets.keySet());
-			roomValues.remove(1);
-			if(0==roomValues.size()) break;
-			int set = (int)getArbitraryValueFromSet(roomValues);
-			ArrayList<OrientedWallBoard> roomBorders = getRemovableWallsOfGroup(set);
+		if(closedGroups)
+			openClosedGroups();
+	
+		releaseRows();
+		builtFloorplan=floorplan;
+	
+		// expensive, labels the whole floorplan
+		if(ENABLE_TESTS) assert testSingleSet();
+	}
+	
+	/**
+	 * <p>Generates a perfect maze with Eller's algorithm in streaming mode:
+	 * no Floorplan is created and each row is handed to the sink as soon as it is final,
+	 * i.e. once it is linked with the following row.
+	 * The memory needed is proportional to the row length and independent of the number of rows,
+	 * so mazes with millions of rows can be written to a file, see {@link MazeRowFile.Writer}.</p>
+	 * 
+	 * <p>Row x holds the cells (x,0),...,(x,rowLength-1) with the encoding of
+	 * {@link Floorplan#getValueOfCell(int, int)}.
+	 * The maze has no rooms and no exit, and no distances are computed.
+	 * Must not be called while the builder runs an order.</p>
+	 * 
+	 * @param rows number of rows, i.e. the width of the maze, {@code 0 < rows}
+	 * @param rowLength number of cells in a row, i.e. the height of the maze, {@code 0 < rowLength}
+	 * @param sink receives the rows in order, the array is reused once acceptRow returns
+	 * @throws IOException if the sink fails to take a row
+	 * @throws InterruptedException if generation is cancelled with {@link #cancel()}
+	 */
+	public void generateRows(int rows, int rowLength, MazeRowSink sink) throws IOException, InterruptedException {
+		cancellation = new CancellationToken(); // fresh token as for each order
+		width=rows;
+		height=rowLength;
+		floorplan=null;
+		try {
+			currentCells=new int[height];
+			nextCells=new int[height];
+			currentCellsRow=0;
+			initializeRowCells(currentCells, 0);
+			if(width>1) initializeRowCells(nextCells, 1);
+			initializeCells();
 			
-			// remove 2 walls if possible, otherwise just 1
-			int removals = roomBorders.size()>1? 2 : 1;
-			for(int i=0; i<removals; i++) {
-				int index=SingleRandom.getRandom().nextIntWithinInterval(0, roomBorders.size()-1);
-				attemptWallboardRemoval(roomBorders.get(index), false, true);
-				roomBorders.remove(index);
+			for(int rowIndex=0; rowIndex<width; rowIndex++) {
+				cancellation.throwIfCancelled();
+				if(rowIndex>0) {
+					link_CurrentRow_NewRow(rowIndex-1);
+					// the previous row does not change anymore
+					sink.acceptRow(rowIndex-1, currentCells);
+					advanceRow(rowIndex);
+				}
+				wallRemovalFromRow(rowIndex);
 			}
+			
+			handleLastRow();
+			// without rooms every set reaches the next row
+			assert !closedGroups : "streaming mode leaves no closed groups";
+			sink.acceptRow(width-1, currentCells);
+		}
+		finally {
+			releaseRows();
+			currentCells=null;
+			nextCells=null;
+			width=0;
+			height=0;
 		}
-		
-		// we can also afford to do these once in end
-		assert testNoDuplicateCells();
-		assert testNoIsolatedCells();
-		assert test_cells_cellSets_Agree();
-		
 	}
 	
 	/**
-	 * <p>
-	 * Given two sets with reference to coordinates in {@code this.cells},
-	 * combine the two sets by transferring all coordinates to one of the two sets
-	 * and deleting the other set from {@code cellSets}.
-	 * 
-	 * Each set is identified by an integer; in most cases,
-	 * the set that is kept is that which has the lower value of the two.
-	 * The exception is if one set is a room; in that case, room cells
-	 * are added to the set of the other cell, and the room set is removed.
-	 * </p>
+	 * Makes the next row the current row after it has been linked.
+	 * In streaming mode, the cells of the row after it are initialized
+	 * in the array of the previous row which has been handed out already.
 	 * 
-	 * <p> This method does NOT check to see if the merge is valid,
-	 * NOR does it perform wallboard removal--these must be handled externally.
-	 * </p>
-	 * @param firstCoordinate location of one cell
-	 * @param secondCoordinate location of other cell
+	 * @param rowIndex index of the new current row
 	 */
-	private void mergeSets(int[] firstCoordinate, int[] secondCoordinate) {
-		// get cell values and find the smaller of the two to serve as the receiving set
-		// negative values indicate room sets, which are never the receiving sets
-		
-		int val1=getCellValue(firstCoordinate);
-		int val2=getCellValue(secondCoordinate);
-		
-		int receiver, absorbed;
-		if(val1<val2) {
-			receiver=val1;
-			absorbed=val2;
-		}
-		else {
-			receiver=val2;
-			absorbed=val1;
-		}
-		// case where one cell is in a room
-		if(receiver<0) {
-			//if(ignoreRooms) return;
-			int temp=receiver;
-			receiver=absorbed;
-			absorbed=temp;
+	private void advanceRow(int rowIndex) {
+		int[] temp=currentRow;
+		currentRow=nextRow;
+		nextRow=temp;
+		if(null!=currentCells) {
+			temp=currentCells;
+			currentCells=nextCells;
+			nextCells=temp;
+			currentCellsRow=rowIndex;
+			if(rowIndex+1<width) initializeRowCells(nextCells, rowIndex+1);
 		}
-		// room cells cannot be receivers by design choice
-		assert receiver>0;
-		
-		// add all absorbed cells to the receiving set
-		HashSet<List<Integer>> transferCells = cellSets.get(absorbed);
-		cellSets.get(receiver).addAll(transferCells);
-		for(List<Integer> cellList: transferCells) addValueAtCell(cellList, receiver);
-		
-		//don't have to remove cells from absorbed set, just have to drop reference to the set
-		cellSets.remove(absorbed);
-		
-		//expensive, but for testing we will be sure this is checked as often as possible
-		if(ENABLE_TESTS) assert test_cells_cellSets_Agree();
 	}
 	
 	/**
-	 * <p>Wrapper for {@code mergeSets(int[], int[])} which allows for input of type {@code List<Integer>}</p>
-	 * 
-	 * <p>Here for potential future use; not currently used.</p>
-	 * 
-	 * @param cell1 location of one cell
-	 * @param cell2 location of other cell
+	 * Release the row arrays for garbage collection.
 	 */
-	private void mergeSets(List<Integer> cell1, List<Integer> cell2) {
-		mergeSets(new int[] {cell1.get(0),cell1.get(1)}, new int[] {cell2.get(0),cell2.get(1)});
+	private void releaseRows() {
+		currentRow=null;
+		nextRow=null;
+		forest=null;
+		relabel=null;
+		groupMembers=null;
+		groupStart=null;
+		carried=null;
 	}
 	
+	/*	--	--	--	--	ROW ACCESS	--	--	--	--	*/
+	//------------------------------------------------------//
+	// The algorithm accesses wallboards of the current and the next row only.
+	// They are stored in the floorplan, or in streaming mode in currentCells and nextCells.
+	
 	/**
-	 * Get the set (as integer) to which a maze cell belongs.
+	 * Set all wallboards of a row in streaming mode,
+	 * the same as {@link Floorplan#initialize()} does for the whole maze.
 	 * 
-	 * @param cell the coordinate of the cell
-	 * @return the set of the cell
+	 * @param cells the cells of the row
+	 * @param rowIndex index of the row
 	 */
-	private int getCellValue(int[] cell) {
-		return cells[cell[0]][cell[1]];
+	private void initializeRowCells(int[] cells, int rowIndex) {
+		for(int y=0; y<height; y++) {
+			int value=Floorplan.CW_VISITED | Floorplan.CW_ALL;
+			if(0==y) value|=Floorplan.CW_TOP << Floorplan.CW_BOUND_SHIFT;
+			if(height-1==y) value|=Floorplan.CW_BOT << Floorplan.CW_BOUND_SHIFT;
+			if(0==rowIndex) value|=Floorplan.CW_LEFT << Floorplan.CW_BOUND_SHIFT;
+			if(width-1==rowIndex) value|=Floorplan.CW_RIGHT << Floorplan.CW_BOUND_SHIFT;
+			cells[y]=value;
+		}
 	}
 	
 	/**
-	 * Get the set (as integer) to which a maze cell belongs.
+	 * Get the cells of the current or next row in streaming mode.
 	 * 
-	 * @param cell list containing {x,y}
-	 * @return the set of the cell
+	 * @param rowIndex index of the current or next row
+	 * @return the cells of that row
 	 */
-	private int getCellValue(List<Integer> cell) {
-		return cells[cell.get(0)][cell.get(1)];
+	private int[] getRowCells(int rowIndex) {
+		return rowIndex==currentCellsRow ? currentCells : nextCells;
 	}
 	
 	/**
-	 * Get the unique values (as a set) contained within a row.
-	 * 
-	 * Greatly simplified by the fact that making a Set of values
-	 * automatically removes duplicates.
+	 * Get the bit that encodes the wallboard in the given direction,
+	 * as in {@link Floorplan#getCWConstantForDirection(CardinalDirection)}.
 	 * 
-	 * @param row an array of int values
-	 * @return set of unique values in the row
+	 * @param cd the direction
+	 * @return the bit for the wallboard
 	 */
-	private static HashSet<Integer> getUniqueRowValues(int[] row){
-		HashSet<Integer> a = new HashSet<Integer>();
-		for(int i: row) a.add(i); //has no effect if i is already present
-		
-		// assert no duplicate sets
-		if(ENABLE_TESTS) {
-			ArrayList<Integer> values = new ArrayList<Integer>(a);
-			for(int i=0; i<values.size()-1; i++)
-				assert(values.get(i)!=values.get(i+1));
+	private static int getWallBit(CardinalDirection cd) {
+		switch(cd) {
+		case North: return Floorplan.CW_TOP;
+		case East: return Floorplan.CW_RIGHT;
+		case South: return Floorplan.CW_BOT;
+		case West: return Floorplan.CW_LEFT;
+		default: throw new RuntimeException("Unsupported value in enum type");
 		}
-		
-		return a;
 	}
 	
 	/**
-	 * Test that {@code cells} and {@code cellSets}
-	 * are in agreement: that is,
-	 * the information contained in each
-	 * does not contradict the other.
+	 * Tells if there is no wallboard at cell (rowIndex,y) in the given direction.
 	 * 
-	 * @return true if information if the two sets contain identical information
+	 * @param rowIndex index of the current or next row
+	 * @param y coordinate of the cell in the row
+	 * @param cd direction of the wallboard
+	 * @return true if there is no wallboard
 	 */
-	private boolean test_cells_cellSets_Agree() {
-		// verify that every value is cells
-		// agrees with the value indicated in cellSets
-		for(int setValue: cellSets.keySet()) {
-			for(List<Integer> cell: cellSets.get(setValue)) {
-				if(getCellValue(cell)!=setValue) return false;
-			}
-		}
-		
-		// verify that each set in cellSets contains the expected values
-		// as predicated by the values in cells
-		for(int x=0; x<width; x++) {
-			for(int y=0; y<height; y++) {
-				if(!cellSets.get(cells[x][y]).contains(Arrays.asList(x,y))) return false;
-			}
-		}
-		
-		return true;
+	private boolean hasNoWall(int rowIndex, int y, CardinalDirection cd) {
+		if(null==currentCells) return floorplan.hasNoWall(rowIndex, y, cd);
+		return 0==(getRowCells(rowIndex)[y] & getWallBit(cd));
 	}
 	
 	/**
-	 * <p> Test that no sets have duplicate cells.</p>
-	 * 
-	 * <p> How this works:
-	 *   <ol>
-	 *     <li> for every set of cells A,
-	 *          get the set S which contains all the sets that are not A;</li>
-	 *     <li> for every set B in A, let A = intersect(B, A);</li>
-	 *     <li> if A's size has changed over, the test has failed (somewhwhere along
-	 *          the way, a set in S had elements in common with A).</li>
-	 *   </ol>
-	 * </p>
-	 * 
-	 * <p><b>***Expected result:</b> no two sets share any cells,
-	 * meaning case 2 above holds for all comparison set pairs.</p>
+	 * Tells if the wallboard at cell (rowIndex,y) in the given direction is a border.
 	 * 
-	 * I have optimized this method to the extent possible;
-	 * it gets expensive when called very frequently.
-	 * 
-	 * @return boolean:{no sets have duplicate cells}
+	 * @param rowIndex index of the current or next row
+	 * @param y coordinate of the cell in the row
+	 * @param cd direction of the wallboard
+	 * @return true if the wallboard is a border
 	 */
-	private boolean testNoDuplicateCells() {
-		HashSet<List<Integer>> setA;
-		
-		// don't iterate over original
-		// the .keySet() method is backed by the HashSet,
-		// do not want to chance mutating it while iterating
-		ArrayList<Integer> setValues = new ArrayList<Integer>(cellSets.keySet());
-		
-		int size=setValues.size(), v1, v2;
-		
-		/*
-		//a more expensive way of doing this
-		
-		for(int i=0; i<size-1; i++) {
-			v1=setValues.get(i);
-			for(int j=i+1; j<size; j++) {
-				v2=setValues.get(j);
-				setA = new HashSet<List<Integer>>(cellSets.get(v1));
-				setA.retainAll(cellSets.get(v2));
-				if(0!=setA.size()) return false;
-			}
-		}
-		*/
-		
-		for(int i=0; i<size; i++) {
-			v1=setValues.get(i);
-			setA = new HashSet<List<Integer>>(cellSets.get(v1));
-			int initialSize=setA.size();
-			for(int j=0; j<size; j++) {
-				if(i==j) continue;
-				setA.removeAll(cellSets.get(setValues.get(j)));
-			}
-			int newSize=setA.size();
-			if(initialSize!=newSize) return false;
-		}
-		
-		return true;
+	private boolean isPartOfBorder(int rowIndex, int y, CardinalDirection cd) {
+		if(null==currentCells) return floorplan.isPartOfBorder(rowIndex, y, cd);
+		return 0!=(getRowCells(rowIndex)[y] & (getWallBit(cd) << Floorplan.CW_BOUND_SHIFT));
 	}
 	
 	/**
-	 * <p>Verify that there are no isolated cells: i.e.,
-	 * every cell that is part of a set can be reached
-	 * from every other cell in that set.</p>
+	 * Delete the wallboard at cell (rowIndex,y) in the given direction
+	 * on both sides.
 	 * 
-	 * <p>It is sufficient to choose one cell at random
-	 * and then walk to its reachable neighbors
-	 * in the set; if any cells are disconnected, this test fails.</p>
-	 * 
-	 * @return boolean: true if the specified test is successful
+	 * @param rowIndex index of the current row
+	 * @param y coordinate of the cell in the row
+	 * @param cd direction of the wallboard, South or East
 	 */
-	private boolean testNoIsolatedCells() {
-		for(int setValue:cellSets.keySet()) {
-			
-			// get a random cell in this set,
-			// walk to every other cell in its set that can be reached,
-			// put into a new set
-			HashSet<List<Integer>> cells = getCellsInRoom(
-				(List<Integer>) getArbitraryValueFromSet(cellSets.get(setValue))
-			);
-			
-			// get all the cells in the maze that identify this set value
-			HashSet<List<Integer>> cells2 = new HashSet<List<Integer>>(cells.size());
-			for(int x=0; x<width; x++) {
-				for(int y=0; y<height; y++) {
-					if(setValue==getCellValue(new int[] {x,y})) cells2.add(Arrays.asList(x,y));
-				}
-			}
-			
-			// now check that both sets are equal
-			// as per docs, .equals method tests for equality, not identity
-			// https://docs.oracle.com/javase/8/docs/api/java/util/AbstractList.html#equals-java.lang.Object-
-			if(!cells.equals(cells2)) return false;
+	private void deleteWallboard(int rowIndex, int y, CardinalDirection cd) {
+		if(null==currentCells) {
+			floorplan.deleteWallboard(rowIndex, y, cd);
+			return;
 		}
-		return true;
+		getRowCells(rowIndex)[y] &= ~getWallBit(cd);
+		getRowCells(rowIndex+cd.getDx())[y+cd.getDy()] &= ~getWallBit(cd.oppositeDirection());
 	}
 	
 	/**
-	 * Return all the wallboards (as VerticalWallBoard instances)
-	 * positioned between the cells of a row, i.e. excluding the borders
-	 * on the maze periphery.
-	 * 
-	 * @param rowIndex index of the row
-	 * @return list of vertical wallboards in cell row
+	 * Tells if a wallboard must be left in place because {@link #ignoreRooms} is set
+	 * and one of the cells it separates is in a room.
+	 *
+	 * @param x coordinate of cell
+	 * @param y coordinate of cell
+	 * @param cd direction of the wallboard, the neighbor in this direction must be inside the maze
+	 * @return true if the wallboard is next to a room that is ignored
 	 */
-	ArrayList<VerticalWallBoard> getVerticalWallboardsInRow(int rowIndex){
-		ArrayList<VerticalWallBoard> boards = new ArrayList<VerticalWallBoard>(height);
-		
-		// iterate over all row cells except last, with current y being left of wall, and y+1 right of wall
-		// this has to effect of excluding the outermost borders of the maze
+	private boolean isIgnoredRoomWall(int x, int y, CardinalDirection cd) {
+		// there are no rooms in streaming mode
+		return ignoreRooms && null==currentCells &&
+			(floorplan.isInRoom(x, y) || floorplan.isInRoom(x+cd.getDx(), y+cd.getDy()));
+	}
+	
+	/**
+	 * Test that the sets of the current row agree with the floorplan:
+	 * cells in different sets are separated by a wall,
+	 * and cells with no wall between them are in the same set.
+	 *
+	 * @param rowIndex index of the current row
+	 * @return true if the test is successful
+	 */
+	private boolean testRowAgreesWithFloorplan(int rowIndex) {
 		for(int y=0; y<height-1; y++) {
-			boards.add(new VerticalWallBoard(new int[] {rowIndex,y}, new int[] {rowIndex,y+1}, this));
+			boolean sameSet = forest.connected(currentRow[y], currentRow[y+1]);
+			if(!sameSet && hasNoWall(rowIndex, y, CardinalDirection.South)) return false;
 		}
-		return boards;
+		return true;
 	}
 	
 	/**
-	 * Attempt to remove a wallboard from the floorplan, whether probabilistically
-	 * or enforced.
-	 * 
-	 * @param wall the OrientedWallBoard instance to be removed
-	 * @param considerBorder if true, borders will not be removed
-	 * @param forceRemoval if true, remove the wall if it is between cells of different sets;
-	 *                     if false, the wall may or may not be removed
+	 * Test that the whole maze is a single set, i.e. every cell
+	 * can be reached from every other cell.
+	 *
+	 * @return true if the test is successful
 	 */
-	private void attemptWallboardRemoval(OrientedWallBoard wall, boolean considerBorder, boolean forceRemoval) {
-		/* the decision process for removing the wall:
-		 *     if forceRemoval, the wall will be removed if its surrounding cell-sets are distinct
-		 *     otherwise the wall may be removed:
-		 *         if a border wall, do not remove
-		 *         if not a border, there is a 50% chance of removal
-		*/
-		if(ignoreRooms && wall.hasRoomNeighbor()) return;
-		
-		if(!forceRemoval) {
-			if(considerBorder && wall.isBorder()) {
-				// we could use the lines below to probabilistically remove border walls
-				// but as per use of roomWalls this is not required
-				
-				//int cancel = SingleRandom.getRandom().nextIntWithinInterval(0, 3);
-				//if(0==cancel)
-					return;
+	private boolean testSingleSet() {
+		for(int[] row: labelGroups(floorplan)) {
+			for(int v: row) {
+				if(1!=v) return false;
 			}
-			// 50% chance of removal
-			else if(1==SingleRandom.getRandom().nextIntWithinInterval(0, 1)? true: false) return;
-		}
-		int[] back=wall.getBackCell(), forth=wall.getForthCell();
-		if (getCellValue(back)!=getCellValue(forth)) {
-			mergeSets(back, forth);
-			wall.removeFromFloorplan();
 		}
+		return true;
 	}
 	
 	/**
@@ -490,7 +482,7 @@ public class MazeBuilderEller extends MazeBuilder implements Runnable {
 	 *       <li> The walls must not be marked as borders </li>
 	 *     </ul>
 	 * </p>
-	 * 
+	 *
 	 * <p>
 	 * There are different ways to randomize wall removal. Two options are:
 	 *   <ul>
@@ -506,99 +498,89 @@ public class MazeBuilderEller extends MazeBuilder implements Runnable {
 	 * </p>
 	 * @param rowIndex the index of the row
 	 */
-	@SuppressWarnings("unchecked")
 	private void wallRemovalFromRow(int rowIndex){
-		ArrayList<VerticalWallBoard> boards = getVerticalWallboardsInRow(rowIndex);
-		ArrayList<int[]> initialSetValues = new ArrayList<int[]>(boards.size());
-		for(VerticalWallBoard wall: boards) {
-			initialSetValues.add(new int[] {
-					getCellValue(wall.getBackCell()),
-					getCellValue(wall.getForthCell())
-			});
-		}
-		
-		//make things more interesting by randomizing the order of iteration
-		for(int index: IntStream.range(0, height-1).toArray()){
-			VerticalWallBoard wall = boards.get(index);
-			// wall removal is conducted probabilistically, border is considered
-			attemptWallboardRemoval(wall, true, false);
-		}
-		
-		for(VerticalWallBoard wall: boards) {
-			int[] left = wall.getBackCell(), right = wall.getForthCell();
-			
-			// if the cells are in in different sets, there must be a separating wall
-			if( getCellValue(left) != getCellValue(right) ) assert wall.isPresent();
-			
-			// I have not found an analogously simple assertion
-			// (one that involves nothing more than checking the presence of walls)
-			// for the case where the cells are in the same set;
-			// for this we have the test below outside this loop
-		}
-		
-		
-		if(ENABLE_TESTS) {
-			//System.out.println("performing duplicate test at row "+rowIndex);
-			assert testNoIsolatedCells();
-			assert testNoDuplicateCells();
+		// the wall to the south of cell y sits between y and y+1,
+		// the outermost borders of the maze are excluded
+		for(int y=0; y<height-1; y++) {
+			if(isIgnoredRoomWall(rowIndex, y, CardinalDirection.South)) continue;
+			// border walls are left in place
+			if(isPartOfBorder(rowIndex, y, CardinalDirection.South)) continue;
+			// 50% chance of removal
+			if(1==random.nextIntWithinInterval(0, 1)) continue;
+			// remove the wall if the cells are in different sets
+			if(forest.union(currentRow[y], currentRow[y+1]))
+				deleteWallboard(rowIndex, y, CardinalDirection.South);
 		}
-	}
 	
-	/*
+		if(ENABLE_TESTS) assert testRowAgreesWithFloorplan(rowIndex);
+	}
 	
-	//not currently used
-	private int countSetOccurrence(int setValue) {
-		int count=0;
-		for(int[] row: cells) {
-			for(int v: row) {
-				if(v==setValue) count++;
-			}
+	/**
+	 * Renumber the sets of the current row to {@code 0,1,...,setCount-1}
+	 * in the order in which they first appear in the row,
+	 * then reset the forest such that each label is a set of its own.
+	 * The labels of the previous rows are no longer needed at this point.
+	 */
+	private void compactCurrentRow() {
+		Arrays.fill(relabel, -1);
+		setCount=0;
+		for(int y=0; y<height; y++) {
+			int root=forest.find(currentRow[y]);
+			if(relabel[root]<0) relabel[root]=setCount++;
+			currentRow[y]=relabel[root];
 		}
-		return count;
+		forest.reset();
 	}
-	*/
 	
 	/**
-	 * Set the value of a given cell as the set to which it should belong;
-	 * if a set does not already exist for that value, then first create it.
-	 * 
-	 * @param cell the cell at which to set the value
-	 * @param setValue the set to which the cell will belong
+	 * Assign set labels to the cells of the next row.
+	 * A cell with no wall towards the current row (i.e. inside a room) continues
+	 * the set of its neighbor in the current row, all other cells get a fresh label.
+	 * Cells with no wall between them in the next row (again inside a room) are merged.
+	 *
+	 * @param rowIndex index of the next row
 	 */
-	private void addValueAtCell(List<Integer> cell, int setValue) {
-		HashSet<List<Integer>> s = cellSets.get(setValue);
-		
-		// if the set does not yet exist,
-		// initialize it with <cell> as sole member and add it to cellSets
-		if(null==s) {
-			s=new HashSet<List<Integer>>();
-			s.add(cell);
-			cellSets.put(setValue, s);
+	private void initializeRow(int rowIndex) {
+		for(int y=0; y<height; y++) {
+			nextRow[y] = hasNoWall(rowIndex, y, CardinalDirection.West) ?
+					currentRow[y] : height+y;
+		}
+		for(int y=0; y<height-1; y++) {
+			if(hasNoWall(rowIndex, y, CardinalDirection.South))
+				forest.union(nextRow[y], nextRow[y+1]);
 		}
-		else s.add(cell);
-		
-		cells[cell.get(0)][cell.get(1)]=setValue;
 	}
-		
+	
 	/**
-	 * Wrapper for {@code addValueAtCell(List<Integer>)}, allows for input of type {@code int[]}.
-	 * 
-	 * @param cell array containing {x,y}
-	 * @param setValue the set to which the cell belongs
+	 * Order the cells of the current row by set into {@link #groupMembers}
+	 * with a counting sort over the compact labels.
 	 */
-	private void addValueAtCell(int[] cell, int setValue) {
-		List<Integer> cellList = Arrays.asList(cell[0],cell[1]);
-		addValueAtCell(cellList, setValue);
+	private void groupRowBySet() {
+		// count cells per set
+		Arrays.fill(groupStart, 0, setCount+1, 0);
+		for(int y=0; y<height; y++) groupStart[currentRow[y]]++;
+		// turn counts into start indices
+		int sum=0;
+		for(int set=0; set<=setCount; set++) {
+			int count=groupStart[set];
+			groupStart[set]=sum;
+			sum+=count;
+		}
+		// place cells, this moves each start index to the start of the following set
+		for(int y=0; y<height; y++) groupMembers[groupStart[currentRow[y]]++]=y;
+		// shift start indices back
+		for(int set=setCount; set>0; set--) groupStart[set]=groupStart[set-1];
+		groupStart[0]=0;
 	}
 	
 	/**
 	 * <p>
 	 * Extend the sets of the current row into the following row,
 	 * By randomly selecting locations where cells will merge vertically.
-	 * 
+	 *
 	 * The following row is that in the positive x direction.
 	 * </p>
-	 * 
+	 *
 	 * <p>
 	 * We again have ways to randomize this. Repeating the options from before:
 	 *   <ul>
@@ -608,285 +590,214 @@ public class MazeBuilderEller extends MazeBuilder implements Runnable {
 	 *          to join the cell or leave it alone. </li>
 	 *   </ul>
 	 * </p>
-	 * 
+	 *
 	 * This time we take a variant of the first approach: the number we arrive at
 	 * is an upper bound on how many links we might establish.
 	 * There is a reason for taking this approach: we must perform at least one extension
 	 * for each set, and the semantics of performing this are simpler in the first approach.
 	 * 
+	 * Before linking, the sets of the current row are renumbered and the new row gets its labels.
+	 *
 	 * @param currentRowIndex index of the current row
 	 */
 	void link_CurrentRow_NewRow(int currentRowIndex) {
-		
+		compactCurrentRow();
+		initializeRow(currentRowIndex+1);
+		groupRowBySet();
+	
 		// iterate over sets overlapping current row
-		for(int setValue: getUniqueRowValues(cells[currentRowIndex])) {
-			HashSet<List<Integer>> extendable = new HashSet<List<Integer>>();
-			
-			//get all the cells in this set in this row
-			for(int y=0; y<height; y++) {
-				if(setValue==cells[currentRowIndex][y]) extendable.add(Arrays.asList(currentRowIndex,y));
-			}
-			int size=extendable.size();
-			
+		for(int set=0; set<setCount; set++) {
+			int start=groupStart[set];
+			int size=groupStart[set+1]-start;
+	
 			// randomly join up to half the cells in the set
 			int count = (1==size)?
-					1 : SingleRandom.getRandom().nextIntWithinInterval(1, (int)Math.ceil((double)size/2.0));
-			
-			//randomly select candidate walls for removal
+					1 : random.nextIntWithinInterval(1, (size+1)/2);
+	
+			// randomly select candidate walls for removal, moving selected cells to the front
 			for(int i=0; i<count; i++) {
-				@SuppressWarnings("unchecked")
-				List<Integer> cell = (List<Integer>)getArbitraryValueFromSet(extendable, extendable.size());
-				List<Integer> lowerCell = Arrays.asList(cell.get(0)+1, cell.get(1));
-				HorizontalWallBoard wall = new HorizontalWallBoard(cell, lowerCell, this);
-				
-				// boolean flags indicate wall removal is forced (if valid), border is not considered
-				attemptWallboardRemoval(wall, false, true);
-				
-				extendable.remove(cell);
-				
+				int j=random.nextIntWithinInterval(start+i, start+size-1);
+				int y=groupMembers[j];
+				groupMembers[j]=groupMembers[start+i];
+				groupMembers[start+i]=y;
+	
+				// wall removal is forced if the cells are in different sets, border is not considered
+				if(isIgnoredRoomWall(currentRowIndex, y, CardinalDirection.East)) continue;
+				if(forest.union(currentRow[y], nextRow[y]))
+					deleteWallboard(currentRowIndex, y, CardinalDirection.East);
 			}
 		}
-		
-		if(ENABLE_TESTS) {
-			//System.out.println("performing duplicate test at row "+currentRowIndex);
-			assert testNoDuplicateCells();
-			assert testNoIsolatedCells();
+	
+		// a set that does not reach the next row is closed off
+		Arrays.fill(carried, 0, setCount, false);
+		for(int y=0; y<height; y++) {
+			if(forest.connected(currentRow[y], nextRow[y])) carried[currentRow[y]]=true;
+		}
+		for(int set=0; set<setCount; set++) {
+			if(!carried[set]) closedGroups=true;
 		}
 	}
-
+	
 	/**
 	 * Perform the final step of Eller's algorithm:
 	 * remove all walls between cells of distinct sets last row.
 	 */
 	void handleLastRow() {
-		ArrayList<VerticalWallBoard> boards = getVerticalWallboardsInRow(width-1);
-		
+		int rowIndex=width-1;
+	
 		// iterate over all walls, no randomization involved
-		for(VerticalWallBoard wall:boards) {
-			int[] left=wall.getBackCell(), right=wall.getForthCell();
-			
-			attemptWallboardRemoval(wall,false, true);
+		for(int y=0; y<height-1; y++) {
+			if(isIgnoredRoomWall(rowIndex, y, CardinalDirection.South)) continue;
+			if(forest.union(currentRow[y], currentRow[y+1]))
+				deleteWallboard(rowIndex, y, CardinalDirection.South);
 		}
-	}
 	
-	/**
-	 * <p>Pull an arbitrary value from a given set.</p>
-	 * 
-	 * <p>Worded as "arbitrary" not "random" because random number generation is not invoked
-	 * within this method: the method loops through the input set's iterator and
-	 * pulls the object obtained at iteration {@code iters} (iterations start at 0).
-	 * By default, the single-argument wrapper method sets {@code iters=0}.</p>
-	 * 
-	 * <p>"arbitrary" because the order of elements in general, the Set interface does not
-	 * guarantee any particular ordering of elements.</p>
-	 * 
-	 * <p>Random number generation can be incorporated by passing a random integer
-	 * generated elsewhere to the {@code iters} parameter.</p>
-	 * 
-	 * @param s the set of objects
-	 * @param iters the position in the iteration at which to return
-	 * @return an object from the set
-	 */
-	@SuppressWarnings("rawtypes")
-	private Object retreiveArbitrarySetValue(Set s, int iters) {
-		//initialize to null so compiler does not complain about uninitialized variable
-		Object item=null;
-		
-		int count = 0;
-		for(Object o: s) {
-			item=o;
-			if(iters==count++) return item; //increment count for each iteration
+		// walls next to ignored rooms may have kept sets apart
+		for(int y=1; y<height; y++) {
+			if(!forest.connected(currentRow[0], currentRow[y])) closedGroups=true;
 		}
-		
-		// compiler complains without this statement
-		return item;
-	}
-	
-	/**
-	 * (wrapper around {@code retreiveArbitrarySetValue(Set s, int iters)}
-	 * that sets default value of {@code iters} to 0)
-	 * 
-	 * @param s set
-	 * @return object from the set
-	 */
-	@SuppressWarnings("rawtypes")
-	private Object getArbitraryValueFromSet(Set s) {
-		return retreiveArbitrarySetValue(s, 0);
-	}
-	
-	/**
-	 * (wrapper around {@code retreiveArbitrarySetValue(Set s, int iters)}
-	 * that allows for variable value of {@code iters})
-	 * 
-	 * @param s set
-	 * @return object from the set
-	 */
-	@SuppressWarnings("rawtypes")
-	private Object getArbitraryValueFromSet(Set s, int iters) {
-		return retreiveArbitrarySetValue(s, iters);
 	}
 	
 	/**
-	 * Return all the neighbors of a cell that are in the same room as the cell.
-	 * This method will not be called before walls are removed,
-	 * so it can use the property that rooms are initialized with walls bordering the room
-	 * and no walls inside the room to select cell neighbors.
-	 * 
-	 * @param cell a cell, which must be in a room.
-	 * @return the neighbors of this cell inside the cell's room
+	 * Connect all groups of cells that were closed off during the algorithm.
+	 * The groups are labeled on the whole floorplan; for each group
+	 * that is not connected with the group of cell (0,0), we randomly remove
+	 * one or two of its removable walls, until it is.
 	 */
-	private HashSet<List<Integer>> getCellRoomNeighbors(List<Integer> cell){
-		HashSet<List<Integer>> list = new HashSet<List<Integer>>(4); //max # of neighbors
-		
-		int cX = cell.get(0), cY = cell.get(1);
-		
-		// check all directions
-		for(CardinalDirection cd : CardinalDirection.values()) {
-			int[] d = cd.getDirection();
-			if(floorplan.hasNoWall(cX, cY, cd)) // true<-->neighbor shares room
-				list.add((List<Integer>)Arrays.asList(cX+d[0],cY+d[1]));
+	private void openClosedGroups() {
+		int[][] labels = labelGroups(floorplan);
+		int groupCount = 0;
+		for(int[] row: labels) {
+			for(int v: row) groupCount=Math.max(groupCount, v);
+		}
+		// groups that have been connected by removing walls
+		DisjointSets groups = new DisjointSets(groupCount+1);
+	
+		for(int group=2; group<=groupCount; group++) {
+			while(!groups.connected(group, 1)) {
+				ArrayList<OrientedWallBoard> groupBorders = getRemovableWallsOfGroup(group, labels, groups);
+				assert !groupBorders.isEmpty() : "closed group has no removable walls";
+	
+				// remove 2 walls if possible, otherwise just 1
+				int removals = groupBorders.size()>1? 2 : 1;
+				for(int i=0; i<removals; i++) {
+					int index=random.nextIntWithinInterval(0, groupBorders.size()-1);
+					OrientedWallBoard wall=groupBorders.remove(index);
+					int[] back=wall.getBackCell(), forth=wall.getForthCell();
+					// the first removal may already have joined the groups of the second wall
+					if(groups.union(labels[back[0]][back[1]], labels[forth[0]][forth[1]]))
+						wall.removeFromFloorplan();
+				}
+			}
 		}
-		return list;
-	}
-	
-	/**
-	 * Given a set of cells in a room,
-	 * return a set all cells that are neighbors of these cells.
-	 * The set will contain only unique cells, but this set may overlap
-	 * with the original set of cells passed in as an argument,
-	 * if any cells in that set were neighbors of each other.
-	 * 
-	 * @param cells a set of cells
-	 * @return the set containing all neighbors of these cells
-	 */
-	HashSet<List<Integer>> getRoomNeighborsOfCells(Set<List<Integer>> cells){
-		HashSet<List<Integer>> neighbors = new HashSet<List<Integer>>();
-		
-		// HashSet automatically prevents duplicates
-		for(List<Integer> cell: cells) neighbors.addAll(getCellRoomNeighbors(cell));
-		return neighbors;
 	}
 	
 	/**
-	 * Given an input cell,
-	 * get all of the cells in the same room as this cell.
-	 * 
-	 * @param cell list containing {x,y}
-	 * @return complete set of cells occupying the room this cell is in
-	 */
-	HashSet<List<Integer>> getCellsInRoom(List<Integer> cell){
-		
-		HashSet<List<Integer>> visited = new HashSet<List<Integer>>();
-		visited.add(cell);
-		HashSet<List<Integer>> newVisits = getCellRoomNeighbors(cell);
-		
-		/* how this works:
-		 *     we are iterating over cells in the room by appending
-		 *         neighbors of cells already discovered;
-		 *     newVisits has the newest-discovered neighbor cells;
-		 *     newVisits recurrently updates itself to be the set of
-		 *         its neighbors that have not yet been visited
-		 *     'visited' keeps track of visited cells
-		 */
-		while(newVisits.size()>0){
-			visited.addAll(newVisits);
-			newVisits=getRoomNeighborsOfCells(newVisits);
-			newVisits.removeIf(visited::contains);
+	 * Label the groups of connected cells of a floorplan:
+	 * two cells have the same label if there is a path between them.
+	 * The group of cell (0,0) has label 1, further groups are labeled
+	 * 2,3,... in the order in which they are found.
+	 *
+	 * @param plan the floorplan, can not be null
+	 * @return labels, an int[width][height] array
+	 */
+	static int[][] labelGroups(Floorplan plan) {
+		final int w=plan.getWidth(), h=plan.getHeight();
+		int[][] labels = new int[w][h];
+		// cells are encoded as x*h+y in the queue of the breadth-first search
+		int[] queue = new int[w*h];
+		int label=0;
+		for(int x=0; x<w; x++) {
+			for(int y=0; y<h; y++) {
+				if(0!=labels[x][y]) continue;
+				labels[x][y]=++label;
+				int head=0, tail=0;
+				queue[tail++]=x*h+y;
+				while(head<tail) {
+					int cX=queue[head]/h, cY=queue[head++]%h;
+					for(CardinalDirection cd: CardinalDirection.values()) {
+						int nX=cX+cd.getDx(), nY=cY+cd.getDy();
+						// an exit leads outside of the maze
+						if(nX<0 || nX>=w || nY<0 || nY>=h) continue;
+						if(0==labels[nX][nY] && plan.hasNoWall(cX, cY, cd)) {
+							labels[nX][nY]=label;
+							queue[tail++]=nX*h+nY;
+						}
+					}
+				}
+			}
 		}
-		
-		return visited;
+		return labels;
 	}
 	
 	/**
-	 * Given a group of cells that belong to a set,
-	 * get the walls surrounding this set that are removable
-	 * (i.e., not borders)
-	 * @param set the integer value identifying the set
-	 * @return the removable walls around this set
+	 * Given a group of cells,
+	 * get the walls surrounding this group that are removable
+	 * (i.e., not borders, and leading to a cell in a different group)
+	 * @param group the label identifying the group
+	 * @param labels group labels of all cells, see {@link #labelGroups(Floorplan)}
+	 * @param groups groups that have been joined so far
+	 * @return the removable walls around this group
 	 */
-	private ArrayList<OrientedWallBoard> getRemovableWallsOfGroup(int set) {
+	private ArrayList<OrientedWallBoard> getRemovableWallsOfGroup(int group, int[][] labels, DisjointSets groups) {
 		ArrayList<OrientedWallBoard> walls = new ArrayList<OrientedWallBoard>();
-		
-		int rX,rY;
-		int[] d;
+	
+		int root=groups.find(group);
 		OrientedWallBoard wall=null;
-		
-		// add walls around the room to a set that can be accessed later
+	
 		// we only add non-border walls
-		for(List<Integer> cell: cellSets.get(set)) {
-			for(CardinalDirection cd: CardinalDirection.values()) {
-				rX=cell.get(0);
-				rY=cell.get(1);
-				if(floorplan.hasWall(rX, rY, cd)) {
-					//check every direction for wall
-					d=cd.getDirection();
-					int[] cell1=new int[] {rX,rY}, cell2=new int[] {rX+d[0],rY+d[1]};
-					
+		for(int rX=0; rX<width; rX++) {
+			for(int rY=0; rY<height; rY++) {
+				if(groups.find(labels[rX][rY])!=root) continue;
+				//check every direction for wall
+				for(CardinalDirection cd: CardinalDirection.values()) {
+					int dX=cd.getDx(), dY=cd.getDy();
+					int[] cell1=new int[] {rX,rY}, cell2=new int[] {rX+dX,rY+dY};
+	
 					// reject wall on maze periphery
-					// it is true that we check for a border a few lines down;
-					// but that check will throw an exception if cell2 is out of bounds
-					if(cell2[0]<0 || cell2[0]>width || cell2[1]<0 || cell2[1]>height) continue;
-					
-					if(-1==d[0] && 0==d[1]) wall = new HorizontalWallBoard(cell2, cell1, this);
-					else if(1==d[0] && 0==d[1]) wall = new HorizontalWallBoard(cell1, cell2, this);
-					else if(0==d[0] && -1==d[1]) wall = new VerticalWallBoard(cell2, cell1, this);
-					else if(0==d[0] && 1==d[1]) wall = new VerticalWallBoard(cell1, cell2, this);
-					
-					if(!wall.isBorder())
-						walls.add(wall);
+					if(cell2[0]<0 || cell2[0]>=width || cell2[1]<0 || cell2[1]>=height) continue;
+					if(!floorplan.hasWall(rX, rY, cd) || floorplan.isPartOfBorder(rX, rY, cd)) continue;
+					// reject walls inside the group
+					if(groups.find(labels[cell2[0]][cell2[1]])==root) continue;
+	
+					if(-1==dX) wall = new HorizontalWallBoard(cell2, cell1, this);
+					else if(1==dX) wall = new HorizontalWallBoard(cell1, cell2, this);
+					else if(-1==dY) wall = new VerticalWallBoard(cell2, cell1, this);
+					else wall = new VerticalWallBoard(cell1, cell2, this);
+	
+					walls.add(wall);
 				}
 			}
 		}
-		
+	
 		return walls;
 	}
 	
 	/**
-	 * Initialize the set values in the cells array so that
+	 * Allocate the row arrays and initialize the first row so that
 	 *     <ul>
 	 *       <li> every cell not in a room belongs to its own set; </li>
-	 *       <li> every room is delegated a unique set for its own cells. </li>
+	 *       <li> the cells of a room in this row belong to the same set. </li>
 	 *     </ul>
 	 */
-	@SuppressWarnings("unchecked")
 	void initializeCells() {
-		cellSets = new HashMap<Integer,HashSet<List<Integer>>>();
-		roomWalls = new HashMap<Integer,ArrayList<OrientedWallBoard>>();
-		cells=new int[width][height];
-		int count=1;
-		int value;
-		
-		// every cell not in a room gets unique integer value
-		// initially set all cells in rooms to 0
-		for(int x=0; x<width; x++) {
-			for(int y=0; y<height; y++) {
-				value = floorplan.isInRoom(x, y) ? 0 : count++;
-				addValueAtCell(new int[] {x,y},value);
-			}
-		}
-		
-		HashSet<List<Integer>> set0 = cellSets.get(0);
-		
-		// case of no rooms
-		if(null==set0) return;
-		
-		// now go back and distinguish cells in unique rooms
-		// each room gets its own set, identified by a negative integer
-		List<Integer> randomCell;
-		int roomIndex=-1;
-		while(set0.size()>0) {
-			randomCell=(List<Integer>)getArbitraryValueFromSet(set0);
-			for(List<Integer> cell: getCellsInRoom(randomCell)) {
-				addValueAtCell(cell,roomIndex);
-				set0.remove(cell);
-			}
-			
-			
-			roomIndex--;
+		currentRow=new int[height];
+		nextRow=new int[height];
+		forest=new DisjointSets(2*height);
+		relabel=new int[2*height];
+		groupMembers=new int[height];
+		groupStart=new int[height+1];
+		carried=new boolean[height];
+		closedGroups=false;
+	
+		for(int y=0; y<height; y++) currentRow[y]=y;
+		// cells with no wall between them are inside the same room
+		for(int y=0; y<height-1; y++) {
+			if(hasNoWall(0, y, CardinalDirection.South))
+				forest.union(currentRow[y], currentRow[y+1]);
 		}
-		cellSets.remove(0);
 	}
-
+	
 }
 
 /**
@@ -0,0 +1,142 @@
+package generation;
+
+/**
+ * This class has the responsibility to create a maze of given dimensions (width, height)
+ * together with a solution based on a distance matrix.
+ * The MazeBuilder implements Runnable such that it can be run a separate thread.
+ * The MazeFactory has a MazeBuilder and handles the thread management.
+ *
+ * The maze is built with a randomized version of Kruskal's algorithm.
+ * Every cell starts as a tree of its own, all internal wallboards are considered
+ * in random order and a wallboard is taken down if it separates two different trees,
+ * which then merge into one. The result is a spanning tree over all cells.
+ *
+ * Trees are kept in a disjoint-set forest on int arrays with path compression and union by rank,
+ * see {@link DisjointSets}.
+ * Candidate wallboards are encoded as integers in a shuffled int array,
+ * so no Wallboard objects are created per edge.
+ * As for the other algorithms, wallboards that carry the border flag stay in place.
+ * Cells of a room start out in a single tree as a room has no internal wallboards.
+ *
+ * @author Elijah Mas
+ */
+public class MazeBuilderKruskal extends MazeBuilder implements Runnable {
+
+	/**
+	 * keeps track of cells that are already connected, cell (x,y) is stored as x*height+y
+	 */
+	private DisjointSets forest;
+
+	public MazeBuilderKruskal() {
+		super();
+		System.out.println("MazeBuilderKruskal uses Kruskal's algorithm to generate maze.");
+	}
+
+	public MazeBuilderKruskal(boolean det) {
+		super(det);
+		System.out.println("MazeBuilderKruskal uses Kruskal's algorithm to generate maze.");
+	}
+
+	/**
+	 * Constructor for a builder with a random number stream of its own, see {@link MazeBuilder#MazeBuilder(RandomSource)}.
+	 * @param random random number stream for this builder
+	 */
+	MazeBuilderKruskal(RandomSource random) {
+		super(random);
+	}
+
+	/**
+	 * This method generates pathways into the maze by using Kruskal's algorithm to generate a spanning tree for an undirected graph.
+	 * The cells are the nodes of the graph and the internal wallboards are the candidate edges.
+	 * Edges are visited in random order, an edge is added to the spanning tree (the wallboard is deleted)
+	 * if its cells are not connected yet.
+	 * @throws InterruptedException if the order is cancelled
+	 */
+	@Override
+	protected void generatePathways() throws InterruptedException {
+		initializeForest();
+
+		// candidate wallboards, encoded as (x*height+y)*2 + 0 for east, +1 for south
+		// wallboards on the outside of the maze and borders of rooms are not candidates
+		final int[] edges = new int[2*width*height];
+		final int count = collectCandidateEdges(edges);
+		shuffle(edges, count);
+
+		for (int i = 0; i < count; i++) {
+			if ((i & CancellationToken.CHECK_MASK) == 0) {
+				cancellation.throwIfCancelled();
+				updatePathwaysProgress(i, count);
+			}
+			final int edge = edges[i];
+			final int cell = edge >> 1;
+			final int x = cell / height;
+			final int y = cell - x*height;
+			final boolean east = (edge & 1) == 0;
+			final int neighbor = east ? cell + height : cell + 1;
+			// tear down the wallboard if it separates two different trees
+			if (forest.union(cell, neighbor)) {
+				floorplan.deleteWallboard(x, y, east ? CardinalDirection.East : CardinalDirection.South);
+			}
+		}
+
+		// release forest for garbage collection
+		forest = null;
+	}
+
+	/**
+	 * Sets up a forest where each cell is a tree of its own,
+	 * except for cells of a room which all belong to the same tree.
+	 * All cells are marked as visited as the flag is not needed by this algorithm.
+	 */
+	private void initializeForest() {
+		forest = new DisjointSets(width*height);
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				floorplan.setCellAsVisited(x, y);
+				if (!floorplan.isInRoom(x, y))
+					continue;
+				// a room has no internal wallboards, so join with neighbors in the same room
+				if (x+1 < width && floorplan.isInRoom(x+1, y) && floorplan.hasNoWall(x, y, CardinalDirection.East))
+					forest.union(x*height+y, (x+1)*height+y);
+				if (y+1 < height && floorplan.isInRoom(x, y+1) && floorplan.hasNoWall(x, y, CardinalDirection.South))
+					forest.union(x*height+y, x*height+y+1);
+			}
+		}
+	}
+
+	/**
+	 * Collects all wallboards to the east and south of each cell that could be taken down,
+	 * i.e. that are present, lead to a cell inside the maze and are not marked as a border.
+	 * @param edges array of length at least 2*width*height to store encoded wallboards
+	 * @return number of wallboards stored in edges
+	 */
+	private int collectCandidateEdges(int[] edges) {
+		int count = 0;
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				final int cell = x*height+y;
+				if (x+1 < width && floorplan.hasWall(x, y, CardinalDirection.East)
+						&& !floorplan.isPartOfBorder(x, y, CardinalDirection.East))
+					edges[count++] = cell << 1;
+				if (y+1 < height && floorplan.hasWall(x, y, CardinalDirection.South)
+						&& !floorplan.isPartOfBorder(x, y, CardinalDirection.South))
+					edges[count++] = (cell << 1) | 1;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Randomly permutes the first count entries of the given array (Fisher-Yates shuffle).
+	 * @param array values to shuffle
+	 * @param count number of entries to shuffle
+	 */
+	private void shuffle(int[] array, int count) {
+		for (int i = count-1; i > 0; i--) {
+			final int j = random.nextIntWithinInterval(0, i);
+			final int tmp = array[i];
+			array[i] = array[j];
+			array[j] = tmp;
+		}
+	}
+}
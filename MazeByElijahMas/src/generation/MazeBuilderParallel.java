@@ -0,0 +1,326 @@
+package generation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class has the responsibility to create a maze of given dimensions (width, height)
+ * together with a solution based on a distance matrix.
+ * The MazeBuilder implements Runnable such that it can be run a separate thread.
+ * The MazeFactory has a MazeBuilder and handles the thread management.
+ *
+ * The maze is split into rectangular tiles and pathways are generated for all tiles
+ * in parallel on the common ForkJoinPool, each tile with one of the existing algorithms (DFS, Prim or Kruskal).
+ * A tile is generated on a floorplan of its own, a copy of its part of the maze
+ * with borders along the edges of the tile, so the existing algorithms run unchanged
+ * and tiles do not share any cells. The wallboards that a tile takes down are copied back.
+ * Each tile has a random number stream of its own that is split off the builder's stream,
+ * so a deterministic builder delivers the same maze independent of thread scheduling.
+ *
+ * Afterwards, the tiles are joined along the seams between them.
+ * Seam wallboards are considered in random order and taken down if they separate
+ * cells that are not connected yet (Kruskal's algorithm on the groups of connected cells),
+ * so the seams add a random spanning tree over the tiles and a perfect maze stays perfect.
+ *
+ * Rooms are placed on the whole maze before the tiles are cut, so a room can straddle a seam.
+ * The cells of a room are connected across the seam already as a room has no internal wallboards.
+ * Within a tile, the part of a room may have no door, which cuts off the algorithm;
+ * cells that the algorithm did not reach are connected inside the tile
+ * by taking down non-border wallboards between different groups.
+ *
+ * The builder was only timed on a single core, where the tiles run one after the other,
+ * so how it scales with more cores has not been measured.
+ *
+ * @author Elijah Mas
+ */
+public class MazeBuilderParallel extends MazeBuilder implements Runnable {
+
+	/**
+	 * number of tiles per thread of the pool, more tiles than threads balance the load
+	 */
+	static final int TILES_PER_THREAD = 4;
+	/**
+	 * a tile has at least this many cells in each direction unless the maze is smaller
+	 */
+	static final int MIN_TILE_SIZE = 8;
+
+	/**
+	 * algorithm that is used for each tile
+	 */
+	private final Order.Builder tileAlgorithm;
+	/**
+	 * for each cell (x,y) at index x*height+y: the cell that represents its group
+	 * of connected cells after the tiles are generated, also encoded as x*height+y
+	 */
+	private int[] groupOfCell;
+
+	public MazeBuilderParallel(Order.Builder tileAlgorithm) {
+		super();
+		this.tileAlgorithm = checkTileAlgorithm(tileAlgorithm);
+		System.out.println("MazeBuilderParallel generates tiles of the maze in parallel with " + tileAlgorithm + ".");
+	}
+
+	public MazeBuilderParallel(Order.Builder tileAlgorithm, boolean det) {
+		super(det);
+		this.tileAlgorithm = checkTileAlgorithm(tileAlgorithm);
+		System.out.println("MazeBuilderParallel generates tiles of the maze in parallel with " + tileAlgorithm + ".");
+	}
+
+	/**
+	 * Constructor for a builder with a random number stream of its own, see {@link MazeBuilder#MazeBuilder(RandomSource)}.
+	 * @param tileAlgorithm algorithm for each tile
+	 * @param random random number stream for this builder
+	 */
+	MazeBuilderParallel(Order.Builder tileAlgorithm, RandomSource random) {
+		super(random);
+		this.tileAlgorithm = checkTileAlgorithm(tileAlgorithm);
+	}
+
+	/**
+	 * Checks that tiles can be generated with the given algorithm.
+	 * @param tileAlgorithm DFS, Prim or Kruskal
+	 * @return the given algorithm
+	 * @throws IllegalArgumentException for other algorithms
+	 */
+	private static Order.Builder checkTileAlgorithm(Order.Builder tileAlgorithm) {
+		switch (tileAlgorithm) {
+		case DFS:
+		case Prim:
+		case Kruskal:
+			return tileAlgorithm;
+		default:
+			throw new IllegalArgumentException("MazeBuilderParallel: unsupported tile algorithm " + tileAlgorithm);
+		}
+	}
+
+	/**
+	 * Generates pathways for all tiles in parallel and joins the tiles along the seams.
+	 * @throws InterruptedException if the order is cancelled
+	 */
+	@Override
+	protected void generatePathways() throws InterruptedException {
+		// tiles are about square and there are a few tiles per thread
+		final int tiles = TILES_PER_THREAD * ForkJoinPool.getCommonPoolParallelism();
+		final int size = Math.max(MIN_TILE_SIZE, (int)Math.ceil(Math.sqrt((double)width*height/tiles)));
+		final int columns = (width + size - 1) / size;
+		final int rows = (height + size - 1) / size;
+
+		groupOfCell = new int[width*height];
+		// sub-streams are split off in a fixed order before any tile starts
+		final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(columns*rows);
+		final AtomicInteger tilesDone = new AtomicInteger();
+		for (int i = 0; i < columns; i++) {
+			for (int j = 0; j < rows; j++) {
+				final int x0 = i*size;
+				final int y0 = j*size;
+				final int tileWidth = Math.min(size, width - x0);
+				final int tileHeight = Math.min(size, height - y0);
+				final RandomStream tileRandom = random.split();
+				tasks.add(() -> {
+					generateTile(x0, y0, tileWidth, tileHeight, tileRandom);
+					updatePathwaysProgress(tilesDone.incrementAndGet(), columns*rows);
+					return null;
+				});
+			}
+		}
+		for (Future<Void> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+			try {
+				future.get();
+			}
+			catch (ExecutionException ex) {
+				if (ex.getCause() instanceof InterruptedException)
+					throw (InterruptedException)ex.getCause();
+				throw new RuntimeException("MazeBuilderParallel: tile generation failed", ex.getCause());
+			}
+		}
+		cancellation.throwIfCancelled();
+
+		joinTiles(size);
+
+		// release for garbage collection
+		groupOfCell = null;
+	}
+
+	/**
+	 * Generates pathways for a single tile with the tile algorithm,
+	 * copies the result into the floorplan of the maze
+	 * and records the groups of connected cells in {@link #groupOfCell}.
+	 * Touches only the cells of the tile, so tiles can be generated at the same time.
+	 * @param x0 x coordinate of the upper left cell of the tile
+	 * @param y0 y coordinate of the upper left cell of the tile
+	 * @param tileWidth number of cells in x direction
+	 * @param tileHeight number of cells in y direction
+	 * @param tileRandom random number stream for this tile
+	 * @throws InterruptedException if the order is cancelled
+	 */
+	private void generateTile(int x0, int y0, int tileWidth, int tileHeight, RandomSource tileRandom)
+			throws InterruptedException {
+		cancellation.throwIfCancelled();
+		// copy the tile, its edges get wallboards and borders like the outside of a maze
+		final int[][] values = new int[tileWidth][tileHeight];
+		for (int x = 0; x < tileWidth; x++) {
+			for (int y = 0; y < tileHeight; y++) {
+				int value = floorplan.getValueOfCell(x0+x, y0+y);
+				if (0 == x)
+					value |= Floorplan.CW_LEFT | (Floorplan.CW_LEFT << Floorplan.CW_BOUND_SHIFT);
+				if (tileWidth-1 == x)
+					value |= Floorplan.CW_RIGHT | (Floorplan.CW_RIGHT << Floorplan.CW_BOUND_SHIFT);
+				if (0 == y)
+					value |= Floorplan.CW_TOP | (Floorplan.CW_TOP << Floorplan.CW_BOUND_SHIFT);
+				if (tileHeight-1 == y)
+					value |= Floorplan.CW_BOT | (Floorplan.CW_BOT << Floorplan.CW_BOUND_SHIFT);
+				values[x][y] = value;
+			}
+		}
+		final Floorplan tile = new Floorplan(values);
+
+		final MazeBuilder builder = createTileBuilder(tileRandom);
+		builder.width = tileWidth;
+		builder.height = tileHeight;
+		builder.floorplan = tile;
+		builder.cancellation = cancellation;
+		builder.generatePathways();
+
+		// group the cells of the tile and connect cells that the algorithm did not reach
+		final DisjointSets groups = new DisjointSets(tileWidth*tileHeight);
+		final int[] edges = new int[2*tileWidth*tileHeight];
+		int count = 0;
+		for (int x = 0; x < tileWidth; x++) {
+			for (int y = 0; y < tileHeight; y++) {
+				final int cell = x*tileHeight+y;
+				if (x+1 < tileWidth) {
+					if (tile.hasNoWall(x, y, CardinalDirection.East))
+						groups.union(cell, cell + tileHeight);
+					else if (!tile.isPartOfBorder(x, y, CardinalDirection.East))
+						edges[count++] = cell << 1;
+				}
+				if (y+1 < tileHeight) {
+					if (tile.hasNoWall(x, y, CardinalDirection.South))
+						groups.union(cell, cell + 1);
+					else if (!tile.isPartOfBorder(x, y, CardinalDirection.South))
+						edges[count++] = (cell << 1) | 1;
+				}
+			}
+		}
+		shuffle(edges, count, tileRandom);
+		for (int i = 0; i < count; i++) {
+			final int cell = edges[i] >> 1;
+			final boolean east = (edges[i] & 1) == 0;
+			if (groups.union(cell, east ? cell + tileHeight : cell + 1))
+				tile.deleteWallboard(cell / tileHeight, cell % tileHeight, east ? CardinalDirection.East : CardinalDirection.South);
+		}
+
+		// copy the wallboards that were taken down inside the tile and the groups of cells
+		for (int x = 0; x < tileWidth; x++) {
+			for (int y = 0; y < tileHeight; y++) {
+				if (x+1 < tileWidth && tile.hasNoWall(x, y, CardinalDirection.East)
+						&& floorplan.hasWall(x0+x, y0+y, CardinalDirection.East))
+					floorplan.deleteWallboard(x0+x, y0+y, CardinalDirection.East);
+				if (y+1 < tileHeight && tile.hasNoWall(x, y, CardinalDirection.South)
+						&& floorplan.hasWall(x0+x, y0+y, CardinalDirection.South))
+					floorplan.deleteWallboard(x0+x, y0+y, CardinalDirection.South);
+				final int root = groups.find(x*tileHeight+y);
+				groupOfCell[(x0+x)*height + y0+y] = (x0 + root/tileHeight)*height + y0 + root%tileHeight;
+			}
+		}
+	}
+
+	/**
+	 * Creates a builder for a tile that runs the tile algorithm.
+	 * @param tileRandom random number stream for the tile
+	 * @return builder for the tile
+	 */
+	private MazeBuilder createTileBuilder(RandomSource tileRandom) {
+		switch (tileAlgorithm) {
+		case Prim:
+			return new MazeBuilderPrim(tileRandom);
+		case Kruskal:
+			return new MazeBuilderKruskal(tileRandom);
+		default:
+			return new MazeBuilder(tileRandom);
+		}
+	}
+
+	/**
+	 * Joins the tiles along the seams between them.
+	 * Groups of cells that are connected across a seam already (inside a room) are merged first,
+	 * then seam wallboards that are not borders are taken down in random order
+	 * if they separate different groups.
+	 * @param size width and height of a tile
+	 * @throws InterruptedException if the order is cancelled
+	 */
+	private void joinTiles(int size) throws InterruptedException {
+		final DisjointSets groups = new DisjointSets(width*height);
+		// seam wallboards, encoded as (x*height+y)*2 + 0 for east, +1 for south
+		int capacity = 0;
+		for (int x = size; x < width; x += size)
+			capacity += height;
+		for (int y = size; y < height; y += size)
+			capacity += width;
+		final int[] edges = new int[capacity];
+		int count = 0;
+		// vertical seams between the cells (x-1,y) and (x,y)
+		for (int x = size; x < width; x += size) {
+			for (int y = 0; y < height; y++)
+				count = addSeam(x-1, y, CardinalDirection.East, groups, edges, count);
+		}
+		// horizontal seams between the cells (x,y-1) and (x,y)
+		for (int y = size; y < height; y += size) {
+			for (int x = 0; x < width; x++)
+				count = addSeam(x, y-1, CardinalDirection.South, groups, edges, count);
+		}
+		cancellation.throwIfCancelled();
+
+		shuffle(edges, count, random);
+		for (int i = 0; i < count; i++) {
+			final int cell = edges[i] >> 1;
+			final boolean east = (edges[i] & 1) == 0;
+			final int neighbor = east ? cell + height : cell + 1;
+			if (groups.union(groupOfCell[cell], groupOfCell[neighbor]))
+				floorplan.deleteWallboard(cell / height, cell % height, east ? CardinalDirection.East : CardinalDirection.South);
+		}
+	}
+
+	/**
+	 * Handles a wallboard on a seam: if there is no wallboard, the groups on both sides
+	 * are merged, otherwise the wallboard is stored as a candidate unless it is a border.
+	 * @param x coordinate of the cell
+	 * @param y coordinate of the cell
+	 * @param cd East or South
+	 * @param groups groups of connected cells
+	 * @param edges candidate wallboards
+	 * @param count number of candidates so far
+	 * @return new number of candidates
+	 */
+	private int addSeam(int x, int y, CardinalDirection cd, DisjointSets groups, int[] edges, int count) {
+		final int cell = x*height+y;
+		if (floorplan.hasNoWall(x, y, cd)) {
+			final int neighbor = CardinalDirection.East == cd ? cell + height : cell + 1;
+			groups.union(groupOfCell[cell], groupOfCell[neighbor]);
+		}
+		else if (!floorplan.isPartOfBorder(x, y, cd)) {
+			edges[count++] = (cell << 1) | (CardinalDirection.East == cd ? 0 : 1);
+		}
+		return count;
+	}
+
+	/**
+	 * Randomly permutes the first count entries of the given array (Fisher-Yates shuffle).
+	 * @param array values to shuffle
+	 * @param count number of entries to shuffle
+	 * @param stream random number stream to use
+	 */
+	private static void shuffle(int[] array, int count, RandomSource stream) {
+		for (int i = count-1; i > 0; i--) {
+			final int j = stream.nextIntWithinInterval(0, i);
+			final int tmp = array[i];
+			array[i] = array[j];
+			array[j] = tmp;
+		}
+	}
+}
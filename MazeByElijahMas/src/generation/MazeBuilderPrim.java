@@ -1,6 +1,6 @@
 package generation;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
   * This class has the responsibility to create a maze of given dimensions (width, height) 
@@ -20,6 +20,16 @@ import java.util.ArrayList;
 
 public class MazeBuilderPrim extends MazeBuilder implements Runnable {
 	
+	// directions of packed wallboards, index order matches CardinalDirection.values(): North, East, South, West
+	private static final CardinalDirection[] DIRECTIONS = CardinalDirection.values();
+	private static final int[] DX = { 0, 1, 0, -1 };
+	private static final int[] DY = { -1, 0, 1, 0 };
+	
+	// state of generatePathways, released when it is done
+	private long[] visited; // bit x*height+y is set if cell (x,y) is part of the spanning tree
+	private int[] candidates; // candidate wallboards, packed with packEdge
+	private int candidateCount; // number of candidates at the front of the array
+	
 	public MazeBuilderPrim() {
 		super();
 		System.out.println("MazeBuilderPrim uses Prim's algorithm to generate maze.");
@@ -30,67 +40,109 @@ public class MazeBuilderPrim extends MazeBuilder implements Runnable {
 		System.out.println("MazeBuilderPrim uses Prim's algorithm to generate maze.");
 	}
 
+	/**
+	 * Constructor for a builder with a random number stream of its own, see {@link MazeBuilder#MazeBuilder(RandomSource)}.
+	 * @param random random number stream for this builder
+	 */
+	MazeBuilderPrim(RandomSource random) {
+		super(random);
+	}
+
 	/**
 	 * This method generates pathways into the maze by using Prim's algorithm to generate a spanning tree for an undirected graph.
 	 * The cells are the nodes of the graph and the spanning tree. An edge represents that one can move from one cell to an adjacent cell.
 	 * So an edge implies that its nodes are adjacent cells in the maze and that there is no wallboard separating these cells in the maze. 
+	 * 
+	 * The candidate wallboards are kept as packed ints in an array, see {@link #packEdge(int, int)},
+	 * and a candidate is extracted by moving the last candidate into its place,
+	 * so each step takes constant time and allocates nothing.
+	 * The extracted candidate is uniformly distributed over all candidates as before.
+	 * Cells of the spanning tree are kept in a bitset.
+	 * @throws InterruptedException if the order is cancelled
 	 */
 	@Override
-	protected void generatePathways() {
+	protected void generatePathways() throws InterruptedException {
 		// pick initial position (x,y) at some random position on the maze
 		int x = random.nextIntWithinInterval(0, width-1);
 		int y = random.nextIntWithinInterval(0, height-1);
-		// create an initial list of all wallboards that could be removed
-		// those wallboards lead to adjacent cells that are not part of the spanning tree yet.
-		final ArrayList<Wallboard> candidates = new ArrayList<Wallboard>();
-		updateListOfWallboards(x, y, candidates);
+		visited = new long[(width*height + 63) >>> 6];
+		candidates = new int[4*(width + height)];
+		candidateCount = 0;
+		// the initial cell is part of the spanning tree,
+		// its wallboards to adjacent cells are the initial candidates
+		addToSpanningTree(x, y);
+		int cells = 1;
 		
-		Wallboard curWallboard;
+		int steps = 0;
 		// we need to consider each candidate wallboard and consider it only once
-		while(!candidates.isEmpty()){
+		while (candidateCount > 0) {
+			if ((++steps & CancellationToken.CHECK_MASK) == 0) {
+				cancellation.throwIfCancelled();
+				updatePathwaysProgress(cells, (long)width*height);
+			}
 			// in order to have a randomized algorithm,
 			// we randomly select and extract a wallboard from our candidate set
-			// this also reduces the set to make sure we terminate the loop
-			curWallboard = extractWallboardFromCandidateSetRandomly(candidates);
+			// the last candidate fills the gap, which keeps the set dense
+			final int index = random.nextIntWithinInterval(0, candidateCount-1);
+			final int edge = candidates[index];
+			candidates[index] = candidates[--candidateCount];
+			
+			final int cell = edge >>> 2;
+			final int direction = edge & 3;
+			x = cell / height;
+			y = cell - x*height;
+			final int nextX = x + DX[direction];
+			final int nextY = y + DY[direction];
 			// check if wallboard leads to a new cell that is not connected to the spanning tree yet
-			if (floorplan.canTearDown(curWallboard))
-			{
+			if (!isInSpanningTree(nextX*height + nextY)) {
 				// delete wallboard from maze, note that this takes place from both directions
-				floorplan.deleteWallboard(curWallboard);
-				// update current position
-				x = curWallboard.getNeighborX();
-				y = curWallboard.getNeighborY();
-				
-				floorplan.setCellAsVisited(x, y); // the flag is never reset, so this ensure we never go to (x,y) again
-				updateListOfWallboards(x, y, candidates); // checks to see if it has wallboards to new cells, if it does it adds them to the list
-				// note that each wallboard can get added at most once. This is important for termination and efficiency
+				floorplan.deleteWallboard(x, y, DIRECTIONS[direction]);
+				addToSpanningTree(nextX, nextY);
+				cells++;
 			}
 		}
+		visited = null;
+		candidates = null;
+	}
+	
+	/**
+	 * Adds the cell to the spanning tree and its wallboards to new cells to the candidates.
+	 * Wallboards that carry a border are never candidates.
+	 * Each wallboard is added at most once, as its cell is added only once.
+	 * @param x coordinate of the cell
+	 * @param y coordinate of the cell
+	 */
+	private void addToSpanningTree(int x, int y) {
+		final int cell = x*height + y;
+		visited[cell >>> 6] |= 1L << cell;
+		floorplan.setCellAsVisited(x, y);
+		if (candidateCount + 4 > candidates.length)
+			candidates = Arrays.copyOf(candidates, 2*candidates.length);
+		for (int direction = 0; direction != 4; direction++) {
+			if (floorplan.isPartOfBorder(x, y, DIRECTIONS[direction]))
+				continue;
+			// no border, so the neighbor is inside the maze
+			if (!isInSpanningTree((x + DX[direction])*height + y + DY[direction]))
+				candidates[candidateCount++] = packEdge(cell, direction);
+		}
 	}
+	
 	/**
-	 * Pick a random position in the list of candidates, remove the candidate from the list and return it
-	 * @param candidates
-	 * @return candidate from the list, randomly chosen
+	 * @param cell index x*height+y of a cell
+	 * @return true if the cell is part of the spanning tree
 	 */
-	private Wallboard extractWallboardFromCandidateSetRandomly(final ArrayList<Wallboard> candidates) {
-		return candidates.remove(random.nextIntWithinInterval(0, candidates.size()-1)); 
+	private boolean isInSpanningTree(int cell) {
+		return (visited[cell >>> 6] & (1L << cell)) != 0;
 	}
 	
-
 	/**
-	 * Updates a list of all wallboards that could be removed from the maze based on wallboards towards new cells
-	 * @param x
-	 * @param y
+	 * Packs a wallboard into an int.
+	 * @param cell index x*height+y of the cell of the wallboard
+	 * @param direction index of the direction in {@link #DIRECTIONS}
+	 * @return {@code cell*4 + direction}
 	 */
-	private void updateListOfWallboards(int x, int y, ArrayList<Wallboard> wallboards) {
-		Wallboard wallboard = new Wallboard(x, y, CardinalDirection.East) ;
-		for (CardinalDirection cd : CardinalDirection.values()) {
-			wallboard.setLocationDirection(x, y, cd);
-			if (floorplan.canTearDown(wallboard)) // 
-			{
-				wallboards.add(new Wallboard(x, y, cd));
-			}
-		}
+	static int packEdge(int cell, int direction) {
+		return (cell << 2) | direction;
 	}
 
 }
\ No newline at end of file
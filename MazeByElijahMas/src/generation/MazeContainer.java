@@ -32,9 +32,9 @@ import gui.Constants;
 public class MazeContainer implements Maze {
 	// properties of the current maze
 	private int width; // width of maze
-	// range: Constants.SKILL_X[0] <= width && width <= Constants.SKILL_X[last])
+	// range: 1 <= width && width <= Constants.MAX_DIMENSION
 	private int height; // height of maze
-	// range: Constants.SKILL_Y[0] <= width && width <= Constants.SKILL_Y[last])
+	// range: 1 <= height && height <= Constants.MAX_DIMENSION
 	// (width,height) must be consistent with corresponding settings in mazecells and mazedists
 	private Floorplan floorplan ; // maze as a matrix of cells which keep track of the location of wallboards
 	private Distance mazedists ; // a matrix with distance values for each cell towards the exit
@@ -50,6 +50,8 @@ public class MazeContainer implements Maze {
 	// a subset of segments need to be quickly identified for drawing
 	// the BSP tree partitions the set of all segments and provides a binary search tree for the partitions
 	
+	private int colchange ; // random number that the colors of the walls are determined with, see Wall
+	
 	private int[] start ; // the starting position (x,y) for the game
 	// this position should be in in range: 0 <= x < width, 0 <= y < height
 	// it should be consistent with mazedists.getStartPosition() 
@@ -71,11 +73,10 @@ public class MazeContainer implements Maze {
 		fullyInitialized = false;
 	}
 	/**
-	 * @param width is the width of the maze, must conform with Constants.SKILL_X values
+	 * @param width is the width of the maze, on a range [1, Constants.MAX_DIMENSION]
 	 */
 	public void setWidth(int width) {
-		assert(Constants.SKILL_X[0] <= width && 
-				width <= Constants.SKILL_X[Constants.SKILL_X.length-1]);
+		assert(1 <= width && width <= Constants.MAX_DIMENSION);
 		this.width = width;
 	}
 	/**
@@ -87,12 +88,11 @@ public class MazeContainer implements Maze {
 		return width;
 	}
 	/**
-	 * @param height is the height of the maze, must conform with Constants.SKILL_Y values
+	 * @param height is the height of the maze, on a range [1, Constants.MAX_DIMENSION]
 	 */
 	public void setHeight(int height) {
 		// check if value is in range of values
-		assert(Constants.SKILL_Y[0] <= height && 
-				height <= Constants.SKILL_Y[Constants.SKILL_Y.length-1]);	
+		assert(1 <= height && height <= Constants.MAX_DIMENSION);
 		this.height = height;
 	}
 	/**
@@ -159,6 +159,22 @@ public class MazeContainer implements Maze {
 	public void setRootnode(BSPNode rootnode) {
 		this.rootnode = rootnode;
 	}
+
+	/**
+	 * Gives the random number that the colors of the walls are determined with.
+	 * @return the color change, 0 if it was not set
+	 */
+	public int getColchange() {
+		return colchange;
+	}
+
+	/**
+	 * Sets the random number that the colors of the walls are determined with.
+	 * @param colchange the color change to set
+	 */
+	public void setColchange(int colchange) {
+		this.colchange = colchange;
+	}
 	
 	/**
 	 * Tells if given (x,y) position is valid, i.e. within legal range of values
@@ -282,17 +298,16 @@ public class MazeContainer implements Maze {
 		if (fullyInitialized) {
 			return true; // was checked before
 		}
-		// check width and height, range of values determined by skill level
-		// Constants class
-		int last = Constants.SKILL_X.length-1;
-		if (!(Constants.SKILL_X[0] <= width && width <= Constants.SKILL_X[last])) {
+		// check width and height, range of values determined by Constants class
+		if (!(1 <= width && width <= Constants.MAX_DIMENSION)) {
 			return false;
 		}
-		if (!(Constants.SKILL_Y[0] <= height && height <= Constants.SKILL_Y[last])) {
+		if (!(1 <= height && height <= Constants.MAX_DIMENSION)) {
 			return false;
 		}
-		// check existence of cells, distances, bsp tree and starting position
-		if (null == floorplan || null == mazedists || null == rootnode || null == start)
+		// check existence of cells, distances and starting position,
+		// the bsp tree may be missing, see MazeBuilder.setBuildBSP
+		if (null == floorplan || null == mazedists || null == start)
 			return false;
 		// the starting position must be 
 		fullyInitialized = true;
@@ -1,5 +1,18 @@
 package generation;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import generation.Factory;
 import generation.Order;
 import gui.Controller;
@@ -11,10 +24,22 @@ import gui.Controller;
  * that computes and delivers the maze. This class operates the worker thread
  * to do the computation in the background. The maze builder classes contribute
  * a run method to execute on the worker thread.
+ * 
+ * By default the factory takes one order at a time and refuses orders while busy.
+ * A factory created with {@link #MazeFactory(boolean, int, int)} has a pool of worker threads
+ * and takes many orders: each order gets a builder with a random number stream of its own,
+ * orders wait in a bounded queue, and {@link #order(Order)} blocks while the queue is full.
  */
 public class MazeFactory implements Factory {
 	// generation can be deterministic, i.e. same maze is generated each time for a given size
 	private boolean deterministic;
+	// DFS, Prim and Kruskal orders can be built with tiles in parallel, see MazeBuilderParallel
+	private boolean parallel;
+	// BSP trees are delivered before large subtrees are built, see MazeBuilder.setLazyBSP
+	private boolean lazyBSP;
+	private boolean completeBSPInBackground;
+	// mazes come without a BSP tree, see MazeBuilder.setBuildBSP
+	private boolean buildBSP = true;
 	// factory keeps track of the current order, takes at most one order at a time
 	private Order currentOrder;
 	// factory has a MazeBuilder to do the work
@@ -24,23 +49,93 @@ public class MazeFactory implements Factory {
 	// 
 	private Thread buildThread; // computations are performed in own separated thread with this.run()
 	
+	// pool mode: worker threads, null if the factory takes one order at a time
+	private final ExecutorService workers;
+	// pool mode: one permit per order that may be running or waiting, order blocks if none is left
+	private final Semaphore capacity;
+	// pool mode: orders that are accepted and whose builder has not returned yet, compared by identity
+	private final Map<Order, PooledOrder> pending;
+	
 	//////////////////////// Constructor ////////////////////////////////////////
 	/**
 	 * Constructor for a randomized maze generation
 	 */
 	public MazeFactory(){
-		// nothing to do
+		this(false);
 	}
 	/**
 	 * Constructor with option to make maze generation deterministic or random
 	 */
 	public MazeFactory(boolean deterministic){
 		this.deterministic = deterministic;
+		workers = null;
+		capacity = null;
+		pending = null;
+	}
+	/**
+	 * Constructor for a factory that builds several orders at the same time.
+	 * Up to workerCount orders are built in parallel, up to queueCapacity further orders wait.
+	 * If that many orders are pending, {@link #order(Order)} blocks until one of them
+	 * is delivered or cancelled.
+	 * In deterministic mode each order is built with the seed that the single order mode uses,
+	 * so an order gives the same maze as in that mode, no matter which orders run next to it.
+	 * @param deterministic true to generate the same maze each time for a given order
+	 * @param workerCount number of worker threads, at least 1
+	 * @param queueCapacity number of orders that may wait for a worker, at least 0
+	 */
+	public MazeFactory(boolean deterministic, int workerCount, int queueCapacity){
+		if (workerCount < 1 || queueCapacity < 0)
+			throw new IllegalArgumentException("MazeFactory: need at least one worker and a queue capacity of at least 0");
+		this.deterministic = deterministic;
+		workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+			Thread thread = new Thread(runnable, "MazeFactory worker");
+			thread.setDaemon(true); // workers must not keep the application alive
+			return thread;
+		});
+		capacity = new Semaphore(workerCount + queueCapacity);
+		pending = Collections.synchronizedMap(new IdentityHashMap<Order, PooledOrder>());
+	}
+	
+	/**
+	 * Sets if DFS, Prim and Kruskal orders are built in parallel by a {@link MazeBuilderParallel}
+	 * that runs the ordered algorithm on tiles of the maze. Meant for very large mazes.
+	 * @param parallel true to build in parallel, false to use a single thread (default)
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+	
+	/**
+	 * Sets if mazes are delivered before their BSP tree is complete, see {@link MazeBuilder#setLazyBSP(boolean, boolean)}.
+	 * @param lazy true to build large subtrees on demand, false to build the whole tree before delivery (default)
+	 * @param completeInBackground true to build the remaining subtrees on background threads after delivery
+	 */
+	public void setLazyBSP(boolean lazy, boolean completeInBackground) {
+		lazyBSP = lazy;
+		completeBSPInBackground = completeInBackground;
+	}
+	
+	/**
+	 * Sets if mazes are delivered with a BSP tree, see {@link MazeBuilder#setBuildBSP(boolean)}.
+	 * @param build true to build the BSP tree (default), false to skip it
+	 */
+	public void setBuildBSP(boolean build) {
+		buildBSP = build;
 	}
 	
 	//////////////////////// Factory interface //////////////////////////////////
+	/**
+	 * {@inheritDoc}
+	 * A factory with a pool of workers accepts any number of orders
+	 * but blocks the caller while the queue of waiting orders is full.
+	 * It returns false if the calling thread is interrupted while it waits.
+	 * @throws IllegalArgumentException if the order has a size that is out of range,
+	 * see {@link MazeBuilder#buildOrder(Order)}
+	 */
 	@Override
 	public boolean order(Order order) {
+		if (null != workers)
+			return orderPooled(order);
 		// check if factory is busy
 		if (null != buildThread && buildThread.isAlive()) {
 			// order is currently processed, don't queue, just refuse
@@ -50,6 +145,11 @@ public class MazeFactory implements Factory {
 		// idle, so accept order
 		currentOrder = order;
 		// set builder according to order
+		if (parallel && Order.Builder.Eller != order.getBuilder()) {
+			builder = deterministic? new MazeBuilderParallel(order.getBuilder(), true) : new MazeBuilderParallel(order.getBuilder());
+			buildOrder();
+			return true;
+		}
 		switch (order.getBuilder()) {
 		case DFS :
 			builder = deterministic? new MazeBuilder(true) : new MazeBuilder();
@@ -59,6 +159,10 @@ public class MazeFactory implements Factory {
 			builder = deterministic? new MazeBuilderPrim(true) : new MazeBuilderPrim();
 			buildOrder();
 			break;
+		case Kruskal:
+			builder = deterministic? new MazeBuilderKruskal(true) : new MazeBuilderKruskal();
+			buildOrder();
+			break;
 		case Eller:
 			builder = deterministic? new MazeBuilderEller(true) : new MazeBuilderEller();
 			buildOrder();
@@ -69,9 +173,26 @@ public class MazeFactory implements Factory {
 		}
 		return true ;
 	}
+	/**
+	 * {@inheritDoc}
+	 * A factory with a pool of workers cancels all pending orders,
+	 * see {@link #cancel(Order)} to cancel a single order.
+	 */
 	@Override
 	public void cancel() {
 		System.out.println("MazeFactory.cancel: called");
+		if (null != workers) {
+			List<PooledOrder> orders;
+			synchronized (pending) {
+				orders = new ArrayList<PooledOrder>(pending.values());
+			}
+			for (PooledOrder pooled : orders)
+				pooled.cancel();
+			return;
+		}
+		// signal the builder to stop at its next check
+		if (null != builder)
+			builder.cancel();
 		if (null != buildThread) {
 			buildThread.interrupt() ;
 			buildThread = null; // allow for next order to get through
@@ -83,8 +204,16 @@ public class MazeFactory implements Factory {
 		builder = null;
 		currentOrder = null;
 	}
+	/**
+	 * {@inheritDoc}
+	 * A factory with a pool of workers waits till all pending orders are delivered or cancelled.
+	 */
 	@Override
 	public void waitTillDelivered() {
+		if (null != workers) {
+			waitTillAllDelivered();
+			return;
+		}
 		if (null != buildThread) {
 			try {
 				buildThread.join();
@@ -98,7 +227,136 @@ public class MazeFactory implements Factory {
 		builder = null;
 		currentOrder = null;
 	}
+	/**
+	 * Cancels the given order if it is pending in a factory with a pool of workers.
+	 * A waiting order is removed from the queue, a running order stops at its next check
+	 * and keeps its place in the queue till its builder returns.
+	 * Other orders are not affected. The order is not delivered.
+	 * @param order the order to cancel
+	 * @return true if the order was pending, false if it is unknown, delivered or cancelled already
+	 */
+	public boolean cancel(Order order) {
+		if (null == workers)
+			return false;
+		PooledOrder pooled = pending.get(order);
+		if (null == pooled || pooled.isCancelled())
+			return false;
+		pooled.cancel();
+		return true;
+	}
+	/**
+	 * Stops the worker threads of a factory with a pool of workers.
+	 * Pending orders are cancelled, the factory refuses orders afterwards.
+	 */
+	public void shutdown() {
+		if (null == workers)
+			return;
+		cancel();
+		workers.shutdownNow();
+	}
 	///////////////////////// private methods ///////////////////////////////////
+	/**
+	 * Queues the order for the pool of workers, blocks while the queue is full.
+	 * The order is checked before it takes a place, the maze is allocated
+	 * by the worker that builds it, see {@link PooledOrder#run()}.
+	 * @param order the order
+	 * @return true if order is accepted, false if refused
+	 * @throws IllegalArgumentException if the order has a size that is out of range
+	 */
+	private boolean orderPooled(Order order) {
+		if (0 != order.getWidth() || 0 != order.getHeight())
+			MazeBuilder.checkDimensions(order.getWidth(), order.getHeight());
+		if (workers.isShutdown() || pending.containsKey(order))
+			return false;
+		final MazeBuilder pooledBuilder = createPooledBuilder(order.getBuilder());
+		if (null == pooledBuilder) {
+			System.out.println("MazeFactory.order: missing implementation for requested algorithm: " + order.getBuilder());
+			return false;
+		}
+		pooledBuilder.setLazyBSP(lazyBSP, completeBSPInBackground);
+		pooledBuilder.setBuildBSP(buildBSP);
+		try {
+			capacity.acquire(); // backpressure: wait for a free place
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		// from here on, the place is given back on every path that does not queue the order
+		final PooledOrder pooled = new PooledOrder(order, pooledBuilder);
+		// check and insert in one step, another thread may have ordered the same order meanwhile
+		if (null != pending.putIfAbsent(order, pooled)) {
+			capacity.release();
+			return false;
+		}
+		try {
+			workers.execute(pooled);
+		}
+		catch (RejectedExecutionException ex) { // rejected after shutdown
+			pooled.cancel(); // never runs, gives its place back right away
+			return false;
+		}
+		return true;
+	}
+	/**
+	 * Creates a builder for the given algorithm with a random number stream of its own.
+	 * In deterministic mode the builder draws from the same sequence as in the single order mode,
+	 * otherwise its seed is drawn from the shared generator.
+	 * An order with a seed of its own replaces the stream in {@link MazeBuilder#buildOrder(Order)}.
+	 * @param algorithm the requested algorithm
+	 * @return the builder, null if the algorithm is not supported
+	 */
+	private MazeBuilder createPooledBuilder(Order.Builder algorithm) {
+		final RandomSource stream = deterministic ? new SeededRandom(MazeBuilder.MAZE_SEED) : new RandomStream(SingleRandom.newSeed());
+		return createBuilder(algorithm, stream, parallel);
+	}
+	/**
+	 * Creates a builder for the given algorithm that draws from the given random number stream.
+	 * @param algorithm the requested algorithm
+	 * @param stream random number stream for the builder
+	 * @param parallel true to build DFS, Prim and Kruskal orders with a {@link MazeBuilderParallel}
+	 * @return the builder, null if the algorithm is not supported
+	 */
+	static MazeBuilder createBuilder(Order.Builder algorithm, RandomSource stream, boolean parallel) {
+		if (parallel && Order.Builder.Eller != algorithm)
+			return new MazeBuilderParallel(algorithm, stream);
+		switch (algorithm) {
+		case DFS :
+			return new MazeBuilder(stream);
+		case Prim:
+			return new MazeBuilderPrim(stream);
+		case Kruskal:
+			return new MazeBuilderKruskal(stream);
+		case Eller:
+			return new MazeBuilderEller(stream);
+		default:
+			return null;
+		}
+	}
+	/**
+	 * Waits till no order is pending in a factory with a pool of workers.
+	 */
+	private void waitTillAllDelivered() {
+		while (true) {
+			List<PooledOrder> orders;
+			synchronized (pending) {
+				if (pending.isEmpty())
+					return;
+				orders = new ArrayList<PooledOrder>(pending.values());
+			}
+			for (PooledOrder pooled : orders) {
+				try {
+					pooled.awaitFinished();
+				}
+				catch (InterruptedException ex) {
+					System.out.println("MazeFactory.waitTillDelivered: interrupted while waiting for orders") ;
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
 	/**
 	 * Provide the builder with necessary input and start its execution
 	 */
@@ -106,8 +364,82 @@ public class MazeFactory implements Factory {
 		if (null == builder)
 			return;
 		if(!Controller.suppressUpdates) System.out.println("MazeFactory.buildOrder: started") ;
+		builder.setLazyBSP(lazyBSP, completeBSPInBackground);
+		builder.setBuildBSP(buildBSP);
 		builder.buildOrder(currentOrder);
 		buildThread = new Thread(builder);
 		buildThread.start();
 	}
+	/**
+	 * An order in the pool of workers together with its builder.
+	 * The worker that takes the order sets up the builder for it, 
+	 * which allocates the maze, and runs it.
+	 * The place in the queue is given back when the builder returns or fails,
+	 * i.e. after it delivered the maze or stopped for a cancellation,
+	 * or right away if the order is cancelled before a worker takes it.
+	 * A running builder keeps its place after a cancellation till it returns,
+	 * as its floorplan and distances stay allocated till then.
+	 */
+	private final class PooledOrder extends FutureTask<Void> {
+		private final Order order;
+		private final MazeBuilder builder;
+		// set by the first of run and done, which gives the place back
+		private final AtomicBoolean claimed = new AtomicBoolean();
+		private final CountDownLatch finished = new CountDownLatch(1);
+		
+		PooledOrder(Order order, MazeBuilder builder) {
+			super(builder, null);
+			this.order = order;
+			this.builder = builder;
+		}
+		/**
+		 * Stops the builder at its next check, an order that waits in the queue is not built.
+		 * The task is cancelled first, such that a worker that sets up the builder
+		 * in the meantime does not run it with a fresh token.
+		 */
+		void cancel() {
+			cancel(false);
+			builder.cancel();
+		}
+		/**
+		 * Waits till the place of the order is given back.
+		 * @throws InterruptedException if the calling thread is interrupted while it waits
+		 */
+		void awaitFinished() throws InterruptedException {
+			finished.await();
+		}
+		@Override
+		public void run() {
+			if (!claimed.compareAndSet(false, true))
+				return; // cancelled before a worker took it, the place is given back already
+			try {
+				if (isCancelled())
+					return;
+				try {
+					builder.buildOrder(order);
+				}
+				catch (RuntimeException ex) {
+					// e.g. the storage for the maze cannot be mapped, the order is not delivered
+					System.out.println("MazeFactory: cannot build order: " + ex.getMessage());
+					setException(ex);
+					return;
+				}
+				super.run();
+			}
+			finally {
+				giveBack();
+			}
+		}
+		@Override
+		protected void done() {
+			// a cancellation before a worker took the order, otherwise run gives the place back
+			if (claimed.compareAndSet(false, true))
+				giveBack();
+		}
+		private void giveBack() {
+			pending.remove(order, this);
+			capacity.release();
+			finished.countDown();
+		}
+	}
 }
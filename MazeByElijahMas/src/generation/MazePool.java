@@ -0,0 +1,280 @@
+package generation;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A warm pool of mazes that are generated in advance, such that an order
+ * for a maze can be served without waiting for its generation.
+ *
+ * The pool keeps up to a given number of ready mazes for each combination of
+ * skill level, builder algorithm and perfect flag that has been asked for,
+ * either with {@link #take(int, Order.Builder, boolean)} or with {@link #warm(int, Order.Builder, boolean)}.
+ * Whenever a maze is taken or a combination is warmed, the pool is refilled in the background
+ * by a single thread with minimal priority, so refilling does not compete with the game for the processor.
+ * That thread also builds the BSP trees on its own, it hands no work to the common ForkJoinPool.
+ * Each maze is built with a random number stream of its own and is handed out only once.
+ *
+ * The pool counts hits and misses of take and measures how long it takes to generate a maze
+ * for a refill, which helps to choose the size of the pool.
+ *
+ * @author Elijah Mas
+ */
+public class MazePool {
+	/**
+	 * default number of ready mazes per combination
+	 */
+	public static final int DEFAULT_CAPACITY = 2;
+
+	/**
+	 * number of ready mazes per combination
+	 */
+	private final int capacity;
+	/**
+	 * ready mazes for each combination, see {@link #key(int, Order.Builder, boolean)}, guarded by this
+	 */
+	private final Map<Integer, ArrayDeque<Maze>> ready = new HashMap<Integer, ArrayDeque<Maze>>();
+	/**
+	 * combinations that have a refill scheduled or running, guarded by this
+	 */
+	private final Set<Integer> refilling = new HashSet<Integer>();
+	/**
+	 * single background thread with minimal priority that refills the pool
+	 */
+	private final ExecutorService refiller;
+
+	// statistics
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong refills = new AtomicLong(); // number of mazes generated for the pool
+	private final AtomicLong refillNanos = new AtomicLong(); // total time to generate them
+	private final AtomicLong maxRefillNanos = new AtomicLong(); // longest time to generate one of them
+
+	/**
+	 * Constructor
+	 * @param capacity number of ready mazes to keep for each combination, at least 1
+	 */
+	public MazePool(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("MazePool: capacity must be at least 1 but is " + capacity);
+		this.capacity = capacity;
+		refiller = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "MazePool refill");
+			thread.setDaemon(true); // must not keep the application alive
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+	}
+
+	/**
+	 * Takes a ready maze for the given combination out of the pool and schedules a refill.
+	 * @param skillLevel the skill level
+	 * @param builder the builder algorithm
+	 * @param perfect true for a perfect maze
+	 * @return a maze that has not been handed out before, null if none is ready
+	 */
+	public Maze take(int skillLevel, Order.Builder builder, boolean perfect) {
+		final int key = key(skillLevel, builder, perfect);
+		Maze maze = null;
+		synchronized (this) {
+			ArrayDeque<Maze> mazes = ready.get(key);
+			if (null != mazes)
+				maze = mazes.poll();
+		}
+		if (null != maze)
+			hits.incrementAndGet();
+		else
+			misses.incrementAndGet();
+		scheduleRefill(skillLevel, builder, perfect);
+		return maze;
+	}
+
+	/**
+	 * Makes the pool fill up on the given combination in the background.
+	 * @param skillLevel the skill level
+	 * @param builder the builder algorithm
+	 * @param perfect true for a perfect maze
+	 */
+	public void warm(int skillLevel, Order.Builder builder, boolean perfect) {
+		scheduleRefill(skillLevel, builder, perfect);
+	}
+
+	/**
+	 * Gives the number of mazes that are ready for the given combination.
+	 * @param skillLevel the skill level
+	 * @param builder the builder algorithm
+	 * @param perfect true for a perfect maze
+	 * @return number of ready mazes
+	 */
+	public synchronized int getReadyCount(int skillLevel, Order.Builder builder, boolean perfect) {
+		ArrayDeque<Maze> mazes = ready.get(key(skillLevel, builder, perfect));
+		return (null == mazes) ? 0 : mazes.size();
+	}
+
+	/**
+	 * @return number of mazes for each combination the pool keeps ready
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+	/**
+	 * @return number of calls to take that delivered a maze
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+	/**
+	 * @return number of calls to take that found no ready maze
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+	/**
+	 * @return number of mazes generated to refill the pool
+	 */
+	public long getRefills() {
+		return refills.get();
+	}
+	/**
+	 * @return average time in milliseconds to generate a maze for the pool, 0 if there was no refill yet
+	 */
+	public double getAverageRefillMillis() {
+		final long count = refills.get();
+		return (0 == count) ? 0 : refillNanos.get() / 1e6 / count;
+	}
+	/**
+	 * @return longest time in milliseconds to generate a maze for the pool
+	 */
+	public double getMaxRefillMillis() {
+		return maxRefillNanos.get() / 1e6;
+	}
+
+	/**
+	 * Stops the refill thread, a refill that is running is cancelled.
+	 * Mazes that are ready can still be taken.
+	 */
+	public void shutdown() {
+		refiller.shutdownNow();
+	}
+
+	///////////////////////// private methods ///////////////////////////////////
+	/**
+	 * Encodes a combination as a single int, there are fewer than 4 builders.
+	 */
+	private static int key(int skillLevel, Order.Builder builder, boolean perfect) {
+		return (skillLevel*4 + builder.ordinal())*2 + (perfect ? 1 : 0);
+	}
+
+	/**
+	 * Schedules a refill of the given combination unless one is scheduled already.
+	 */
+	private void scheduleRefill(final int skillLevel, final Order.Builder builder, final boolean perfect) {
+		final int key = key(skillLevel, builder, perfect);
+		synchronized (this) {
+			if (!refilling.add(key))
+				return;
+		}
+		try {
+			refiller.execute(() -> refill(key, skillLevel, builder, perfect));
+		}
+		catch (RejectedExecutionException ex) { // after shutdown
+			synchronized (this) {
+				refilling.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Generates mazes for the given combination till the pool holds capacity many of them.
+	 * Runs on the refill thread.
+	 */
+	private void refill(int key, int skillLevel, Order.Builder builder, boolean perfect) {
+		try {
+			while (getReadyCount(skillLevel, builder, perfect) < capacity) {
+				final long start = System.nanoTime();
+				Maze maze = generate(skillLevel, builder, perfect);
+				if (null == maze)
+					return; // cancelled by shutdown
+				final long nanos = System.nanoTime() - start;
+				refills.incrementAndGet();
+				refillNanos.addAndGet(nanos);
+				maxRefillNanos.accumulateAndGet(nanos, Math::max);
+				synchronized (this) {
+					ready.computeIfAbsent(key, k -> new ArrayDeque<Maze>(capacity)).add(maze);
+				}
+			}
+		}
+		finally {
+			synchronized (this) {
+				refilling.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Generates a maze on the current thread.
+	 * @return the maze, null if generation was cancelled
+	 */
+	private static Maze generate(int skillLevel, Order.Builder builder, boolean perfect) {
+		final PoolOrder order = new PoolOrder(skillLevel, builder, perfect);
+		final MazeBuilder mazeBuilder = createBuilder(builder);
+		mazeBuilder.buildOrder(order);
+		mazeBuilder.run();
+		return order.maze;
+	}
+
+	/**
+	 * Creates a builder for a refill that runs on the refill thread only.
+	 * @param builder the algorithm
+	 * @return a builder with a random number stream of its own
+	 */
+	static MazeBuilder createBuilder(Order.Builder builder) {
+		final MazeBuilder mazeBuilder = MazeFactory.createBuilder(builder,
+				new RandomStream(SingleRandom.newSeed()), false);
+		mazeBuilder.setParallelBSP(false);
+		return mazeBuilder;
+	}
+
+	/**
+	 * The order that the pool gives to a builder, it keeps the delivered maze.
+	 */
+	private static final class PoolOrder implements Order {
+		private final int skillLevel;
+		private final Builder builder;
+		private final boolean perfect;
+		private Maze maze;
+
+		PoolOrder(int skillLevel, Builder builder, boolean perfect) {
+			this.skillLevel = skillLevel;
+			this.builder = builder;
+			this.perfect = perfect;
+		}
+		@Override
+		public int getSkillLevel() {
+			return skillLevel;
+		}
+		@Override
+		public Builder getBuilder() {
+			return builder;
+		}
+		@Override
+		public boolean isPerfect() {
+			return perfect;
+		}
+		@Override
+		public void deliver(Maze mazeConfig) {
+			maze = mazeConfig;
+		}
+		@Override
+		public void updateProgress(int percentage) {
+			// nobody is waiting for a maze in the pool
+		}
+	}
+}
@@ -0,0 +1,231 @@
+package generation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A binary file that holds the cells of a maze row by row,
+ * as written by {@link MazeBuilderEller#generateRows(int, int, MazeRowSink)}.
+ *
+ * The file starts with a header of four ints: a magic number, the format version,
+ * the row length (height of the maze) and the number of rows (width of the maze).
+ * It is followed by the rows in order, each row is rowLength ints
+ * with the encoding of {@link Floorplan#getValueOfCell(int, int)}.
+ * Since all rows have the same length, a range of rows can be read
+ * without reading the rows before it, so a maze that does not fit into memory
+ * can be processed range by range, or mapped into memory
+ * as a whole with {@link #mapFloorplan(Path)}.
+ *
+ * An instance of this class is a reader for such a file,
+ * a file is written with a {@link MazeRowFile.Writer}.
+ *
+ * @author Elijah Mas
+ */
+public class MazeRowFile implements Closeable {
+	/**
+	 * identifies a maze row file, "MZRW" in ASCII
+	 */
+	static final int MAGIC = 0x4D5A5257;
+	/**
+	 * version of the file format
+	 */
+	static final int VERSION = 1;
+	/**
+	 * size of the header in bytes
+	 */
+	static final int HEADER_BYTES = 4*Integer.BYTES;
+
+	private final FileChannel channel;
+	private final int rowLength;
+	private final int rowCount;
+
+	/**
+	 * Opens a file for reading and reads its header.
+	 * @param path the file
+	 * @throws IOException if the file cannot be read or is not a maze row file
+	 */
+	public MazeRowFile(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			readFully(header, 0);
+			header.flip();
+			if (header.getInt() != MAGIC || header.getInt() != VERSION)
+				throw new IOException("not a maze row file: " + path);
+			rowLength = header.getInt();
+			rowCount = header.getInt();
+			if (channel.size() < HEADER_BYTES + (long)rowLength*rowCount*Integer.BYTES)
+				throw new IOException("maze row file is incomplete: " + path);
+		}
+		catch (IOException ex) {
+			channel.close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Gives the number of cells in a row, i.e. the height of the maze.
+	 * @return the row length
+	 */
+	public int getRowLength() {
+		return rowLength;
+	}
+
+	/**
+	 * Gives the number of rows, i.e. the width of the maze.
+	 * @return the number of rows
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Reads a range of rows into the given array. Only the requested rows are read.
+	 * @param firstRow index of the first row to read
+	 * @param rows receives the rows, rows[i] is filled with row firstRow+i,
+	 * each entry must have length {@link #getRowLength()}
+	 * @throws IOException if reading fails
+	 */
+	public void readRows(int firstRow, int[][] rows) throws IOException {
+		if (firstRow < 0 || firstRow + rows.length > rowCount)
+			throw new IndexOutOfBoundsException("rows " + firstRow + " to " + (firstRow+rows.length-1)
+					+ " are not in range 0 to " + (rowCount-1));
+		ByteBuffer buffer = ByteBuffer.allocate(rowLength*Integer.BYTES);
+		IntBuffer ints = buffer.asIntBuffer();
+		long position = HEADER_BYTES + (long)firstRow*rowLength*Integer.BYTES;
+		for (int[] row : rows) {
+			buffer.clear();
+			readFully(buffer, position);
+			position += buffer.capacity();
+			ints.clear();
+			ints.get(row);
+		}
+	}
+
+	/**
+	 * Reads a range of rows as a floorplan.
+	 * The floorplan has width count and height {@link #getRowLength()},
+	 * its cell (x,y) is cell (firstRow+x,y) of the maze.
+	 * @param firstRow index of the first row to read
+	 * @param count number of rows to read, {@code 0 < count}
+	 * @return floorplan for the given rows
+	 * @throws IOException if reading fails
+	 */
+	public Floorplan readFloorplan(int firstRow, int count) throws IOException {
+		int[][] rows = new int[count][rowLength];
+		readRows(firstRow, rows);
+		return new Floorplan(rows);
+	}
+
+	/**
+	 * Maps a whole maze row file into memory as a floorplan without reading it.
+	 * Cells are read from the file on demand and changes are written back to the file,
+	 * so the maze can be much larger than the heap.
+	 * The floorplan has width {@link #getRowCount()} and height {@link #getRowLength()}.
+	 * @param path the file
+	 * @return floorplan that is backed by the file
+	 * @throws IOException if the file cannot be read or is not a maze row file
+	 */
+	public static Floorplan mapFloorplan(Path path) throws IOException {
+		final int rowCount, rowLength;
+		try (MazeRowFile file = new MazeRowFile(path)) {
+			rowCount = file.getRowCount();
+			rowLength = file.getRowLength();
+		}
+		return new Floorplan(new MappedIntGrid(path, HEADER_BYTES, rowCount, rowLength));
+	}
+
+	/**
+	 * Fills the buffer with bytes from the file starting at the given position.
+	 * @param buffer to fill up to its limit
+	 * @param position position in the file
+	 * @throws IOException if reading fails or the file ends
+	 */
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int n = channel.read(buffer, position);
+			if (n < 0)
+				throw new IOException("unexpected end of maze row file");
+			position += n;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Writes the rows of a maze to a file as they are generated.
+	 * Rows must be given in order, the header is written when the writer is created,
+	 * so the number of rows must be known in advance.
+	 */
+	public static class Writer implements MazeRowSink, Closeable {
+		private final FileChannel channel;
+		private final int rowLength;
+		private final int rowCount;
+		/**
+		 * buffer for a single row, reused for all rows
+		 */
+		private final ByteBuffer buffer;
+		/**
+		 * index of the row that is expected next
+		 */
+		private int nextRow = 0;
+
+		/**
+		 * Creates or overwrites the file and writes the header.
+		 * @param path the file
+		 * @param rowCount number of rows that will be written
+		 * @param rowLength number of cells per row
+		 * @throws IOException if the file cannot be written
+		 */
+		public Writer(Path path, int rowCount, int rowLength) throws IOException {
+			this.rowLength = rowLength;
+			this.rowCount = rowCount;
+			channel = FileChannel.open(path, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			buffer = ByteBuffer.allocate(rowLength*Integer.BYTES);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			header.putInt(MAGIC).putInt(VERSION).putInt(rowLength).putInt(rowCount);
+			header.flip();
+			writeFully(header);
+		}
+
+		@Override
+		public void acceptRow(int rowIndex, int[] cells) throws IOException {
+			if (rowIndex != nextRow || nextRow >= rowCount)
+				throw new IOException("expected row " + nextRow + " of " + rowCount + " but got row " + rowIndex);
+			buffer.clear();
+			buffer.asIntBuffer().put(cells, 0, rowLength);
+			writeFully(buffer);
+			nextRow++;
+		}
+
+		/**
+		 * Writes the whole buffer to the file.
+		 * @param source buffer with bytes to write
+		 * @throws IOException if writing fails
+		 */
+		private void writeFully(ByteBuffer source) throws IOException {
+			while (source.hasRemaining())
+				channel.write(source);
+		}
+
+		/**
+		 * Closes the file.
+		 * @throws IOException if fewer rows than announced have been written
+		 */
+		@Override
+		public void close() throws IOException {
+			channel.close();
+			if (nextRow != rowCount)
+				throw new IOException("maze row file has " + nextRow + " of " + rowCount + " rows");
+		}
+	}
+}
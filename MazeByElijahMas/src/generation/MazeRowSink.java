@@ -0,0 +1,24 @@
+package generation;
+
+import java.io.IOException;
+
+/**
+ * Receives the rows of a maze one at a time as they are generated,
+ * see {@link MazeBuilderEller#generateRows(int, int, MazeRowSink)}.
+ * A sink can write the rows to a file, see {@link MazeRowFile.Writer},
+ * or process them right away with a callback.
+ * 
+ * @author Elijah Mas
+ */
+@FunctionalInterface
+public interface MazeRowSink {
+	/**
+	 * Takes a finished row of the maze. Rows are given in order, starting with row 0.
+	 * @param rowIndex index of the row, i.e. the x coordinate of its cells
+	 * @param cells the cells (rowIndex,0),(rowIndex,1),... with the encoding of
+	 * {@link Floorplan#getValueOfCell(int, int)}; the array is reused for later rows
+	 * and must not be kept
+	 * @throws IOException if the row cannot be stored
+	 */
+	void acceptRow(int rowIndex, int[] cells) throws IOException;
+}
@@ -0,0 +1,119 @@
+package generation;
+
+/**
+ * A compact, read-only grid for the values of a {@link Distance} whose distances are complete,
+ * see {@link Distance#freeze()}.
+ *
+ * A distance is at most the number of cells of the maze, so it rarely needs all 32 bits of an int.
+ * The grid stores each value with as many bits as the largest value needs,
+ * the values are next to each other in a long array and a value may span two longs.
+ * E.g. the distances of a 100 x 100 maze need at most 14 bits.
+ *
+ * Only values that are not negative can be packed, see {@link #pack(IntGrid)}.
+ *
+ * @author Elijah Mas
+ */
+final class NarrowIntGrid implements IntGrid {
+	private final int width;
+	private final int height;
+	/**
+	 * number of bits per value, {@code 1 <= bits <= 31}
+	 */
+	private final int bits;
+	/**
+	 * values at bit position (x*height+y)*bits
+	 */
+	private final long[] values;
+
+	private NarrowIntGrid(int width, int height, int bits) {
+		this.width = width;
+		this.height = height;
+		this.bits = bits;
+		values = new long[(int)(((long)width * height * bits + 63) >>> 6)];
+	}
+
+	/**
+	 * Packs the values of the given grid.
+	 * @param source a grid of values
+	 * @return the packed grid with the same values, null if a value is negative
+	 */
+	static NarrowIntGrid pack(IntGrid source) {
+		final int width = source.getWidth();
+		final int height = source.getHeight();
+		int max = 0;
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				final int value = source.get(x, y);
+				if (value < 0)
+					return null;
+				max = Math.max(max, value);
+			}
+		}
+		final NarrowIntGrid result = new NarrowIntGrid(width, height, Math.max(1, 32 - Integer.numberOfLeadingZeros(max)));
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				result.put(x, y, source.get(x, y));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of bits per value
+	 */
+	int getBits() {
+		return bits;
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+	@Override
+	public int getHeight() {
+		return height;
+	}
+	@Override
+	public int get(int x, int y) {
+		final long position = ((long)x * height + y) * bits;
+		final int word = (int)(position >>> 6);
+		final int offset = (int)(position & 63);
+		long value = values[word] >>> offset;
+		if (offset + bits > 64)
+			value |= values[word + 1] << (64 - offset);
+		return (int)(value & ((1L << bits) - 1));
+	}
+	/**
+	 * The grid is read-only, a distance goes back to a heap grid before it computes its values again.
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void set(int x, int y, int value) {
+		throw new UnsupportedOperationException("NarrowIntGrid is read-only");
+	}
+	/**
+	 * Gives the values unpacked in a new array.
+	 */
+	@Override
+	public int[][] toArray() {
+		int[][] result = new int[width][height];
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				result[x][y] = get(x, y);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Stores the value at (x,y) while the grid is packed, the bits of (x,y) are 0.
+	 */
+	private void put(int x, int y, int value) {
+		final long position = ((long)x * height + y) * bits;
+		final int word = (int)(position >>> 6);
+		final int offset = (int)(position & 63);
+		values[word] |= (long)value << offset;
+		if (offset + bits > 64)
+			values[word + 1] |= (long)value >>> (64 - offset);
+	}
+}
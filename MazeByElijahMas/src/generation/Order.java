@@ -47,4 +47,46 @@ public interface Order {
 	 * @param current percentage of job completion
 	 */
 	void updateProgress(int percentage) ;
+	/**
+	 * Gives a channel that the builder publishes its progress to while it runs,
+	 * such that the party that ordered the maze can sample it on its own schedule.
+	 * If there is a channel, {@link #updateProgress(int)} is only called with 100 upon delivery,
+	 * otherwise it is called during production as described there.
+	 * @return the channel, null to be called with updates instead
+	 */
+	default Progress getProgress() {
+		return null;
+	}
+	/**
+	 * Gives the seed for the random number stream the maze is built with.
+	 * An order with a seed gives the same maze each time, 
+	 * no matter which other orders are built at the same time.
+	 * @return the seed, null to leave the choice to the factory
+	 */
+	default Long getSeed() {
+		return null;
+	}
+	/**
+	 * Gives the width of the maze if it should not come from the skill level.
+	 * Width and height are either both given or both left to the skill level.
+	 * @return the width on a range [1, Constants.MAX_DIMENSION], 0 to use the width of the skill level
+	 */
+	default int getWidth() {
+		return 0;
+	}
+	/**
+	 * Gives the height of the maze if it should not come from the skill level.
+	 * @return the height on a range [1, Constants.MAX_DIMENSION], 0 to use the height of the skill level
+	 */
+	default int getHeight() {
+		return 0;
+	}
+	/**
+	 * Gives the number of rooms if it should not come from the skill level.
+	 * A perfect maze has no rooms, no matter what is given here.
+	 * @return the requested number of rooms, negative to use the number of the skill level
+	 */
+	default int getRooms() {
+		return -1;
+	}
 }
@@ -14,6 +14,10 @@ public class OrderStub extends DefaultState implements Order{
 	private int skillLevel;
 	private Builder builder;
 	private boolean perfect; 
+	private Long seed;
+	private int width; // 0 to use the skill level
+	private int height;
+	private int rooms = -1; // negative to use the skill level
    
 	protected Factory factory;
 
@@ -58,6 +62,8 @@ public class OrderStub extends DefaultState implements Order{
 	/**
 	 * Lightweight start method providing minimal required functionality
 	 * to order a maze from a factory.
+	 * Blocks until the factory has delivered, so that the factory's builder
+	 * does not draw from {@link SingleRandom} while a caller builds its own maze.
 	 */
 	@Override
 	public void start(Controller controller, MazePanel panel) {
@@ -69,6 +75,7 @@ public class OrderStub extends DefaultState implements Order{
 		
 		assert null != factory : "Controller.init: factory must be present";
 		factory.order(this) ;
+		factory.waitTillDelivered();
 	}
 	
 	/**
@@ -95,6 +102,52 @@ public class OrderStub extends DefaultState implements Order{
 		return perfect;
 	}
 	
+	/**
+	 * Sets the seed for the random number stream the maze is built with, see {@link Order#getSeed()}.
+	 * @param seed the seed, null to leave the choice to the factory (default)
+	 */
+	public void setSeed(Long seed) {
+		this.seed = seed;
+	}
+	
+	@Override
+	public Long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * Sets the size of the maze instead of the size of the skill level, see {@link Order#getWidth()}.
+	 * @param width the width, 0 to use the skill level (default)
+	 * @param height the height, 0 to use the skill level (default)
+	 */
+	public void setDimensions(int width, int height) {
+		this.width = width;
+		this.height = height;
+	}
+	
+	@Override
+	public int getWidth() {
+		return width;
+	}
+	
+	@Override
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * Sets the number of rooms instead of the number of the skill level, see {@link Order#getRooms()}.
+	 * @param rooms the number of rooms, negative to use the skill level (default)
+	 */
+	public void setRooms(int rooms) {
+		this.rooms = rooms;
+	}
+	
+	@Override
+	public int getRooms() {
+		return rooms;
+	}
+	
 	/**
 	 * Print update on progress to standard out.
 	 * Not thread-safe, but this is not critical.
@@ -0,0 +1,226 @@
+package generation;
+
+import java.util.Arrays;
+
+/**
+ * A compact, read-only grid for the cells of a {@link Floorplan} whose maze is complete,
+ * see {@link Floorplan#freeze()}.
+ *
+ * A cell value uses 10 of its 32 bits, and most of them follow from the neighbors:
+ * a wallboard between two cells is up on both sides, and the border of the maze
+ * is on its frame. So the grid stores per cell
+ * <ul>
+ * <li>2 bits for the wallboards to the right and at the bottom,
+ * the wallboards to the left and at the top are those of the neighbors,
+ * except for the left column and the top row, which have a bitset of their own,</li>
+ * <li>1 bit for {@link Floorplan#CW_VISITED} and 1 bit for {@link Floorplan#CW_IN_ROOM}.</li>
+ * </ul>
+ * That is 4 bits per cell instead of 32, plus the few cells whose borders differ from the frame
+ * of the maze, i.e. the borders of rooms, which are kept in a sorted list.
+ *
+ * Not every floorplan can be packed: {@link #pack(IntGrid)} gives null if wallboards are not symmetric
+ * or other bits are in use, such that packing never changes a value.
+ *
+ * @author Elijah Mas
+ */
+final class PackedIntGrid implements IntGrid {
+	/**
+	 * bits of a cell value that the grid can hold
+	 */
+	private static final int PACKABLE = Floorplan.CW_ALL | Floorplan.CW_VISITED | Floorplan.CW_IN_ROOM
+			| (Floorplan.CW_ALL << Floorplan.CW_BOUND_SHIFT);
+	private static final int BOUNDS = Floorplan.CW_ALL << Floorplan.CW_BOUND_SHIFT;
+
+	private final int width;
+	private final int height;
+	/**
+	 * 2 bits per cell at index x*height+y: right wallboard, bottom wallboard
+	 */
+	private final long[] walls;
+	/**
+	 * 1 bit per cell: {@link Floorplan#CW_VISITED}
+	 */
+	private final long[] visited;
+	/**
+	 * 1 bit per cell: {@link Floorplan#CW_IN_ROOM}
+	 */
+	private final long[] rooms;
+	/**
+	 * 1 bit per y: left wallboard of cell (0,y)
+	 */
+	private final long[] leftColumn;
+	/**
+	 * 1 bit per x: top wallboard of cell (x,0)
+	 */
+	private final long[] topRow;
+	/**
+	 * sorted indices x*height+y of cells whose bounds differ from the frame of the maze
+	 */
+	private final long[] borderCells;
+	/**
+	 * bounds of the cells in borderCells, in wallboard bit positions
+	 */
+	private final byte[] borderValues;
+
+	private PackedIntGrid(int width, int height, long[] borderCells, byte[] borderValues) {
+		this.width = width;
+		this.height = height;
+		final long size = (long)width * height;
+		walls = new long[(int)((2*size + 63) >>> 6)];
+		visited = new long[(int)((size + 63) >>> 6)];
+		rooms = new long[visited.length];
+		leftColumn = new long[(height + 63) >>> 6];
+		topRow = new long[(width + 63) >>> 6];
+		this.borderCells = borderCells;
+		this.borderValues = borderValues;
+	}
+
+	/**
+	 * Packs the values of the given grid.
+	 * @param source a grid with cell values of a floorplan
+	 * @return the packed grid with the same values, null if the values cannot be packed
+	 */
+	static PackedIntGrid pack(IntGrid source) {
+		final int width = source.getWidth();
+		final int height = source.getHeight();
+		// count cells with bounds that differ from the frame, check for bits that cannot be packed
+		int count = 0;
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				final int value = source.get(x, y);
+				if ((value & ~PACKABLE) != 0)
+					return null;
+				if ((value & BOUNDS) >>> Floorplan.CW_BOUND_SHIFT != frame(x, y, width, height))
+					count++;
+			}
+		}
+		final long[] borderCells = new long[count];
+		final byte[] borderValues = new byte[count];
+		final PackedIntGrid result = new PackedIntGrid(width, height, borderCells, borderValues);
+		int next = 0;
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				final int value = source.get(x, y);
+				final long index = (long)x * height + y;
+				if ((value & Floorplan.CW_RIGHT) != 0)
+					setBit(result.walls, 2*index);
+				if ((value & Floorplan.CW_BOT) != 0)
+					setBit(result.walls, 2*index + 1);
+				if ((value & Floorplan.CW_VISITED) != 0)
+					setBit(result.visited, index);
+				if ((value & Floorplan.CW_IN_ROOM) != 0)
+					setBit(result.rooms, index);
+				if (x == 0 && (value & Floorplan.CW_LEFT) != 0)
+					setBit(result.leftColumn, y);
+				if (y == 0 && (value & Floorplan.CW_TOP) != 0)
+					setBit(result.topRow, x);
+				final int bounds = (value & BOUNDS) >>> Floorplan.CW_BOUND_SHIFT;
+				if (bounds != frame(x, y, width, height)) {
+					borderCells[next] = index; // cells are visited in index order, so the list is sorted
+					borderValues[next++] = (byte)bounds;
+				}
+			}
+		}
+		// wallboards on the left and at the top are taken from the neighbors, which only works if both sides agree
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				if (result.get(x, y) != source.get(x, y))
+					return null;
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+	@Override
+	public int getHeight() {
+		return height;
+	}
+	@Override
+	public int get(int x, int y) {
+		final long index = (long)x * height + y;
+		return getWalls(x, y, index)
+				| (getBit(visited, index) ? Floorplan.CW_VISITED : 0)
+				| (getBit(rooms, index) ? Floorplan.CW_IN_ROOM : 0)
+				| (getBounds(x, y, index) << Floorplan.CW_BOUND_SHIFT);
+	}
+	/**
+	 * Computes only the parts of the value that the mask asks for,
+	 * so checking a wallboard does not look up borders.
+	 */
+	@Override
+	public int getMasked(int x, int y, int mask) {
+		final long index = (long)x * height + y;
+		int value = 0;
+		if ((mask & Floorplan.CW_ALL) != 0)
+			value |= getWalls(x, y, index);
+		if ((mask & Floorplan.CW_VISITED) != 0 && getBit(visited, index))
+			value |= Floorplan.CW_VISITED;
+		if ((mask & Floorplan.CW_IN_ROOM) != 0 && getBit(rooms, index))
+			value |= Floorplan.CW_IN_ROOM;
+		if ((mask & BOUNDS) != 0)
+			value |= getBounds(x, y, index) << Floorplan.CW_BOUND_SHIFT;
+		return value & mask;
+	}
+	/**
+	 * The grid is read-only, a floorplan goes back to a heap grid before it changes a cell.
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void set(int x, int y, int value) {
+		throw new UnsupportedOperationException("PackedIntGrid is read-only");
+	}
+	/**
+	 * Gives the values unpacked in a new array.
+	 */
+	@Override
+	public int[][] toArray() {
+		int[][] values = new int[width][height];
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				values[x][y] = get(x, y);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Gives the wallboard bits of the cell at (x,y) with the given index.
+	 */
+	private int getWalls(int x, int y, long index) {
+		int value = 0;
+		if (getBit(walls, 2*index))
+			value |= Floorplan.CW_RIGHT;
+		if (getBit(walls, 2*index + 1))
+			value |= Floorplan.CW_BOT;
+		if (x == 0 ? getBit(leftColumn, y) : getBit(walls, 2*(index - height)))
+			value |= Floorplan.CW_LEFT;
+		if (y == 0 ? getBit(topRow, x) : getBit(walls, 2*(index - 1) + 1))
+			value |= Floorplan.CW_TOP;
+		return value;
+	}
+	/**
+	 * Gives the bounds of the cell at (x,y) with the given index in wallboard bit positions.
+	 */
+	private int getBounds(int x, int y, long index) {
+		final int i = Arrays.binarySearch(borderCells, index);
+		return (i >= 0) ? borderValues[i] : frame(x, y, width, height);
+	}
+	/**
+	 * Gives the bounds that the frame of the maze puts on the cell at (x,y), in wallboard bit positions.
+	 */
+	private static int frame(int x, int y, int width, int height) {
+		return (x == 0 ? Floorplan.CW_LEFT : 0) | (x == width-1 ? Floorplan.CW_RIGHT : 0)
+				| (y == 0 ? Floorplan.CW_TOP : 0) | (y == height-1 ? Floorplan.CW_BOT : 0);
+	}
+
+	private static boolean getBit(long[] bits, long index) {
+		return (bits[(int)(index >>> 6)] & (1L << index)) != 0;
+	}
+	private static void setBit(long[] bits, long index) {
+		bits[(int)(index >>> 6)] |= 1L << index;
+	}
+}
@@ -0,0 +1,177 @@
+package generation;
+
+import java.util.ArrayList;
+
+/**
+ * Grades every wall of a BSP node as a partition candidate exactly,
+ * with the same result as {@link Wall#calculateGrade(ArrayList, int)} over all walls of the node
+ * but without a scan of the list per candidate.
+ *
+ * Walls are axis-aligned, so a candidate is a line {@code x = c} or {@code y = c} and
+ * for the walls along the other axis, only their coordinate matters:
+ * they are on one side, on the other side or on the line itself.
+ * Walls along the crossing axis are on one side if their smaller or larger end is on the line or beyond,
+ * otherwise they are split. The grader keeps prefix counts of these coordinates,
+ * i.e. for each coordinate the number of walls below it, so counting the walls on each side of a candidate
+ * takes a few array lookups. Coordinates are divided by their greatest common divisor,
+ * which is {@link gui.Constants#MAP_UNIT} for the walls of a maze, so the counts have
+ * one entry per cell of the area of the node.
+ * Setting up the counts takes {@code O(n + r)} for n walls in an area with r cells in each direction,
+ * grading takes constant time per candidate.
+ *
+ * @author Elijah Mas
+ */
+final class PartitionGrader {
+	/**
+	 * all coordinates are multiples of unit, counts are indexed by (coordinate - min) / unit
+	 */
+	private final int unit;
+	private final int minX;
+	private final int minY;
+	/**
+	 * for vertical walls with key 2*index(x) + 1 if the wall extends in positive y direction, 2*index(x) otherwise:
+	 * at position k the number of walls with a smaller key
+	 */
+	private final int[] verticalKeys;
+	/**
+	 * for vertical walls: at position i the number of walls whose smaller, larger end is below index i
+	 */
+	private final int[] verticalLows;
+	private final int[] verticalHighs;
+	/**
+	 * same as for vertical walls with x and y exchanged
+	 */
+	private final int[] horizontalKeys;
+	private final int[] horizontalLows;
+	private final int[] horizontalHighs;
+
+	/**
+	 * Constructor
+	 * @param walls list with all walls of a BSP node, with or without the partition flag
+	 * @param from position of the first wall of the node
+	 * @param to position after the last wall of the node
+	 */
+	PartitionGrader(WallList walls, int from, int to) {
+		// range and common divisor of coordinates
+		int unit = 0;
+		int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE;
+		int minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+		for (int i = from; i < to; i++) {
+			final int x = walls.x[i];
+			final int y = walls.y[i];
+			final int endX = x + walls.dx[i];
+			final int endY = y + walls.dy[i];
+			minX = Math.min(minX, Math.min(x, endX));
+			maxX = Math.max(maxX, Math.max(x, endX));
+			minY = Math.min(minY, Math.min(y, endY));
+			maxY = Math.max(maxY, Math.max(y, endY));
+			unit = gcd(gcd(unit, x), gcd(y, gcd(endX, endY)));
+		}
+		if (from == to) {
+			minX = maxX = minY = maxY = 0;
+		}
+		if (0 == unit)
+			unit = 1; // all coordinates are 0
+		this.unit = unit;
+		this.minX = minX;
+		this.minY = minY;
+		final int columns = (maxX - minX) / unit + 1;
+		final int rows = (maxY - minY) / unit + 1;
+		// counts per position, turned into prefix counts below
+		verticalKeys = new int[2*columns + 1];
+		verticalLows = new int[rows + 1];
+		verticalHighs = new int[rows + 1];
+		horizontalKeys = new int[2*rows + 1];
+		horizontalLows = new int[columns + 1];
+		horizontalHighs = new int[columns + 1];
+		for (int i = from; i < to; i++) {
+			final int x = (walls.x[i] - minX) / unit;
+			final int y = (walls.y[i] - minY) / unit;
+			final int dx = walls.dx[i] / unit;
+			final int dy = walls.dy[i] / unit;
+			if (dx == 0) {
+				verticalKeys[2*x + (dy > 0 ? 1 : 0) + 1]++;
+				verticalLows[Math.min(y, y + dy) + 1]++;
+				verticalHighs[Math.max(y, y + dy) + 1]++;
+			}
+			else {
+				horizontalKeys[2*y + (dx > 0 ? 1 : 0) + 1]++;
+				horizontalLows[Math.min(x, x + dx) + 1]++;
+				horizontalHighs[Math.max(x, x + dx) + 1]++;
+			}
+		}
+		accumulate(verticalKeys);
+		accumulate(verticalLows);
+		accumulate(verticalHighs);
+		accumulate(horizontalKeys);
+		accumulate(horizontalLows);
+		accumulate(horizontalHighs);
+	}
+
+	/**
+	 * Grades the given wall as a partition of all walls the grader was set up with.
+	 * @param walls the walls the grader was set up with
+	 * @param candidate position of a wall in the list
+	 * @return difference between the number of walls on the left and on the right
+	 * plus 3 for each wall that the partition splits, the smaller the better
+	 */
+	int grade(WallList walls, int candidate) {
+		if (walls.dx[candidate] == 0) {
+			// line x = c, walls with larger x are on the right if the candidate extends in positive y direction
+			final boolean positive = walls.dy[candidate] > 0;
+			return grade((walls.x[candidate] - minX) / unit, positive, positive,
+					verticalKeys, horizontalLows, horizontalHighs);
+		}
+		// line y = c, walls with larger y are on the right if the candidate extends in negative x direction
+		final boolean positive = walls.dx[candidate] > 0;
+		return grade((walls.y[candidate] - minY) / unit, positive, !positive,
+				horizontalKeys, verticalLows, verticalHighs);
+	}
+
+	/**
+	 * Grades a partition along a line.
+	 * @param c index of the line
+	 * @param positive true if the candidate extends in positive direction along the line
+	 * @param aboveIsRight true if walls with a larger index than c are on the right
+	 * @param parallelKeys prefix counts of the keys of the walls parallel to the line
+	 * @param crossingLows prefix counts of the smaller ends of the walls that cross the axis of the line
+	 * @param crossingHighs prefix counts of the larger ends of the walls that cross the axis of the line
+	 * @return the grade
+	 */
+	private static int grade(int c, boolean positive, boolean aboveIsRight,
+			int[] parallelKeys, int[] crossingLows, int[] crossingHighs) {
+		final int crossing = crossingLows[crossingLows.length - 1];
+		final int crossingBelow = crossingHighs[c + 1]; // larger end at c or below
+		final int crossingAbove = crossing - crossingLows[c]; // smaller end at c or above
+		final int splits = crossing - crossingBelow - crossingAbove;
+		final int below = parallelKeys[2*c] + crossingBelow;
+		final int above = parallelKeys[parallelKeys.length - 1] - parallelKeys[2*c + 2] + crossingAbove;
+		// walls on the line go to the right if they have the same direction as the candidate, to the left otherwise
+		final int up = parallelKeys[2*c + 2] - parallelKeys[2*c + 1]; // on the line in positive direction
+		final int down = parallelKeys[2*c + 1] - parallelKeys[2*c];
+		final int right = (aboveIsRight ? above : below) + (positive ? up : down);
+		final int left = (aboveIsRight ? below : above) + (positive ? down : up);
+		return Math.abs(left - right) + splits * 3;
+	}
+
+	/**
+	 * Turns counts per position into prefix counts:
+	 * afterwards position i holds the sum of the counts at positions up to i.
+	 * Counts are stored one position to the right, so position i becomes the number of values below i.
+	 */
+	private static void accumulate(int[] counts) {
+		for (int i = 1; i < counts.length; i++)
+			counts[i] += counts[i-1];
+	}
+
+	private static int gcd(int a, int b) {
+		a = Math.abs(a);
+		b = Math.abs(b);
+		while (0 != b) {
+			final int r = a % b;
+			a = b;
+			b = r;
+		}
+		return a;
+	}
+}
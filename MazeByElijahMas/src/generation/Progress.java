@@ -0,0 +1,90 @@
+package generation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A progress channel is shared between the builder that generates a maze
+ * and a user interface that shows how far the generation got, see {@link Order#getProgress()}.
+ *
+ * The builder publishes the current phase and its percentage, which is a write
+ * of a volatile field plus a compare-and-set, so it is cheap enough to do inside loops
+ * and never waits for the user interface. The user interface samples the channel
+ * on its own schedule, e.g. with a timer on the event dispatch thread, such that
+ * painting stays out of the generation.
+ *
+ * Each phase covers a fixed range of the overall percentage, which only increases,
+ * also if several threads publish at the same time.
+ *
+ * @author Elijah Mas
+ */
+public class Progress {
+	/**
+	 * The phases of a maze generation in the order they run,
+	 * each with the range of the overall percentage it covers.
+	 */
+	public enum Phase {
+		Pathways("Generating pathways", 0, 20),
+		Distances("Computing distances", 20, 30),
+		BSP("Building BSP tree", 30, 100);
+
+		private final String description;
+		private final int from;
+		private final int to;
+
+		Phase(String description, int from, int to) {
+			this.description = description;
+			this.from = from;
+			this.to = to;
+		}
+		/**
+		 * @return a name for the phase that can be shown to a user
+		 */
+		public String getDescription() {
+			return description;
+		}
+	}
+
+	/**
+	 * overall percentage on a range [0,100], only increases
+	 */
+	private final AtomicInteger percentage = new AtomicInteger();
+	/**
+	 * phase that was started last, null before the first one
+	 */
+	private volatile Phase phase;
+
+	/**
+	 * Publishes progress made within a phase.
+	 * @param phase the current phase, not null
+	 * @param percentOfPhase how much of the phase is done on a range [0,100]
+	 */
+	public void update(Phase phase, int percentOfPhase) {
+		if (this.phase != phase)
+			this.phase = phase;
+		update(phase.from + (phase.to - phase.from)*Math.min(percentOfPhase, 100)/100);
+	}
+	/**
+	 * Publishes the overall percentage, which is only taken if it exceeds the last value
+	 * and is less or equal 100.
+	 * @param overall percentage on a range [0,100]
+	 */
+	public void update(int overall) {
+		if (overall > 100)
+			return;
+		int current = percentage.get();
+		while (current < overall && !percentage.compareAndSet(current, overall))
+			current = percentage.get();
+	}
+	/**
+	 * @return the overall percentage on a range [0,100]
+	 */
+	public int getPercentage() {
+		return percentage.get();
+	}
+	/**
+	 * @return the phase that was started last, null if none has started yet
+	 */
+	public Phase getPhase() {
+		return phase;
+	}
+}
@@ -0,0 +1,32 @@
+package generation;
+
+/**
+ * A source of pseudo random numbers for the generation of mazes.
+ * It is either the single instance of {@link SingleRandom} that the program shares,
+ * a {@link SeededRandom} of its own for a deterministic builder
+ * or a {@link RandomStream} of its own, e.g. for the builder of one order.
+ *
+ * @author Elijah Mas
+ *
+ */
+public interface RandomSource {
+	/**
+	 * Delivers a random number.
+	 * @return random integer value
+	 */
+	int nextInt();
+	/**
+	 * Generate an integer random number in interval [lowerBound,upperBound] 
+	 * @param lowerBound
+	 * @param upperBound
+	 * @return random number within given range
+	 */
+	int nextIntWithinInterval(int lowerBound, int upperBound);
+	/**
+	 * Delivers a new stream that is independent of this source.
+	 * The seed of the new stream is drawn from this source, so the same sequence of calls
+	 * gives the same streams. Meant to hand out streams to further threads.
+	 * @return a new stream
+	 */
+	RandomStream split();
+}
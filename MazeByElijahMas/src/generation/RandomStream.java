@@ -0,0 +1,46 @@
+package generation;
+
+import java.util.SplittableRandom;
+
+/**
+ * An independent stream of pseudo random numbers for a given seed, unlike the single instance
+ * of {@link SingleRandom} that the program shares.
+ * A stream is meant for a single thread, e.g. the builder of one order or a tile of a maze
+ * that is built in parallel, and draws numbers without synchronization and without interference
+ * from other threads, so a seed always gives the same sequence and the result
+ * does not depend on thread scheduling. A stream must not be shared between threads,
+ * it can be split into sub-streams for further threads, see {@link #split()},
+ * which are reproducible as well.
+ *
+ * @author Elijah Mas
+ *
+ */
+public final class RandomStream implements RandomSource {
+	/**  internal random number generator. This should NOT be made accessible. */
+	private final SplittableRandom stream;
+
+	/**
+	 * Constructor
+	 * @param seed the seed for the stream
+	 */
+	public RandomStream(long seed) {
+		this(new SplittableRandom(seed));
+	}
+	private RandomStream(SplittableRandom stream) {
+		this.stream = stream;
+	}
+
+	@Override
+	public RandomStream split() {
+		return new RandomStream(stream.split());
+	}
+	@Override
+	public int nextInt() {
+		return stream.nextInt();
+	}
+	@Override
+	public int nextIntWithinInterval(final int lowerBound, final int upperBound) {
+		assert(lowerBound <= upperBound) : "parameter error, lowerbound " + lowerBound + "> upper bound" + upperBound ;
+		return lowerBound + stream.nextInt(upperBound - lowerBound + 1) ;
+	}
+}
@@ -0,0 +1,41 @@
+package generation;
+
+import java.util.Random;
+
+/**
+ * A sequence of pseudo random numbers from a {@link java.util.Random} with a given seed,
+ * the same numbers as the single instance of {@link SingleRandom} gives right after its seed is set,
+ * such that builders reproduce the mazes of {@link MazeBuilder#MazeBuilder(boolean)}.
+ * Unlike that instance, each builder has a sequence of its own, so deterministic builders
+ * that run at the same time do not interfere. A sequence must not be shared between threads,
+ * further threads draw from a {@link RandomStream}, see {@link #split()}.
+ *
+ * @author Elijah Mas
+ *
+ */
+public final class SeededRandom implements RandomSource {
+	/**  internal random number generator. This should NOT be made accessible. */
+	private final Random generator;
+
+	/**
+	 * Constructor
+	 * @param seed the seed for the sequence
+	 */
+	public SeededRandom(long seed) {
+		generator = new Random(seed);
+	}
+
+	@Override
+	public RandomStream split() {
+		return new RandomStream(generator.nextLong());
+	}
+	@Override
+	public int nextInt() {
+		return generator.nextInt();
+	}
+	@Override
+	public int nextIntWithinInterval(final int lowerBound, final int upperBound) {
+		assert(lowerBound <= upperBound) : "parameter error, lowerbound " + lowerBound + "> upper bound" + upperBound ;
+		return lowerBound + generator.nextInt(upperBound - lowerBound + 1) ;
+	}
+}
@@ -7,15 +7,16 @@ import java.util.Random;
  * It is possible to set the seed of the generator by calling setSeed before the internal random number generator is initialized. 
  * This happens when getRandom is called for the first time. Any subsequent call to setSeed resets the seed of the existing generator.
  * Design implements Singleton pattern.
+ * For independent streams of random numbers, e.g. for the builder of one order, see {@link RandomStream}.
  * 
  * @author Kemper
  *
  */
-public final class SingleRandom {
+public final class SingleRandom implements RandomSource {
 	/**  internal internal random number generator. This should NOT be made accessible. */
 	private transient final Random generator;
 	/** the single instance of this class. */
-	private static SingleRandom instance = null ;
+	private static volatile SingleRandom instance = null ;
 	/** optional: a seed value can be set to be able to reproduce a sequence of random numbers. */
 	private static int theSeed;
 	/** optional: flag to show if seed value can be used or not. */
@@ -34,6 +35,9 @@ public final class SingleRandom {
 	 * @return instance of random number generator
 	 */
 	public static SingleRandom getRandom() {
+		SingleRandom result = instance;
+		if (null != result)
+			return result;
 		synchronized(LOCK)
 		{
 			// check the instance being null needs synchronization to be thread safe
@@ -43,14 +47,33 @@ public final class SingleRandom {
 				//System.out.println("first instantiation of SingleRandom");
 				instance = new SingleRandom();
 			}
+			return instance;
 		}
-		return instance;
+	}
+	
+	/**
+	 * Delivers a seed for a new stream, drawn from the single instance,
+	 * such that setting the seed of the single instance also fixes the seeds of new streams.
+	 * @return a seed for {@link RandomStream#RandomStream(long)}
+	 */
+	public static long newSeed() {
+		return getRandom().generator.nextLong();
+	}
+	
+	/**
+	 * Delivers a new stream whose seed is drawn from the single instance, see {@link #newSeed()}.
+	 * @return a new stream
+	 */
+	@Override
+	public RandomStream split() {
+		return new RandomStream(generator.nextLong());
 	}
 	
 	/**
 	 * Delivers a random number.
 	 * @return random integer value
 	 */
+	@Override
 	public int nextInt() {
 		return generator.nextInt();
 	}
@@ -60,6 +83,7 @@ public final class SingleRandom {
 	 * @param upperBound
 	 * @return random number within given range
 	 */
+	@Override
 	public int nextIntWithinInterval(final int lowerBound, final int upperBound) {
 		// nextInt(x) delivers uniformly distributed value in [0,x-1]
 		// say d = upperBound-lowerBound, then we want a result lowerBound + uniform(0,d) and uniform(0,d) is delivered by nextInt(d+1)
@@ -69,16 +93,18 @@ public final class SingleRandom {
 
 	/**
 	 * Prepares the generator to start with a particular seed value.
+	 * Streams that were handed out before are not affected.
 	 * @param seed is the seed value for the random number generator
 	 */
 	public static void setSeed(final int seed) {
-		if (null != instance) {
-			//System.out.println("Warning: SingleRandom already instantiated, resetting seed with value " + seed);
-			instance.generator.setSeed(seed) ;
-		}
-		else {
+		synchronized(LOCK)
+		{
+			if (null != instance) {
+				//System.out.println("Warning: SingleRandom already instantiated, resetting seed with value " + seed);
+				instance.generator.setSeed(seed) ;
+			}
+			theSeed = seed;
+			validSeed = true;
 		}
-		theSeed = seed;
-		validSeed = true;
 	}
 }
@@ -6,6 +6,7 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 import gui.MazeColor;
+import gui.MazePalette;
 import gui.MazeFileWriter;
 
 /**
@@ -57,9 +58,10 @@ public class Wall {
 
     // Fields with read/write access
     /**
-     * color of wall, only set by constructor and file reader.
+     * color of wall as an index into the {@link MazePalette},
+     * only set by constructor and file reader.
      */
-    private MazeColor col;
+    private int col;
     /**
      * partition flag.
      */
@@ -131,6 +133,61 @@ public class Wall {
      * Default minimum value for RGB values.
      */
     private static final int RGB_DEF = 20;
+    /**
+     * Number of hues for walls.
+     */
+    private static final int HUES = 6;
+    /**
+     * Palette indices of all colors a wall can get from its distance,
+     * for each of the 6 hues, 8 shades and 2 orientations,
+     * see {@link #getTableIndex(int, int, int)}.
+     */
+    private static final int[] COLORS = new int[HUES * 8 * 2];
+    /**
+     * Palette index of the color for walls that match no hue.
+     */
+    private static final int DEFAULT_COLOR =
+            MazePalette.intern(new MazeColor(RGB_DEF, RGB_DEF, RGB_DEF));
+
+    static {
+        for (int hue = 0; hue < HUES; hue++) {
+            for (int shade = 0; shade < 8; shade++) {
+                for (int add = 0; add < 2; add++) {
+                    final int rgbValue = calculateRGBValue(shade, add);
+                    final MazeColor color;
+                    switch (hue) {
+                        case 0:
+                            color = new MazeColor(rgbValue, RGB_DEF, RGB_DEF);
+                            break;
+                        case 1:
+                            color = new MazeColor(RGB_DEF, rgbValue, RGB_DEF);
+                            break;
+                        case 2:
+                            color = new MazeColor(RGB_DEF, RGB_DEF, rgbValue);
+                            break;
+                        case 3:
+                            color = new MazeColor(rgbValue, rgbValue, RGB_DEF);
+                            break;
+                        case 4:
+                            color = new MazeColor(RGB_DEF, rgbValue, rgbValue);
+                            break;
+                        default:
+                            color = new MazeColor(rgbValue, RGB_DEF, rgbValue);
+                            break;
+                    }
+                    COLORS[getTableIndex(hue, shade, add)] = MazePalette.intern(color);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return position in {@link #COLORS} for the given hue, shade and orientation
+     */
+    private static int getTableIndex(final int hue, final int shade, final int add) {
+        return (hue * 8 + shade) * 2 + add;
+    }
+
     /**
      * Determine and set the color for this wall.
      *
@@ -140,49 +197,44 @@ public class Wall {
      *            obscure
      */
     private void initColor(final int distance, final int cc) {
+        col = selectColorIndex(distance, cc, getExtensionX() != 0);
+    }
+
+    /**
+     * Gives the color a wall gets from its distance,
+     * for views that draw walls without a Wall object.
+     *
+     * @param distance
+     *            distance to exit
+     * @param cc
+     *            obscure
+     * @param extendsInX
+     *            true if the wall extends in x direction, false if in y direction
+     * @return index of the color in the {@link MazePalette}
+     */
+    public static int selectColorIndex(final int distance, final int cc, final boolean extendsInX) {
         final int d = distance / 4;
         // mod used to limit the number of colors to 6
-        final int rgbValue = calculateRGBValue(d);
-        switch (((d >> 3) ^ cc) % 6) {
-	        case 0:
-	            setColor(new MazeColor(rgbValue, RGB_DEF, RGB_DEF));
-	            break;
-	        case 1:
-	            setColor(new MazeColor(RGB_DEF, rgbValue, RGB_DEF));
-	            break;
-	        case 2:
-	            setColor(new MazeColor(RGB_DEF, RGB_DEF, rgbValue));
-	            break;
-	        case 3:
-	            setColor(new MazeColor(rgbValue, rgbValue, RGB_DEF));
-	            break;
-	        case 4:
-	            setColor(new MazeColor(RGB_DEF, rgbValue, rgbValue));
-	            break;
-	        case 5:
-	            setColor(new MazeColor(rgbValue, RGB_DEF, rgbValue));
-	            break;
-	        default:
-	            setColor(new MazeColor(RGB_DEF, RGB_DEF, RGB_DEF));
-	            break;
+        final int hue = ((d >> 3) ^ cc) % HUES;
+        if (hue < 0) {
+            return DEFAULT_COLOR;
         }
+        // 7 in binary is 0...0111
+        // use AND to get last 3 digits of distance
+        return COLORS[getTableIndex(hue, d & 7, extendsInX ? 1 : 0)];
     }
 
     /**
-     * Computes an RGB value based on the given numerical value.
+     * Computes an RGB value based on the shade and orientation of a wall.
      *
-     * @param distance
-     *            value to select color
+     * @param shade
+     *            last 3 digits of a quarter of the distance, 0 &le; shade &lt; 8
+     * @param add
+     *            1 for walls that extend in x direction, 0 otherwise
      * @return the calculated RGB value
      */
-    private int calculateRGBValue(final int distance) {
-        // compute rgb value, depends on distance and x direction
-        // 7 in binary is 0...0111
-        // use AND to get last 3 digits of distance
-        final int part1 = distance & 7;
-        final int add = (getExtensionX() != 0) ? 1 : 0;
-        final int rgbValue = ((part1 + 2 + add) * 70) / 8 + 80;
-        return rgbValue;
+    private static int calculateRGBValue(final int shade, final int add) {
+        return ((shade + 2 + add) * 70) / 8 + 80;
     }
 
     /**
@@ -288,7 +340,7 @@ public class Wall {
         if ((x != o.x) || (dx != o.dx) || (y != o.y) || (dy != o.dy)) {
             return false;
         }
-        if ((dist != o.dist) || (partition != o.partition) || (seen != o.seen) || !col.equals(o.col) ) {
+        if ((dist != o.dist) || (partition != o.partition) || (seen != o.seen) || (col != o.col) ) {
             return false;
         }
         // all fields are equal, so both objects are equal
@@ -357,12 +409,27 @@ public class Wall {
     }
 
     /**
-     * @return the color
+     * @return the color, shared with all walls of the same color
      */
     public MazeColor getColor() {
+        return MazePalette.get(col);
+    }
+
+    /**
+     * @return the index of the color in the {@link MazePalette}
+     */
+    public int getColorIndex() {
         return col;
     }
 
+    /**
+     * @param index
+     *            the index of the color in the {@link MazePalette} to set
+     */
+    public void setColorIndex(final int index) {
+        col = index;
+    }
+
     /**
      * @param color
      *            the color to set
@@ -376,7 +443,7 @@ public class Wall {
          * int b = SingleRandom.getRandom().nextIntWithinInterval(20,240) ;
          * this.col = new Color(r,g,b); return ;
          */
-        col = color;
+        col = MazePalette.intern(color);
     }
 
     /**
@@ -436,6 +503,7 @@ public class Wall {
     /**
      * Method called in BSPBuilder.genNodes to determine the minimum of all such grades. 
      * The method does not update internal attributes and just calculates the returned value.
+     * For 100 walls or more, only a sample of about 50 walls is considered.
      * @param sl vector of walls
      * @return undocumented
      */
@@ -447,7 +515,17 @@ public class Wall {
         //final int y  = getStartPositionY();
         //final int dx = getExtensionX();
         //final int dy = getExtensionY();
-        final int inc = (sl.size() >= 100) ? sl.size() / 50 : 1 ; // increment for iteration below
+        return calculateGrade(sl, (sl.size() >= 100) ? sl.size() / 50 : 1);
+    }
+    /**
+     * Same as {@link #calculateGrade(ArrayList)} but considers every inc-th wall,
+     * with inc 1 the grade is exact, see {@link PartitionGrader}.
+     * @param sl vector of walls
+     * @param inc increment for the iteration over the walls, at least 1
+     * @return difference between the number of walls on the left and on the right
+     * plus 3 for each wall that is split
+     */
+    int calculateGrade(ArrayList<Wall> sl, int inc) {
         // define some local counter
         int lcount = 0, rcount = 0, splits = 0;
         // check all walls, loop calculates lcount, rcount and splits
@@ -458,8 +536,8 @@ public class Wall {
              // difference between beginning of wall and y
              // difference between end of wall and x
              // difference between end of wall and y
-            int dotStart = calculateDot(se.getStartPositionX() - x, se.getStartPositionY() - y);
-            int dotEnd = calculateDot(se.getEndPositionX() - x, se.getEndPositionY() - y);
+            long dotStart = calculateDot(se.getStartPositionX() - x, se.getStartPositionY() - y);
+            long dotEnd = calculateDot(se.getEndPositionX() - x, se.getEndPositionY() - y);
             // update splits if necessary
             if (BSPBuilder.getSign(dotStart) != BSPBuilder.getSign(dotEnd)) {
                 if (dotStart == 0)
@@ -487,9 +565,9 @@ public class Wall {
      * Helper method for calculateGrade, resulted from refactoring
      * @param df1x
      * @param df1y
-     * @return
+     * @return the dot product, a long as coordinates of large mazes give products beyond the range of an int
      */
-    private int calculateDot(int df1x, int df1y) {
-        return df1x * dy + df1y * (-dx);
+    private long calculateDot(int df1x, int df1y) {
+        return (long)df1x * dy + (long)df1y * (-dx);
     }
 }
@@ -0,0 +1,178 @@
+package generation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The walls of BSP nodes while the {@link BSPBuilder} builds the tree,
+ * kept as parallel arrays of primitive values instead of Wall objects.
+ * Wall i starts at (x[i],y[i]), extends by (dx[i],dy[i]), has distance dist[i] to the exit
+ * and partition[i] tells if it has been used as a partition, see {@link Wall#isPartition()}.
+ * 
+ * The builder uses a list as a stack: the walls of the node it works on are at the end of the list,
+ * from some position to size. Splitting the node moves the walls for the left node to the front of that range
+ * and puts the walls for the right node behind them, which are then on top and are worked on first.
+ * So the builder allocates no objects per wall and node. Wall objects with their colors are only
+ * created for the walls that end up in a leaf, see {@link #toWalls(int, int, int)}.
+ * 
+ * @author Elijah Mas
+ */
+final class WallList {
+	// the walls, entries at positions size and above are unused
+	int[] x;
+	int[] y;
+	int[] dx;
+	int[] dy;
+	int[] dist;
+	boolean[] partition;
+	int size;
+
+	/**
+	 * Constructor for an empty list
+	 * @param capacity number of walls the list can hold before it grows
+	 */
+	WallList(int capacity) {
+		capacity = Math.max(capacity, 4);
+		x = new int[capacity];
+		y = new int[capacity];
+		dx = new int[capacity];
+		dy = new int[capacity];
+		dist = new int[capacity];
+		partition = new boolean[capacity];
+	}
+
+	/**
+	 * Gives a list with the values of the given walls.
+	 * @param walls the walls
+	 * @return the list
+	 */
+	static WallList of(List<Wall> walls) {
+		WallList result = new WallList(walls.size());
+		for (Wall wall : walls) {
+			result.add(wall.getStartPositionX(), wall.getStartPositionY(), wall.getExtensionX(), wall.getExtensionY(),
+					wall.getDistance(), wall.isPartition());
+		}
+		return result;
+	}
+
+	/**
+	 * Adds a wall at the end of the list, see {@link Wall#Wall(int, int, int, int, int, int)}.
+	 */
+	void add(int startX, int startY, int extensionX, int extensionY, int distance, boolean isPartition) {
+		if (size == x.length) {
+			final int capacity = 2*size;
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			dx = Arrays.copyOf(dx, capacity);
+			dy = Arrays.copyOf(dy, capacity);
+			dist = Arrays.copyOf(dist, capacity);
+			partition = Arrays.copyOf(partition, capacity);
+		}
+		set(size++, startX, startY, extensionX, extensionY, distance, isPartition);
+	}
+	/**
+	 * Overwrites the wall at position i, {@code i < size}, or the unused position {@code size} after growing.
+	 */
+	void set(int i, int startX, int startY, int extensionX, int extensionY, int distance, boolean isPartition) {
+		x[i] = startX;
+		y[i] = startY;
+		dx[i] = extensionX;
+		dy[i] = extensionY;
+		dist[i] = distance;
+		partition[i] = isPartition;
+	}
+
+	/**
+	 * Appends the walls at positions from to to of the given list, the list may be this one.
+	 */
+	void addAll(WallList other, int from, int to) {
+		for (int i = from; i < to; i++) {
+			add(other.x[i], other.y[i], other.dx[i], other.dy[i], other.dist[i], other.partition[i]);
+		}
+	}
+
+	/**
+	 * Same as Wall.getDir: horizontal walls give 1 or -1, vertical walls 2 or -2,
+	 * walls in opposite directions have opposite values.
+	 */
+	int getDir(int i) {
+		return getDir(dx[i], dy[i]);
+	}
+	/**
+	 * Same as Wall.getDir for a wall with the given extension.
+	 */
+	static int getDir(int dx, int dy) {
+		if (dx != 0)
+			return (dx < 0) ? 1 : -1;
+		return (dy < 0) ? 2 : -2;
+	}
+
+	/**
+	 * Counts the walls at positions from to to whose partition flag is not set.
+	 */
+	int countNonPartitions(int from, int to) {
+		int result = 0;
+		for (int i = from; i < to; i++) {
+			if (!partition[i])
+				result++;
+		}
+		return result;
+	}
+
+	/**
+	 * Same as {@link Wall#calculateGrade(ArrayList, int)} for the wall at position candidate
+	 * with the walls at positions from to to.
+	 * @param candidate position of the wall to grade
+	 * @param from position of the first wall
+	 * @param to position after the last wall
+	 * @param inc increment for the iteration over the walls, at least 1
+	 * @return difference between the number of walls on the left and on the right
+	 * plus 3 for each wall that is split
+	 */
+	int calculateGrade(int candidate, int from, int to, int inc) {
+		final int px = x[candidate];
+		final int py = y[candidate];
+		final int pdx = dx[candidate];
+		final int pdy = dy[candidate];
+		final int pdir = getDir(candidate);
+		int lcount = 0, rcount = 0, splits = 0;
+		for (int i = from; i < to; i += inc) {
+			long dotStart = (long)(x[i] - px) * pdy - (long)(y[i] - py) * pdx;
+			final long dotEnd = (long)(x[i] + dx[i] - px) * pdy - (long)(y[i] + dy[i] - py) * pdx;
+			if (BSPBuilder.getSign(dotStart) != BSPBuilder.getSign(dotEnd)) {
+				if (dotStart == 0)
+					dotStart = dotEnd;
+				else if (dotEnd != 0) {
+					splits++;
+					continue;
+				}
+			}
+			if (dotStart > 0 || (dotStart == 0 && getDir(i) == pdir)) {
+				rcount++;
+			} else if (dotStart < 0 || (dotStart == 0 && getDir(i) == -pdir)) {
+				lcount++;
+			} else {
+				BSPBuilder.dbg("grade_partition problem: dot1 = "+dotStart+", dot2 = "+dotEnd);
+			}
+		}
+		return Math.abs(lcount-rcount) + splits * 3;
+	}
+
+	/**
+	 * Creates the Wall objects for a leaf of the tree.
+	 * @param from position of the first wall
+	 * @param to position after the last wall
+	 * @param colchange parameter for the color of the walls, see {@link Wall#Wall(int, int, int, int, int, int)}
+	 * @return the walls in the order of this list
+	 */
+	ArrayList<Wall> toWalls(int from, int to, int colchange) {
+		ArrayList<Wall> walls = new ArrayList<Wall>(to - from);
+		for (int i = from; i < to; i++) {
+			Wall wall = new Wall(x[i], y[i], dx[i], dy[i], dist[i], colchange);
+			wall.setPartition(partition[i]);
+			walls.add(wall);
+		}
+		return walls;
+	}
+}
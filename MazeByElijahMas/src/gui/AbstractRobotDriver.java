@@ -325,6 +325,8 @@ public abstract class AbstractRobotDriver implements RobotDriver {
 	 */
 	void moveRobot(CardinalDirection cd){
 		faceRobot(cd);
+		if (robot.hasStopped())
+			return; // e.g. out of energy, the driver reports the failure
 		log("   moveRobot: the robot is now facing %s=%s at position %s\n, dists: %s",
 				robot.getCurrentDirection(),Arrays.toString(robot.getCurrentDirection().getDirection()),
 				Arrays.toString(getRobotPosition()),Arrays.toString(getDists()));
@@ -341,6 +343,8 @@ public abstract class AbstractRobotDriver implements RobotDriver {
 		CardinalDirection robot_cd = robot.getCurrentDirection();
 		Turn t = MazeMath.toTurn(cd,robot_cd);
 		robot.rotate(t);
+		if (robot.hasStopped())
+			return; // e.g. out of energy while turning, the driver reports the failure
 		assert robot.getCurrentDirection() == cd: "robot should be facing "+cd+", instead facing "+robot.getCurrentDirection();
 		log("   faceRobot: the robot is now facing "+robot.getCurrentDirection());
 	}
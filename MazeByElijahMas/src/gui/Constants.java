@@ -27,6 +27,11 @@ public class Constants {
 	public static int[] SKILL_ROOMS = { 0,  2,  2,  3,  4,  5, 10, 10, 20, 45, 45, 50, 50,  60,  80, 160 };
 	public static int[] SKILL_PARTCT = { 60, 600, 900, 1200, 2100, 2700, 3300,
 	5000, 6000, 13500, 19800, 25000, 29000, 45000, 85000, 85000*4 };
+	// An order can also give width and height explicitly, each on a range [1, MAX_DIMENSION].
+	// The limit keeps coordinates scaled by MAP_UNIT and sums of them within an int,
+	// width * height is further limited such that cell indices x*height+y fit as well.
+	public static final int MAX_DIMENSION = 1 << 16;
+	public static final int MAX_CELLS = Integer.MAX_VALUE / 4;
 	
 	// on-screen location to print battery level during playing state
 	public static final int BATTERY_INDICATOR_X=(int)(VIEW_WIDTH*.05);
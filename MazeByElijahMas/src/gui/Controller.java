@@ -13,6 +13,7 @@ import javax.swing.JPanel;
 
 import generation.CardinalDirection;
 import generation.Maze;
+import generation.MazePool;
 import generation.Order;
 import generation.Order.Builder;
 
@@ -64,6 +65,14 @@ public class Controller {
 	 * suppress certain updates from printing, used for testing
 	 */
 	public static boolean suppressUpdates=false;
+	/**
+	 * draw with the {@link RasterMazePanel} instead of the Java2D {@link MazePanel}
+	 */
+	public static boolean rasterPanel=false;
+	/**
+	 * draw the first person view with the {@link RaycastView} and generate mazes without a BSP tree
+	 */
+	public static boolean raycastView=false;
 	
 	
 	
@@ -134,6 +143,22 @@ public class Controller {
 	
 	
 	
+	/**
+	 * Optional pool of mazes that are generated in advance,
+	 * if present, the generating state serves a maze from the pool when one is ready.
+	 */
+	MazePool mazePool;
+	
+	public void setMazePool(MazePool mazePool) {
+		this.mazePool = mazePool;
+	}
+	/**
+	 * @return the pool of pre-generated mazes, may be null
+	 */
+	public MazePool getMazePool() {
+		return mazePool;
+	}
+	
 	/**
 	 * whether a robot will be instantiated
 	 */
@@ -267,7 +292,7 @@ public class Controller {
 		states[2] = new StatePlaying();
 		states[3] = new StateWinning();
 		currentState = states[0];
-		panel = new MazePanel(); 
+		panel = rasterPanel ? new RasterMazePanel() : new MazePanel(); 
 		fileName = null;
 		builder = Order.Builder.DFS; // default
 		perfect = false; // default
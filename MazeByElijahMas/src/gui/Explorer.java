@@ -15,6 +15,7 @@ import comp.MazeMath;
 import generation.CardinalDirection;
 import generation.Distance;
 import generation.Maze;
+import generation.RandomSource;
 import generation.SingleRandom;
 import gui.Robot.Direction;
 import gui.Robot.Turn;
@@ -36,10 +37,23 @@ public class Explorer extends AbstractRobotDriver {
 
 	private int[] start;
 	
+	// random number stream to choose among equally visited cells, shared with the rest of the program by default
+	private RandomSource random = SingleRandom.getRandom();
+	
 	public Explorer() {
 		
 	};
 	
+	/**
+	 * Makes the explorer choose with a random number stream of its own,
+	 * such that explorers that run at the same time do not interfere
+	 * and each run can be reproduced from the seed of its stream.
+	 * @param random the random number stream
+	 */
+	public void setRandom(RandomSource random) {
+		this.random=random;
+	}
+	
 	
 	public void setStart(int[] start) {
 		this.start=start;
@@ -50,8 +64,8 @@ public class Explorer extends AbstractRobotDriver {
 		this.distance=distance;
 		// distance should already be set
 		
-		int width=distance.getAllDistanceValues().length;
-		int height=distance.getAllDistanceValues()[0].length;
+		int width=distance.getWidth();
+		int height=distance.getHeight();
 		
 		visitCounts=new int[width][height];
 		for(int x=0; x<width; x++) {
@@ -165,7 +179,7 @@ public class Explorer extends AbstractRobotDriver {
 				.collect(Collectors.toList());
 		
 		int[] exit = minVisitedCells.get(
-			SingleRandom.getRandom()
+			random
 			.nextIntWithinInterval(0,minVisitedCells.size()-1)
 		);
 		
@@ -0,0 +1,22 @@
+package gui;
+
+/**
+ * A FirstPersonDrawer draws the maze on the screen from the first person perspective
+ * of the current position and viewing angle while the user plays.
+ * The {@link StatePlaying} uses either the {@link FirstPersonView}, which traverses
+ * the BSP tree of the maze, or the {@link RaycastView}, which casts rays through its floorplan.
+ * Both have the same projection and draw the same picture.
+ * 
+ * @author Elijah Mas
+ *
+ */
+public interface FirstPersonDrawer {
+	/**
+	 * Draws the first person view on the screen during the game
+	 * @param x coordinate of current position
+	 * @param y coordinate of current position
+	 * @param walkStep gives the progress of a step between two cells
+	 * @param ang gives the current viewing angle
+	 */
+	void draw(int x, int y, int walkStep, int ang);
+}
@@ -24,7 +24,7 @@ import gui.MazeColor.Colors;
  * Paul Falstad granted permission to modify and use code for teaching purposes.
  * Refactored by Peter Kemper
  */
-public class FirstPersonView {
+public class FirstPersonView implements FirstPersonDrawer {
 	// Constants
 	final int viewZ = 50;  // constant from StatePlaying.java
 	// Instance variables set once and for all in constructor call
@@ -83,6 +83,25 @@ public class FirstPersonView {
 	 */
 	private int viewX; 
 	private int viewY; 
+	/**
+	 * The viewing direction for the current angle scaled by 2^16,
+	 * looked up once per frame in the draw method.
+	 */
+	private int viewDX;
+	private int viewDY;
+	/**
+	 * Cosine and sine for each angle of a full circle in degrees scaled by 2^16,
+	 * such that a frame needs no trigonometric functions.
+	 * Shared with the {@link RaycastView}.
+	 */
+	static final int[] COS = new int[360];
+	static final int[] SIN = new int[360];
+	static {
+		for (int a = 0; a < 360; a++) {
+			COS[a] = (int) (Math.cos(a*Math.PI/180)*(1<<16));
+			SIN[a] = (int) (Math.sin(a*Math.PI/180)*(1<<16));
+		}
+	}
 	
 	// set in constructor to then given view_height/2, used in bounding box
 	final private int scaleZ;      // = view_height/2; which is the horizon
@@ -106,6 +125,21 @@ public class FirstPersonView {
 	 * The rset allows us to omit walls that are not needed.
 	 */
 	private RangeSet rSet;
+	/**
+	 * Holds the intersection the rset gives for the polygon
+	 * that is drawn next, reused for all polygons.
+	 */
+	private final int[] intersection = new int[2];
+	/**
+	 * Points of the polygon that is drawn next, reused for all polygons.
+	 */
+	private final int[] polygonX = new int[4];
+	private final int[] polygonY = new int[4];
+	/**
+	 * Projection of the bounding box or wall that is checked or drawn next,
+	 * reused for all of them as none is needed after the next one is projected.
+	 */
+	private final RangePair rangePair = new RangePair();
 	
 	/**
 	 * Reference to {@link MazePanel} that handles drawing
@@ -154,6 +188,7 @@ public class FirstPersonView {
 	 * @param ang gives the current viewing angle
 	 * @param walkStep, only used to set viewX and viewY
 	 */
+	@Override
 	public void draw(int x, int y, int walkStep, int ang) {
 		// obtain a Graphics2D object we can draw on
 		//Graphics g = panel.getBufferGraphics() ;
@@ -166,6 +201,8 @@ public class FirstPersonView {
         
         // update fields angle, viewx, viewy for current position and viewing angle
         angle = ang ;
+        viewDX = getViewDX(angle);
+        viewDY = getViewDY(angle);
         setView(x, y, walkStep);
         
         // update graphics
@@ -188,14 +225,11 @@ public class FirstPersonView {
 
 	////////////////////////////// internal, private methods ///////////////////////////////
 	private int getViewDX(int angle) {
-		return (int) (Math.cos(radify(angle))*(1<<16));
+		return COS[Math.floorMod(angle, 360)];
 	}
 	private int getViewDY(int angle) {
-		return (int) (Math.sin(radify(angle))*(1<<16));
+		return SIN[Math.floorMod(angle, 360)];
 	}
-	final double radify(int x) {
-        return x*Math.PI/180;
-    }
 	/**
 	 * Updates viewX and viewY based on current angle and for current position.
 	 * @param x coordinate of current position
@@ -205,8 +239,8 @@ public class FirstPersonView {
 	private void setView(int x, int y, int walkStep) {
 		// Notes: only used in draw method
 		final int factor = stepSize*walkStep-Constants.VIEW_OFFSET;
-		viewX = (x*mapUnit+mapUnit/2) + unscaleViewD(getViewDX(angle)*factor);
-        viewY = (y*mapUnit+mapUnit/2) + unscaleViewD(getViewDY(angle)*factor);
+		viewX = (x*mapUnit+mapUnit/2) + unscaleViewD(viewDX*factor);
+        viewY = (y*mapUnit+mapUnit/2) + unscaleViewD(viewDY*factor);
 	}
 	/**
 	 * Draws a black and a grey rectangle to provide a background.
@@ -251,18 +285,19 @@ public class FirstPersonView {
 		// either do right before left or vice versa
 		// but only if node is visible at all
 		
+		// branches that are built on demand only have their bounds till we descend into them
 		// if dot >= 0 consider right node before left node
-		BSPNode right = n.getRightBranch();
+		BSPNode right = n.peekRightBranch();
 		if ((dot >= 0) && (boundingBoxIsVisible(right))) {
-			drawAllVisibleSectors(right);
+			drawAllVisibleSectors(n.getRightBranch());
 		}
 		// consider left node
-		BSPNode left = n.getLeftBranch();
+		BSPNode left = n.peekLeftBranch();
 		if (boundingBoxIsVisible(left))
-			drawAllVisibleSectors(left);
+			drawAllVisibleSectors(n.getLeftBranch());
 		// if dot < 0 consider right node now (after left node)
 		if ((dot < 0) && (boundingBoxIsVisible(right))) {
-			drawAllVisibleSectors(right);
+			drawAllVisibleSectors(n.getRightBranch());
 		}
 		nesting--; // debug
 	}
@@ -314,7 +349,7 @@ public class FirstPersonView {
 			p1x = xmax; 
 			p2x = xmin;
 		}
-		RangePair rp = getNewRangePair(p1x, p2x, p1y, p2y);
+		RangePair rp = getRangePair(p1x, p2x, p1y, p2y);
 		if (!rp.clip3d())
 			return false;
 		// note: zscale == view_height/2 is constant
@@ -329,27 +364,25 @@ public class FirstPersonView {
 		// if interval [x1,x2] intersects with any of the intervals on 
 		// the x-axis that have not been covered with a wall (a polygon)
 		// yet, then this node might be needed.
-		return (null != rSet.getIntersection(x1, x2));
+		return rSet.intersects(x1, x2);
 	}
 	/**
-	 * Instantiates a new RangePair for the given parameters.
+	 * Sets the shared RangePair for the given parameters.
 	 * Parameter values are adjusted for the viewing direction.
 	 * @param p1x x coordinate of first point
 	 * @param p2x x coordinate of 2nd point
 	 * @param p1y y coordinate of first point
 	 * @param p2y y coordinate of 2nd point
-	 * @return new RangePair for adjusted parameters
+	 * @return the shared RangePair with the adjusted parameters, valid till the next call
 	 */
-	private RangePair getNewRangePair(int p1x, int p2x, int p1y, int p2y) {
-		int viewDX = getViewDX(angle) ;
-        int viewDY = getViewDY(angle) ;
-		
+	private RangePair getRangePair(int p1x, int p2x, int p1y, int p2y) {
         int x1 = -unscaleViewD(viewDY*p1x - viewDX*p1y);
 		int z1 = -unscaleViewD(viewDX*p1x + viewDY*p1y);
 		int x2 = -unscaleViewD(viewDY*p2x - viewDX*p2y);
 		int z2 = -unscaleViewD(viewDX*p2x + viewDY*p2y);
 		
-		return new RangePair(x1, z1, x2, z2);
+		rangePair.set(x1, z1, x2, z2);
+		return rangePair;
 	}
 	/**
 	 * Checks if bounding box for current node is out of view.
@@ -413,7 +446,7 @@ public class FirstPersonView {
 		final int y1  = wall.getStartPositionY() - viewY;
 		final int y2  = wall.getEndPositionY()   - viewY;
 		
-		RangePair rp = getNewRangePair(ox1, ox2, y1, y2);
+		RangePair rp = getRangePair(ox1, ox2, y1, y2);
 		if (!rp.clip3d())
 			return;
 		// note: viewZ == 50 is a constant
@@ -475,7 +508,9 @@ public class FirstPersonView {
 		// Loop variable is x1i, starts at x1, upper limit x2 is fixed
 		int x1i = x1; // init loop variable
 		int x2i;      // initialized inside loop
-		int[] intersect;
+		final int[] intersect = intersection;
+		final int[] xps = polygonX;
+		final int[] yps = polygonY;
 		while (x1i <= x2) {
 			// check if there is an intersection, 
 			// if there is none, done, exit the loop, 
@@ -483,8 +518,7 @@ public class FirstPersonView {
 			// rset represents the to-do list of intervals on the x-axis
 			// that are not covered by a polygon yet
 			// get one intersection for our interval[x1i,x2] with rset
-			intersect = rSet.getIntersection(x1i, x2);
-			if (null == intersect)
+			if (!rSet.getIntersection(x1i, x2, intersect))
 				break; // exit point for loop
 			x1i = intersect[0]; // progress: can not be less than previous x1i
 			x2i = intersect[1]; // x1i <= x2i 
@@ -501,14 +535,17 @@ public class FirstPersonView {
 			// constant xd == x2-x1, yd1 = y21-y11, and yd2 = y22-y12
 			// the additive term for the y coordinate depends on the point's x coordinate
 			// polygon covers interval [x1i, x2i] on the x-axis
-			int[] xps = { x1i, x1i, x2i+1, x2i+1 };
+			xps[0] = x1i;
+			xps[1] = x1i;
+			xps[2] = x2i+1;
+			xps[3] = x2i+1;
 			// (x1i-x1)/xd is the percentage of what's left of [x1i,x2i] in [x1,x2]
 			// (x2i-x2)/xd is the percentage of what's right of [x1i,x2i] in [x1,x2]
 			// memo: warning for refactoring: this is integer division
-			int[] yps = { y11+(x1i-x1)*yd1/xd,
-					y12+(x1i-x1)*yd2/xd+1,
-					y22+(x2i-x2)*yd2/xd+1,
-					y21+(x2i-x2)*yd1/xd };
+			yps[0] = y11+(x1i-x1)*yd1/xd;
+			yps[1] = y12+(x1i-x1)*yd2/xd+1;
+			yps[2] = y22+(x2i-x2)*yd2/xd+1;
+			yps[3] = y21+(x2i-x2)*yd1/xd;
 			// debug
 			//System.out.println("polygon-x: " + xps[0] + ", " + xps[1] + ", " + xps[2] + ", " + xps[3]) ;
 			//System.out.println("polygon-y: " + yps[0] + ", " + yps[1] + ", " + yps[2] + ", " + yps[3]) ;
@@ -554,12 +591,14 @@ public class FirstPersonView {
 	}
 
 	/**
-	 * Trivial class to hold 4 integer values. Used only in FirstPersonDrawer.
+	 * Trivial class to hold 4 integer values. Used only in FirstPersonDrawer,
+	 * which keeps a single one and sets it for each projection.
 	 */
 	class RangePair {
 		public int x1, z1, x2, z2;
+		private final FloatPair fp = new FloatPair(0, 1); // reused by clip3d
 
-		RangePair(int xx1, int zz1, int xx2, int zz2) {
+		void set(int xx1, int zz1, int xx2, int zz2) {
 			x1 = xx1;
 			z1 = zz1;
 			x2 = xx2;
@@ -577,7 +616,8 @@ public class FirstPersonView {
 			// calculate float pair
 			final int dx = x2 - x1;
 			final int dz = z2 - z1;
-			FloatPair fp = new FloatPair(0, 1);
+			fp.p1 = 0;
+			fp.p2 = 1;
 			if (!fp.clipt(-dx - dz, x1 + z1))
 				return false;
 			if (!fp.clipt(dx - dz, -x1 + z1))
@@ -3,6 +3,7 @@
  */
 package gui;
 
+import generation.MazePool;
 import generation.Order;
 import gui.Robot.Direction;
 
@@ -17,6 +18,7 @@ import java.awt.event.KeyListener;
 import java.awt.GridBagLayout;
 import java.awt.GridLayout;
 import java.io.File;
+import java.util.Arrays;
 //import java.util.EventObject;
 //import java.util.List;
 //import java.util.stream.Collectors;
@@ -103,8 +105,8 @@ public class MazeApplication extends JFrame {
 	    // Case 3 a and b: Eller, Kruskal or some other generation algorithm
 	    else if ("Kruskal".equalsIgnoreCase(parameter))
 	    {
-	    	// TODO: for P2 assignment, please add code to set the builder accordingly
-	        throw new RuntimeException("Don't know anybody named Kruskal ...");
+	        msg = "MazeApplication: generating random maze with Kruskal's algorithm.";
+	        result.setBuilder(Order.Builder.Kruskal);
 	    }
 	    else if ("Eller".equalsIgnoreCase(parameter))
 	    {
@@ -144,6 +146,8 @@ public class MazeApplication extends JFrame {
 	private void init(String parameter) {
 	    // instantiate a game controller and add it to the JFrame
 	    Controller controller = createController(parameter);
+	    // mazes that were asked for once are generated in advance for the next round
+	    controller.setMazePool(new MazePool(MazePool.DEFAULT_CAPACITY));
 	    
 	    setLayout(new BorderLayout());
 	    
@@ -183,7 +187,7 @@ public class MazeApplication extends JFrame {
 		levelOptsBox.setName("Levels");
 		
 		// box to select maze generation algorithm
-		JComboBox mazeOptsBox = new JComboBox(new String[] {"DFS", "Eller", "Prim"});//, "Kruskal"
+		JComboBox mazeOptsBox = new JComboBox(new String[] {"DFS", "Eller", "Prim", "Kruskal"});
 		mazeOptsBox.setName("Mazes");
 		
 		// box to select driver algorithm
@@ -260,11 +264,24 @@ public class MazeApplication extends JFrame {
 	 * This option is useful during development to test with a particular maze.
 	 * 3) A predefined constant string is given to select a maze
 	 * generation algorithm, currently supported is "Prim".
-	 * @param args is optional, first string can be a fixed constant like Prim or
+	 * In each case, a leading "-raster" draws the first person view
+	 * with the {@link RasterMazePanel}, and a leading "-raycast" draws it
+	 * with the {@link RaycastView} and generates mazes without a BSP tree.
+	 * @param args is optional, first strings can be -raster and -raycast, next string can be a fixed constant like Prim or
 	 * the name of a file that stores a maze in XML format
 	 */
 	public static void main(String[] args) {
 	    JFrame app ; 
+	    int options = 0;
+	    for (; options < args.length; options++) {
+	    	if ("-raster".equals(args[options]))
+	    		Controller.rasterPanel = true;
+	    	else if ("-raycast".equals(args[options]))
+	    		Controller.raycastView = true;
+	    	else
+	    		break;
+	    }
+	    args = Arrays.copyOfRange(args, options, args.length);
 		switch (args.length) {
 			case 1 :
 				app = new MazeApplication(args[0]);
@@ -514,7 +531,9 @@ public class MazeApplication extends JFrame {
 			case "Eller":
 				controller.setBuilder(Order.Builder.Eller);
 				break;
-				//case "Kruskal": controller.setBuilder(Order.Builder.Kruskal); break;
+			case "Kruskal":
+				controller.setBuilder(Order.Builder.Kruskal);
+				break;
 			case "Prim":
 				controller.setBuilder(Order.Builder.Prim);
 				break;
@@ -13,11 +13,24 @@ import java.awt.Color;
 public class MazeColor {
 	/**
 	 * Named colors that correspond to color names in {@link java.awt.Color}.
-	 * MazeColor uses reflection to get corresponding awt Color objects.
+	 * Each one holds the awt Color object of the same name.
 	 * @author Elijah Mas
 	 *
 	 */
-	public static enum Colors {white, red, orange, yellow, grey, gray, darkGray, black, green, blue, cyan};
+	public static enum Colors {
+		white(Color.white), red(Color.red), orange(Color.orange), yellow(Color.yellow),
+		grey(Color.gray), gray(Color.gray), darkGray(Color.darkGray), black(Color.black),
+		green(Color.green), blue(Color.blue), cyan(Color.cyan);
+
+		/**
+		 * the {@link java.awt.Color} of the same name
+		 */
+		private final Color awt;
+
+		private Colors(Color awt) {
+			this.awt = awt;
+		}
+	};
 	
 	/**
 	 * the red, green, blue, alpha color components.
@@ -31,6 +44,12 @@ public class MazeColor {
 	 */
 	int value;
 	
+	/**
+	 * The {@link java.awt.Color} for this color, created by the first {@link #export()}
+	 * such that drawing a wall again does not create another one.
+	 */
+	private Color exported;
+	
 	/**
 	 * Uses bitwise functions to store r,g,b,a values in the
 	 * {@link #value} parameter. Reuses code from {@link java.awt.Color}.
@@ -89,10 +108,16 @@ public class MazeColor {
 	
 	/**
 	 * Translate the current MazeColor object into an jav.awt.Color object.
+	 * The object is created once and then shared, {@link java.awt.Color} is immutable.
 	 * @return {@link java.awt.Color} object
 	 */
 	public Color export(){
-		return MazeColor.export(r, g, b, a);
+		Color result = exported;
+		if (null == result) {
+			result = MazeColor.export(r, g, b, a);
+			exported = result;
+		}
+		return result;
 	}
 	
 	/**
@@ -123,18 +148,13 @@ public class MazeColor {
 	}
 	
 	/**
-	 * Use reflection to return named {@link java.awt.Color} object
+	 * Return named {@link java.awt.Color} object
 	 * from a named #{@link MazeColor} object.
 	 * @param c #{@link MazeColor} object
 	 * @return {@link java.awt.Color} analog
 	 */
 	public static Color export(MazeColor.Colors c) {
-		try {
-			return (Color)Color.class.getDeclaredField(c.name()).get(null);
-		} catch (Exception e) {
-			// e.printStackTrace()
-			return Color.black;
-		}
+		return c.awt;
 	}
 	
 	/**
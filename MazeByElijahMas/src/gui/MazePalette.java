@@ -0,0 +1,89 @@
+package gui;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * MazePalette interns colors: each distinct color value gets a small index
+ * and a single shared {@link MazeColor}, which in turn creates its
+ * {@link java.awt.Color} once. Walls keep the index of their color instead of
+ * a color object of their own, so the few colors that walls of a maze have
+ * are shared by all walls and drawing them creates no objects.
+ *
+ * Interning is synchronized as mazes are built in a thread of their own,
+ * looking up a color by its index is not.
+ *
+ * @author Elijah Mas
+ *
+ */
+public final class MazePalette {
+	/**
+	 * capacity to start with, enough for the colors of walls, doubles when more are needed
+	 */
+	private static final int INITIAL_CAPACITY = 128;
+
+	/**
+	 * the colors by index, entries at positions size and above are unused;
+	 * volatile such that a reader sees a color as soon as it sees its index
+	 */
+	private static volatile MazeColor[] colors = new MazeColor[INITIAL_CAPACITY];
+	/**
+	 * number of interned colors
+	 */
+	private static int size;
+	/**
+	 * the index for each interned color value
+	 */
+	private static final Map<Integer, Integer> indices = new HashMap<Integer, Integer>();
+
+	private MazePalette() {
+		// only static methods
+	}
+
+	/**
+	 * Gives the index of the given color value, adds the color to the palette
+	 * if it is not there yet.
+	 * @param value color as given by {@link MazeColor#toInt()}
+	 * @return index of the color, 0 &le; index &lt; {@link #size()}
+	 */
+	public static synchronized int intern(int value) {
+		Integer index = indices.get(value);
+		if (null != index)
+			return index;
+		MazeColor[] array = colors;
+		if (size == array.length)
+			array = Arrays.copyOf(array, 2*size);
+		array[size] = new MazeColor(value);
+		indices.put(value, size);
+		// publish the new entry before its index can be handed out
+		colors = array;
+		return size++;
+	}
+
+	/**
+	 * Gives the index of the given color, adds the color to the palette
+	 * if it is not there yet.
+	 * @param color the color
+	 * @return index of the color, 0 &le; index &lt; {@link #size()}
+	 */
+	public static int intern(MazeColor color) {
+		return intern(color.toInt());
+	}
+
+	/**
+	 * Gives the shared color for an index.
+	 * @param index as given by {@link #intern(int)}
+	 * @return the color
+	 */
+	public static MazeColor get(int index) {
+		return colors[index];
+	}
+
+	/**
+	 * @return number of colors in the palette
+	 */
+	public static synchronized int size() {
+		return size;
+	}
+}
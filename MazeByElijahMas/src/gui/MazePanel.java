@@ -27,16 +27,44 @@ public class MazePanel extends JPanel  {
 	private Graphics2D graphics; // obtained from bufferImage, 
 	// graphics is stored to allow clients to draw on the same graphics object repeatedly
 	// has benefits if color settings should be remembered for subsequent drawing operations
+	private final int viewWidth;  // width of the buffer image
+	private final int viewHeight; // height of the buffer image
 	
 	/**
 	 * Constructor. Object is not focusable.
+	 * The buffer image has the size of the view in {@link Constants}.
 	 */
 	public MazePanel() {
+		this(Constants.VIEW_WIDTH, Constants.VIEW_HEIGHT);
+	}
+	
+	/**
+	 * Constructor for a buffer image of the given size. Object is not focusable.
+	 * @param viewWidth width of the buffer image
+	 * @param viewHeight height of the buffer image
+	 */
+	public MazePanel(int viewWidth, int viewHeight) {
 		setFocusable(false);
+		this.viewWidth = viewWidth;
+		this.viewHeight = viewHeight;
 		bufferImage = null; // bufferImage initialized separately and later
 		graphics = null;	// same for graphics
 	}
 	
+	/**
+	 * @return width of the buffer image
+	 */
+	public int getViewWidth() {
+		return viewWidth;
+	}
+	
+	/**
+	 * @return height of the buffer image
+	 */
+	public int getViewHeight() {
+		return viewHeight;
+	}
+	
 	@Override
 	public void update(Graphics g) {
 		paint(g);
@@ -82,7 +110,7 @@ public class MazePanel extends JPanel  {
 		// if necessary instantiate and store a graphics object for later use
 		if (null == graphics) { 
 			if (null == bufferImage) {
-				bufferImage = createImage(Constants.VIEW_WIDTH, Constants.VIEW_HEIGHT);
+				bufferImage = createBufferImage();
 				if (null == bufferImage)
 				{
 					System.out.println("Error: creation of buffered image failed, presumedly container not displayable");
@@ -107,6 +135,15 @@ public class MazePanel extends JPanel  {
 		return graphics;
 	}
 	
+	/**
+	 * Creates the image that all drawing goes to.
+	 * Subclasses can supply an image of their own to draw on it directly.
+	 * @return image of the size of the view, null if the container is not displayable
+	 */
+	protected Image createBufferImage() {
+		return createImage(viewWidth, viewHeight);
+	}
+	
 	/**
 	 * Fill a rectangle; wrapper around {@link Graphics2D#fillRect(int, int, int, int)}
 	 * 
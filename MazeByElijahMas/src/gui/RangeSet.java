@@ -1,32 +1,49 @@
 package gui;
 
-import java.util.Vector;
+import java.util.Arrays;
 
 /**
- * Class stores a set of ranges, i.e., intervals. 
- * Its single current user is the FirstPersonDrawer class. 
- * 
- * Note: remove and intersect methods operate on a set of elements, 
+ * Class stores a set of ranges, i.e., intervals.
+ * Its single current user is the FirstPersonDrawer class.
+ *
+ * Note: remove and intersect methods operate on a set of elements,
  * however there is no method to add more than a single element to the set
- * as the set method removes all previous elements from the set. 
+ * as the set method removes all previous elements from the set.
  * This only way to increase the cardinality is to split an existing interval
  * into two by way of the remove method.
- * 
+ *
  * This implies that ranges are disjoint and sorted in increasing order.
  *
+ * The bounds of the intervals are kept in two sorted int arrays,
+ * such that a search for an interval is a binary search and
+ * removing or splitting intervals moves array entries instead of objects.
+ * Queries give their result through an array of the caller or as a boolean,
+ * so once the arrays have grown to the number of intervals a frame needs,
+ * drawing a frame allocates nothing here.
+ * Unlike the original version with a synchronized Vector of intervals, the set is not synchronized,
+ * each FirstPersonView has a set of its own.
+ *
  * This code is refactored code from Maze.java by Paul Falstad, www.falstad.com, Copyright (C) 1998, all rights reserved
  * Paul Falstad granted permission to modify and use code for teaching purposes.
  * Refactored by Peter Kemper
  */
 public class RangeSet {
-	
-	private Vector<Interval> ranges;
-	
+	/**
+	 * capacity for intervals to start with, the arrays double when a split needs more
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	private int[] lowerBounds; // lower bounds of the intervals in increasing order
+	private int[] upperBounds; // upper bounds of the intervals in increasing order
+	private int size; // number of intervals, entries at positions size and above are unused
+
 	/**
 	 * Constructor
 	 */
 	public RangeSet() {
-		ranges = new Vector<Interval>();
+		lowerBounds = new int[INITIAL_CAPACITY];
+		upperBounds = new int[INITIAL_CAPACITY];
+		size = 0;
 	}
 
 	/**
@@ -34,7 +51,7 @@ public class RangeSet {
 	 * @return true if the set is empty, false otherwise
 	 */
 	public boolean isEmpty() {
-		return ranges.isEmpty();
+		return 0 == size;
 	}
 
 	/**
@@ -43,8 +60,9 @@ public class RangeSet {
 	 * @param upperBound maximum value for new element
 	 */
 	public void set(int lowerBound, int upperBound) {
-		ranges.removeAllElements();
-		ranges.addElement(new Interval(lowerBound, upperBound));
+		lowerBounds[0] = lowerBound;
+		upperBounds[0] = upperBound;
+		size = 1;
 	}
 
 	/**
@@ -62,115 +80,114 @@ public class RangeSet {
 			upperBound = lowerBound;
 			lowerBound = tmp;
 		}
-		// check all elements of the set for an overlap with interval 
-		// [lowerBound, upperBound]
-		// assume that set is sorted in increasing order
-		for (int i = 0; i != ranges.size(); i++) {
-			Interval current = (Interval) ranges.elementAt(i);
-			// case 1: (current.lb <= current.ub) < (lowerBound <= upperBound)
-			// current is below, so check next element as values increase
-			if (current.ub < lowerBound)
-				continue; 
-			// case 2: (lowerBound <= upperBound) < (current.lb <= current.ub)
-			// current is above, stop, no reason to check more as values only increase	
-			if (current.lb > upperBound)
-				return;
-			// cases 3, 4, 5, 6: some overlap
-			if (lowerBound <= current.lb) { 
-				// case 3: (lowerBound <= (current.lb <= current.ub) <= upperBound)
-				// current is inside interval
-				// remove current element as it is completely covered
-				// need to continue as upperBound can overlap with next element in set
-				if (current.ub <= upperBound) { 
-					ranges.removeElementAt(i--); // adjust index i for iterating reduced set
-					continue;
-				}
-				// else: case 4: (lowerBound <= current.lb) <= (upperBound < current.ub)
-				// current overlaps with interval, truncate current, 
-				// there is no need to proceed further as upperBound does not exceed current
-				// truncate intersection,  left over interval is [upperBound+1,current.ub]
-				current.lb = upperBound+1;  
-				return;
-			}
-			// control flow only gets here if previous checks fail, 
-			// so current.lb < lowerBound must hold at this moment
-			// case 5: current.lb <= lowerBound <= current.ub <= upperBound
-			// truncate intersection,  left over interval is [current.lb,lowerBound-1]
-			// need to check next element in set as upperBound may reach into it
-			if (lowerBound <= current.ub && upperBound >= current.ub) { 
-				current.ub = lowerBound-1; 
-				continue;
+		// intervals first to end-1 overlap with [lowerBound, upperBound]
+		final int first = findFirstEndingAtOrAbove(lowerBound);
+		int end = first;
+		while (end < size && lowerBounds[end] <= upperBound)
+			end++;
+		if (first == end)
+			return; // no overlap
+		if (end - first == 1 && lowerBounds[first] < lowerBound && upperBounds[first] > upperBound) {
+			// [lowerBound, upperBound] lies inside a single interval, split it into
+			// [lb,lowerBound-1] and [upperBound+1,ub], which keeps the order
+			if (size == lowerBounds.length) {
+				lowerBounds = Arrays.copyOf(lowerBounds, 2*size);
+				upperBounds = Arrays.copyOf(upperBounds, 2*size);
 			}
-			// case 6: (current.lb <= upperBound) <= (lowerBound <= current.ub)
-			// if all conditions fail, then [lowerBound,upperBound] lies inside 
-			// the current interval
-			// split current interval into two with left over ranges: 
-			// [current.lb,lowerBound-1] and [upperBound+1,current.ub]
-			Interval nrse = new Interval(current.lb, lowerBound-1);
-			ranges.insertElementAt(nrse, i);
-			// Note for correctness: we assume that intervals are ordered,
-			// this is the only code that adds an element to the range set
-			// lower interval goes to position i in vector, 
-			// moves current interval which becomes the higher one 
-			// to position i+1 in vector, which preserves the ordering
-			// for current one, just update the lb to make it the higher one
-			// as method returns, no need to update index i for loop progress
-			current.lb = upperBound+1; 
+			System.arraycopy(lowerBounds, end, lowerBounds, end + 1, size - end);
+			System.arraycopy(upperBounds, end, upperBounds, end + 1, size - end);
+			lowerBounds[end] = upperBound + 1;
+			upperBounds[end] = upperBounds[first];
+			upperBounds[first] = lowerBound - 1;
+			size++;
 			return;
 		}
+		// the first interval may keep a part below, the last one a part above,
+		// intervals in between are covered and removed
+		int keepBelow = first;
+		if (lowerBounds[first] < lowerBound) {
+			upperBounds[first] = lowerBound - 1;
+			keepBelow++;
+		}
+		int keepAbove = end;
+		if (upperBounds[end - 1] > upperBound) {
+			lowerBounds[end - 1] = upperBound + 1;
+			keepAbove--;
+		}
+		if (keepBelow < keepAbove) {
+			System.arraycopy(lowerBounds, keepAbove, lowerBounds, keepBelow, size - keepAbove);
+			System.arraycopy(upperBounds, keepAbove, upperBounds, keepBelow, size - keepAbove);
+			size -= keepAbove - keepBelow;
+		}
 	}
 
 	/**
 	 * Computes an intersection of the given interval [lowerBound,upperBound] with the
-	 * intervals in this set. If the given interval intersects with none, the method 
+	 * intervals in this set. If it intersects with at least one interval, the intersection
+	 * with the first interval in this set that does so is computed.
+	 * For intervals, the given bounds are included. So the given bounds in
+	 * the result are both elements of the intersection.
+	 * @param lowerBound gives the low end of the interval of interest
+	 * @param upperBound gives the high end of the interval of interest
+	 * @param result array of length 2 that gets [lb,ub] of the intersection,
+	 * left as is if there is none
+	 * @return true if there is an intersection, false otherwise
+	 */
+	public boolean getIntersection(int lowerBound, int upperBound, int[] result) {
+		final int i = findFirstEndingAtOrAbove(lowerBound);
+		if (i == size || lowerBounds[i] > upperBound)
+			return false;
+		// on the low end: the bigger of the lower end of both intervals
+		// on the high end: the smaller of the higher end of both intervals
+		result[0] = (lowerBounds[i] > lowerBound) ? lowerBounds[i] : lowerBound;
+		result[1] = (upperBounds[i] < upperBound) ? upperBounds[i] : upperBound;
+		return true;
+	}
+
+	/**
+	 * Tells if the given interval [lowerBound,upperBound] intersects with
+	 * an interval in this set.
+	 * @param lowerBound gives the low end of the interval of interest
+	 * @param upperBound gives the high end of the interval of interest
+	 * @return true if there is an intersection, false otherwise
+	 */
+	public boolean intersects(int lowerBound, int upperBound) {
+		final int i = findFirstEndingAtOrAbove(lowerBound);
+		return i < size && lowerBounds[i] <= upperBound;
+	}
+
+	/**
+	 * Computes an intersection of the given interval [lowerBound,upperBound] with the
+	 * intervals in this set. If the given interval intersects with none, the method
 	 * returns null. If it intersects with at least one interval, the intersection
 	 * with the first interval in this set that does so is computed and returned.
 	 * For intervals, the given bounds are included. So the given bounds in
 	 * the result are both elements of the intersection.
+	 * Allocates the result, see {@link #getIntersection(int, int, int[])} for a version that does not.
 	 * @param lowerBound gives the low end of the interval of interest
 	 * @param upperBound gives the high end of the interval of interest
-	 * @return [lb,ub] with lower and upper bound for the intersection, null if there is none 
+	 * @return [lb,ub] with lower and upper bound for the intersection, null if there is none
 	 */
 	public int[] getIntersection(int lowerBound, int upperBound) {
-		// consider interval [lowerBound,upperBound] on x-axis
-		// assume that set is sorted in increasing order
-		// we look for an interval in rset that overlaps with [lowerBound,upperBound]
-		for (int i = 0; i != ranges.size(); i++) {
-			Interval current = (Interval) ranges.elementAt(i);
-			// case 1: (current.lb <= current.ub) < (lowerBound <= upperBound)
-			// current is below, so check next element as values increase			
-			if (current.ub < lowerBound) 
-				continue; 
-			// case 2: (lowerBound <= upperBound) < (current.lb <= current.ub)
-			// current is above, stop, no reason to check more as values only increase	
-			if (current.lb > upperBound) 
-				return null;
-			// at this point: lowerBound <= current.ub and current.lb <= upperBound
-			// so we have some overlap, can be at most [lb,]
-			int[] result = new int[2];
-			// on the low end: the bigger of the lower end of both intervals
-			// on the high end: the smaller of the higher end of both intervals
-			result[0] = (current.lb > lowerBound) ? current.lb : lowerBound;
-			result[1] = (current.ub < upperBound) ? current.ub : upperBound;
-			return result;
-		}
-		return null;
+		int[] result = new int[2];
+		return getIntersection(lowerBound, upperBound, result) ? result : null;
 	}
+
 	/**
-	 * Internal class to hold a pair of two elements to represent an
-	 * interval of values on the x-axis.
+	 * Binary search for the first interval that is not below the given value.
+	 * @param value the value
+	 * @return position of the first interval with an upper bound of at least value, size if there is none
 	 */
-	class Interval {
-		public int lb, ub;
-
-		/**
-		 * Constructor
-		 * @param lowerBound
-		 * @param upperBound
-		 */
-		Interval(int lowerBound, int upperBound) {
-			lb = lowerBound;
-			ub = upperBound;
+	private int findFirstEndingAtOrAbove(int value) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (upperBounds[mid] < value)
+				low = mid + 1;
+			else
+				high = mid;
 		}
+		return low;
 	}
 }
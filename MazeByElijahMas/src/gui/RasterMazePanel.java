@@ -0,0 +1,180 @@
+package gui;
+
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * A MazePanel that draws rectangles and the polygons of walls
+ * by writing pixels straight into the raster of its buffer image,
+ * which is a {@link BufferedImage} of type {@link BufferedImage#TYPE_INT_RGB}.
+ *
+ * The {@link FirstPersonView} draws the background with two rectangles and
+ * every visible piece of a wall as a polygon of 4 points with two vertical edges.
+ * Such a polygon is filled row by row, each row is a single span of pixels
+ * between the two other edges, which skips the per polygon overhead of the Java2D pipeline.
+ * A pixel is filled if its center lies inside, as Java2D does without antialiasing
+ * and with {@link java.awt.RenderingHints#VALUE_STROKE_PURE};
+ * edges are not antialiased and colors are opaque.
+ * All other drawing, e.g. the lines and ovals of the map, and polygons of other shapes
+ * go through the graphics object of the image as in the MazePanel.
+ *
+ * Unlike the MazePanel, the buffer image does not need a displayable container,
+ * so this panel also draws without a display.
+ *
+ * @author Elijah Mas
+ *
+ */
+public class RasterMazePanel extends MazePanel {
+	private static final long serialVersionUID = 1L;
+
+	private int[] pixels; // raster of the buffer image, row by row
+	private int rgb;      // current color as stored in the raster
+
+	/**
+	 * Constructor for a buffer image of the size of the view in {@link Constants}.
+	 */
+	public RasterMazePanel() {
+		super();
+	}
+
+	/**
+	 * Constructor for a buffer image of the given size.
+	 * @param viewWidth width of the buffer image
+	 * @param viewHeight height of the buffer image
+	 */
+	public RasterMazePanel(int viewWidth, int viewHeight) {
+		super(viewWidth, viewHeight);
+	}
+
+	@Override
+	protected Image createBufferImage() {
+		BufferedImage image = new BufferedImage(getViewWidth(), getViewHeight(), BufferedImage.TYPE_INT_RGB);
+		pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+		return image;
+	}
+
+	/**
+	 * Fill a rectangle by writing its rows into the raster,
+	 * the part outside of the image is left out.
+	 *
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @param width width of rectangle
+	 * @param height height of rectangle
+	 */
+	@Override
+	public void fillRect(int x, int y, int width, int height) {
+		final int viewWidth = getViewWidth();
+		final int left = Math.max(x, 0);
+		final int right = Math.min(x + width, viewWidth);
+		final int top = Math.max(y, 0);
+		final int bottom = Math.min(y + height, getViewHeight());
+		if (left >= right)
+			return;
+		for (int row = top; row < bottom; row++)
+			Arrays.fill(pixels, row*viewWidth + left, row*viewWidth + right, rgb);
+	}
+
+	/**
+	 * Fill a polygon with the current color.
+	 * A polygon of 4 points where the first two and the last two points
+	 * have the same x coordinate is written into the raster directly,
+	 * any other polygon is drawn by the graphics object.
+	 *
+	 * @param xpoints array of x values
+	 * @param ypoints array of y values
+	 * @param npoints number of points to take from array
+	 */
+	@Override
+	public void fillPolygon(int[] xpoints, int[] ypoints, int npoints) {
+		if (4 != npoints || xpoints[0] != xpoints[1] || xpoints[2] != xpoints[3]) {
+			super.fillPolygon(xpoints, ypoints, npoints);
+			return;
+		}
+		// the edges from point 0 to 3 and from point 1 to 2 bound the area
+		fillSpans(xpoints[0], ypoints[0], ypoints[1], xpoints[2], ypoints[3], ypoints[2]);
+	}
+
+	/**
+	 * Fills the area between two vertical edges at x coordinates x1 and x2
+	 * and the edges from (x1,y1a) to (x2,y2a) and from (x1,y1b) to (x2,y2b).
+	 * A pixel is inside if its center lies between the two other edges,
+	 * a center on the upper edge counts as inside, one on the lower edge does not.
+	 * As the edges are straight lines, the pixels of a row that are inside form a single span,
+	 * or two if the edges cross, which is filled with a single {@link Arrays#fill}.
+	 * The arithmetic is exact: with w the width, the y coordinate of an edge at the center
+	 * of column x is f(x)/(2w) for f(x) = 2w*y1 + (y2-y1)*(2(x-x1)+1),
+	 * and the center of row y is c/(2w) for c = (2y+1)*w.
+	 */
+	private void fillSpans(int x1, int y1a, int y1b, int x2, int y2a, int y2b) {
+		if (x2 < x1) {
+			fillSpans(x2, y2a, y2b, x1, y1a, y1b);
+			return;
+		}
+		if (x1 == x2)
+			return; // no pixel center inside
+		final int viewWidth = getViewWidth();
+		final int start = Math.max(x1, 0);
+		final int end = Math.min(x2, viewWidth);
+		if (start >= end)
+			return;
+		final long width = x2 - x1;
+		final int top = Math.max(Math.min(Math.min(y1a, y1b), Math.min(y2a, y2b)) - 1, 0);
+		final int bottom = Math.min(Math.max(Math.max(y1a, y1b), Math.max(y2a, y2b)) + 1, getViewHeight());
+		for (int y = top; y < bottom; y++) {
+			final long c = (2L*y + 1)*width;
+			// columns [lowA,highA) have f(x) <= c for edge a, the others f(x) > c, same for edge b
+			final int pivotA = getPivot(x1, y1a, y2a - y1a, width, c, start, end);
+			final int pivotB = getPivot(x1, y1b, y2b - y1b, width, c, start, end);
+			final int lowA = (y2a > y1a) ? start : pivotA;
+			final int highA = (y2a > y1a) ? pivotA : end;
+			final int lowB = (y2b > y1b) ? start : pivotB;
+			final int highB = (y2b > y1b) ? pivotB : end;
+			// inside where a <= c < b, or where b <= c < a if the edges cross
+			fillSpan(y*viewWidth, Math.max(lowA, (lowB == start) ? highB : start),
+					Math.min(highA, (lowB == start) ? end : lowB));
+			fillSpan(y*viewWidth, Math.max(lowB, (lowA == start) ? highA : start),
+					Math.min(highB, (lowA == start) ? end : lowA));
+		}
+	}
+
+	/**
+	 * For an edge from (x1,y1) with a height of dy over the given width,
+	 * computes the column p where f(x) <= c changes: for dy &gt; 0
+	 * it holds for columns below p, otherwise for columns from p on.
+	 * @return the column p in [start, end]
+	 */
+	private static int getPivot(int x1, int y1, int dy, long width, long c, int start, int end) {
+		final long rest = c - 2*width*y1; // f(x) <= c if dy*(2(x-x1)+1) <= rest
+		final long pivot;
+		if (0 == dy)
+			pivot = (0 <= rest) ? start : end;
+		else if (dy > 0)
+			pivot = x1 + Math.floorDiv(Math.floorDiv(rest, dy) - 1, 2) + 1;
+		else
+			pivot = x1 - Math.floorDiv(1 + Math.floorDiv(-rest, dy), 2);
+		return (int)Math.min(Math.max(pivot, start), end);
+	}
+
+	/**
+	 * Fills the pixels from x = low to high-1 of the row that starts at the given position.
+	 */
+	private void fillSpan(int row, int low, int high) {
+		if (low < high)
+			Arrays.fill(pixels, row + low, row + high, rgb);
+	}
+
+	@Override
+	public void setColor(MazeColor c) {
+		super.setColor(c);
+		rgb = c.toInt() & 0xFFFFFF;
+	}
+
+	@Override
+	public void setColor(MazeColor.Colors c) {
+		super.setColor(c);
+		rgb = MazeColor.export(c).getRGB() & 0xFFFFFF;
+	}
+}
@@ -0,0 +1,344 @@
+package gui;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import generation.CardinalDirection;
+import generation.Floorplan;
+import generation.Maze;
+import generation.Wall;
+import generation.Wallboard;
+import gui.MazeColor.Colors;
+
+/**
+ * RaycastView draws the same first person view as the {@link FirstPersonView}
+ * but needs no BSP tree: for each column of the view, it casts a ray from the current position
+ * through the grid of cells of the {@link Floorplan} till the ray hits a wallboard.
+ * The rays are cast on the common ForkJoinPool, each thread takes a band of columns.
+ * The view was only timed on a single core, where the bands add overhead,
+ * so how the frame rate scales with more cores has not been measured.
+ *
+ * The view has the same projection as the FirstPersonView. A wallboard is visible in a run
+ * of adjacent columns and is drawn as one polygon with two vertical edges,
+ * its height at both edges follows from the distance to the wallboard on the rays through the edges.
+ * Drawing and updating the seen walls for the map happen on the calling thread.
+ *
+ * A wallboard gets the color of the wall it belongs to as the {@link generation.BSPBuilder}
+ * determines it: from the distance to the exit of the first cell of the wall
+ * and the random color change that the maze keeps, see {@link Maze#getColchange()}.
+ *
+ * @author Elijah Mas
+ *
+ */
+public class RaycastView implements FirstPersonDrawer {
+	/**
+	 * nearest distance of a wallboard that is drawn, as for the FirstPersonView
+	 */
+	private static final double NEAR = 4;
+	/**
+	 * height of the eye in percent of the height of a wall, as for the FirstPersonView
+	 */
+	private static final int VIEW_Z = 50;
+
+	// constants, i.e. set in constructor call
+	final private int viewWidth;
+	final private int viewHeight;
+	final private int mapUnit;
+	final private int stepSize;
+	final private int scaleZ;     // = view_height/2; which is the horizon
+	final private Maze maze;
+	final private Floorplan floorplan;
+	final private int colchange;  // used to determine the color of walls, as for the BSPBuilder
+	final private Floorplan seenWalls;
+	final private MazePanel panel;
+
+	/**
+	 * Current position scaled by map_unit and its viewing direction, set in the draw method.
+	 */
+	private int viewX;
+	private int viewY;
+	private double directionX;
+	private double directionY;
+
+	/**
+	 * The wallboard that each column of the view shows: the cell on the side of the viewer
+	 * and the direction of the wallboard from that cell as the ordinal of its CardinalDirection,
+	 * or -1 if the column shows no wallboard.
+	 */
+	private final int[] cellX;
+	private final int[] cellY;
+	private final int[] side;
+
+	/**
+	 * Bands of columns that threads cast rays for, and the task that casts all of them.
+	 */
+	private final Band[] bands;
+	private final RecursiveAction castAll = new RecursiveAction() {
+		private static final long serialVersionUID = 1L;
+		@Override
+		protected void compute() {
+			invokeAll(bands);
+		}
+	};
+
+	// reused for all frames
+	private final int[] polygonX = new int[4];
+	private final int[] polygonY = new int[4];
+	private final Wallboard wallboard = new Wallboard(0, 0, CardinalDirection.East);
+	private static final CardinalDirection[] DIRECTIONS = CardinalDirection.values();
+
+	/**
+	 * Constructor for a view that casts rays with as many threads as the common pool has.
+	 * @param width of display
+	 * @param height of display
+	 * @param mapUnit current scaling factor
+	 * @param stepSize
+	 * @param seenWalls to store which walls were put on display
+	 * @param maze the maze whose floorplan is drawn
+	 * @param panel for drawing
+	 */
+	public RaycastView(int width, int height, int mapUnit, int stepSize, Floorplan seenWalls, Maze maze, MazePanel panel) {
+		this(width, height, mapUnit, stepSize, seenWalls, maze, panel, ForkJoinPool.getCommonPoolParallelism());
+	}
+
+	/**
+	 * Constructor
+	 * @param width of display
+	 * @param height of display
+	 * @param mapUnit current scaling factor
+	 * @param stepSize
+	 * @param seenWalls to store which walls were put on display
+	 * @param maze the maze whose floorplan is drawn
+	 * @param panel for drawing
+	 * @param threads number of bands of columns that are cast in parallel, 1 to cast all on the calling thread
+	 */
+	public RaycastView(int width, int height, int mapUnit, int stepSize, Floorplan seenWalls, Maze maze, MazePanel panel, int threads) {
+		viewWidth = width;
+		viewHeight = height;
+		this.mapUnit = mapUnit;
+		this.stepSize = stepSize;
+		this.seenWalls = seenWalls;
+		this.maze = maze;
+		this.panel = panel;
+		floorplan = maze.getFloorplan();
+		colchange = maze.getColchange();
+		scaleZ = viewHeight/2;
+		cellX = new int[width];
+		cellY = new int[width];
+		side = new int[width];
+		final int count = Math.max(1, Math.min(threads, width));
+		bands = new Band[count];
+		for (int i = 0; i < count; i++)
+			bands[i] = new Band((int)((long)width*i/count), (int)((long)width*(i + 1)/count));
+	}
+
+	/**
+	 * Draws the first person view on the screen during the game
+	 * @param x coordinate of current position, only used to set viewX
+	 * @param y coordinate of current position, only used to set viewY
+	 * @param walkStep, only used to set viewX and viewY
+	 * @param ang gives the current viewing angle
+	 */
+	@Override
+	public void draw(int x, int y, int walkStep, int ang) {
+		if (panel.isInNoGraphicsMode()) {
+			System.out.println("RaycastView.draw: can't get graphics object to draw on, skipping redraw operation") ;
+			return;
+		}
+		// same position and direction as in the FirstPersonView
+		final int angle = Math.floorMod(ang, 360);
+		final int viewDX = FirstPersonView.COS[angle];
+		final int viewDY = FirstPersonView.SIN[angle];
+		final int factor = stepSize*walkStep-Constants.VIEW_OFFSET;
+		// the direction is scaled by 2^16
+		viewX = (x*mapUnit+mapUnit/2) + ((viewDX*factor) >> 16);
+		viewY = (y*mapUnit+mapUnit/2) + ((viewDY*factor) >> 16);
+		directionX = viewDX / 65536.0;
+		directionY = viewDY / 65536.0;
+
+		// find the wallboard for each column, the pool makes the results visible to this thread
+		if (1 == bands.length)
+			castRays(0, viewWidth);
+		else {
+			for (Band band : bands)
+				band.reinitialize();
+			castAll.reinitialize();
+			ForkJoinPool.commonPool().invoke(castAll);
+		}
+
+		// draw background figure: black on top half, grey on bottom half
+		panel.setColor(Colors.black);
+		panel.fillRect(0, 0, viewWidth, viewHeight/2);
+		panel.setColor(Colors.darkGray);
+		panel.fillRect(0, viewHeight/2, viewWidth, viewHeight/2);
+		// draw each run of columns that show the same wallboard
+		int start = 0;
+		while (start < viewWidth) {
+			int end = start + 1;
+			if (side[start] >= 0) {
+				while (end < viewWidth && side[end] == side[start]
+						&& cellX[end] == cellX[start] && cellY[end] == cellY[start])
+					end++;
+				drawWallboard(cellX[start], cellY[start], DIRECTIONS[side[start]], start, end);
+			}
+			start = end;
+		}
+	}
+
+	/**
+	 * Casts a ray for each of the given columns and stores the wallboard it hits.
+	 * Steps from cell to cell along the ray as in a digital differential analyzer:
+	 * the next cell is the neighbor across the closer one of the next vertical
+	 * and the next horizontal grid line on the ray.
+	 * @param from first column
+	 * @param to column after the last one
+	 */
+	private void castRays(int from, int to) {
+		final int width = maze.getWidth();
+		final int height = maze.getHeight();
+		// position in units of cells
+		final double px = (double)viewX / mapUnit;
+		final double py = (double)viewY / mapUnit;
+		final int startX = (int)Math.floor(px);
+		final int startY = (int)Math.floor(py);
+		// enough steps to cross the maze from a position next to it
+		final int maxSteps = width + height + Math.abs(startX) + Math.abs(startY) + 4;
+		for (int column = from; column < to; column++) {
+			// ray through the center of the column, with a length of 1 in the viewing direction
+			final double t = (column + 0.5 - viewWidth/2) / scaleZ;
+			final double rx = directionX + t*directionY;
+			final double ry = directionY - t*directionX;
+			final int stepX = (rx > 0) ? 1 : -1;
+			final int stepY = (ry > 0) ? 1 : -1;
+			final CardinalDirection crossX = (rx > 0) ? CardinalDirection.East : CardinalDirection.West;
+			final CardinalDirection crossY = (ry > 0) ? CardinalDirection.South : CardinalDirection.North;
+			// distances on the ray between grid lines and to the next grid lines
+			final double deltaX = (0 == rx) ? Double.POSITIVE_INFINITY : Math.abs(1/rx);
+			final double deltaY = (0 == ry) ? Double.POSITIVE_INFINITY : Math.abs(1/ry);
+			double nextX = (rx > 0) ? (startX + 1 - px)*deltaX : (px - startX)*deltaX;
+			double nextY = (ry > 0) ? (startY + 1 - py)*deltaY : (py - startY)*deltaY;
+			int x = startX;
+			int y = startY;
+			side[column] = -1;
+			for (int step = 0; step < maxSteps; step++) {
+				final boolean inside = 0 <= x && x < width && 0 <= y && y < height;
+				final CardinalDirection cd = (nextX < nextY) ? crossX : crossY;
+				if (inside && floorplan.hasWall(x, y, cd)) {
+					cellX[column] = x;
+					cellY[column] = y;
+					side[column] = cd.ordinal();
+					break;
+				}
+				if (nextX < nextY) {
+					x += stepX;
+					nextX += deltaX;
+				}
+				else {
+					y += stepY;
+					nextY += deltaY;
+				}
+				if (inside && !(0 <= x && x < width && 0 <= y && y < height))
+					break; // left the maze through the exit
+			}
+		}
+	}
+
+	/**
+	 * Draws a wallboard that the columns from start to end-1 show as a polygon
+	 * and marks it as seen.
+	 * @param x coordinate of the cell on the side of the viewer
+	 * @param y coordinate of the cell on the side of the viewer
+	 * @param cd direction of the wallboard from that cell
+	 * @param start first column
+	 * @param end column after the last one
+	 */
+	private void drawWallboard(int x, int y, CardinalDirection cd, int start, int end) {
+		// the wallboard lies on a grid line, at this coordinate scaled by map_unit
+		final boolean vertical = CardinalDirection.East == cd || CardinalDirection.West == cd;
+		final int line = vertical ? (x + Math.max(cd.getDx(), 0))*mapUnit : (y + Math.max(cd.getDy(), 0))*mapUnit;
+		final double distance1 = getDistance(start, vertical, line);
+		final double distance2 = getDistance(end, vertical, line);
+		final int top1 = viewHeight/2 - (int)(VIEW_Z*scaleZ/distance1);
+		final int bottom1 = viewHeight/2 + (int)((100-VIEW_Z)*scaleZ/distance1);
+		final int top2 = viewHeight/2 - (int)(VIEW_Z*scaleZ/distance2);
+		final int bottom2 = viewHeight/2 + (int)((100-VIEW_Z)*scaleZ/distance2);
+		// same points as in the FirstPersonView: vertical edges first to second and third to fourth point
+		polygonX[0] = start;
+		polygonX[1] = start;
+		polygonX[2] = end;
+		polygonX[3] = end;
+		polygonY[0] = top1;
+		polygonY[1] = bottom1+1;
+		polygonY[2] = bottom2+1;
+		polygonY[3] = top2;
+		panel.setColor(MazePalette.get(getColorIndex(x, y, cd)));
+		panel.fillPolygon(polygonX, polygonY, 4);
+		// the seen walls keep wallboards as the north or west wallboard of a cell
+		switch (cd) {
+		case East:
+			wallboard.setLocationDirection(x+1, y, CardinalDirection.West);
+			break;
+		case South:
+			wallboard.setLocationDirection(x, y+1, CardinalDirection.North);
+			break;
+		default:
+			wallboard.setLocationDirection(x, y, cd);
+		}
+		seenWalls.addWallboard(wallboard, false);
+	}
+
+	/**
+	 * Computes the distance in the viewing direction to a grid line
+	 * on the ray through the left edge of a column.
+	 * @param column the column, the right edge of the last column is the view width
+	 * @param vertical true for the line x = line, false for the line y = line
+	 * @param line coordinate of the line scaled by map_unit
+	 * @return the distance scaled by map_unit, at least the distance of the near plane
+	 */
+	private double getDistance(int column, boolean vertical, int line) {
+		final double t = (double)(column - viewWidth/2) / scaleZ;
+		// the ray has length 1 in the viewing direction, so its parameter is the distance
+		final double distance = vertical
+				? (line - viewX) / (directionX + t*directionY)
+				: (line - viewY) / (directionY - t*directionX);
+		return (distance > NEAR) ? distance : NEAR;
+	}
+
+	/**
+	 * Gives the color of the wall a wallboard belongs to:
+	 * walls of the BSPBuilder end where a wallboard meets them at a right angle,
+	 * and get their color from the distance of their first cell.
+	 * @param x coordinate of the cell of the wallboard
+	 * @param y coordinate of the cell of the wallboard
+	 * @param cd direction of the wallboard from that cell
+	 * @return index of the color in the {@link MazePalette}
+	 */
+	private int getColorIndex(int x, int y, CardinalDirection cd) {
+		if (CardinalDirection.East == cd || CardinalDirection.West == cd) {
+			while (y > 0 && floorplan.hasWall(x, y-1, cd) && floorplan.hasNoWall(x, y, CardinalDirection.North))
+				y--;
+			return Wall.selectColorIndex(maze.getDistanceToExit(x, y), colchange, false);
+		}
+		while (x > 0 && floorplan.hasWall(x-1, y, cd) && floorplan.hasNoWall(x, y, CardinalDirection.West))
+			x--;
+		return Wall.selectColorIndex(maze.getDistanceToExit(x, y), colchange, true);
+	}
+
+	/**
+	 * A band of columns that a thread casts rays for.
+	 */
+	private final class Band extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int from;
+		private final int to;
+
+		Band(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+		@Override
+		protected void compute() {
+			castRays(from, to);
+		}
+	}
+}
@@ -354,13 +354,15 @@ public class SimpleScreens {
 	
 	/**
 	 * Helper method for redraw to draw screen during phase of maze generation.
-	 * Screen is hard coded, only attribute {@code percentdone} is dynamic.
+	 * Screen is hard coded, only attributes {@code percentdone} and the phase are dynamic.
 	 * @param gc graphics is the off screen image on which to draw
 	 */
 	private void redrawGenerating(Graphics gc) {
 		String progress = (null != controllerState) ?
 			controllerState.getPercentDone()+"% completed" :
 			"Error: no controller, no progress";
+		if (null != controllerState && null != controllerState.getPhase())
+			progress = controllerState.getPhase() + ": " + progress;
 		
 		drawStateScreen_fromVarargs(gc,Color.yellow,
 				new Object[]{"Building maze", 150, Color.red, largeBannerFont},
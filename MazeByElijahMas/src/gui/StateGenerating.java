@@ -1,11 +1,16 @@
 package gui;
 
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
 import gui.Constants.UserInput;
 import generation.Floorplan;
 import generation.Factory;
 import generation.Maze;
 import generation.MazeFactory;
+import generation.MazePool;
 import generation.Order;
+import generation.Progress;
 
 /**
  * Class handles the user interaction
@@ -24,6 +29,11 @@ import generation.Order;
  * Show the generating screen and the progress during generation,
  * Accept input interrupt maze generation and return to title screen,  
  * Generate a maze with the maze factory.
+ * 
+ * The factory publishes its progress to a {@link Progress} channel,
+ * a timer samples it {@link #SAMPLES_PER_SECOND} times a second on the event dispatch thread
+ * and redraws the screen if the percentage went up, such that no painting
+ * happens on the thread that builds the maze.
  *
  * This code is refactored code from Maze.java by 
  * Paul Falstad, www.falstad.com, Copyright (C) 1998, all rights reserved
@@ -52,7 +62,15 @@ public class StateGenerating extends DefaultState implements Order {
     // The maze configuration produced by the factory
     //private MazeConfiguration mazeConfig; 
 
-    private int percentdone;        // describes progress during generation phase
+    /**
+     * the progress is sampled this many times a second while a maze is generated
+     */
+    static final int SAMPLES_PER_SECOND = 30;
+
+    private int percentdone;        // describes progress during generation phase, as last sampled
+    private String phase;           // describes the phase of generation, as last sampled, can be null
+    private Progress progress;      // channel the factory publishes progress to, fresh for each order
+    private Timer timer;            // samples the progress on the event dispatch thread, null if not running
 
     boolean started;
     
@@ -62,11 +80,14 @@ public class StateGenerating extends DefaultState implements Order {
      */
     public StateGenerating() {
         filename = null;
-        factory = new MazeFactory() ;
+        MazeFactory mazeFactory = new MazeFactory() ;
+        mazeFactory.setBuildBSP(!Controller.raycastView); // the raycast view needs no BSP tree
+        factory = mazeFactory ;
         skillLevel = 0; // default size for maze
         builder = Order.Builder.DFS; // default algorithm
         perfect = false; // default: maze can have rooms
         percentdone = 0;
+        progress = new Progress();
         started = false;
     }
     
@@ -113,19 +134,30 @@ public class StateGenerating extends DefaultState implements Order {
         view = new SimpleScreens(this);
         // reset percentage for progress
         percentdone = 0;
+        phase = null;
+        progress = new Progress();
         // if given a filename, load maze from file
-        // otherwise, show view and order maze from factory
+        // otherwise, take a maze from the pool if there is one
+        // or show view and order maze from factory
         if (filename != null) {
             // load maze from file
             // push results into controller, imitating maze factory delivery
             deliver(loadMazeConfigurationFromFile(filename));
             // reset filename, next round will be generated again
             filename = null;  
+            return;
+        }
+        // if the controller has a pool with a matching maze, deliver it right away
+        MazePool pool = controller.getMazePool();
+        Maze pooled = (null == pool) ? null : pool.take(skillLevel, builder, perfect);
+        if (null != pooled) {
+            deliver(pooled);
         } else {
             // common case: generate maze with some algorithm
             assert null != factory : "Controller.init: factory must be present";
             // draw the initial screen
             draw();
+            startSampling();
             // make maze factory produce a maze 
             // operates with background thread
             // method returns immediately, 
@@ -150,6 +182,7 @@ public class StateGenerating extends DefaultState implements Order {
 
         // user could interrupt generation by pressing esc
         if (key == UserInput.ReturnToTitle) {
+            stopSampling();
             factory.cancel();
             control.switchToTitle();
         }
@@ -163,6 +196,8 @@ public class StateGenerating extends DefaultState implements Order {
      * thread operated in the maze factory to deliver the ordered
      * product, here the generated maze in its container, 
      * the MazeConfiguration object.
+     * The maze is handed over to the controller on the event dispatch thread,
+     * such that the builder thread neither paints nor switches screens.
      */
     @Override
     public void deliver(Maze mazeConfig) {
@@ -172,6 +207,22 @@ public class StateGenerating extends DefaultState implements Order {
             // This reveals how the maze was generated
             mazeConfig.getFloorplan().saveLogFile(Floorplan.deepedebugWallFileName);
         }
+        if (SwingUtilities.isEventDispatchThread())
+            handOver(mazeConfig);
+        else
+            SwingUtilities.invokeLater(() -> handOver(mazeConfig));
+    }
+    /**
+     * Shows the final percentage and switches to the playing state.
+     * Runs on the event dispatch thread.
+     * @param mazeConfig is the delivered maze
+     */
+    private void handOver(Maze mazeConfig) {
+        if (control.currentState != this)
+            return; // the user went back to the title screen before the maze arrived
+        // a last sample such that the screen shows the final 100% before the timer stops
+        sampleProgress();
+        stopSampling();
         control.switchFromGeneratingToPlaying(mazeConfig);
     }
     //////////// set of trivial get methods ////////////////////////
@@ -190,16 +241,57 @@ public class StateGenerating extends DefaultState implements Order {
     public int getPercentDone() {
         return percentdone;
     }
+    /**
+     * Gives the phase of maze generation as last sampled.
+     * @return a description of the phase, null if not known
+     */
+    public String getPhase() {
+        return phase;
+    }
+    @Override
+    public Progress getProgress() {
+        return progress;
+    }
     /**
      * Allows external increase to percentage in generating mode.
+     * The percentage goes to the progress channel, the screen shows it
+     * the next time the channel is sampled.
      * Internal value is only updated if it exceeds the last value and is less or equal 100
      * @param percentage gives the new percentage on a range [0,100]
-     * @return true if percentage was updated, false otherwise
      */
     @Override
     public void updateProgress(int percentage) {
-        if (this.percentdone < percentage && percentage <= 100) {
+        progress.update(percentage);
+    }
+    /**
+     * Starts the timer that samples the progress channel.
+     */
+    private synchronized void startSampling() {
+        stopSampling();
+        timer = new Timer(1000/SAMPLES_PER_SECOND, e -> sampleProgress());
+        timer.start();
+    }
+    /**
+     * Stops the timer that samples the progress channel, if it runs.
+     */
+    private synchronized void stopSampling() {
+        if (null != timer) {
+            timer.stop();
+            timer = null;
+        }
+    }
+    /**
+     * Called on the event dispatch thread by the timer and once more upon delivery,
+     * redraws the screen if the percentage went up.
+     */
+    private synchronized void sampleProgress() {
+        if (null == timer)
+            return; // stopped, an event that was already queued must not draw over the next screen
+        final Progress.Phase current = progress.getPhase();
+        final int percentage = progress.getPercentage();
+        if (this.percentdone < percentage) {
             this.percentdone = percentage;
+            this.phase = (null == current) ? null : current.getDescription();
             draw() ;
         }
     }
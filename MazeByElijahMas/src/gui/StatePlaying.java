@@ -46,7 +46,7 @@ import gui.Robot.Direction;;
  * Refactored by Peter Kemper
  */
 public class StatePlaying extends DefaultState {
-	FirstPersonView firstPersonView;
+	FirstPersonDrawer firstPersonView;
 	Map mapView;
 	MazePanel panel;
 	Controller control;
@@ -162,9 +162,15 @@ public class StatePlaying extends DefaultState {
 	 * for this state.
 	 */
 	protected void startDrawer() {
-		firstPersonView = new FirstPersonView(Constants.VIEW_WIDTH,
-				Constants.VIEW_HEIGHT, Constants.MAP_UNIT,
-				Constants.STEP_SIZE, seenCells, mazeConfig.getRootnode(), panel) ;
+		// a maze without a BSP tree can only be drawn by casting rays
+		if (Controller.raycastView || null == mazeConfig.getRootnode())
+			firstPersonView = new RaycastView(Constants.VIEW_WIDTH,
+					Constants.VIEW_HEIGHT, Constants.MAP_UNIT,
+					Constants.STEP_SIZE, seenCells, mazeConfig, panel) ;
+		else
+			firstPersonView = new FirstPersonView(Constants.VIEW_WIDTH,
+					Constants.VIEW_HEIGHT, Constants.MAP_UNIT,
+					Constants.STEP_SIZE, seenCells, mazeConfig.getRootnode(), panel) ;
 		mapView = new Map(seenCells, 15, mazeConfig, panel) ;
 		// draw the initial screen for this state
 		draw();
@@ -0,0 +1,103 @@
+package generation;
+
+import gui.Constants;
+
+/**
+ * <p>BSPBenchmark compares the exact grading of partition candidates with a
+ * {@link PartitionGrader} in the {@link BSPBuilder} with the original heuristic
+ * that grades a sample of about 50 candidates against a sample of about 50 walls.</p>
+ *
+ * <p>For every skill level, a maze with rooms is generated from a fixed seed and its BSP tree
+ * is built again with both versions, sequentially. The benchmark reports for each version
+ * the maximum depth and the average depth of the leaves, the number of leaves,
+ * the number of walls that partitions split and the average build time in milliseconds.
+ * Fewer splits and a smaller depth make the tree smaller and faster to search while drawing.</p>
+ *
+ * <p>This is not a JUnit test; run it as a Java application.</p>
+ *
+ * @author Elijah Mas
+ *
+ */
+public class BSPBenchmark {
+
+	/**
+	 * number of untimed runs per version to let the JIT compiler settle
+	 */
+	static final int WARMUP = 2;
+
+	/**
+	 * number of timed runs per version
+	 */
+	static final int RUNS = 5;
+
+	public static void main(String[] args) throws InterruptedException {
+		System.out.println("level   version     max depth  avg depth    leaves    splits   time [ms]");
+		for(int level=0; level<Constants.SKILL_X.length; level++) {
+			Maze maze = generate(level);
+			for(boolean exact : new boolean[] {false, true}) {
+				for(int i=0; i<WARMUP; i++) {
+					build(maze, level, exact).generateBSPNodes();
+				}
+				BSPBuilder builder = null;
+				BSPNode root = null;
+				long start = System.nanoTime();
+				for(int i=0; i<RUNS; i++) {
+					builder = build(maze, level, exact);
+					root = builder.generateBSPNodes();
+				}
+				double millis = (System.nanoTime()-start)/(RUNS*1e6);
+				int[] stats = new int[3]; // leaves, sum of leaf depths, max depth
+				collect(root, 0, stats);
+				System.out.printf("%5d   %-9s   %9d  %9.1f  %8d  %8d  %10.1f\n",
+					level, exact ? "exact" : "heuristic", stats[2], (double)stats[1]/stats[0], stats[0],
+					builder.splits.get(), millis);
+			}
+		}
+	}
+
+	/**
+	 * Generate a maze with rooms at the given skill level from a fixed seed.
+	 *
+	 * @param level the skill level
+	 * @return the maze
+	 */
+	static Maze generate(int level) {
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(level);
+		order.setPerfect(false);
+		MazeBuilder builder = new MazeBuilder(new RandomStream(MazeBuilder.MAZE_SEED));
+		builder.buildOrder(order);
+		builder.run();
+		return order.getMaze();
+	}
+
+	/**
+	 * Set up a sequential BSPBuilder for the given maze.
+	 *
+	 * @param maze the maze
+	 * @param level the skill level of the maze
+	 * @param exact if true, grade all candidates exactly, otherwise use the heuristic
+	 * @return the builder, its tree is not built yet
+	 */
+	static BSPBuilder build(Maze maze, int level, boolean exact) {
+		BSPBuilder builder = new BSPBuilder(null, maze.getMazedists(), maze.getFloorplan(),
+				maze.getWidth(), maze.getHeight(), 0, Constants.SKILL_PARTCT[level], new CancellationToken());
+		builder.setParallel(false);
+		builder.setExactGrading(exact);
+		return builder;
+	}
+
+	/**
+	 * Collect the number of leaves, the sum of their depths and the maximum depth.
+	 */
+	static void collect(BSPNode node, int depth, int[] stats) {
+		if(node instanceof BSPLeaf) {
+			stats[0]++;
+			stats[1] += depth;
+			stats[2] = Math.max(stats[2], depth);
+			return;
+		}
+		collect(((BSPBranch)node).getLeftBranch(), depth+1, stats);
+		collect(((BSPBranch)node).getRightBranch(), depth+1, stats);
+	}
+}
@@ -0,0 +1,155 @@
+package generation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import gui.Constants;
+
+/**
+ * Tests that the BSPBuilder gives the same tree whether subtrees are built
+ * in parallel or one after the other or on demand, and that progress only increases
+ * if threads report it in parallel.
+ *
+ * @author Elijah Mas
+ *
+ */
+class BSPBuilderTest {
+
+	/**
+	 * An order that records if progress ever goes down.
+	 */
+	private static class ProgressOrder extends OrderStub {
+		final AtomicInteger last = new AtomicInteger(-1);
+		volatile boolean decreased = false;
+
+		@Override
+		public void updateProgress(int percentage) {
+			if (last.getAndSet(percentage) > percentage)
+				decreased = true;
+		}
+	}
+
+	/**
+	 * Builds a maze at the given level with a fixed seed.
+	 */
+	private static Maze buildMaze(int level) {
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(level);
+		order.setBuilder(Order.Builder.DFS);
+		order.setPerfect(false);
+		MazeBuilder builder = new MazeBuilder(new RandomStream(MazeBuilder.MAZE_SEED));
+		builder.buildOrder(order);
+		builder.run();
+		return order.getMaze();
+	}
+
+	/**
+	 * Builds the BSP tree for the given maze again.
+	 */
+	private static BSPNode buildTree(Maze maze, int level, boolean parallel, Order order) throws InterruptedException {
+		return buildTree(maze, level, parallel, false, order);
+	}
+	private static BSPNode buildTree(Maze maze, int level, boolean parallel, boolean lazy, Order order) throws InterruptedException {
+		BSPBuilder builder = new BSPBuilder(order, maze.getMazedists(), maze.getFloorplan(),
+				maze.getWidth(), maze.getHeight(), 42, Constants.SKILL_PARTCT[level], new CancellationToken());
+		builder.setParallel(parallel);
+		builder.setLazy(lazy);
+		return builder.generateBSPNodes();
+	}
+
+	/**
+	 * Counts the nodes of the tree that are not built yet, without building them.
+	 */
+	private static int countLazyNodes(BSPNode node) {
+		if (node instanceof BSPLazyNode)
+			return 1;
+		if (node instanceof BSPLeaf)
+			return 0;
+		BSPBranch branch = (BSPBranch)node;
+		return countLazyNodes(branch.peekLeftBranch()) + countLazyNodes(branch.peekRightBranch());
+	}
+
+	/**
+	 * Checks that both trees have the same structure, partitions, bounds and walls.
+	 */
+	private static void assertSameTree(BSPNode expected, BSPNode actual) {
+		assertEquals(expected.getClass(), actual.getClass());
+		assertEquals(expected.getLowerBoundX(), actual.getLowerBoundX());
+		assertEquals(expected.getLowerBoundY(), actual.getLowerBoundY());
+		assertEquals(expected.getUpperBoundX(), actual.getUpperBoundX());
+		assertEquals(expected.getUpperBoundY(), actual.getUpperBoundY());
+		if (expected instanceof BSPLeaf) {
+			assertEquals(((BSPLeaf)expected).getSlist(), ((BSPLeaf)actual).getSlist());
+			return;
+		}
+		BSPBranch e = (BSPBranch)expected;
+		BSPBranch a = (BSPBranch)actual;
+		assertEquals(e.getX(), a.getX());
+		assertEquals(e.getY(), a.getY());
+		assertEquals(e.getDx(), a.getDx());
+		assertEquals(e.getDy(), a.getDy());
+		assertSameTree(e.getLeftBranch(), a.getLeftBranch());
+		assertSameTree(e.getRightBranch(), a.getRightBranch());
+	}
+
+	/**
+	 * <b>***Expected result:</b> mazes large enough to have nodes above
+	 * {@link BSPBuilder#PARALLEL_THRESHOLD} get the same tree
+	 * in parallel as sequentially, and progress never decreases.
+	 *
+	 * @param level the difficulty level of the maze
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {2,9,12})
+	final void testParallelTreeMatchesSequential(int level) throws InterruptedException {
+		Maze maze = buildMaze(level);
+		BSPNode sequential = buildTree(maze, level, false, null);
+		ProgressOrder order = new ProgressOrder();
+		BSPNode parallel = buildTree(maze, level, true, order);
+
+		assertSameTree(sequential, parallel);
+		assertFalse(order.decreased);
+	}
+
+	/**
+	 * <b>***Expected result:</b> a lazy tree leaves large subtrees unbuilt
+	 * and gives the same tree as an eager one once all of it is visited,
+	 * after which no node is left unbuilt.
+	 *
+	 * @param level the difficulty level of the maze
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {2,9,12})
+	final void testLazyTreeMatchesEager(int level) throws InterruptedException {
+		Maze maze = buildMaze(level);
+		BSPNode eager = buildTree(maze, level, false, null);
+		BSPNode lazy = buildTree(maze, level, false, true, null);
+		assertFalse(lazy instanceof BSPLazyNode);
+		if (level > 2)
+			assertTrue(countLazyNodes(lazy) > 0);
+
+		assertSameTree(eager, lazy);
+		assertEquals(0, countLazyNodes(lazy));
+	}
+
+	/**
+	 * <b>***Expected result:</b> building the rest of a lazy tree in the background
+	 * leaves no node unbuilt and gives the same tree as an eager one.
+	 */
+	@Test
+	final void testCompleteInBackground() throws InterruptedException {
+		final int level = 9;
+		Maze maze = buildMaze(level);
+		BSPNode lazy = buildTree(maze, level, false, true, null);
+		assertTrue(countLazyNodes(lazy) > 0);
+
+		BSPBuilder.completeInBackground(lazy).join();
+		assertEquals(0, countLazyNodes(lazy));
+		assertSameTree(buildTree(maze, level, true, null), lazy);
+	}
+}
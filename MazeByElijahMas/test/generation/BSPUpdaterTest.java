@@ -0,0 +1,329 @@
+package generation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import gui.Constants;
+
+/**
+ * Tests that the {@link BSPUpdater} keeps the BSP tree of a maze in line with its floorplan:
+ * after wallboards are deleted and added, the tree has the same wallboard sides
+ * as a tree built from scratch, it is still a valid BSP tree, its root stays the same
+ * and its depth stays bounded.
+ *
+ * @author Elijah Mas
+ *
+ */
+class BSPUpdaterTest {
+	/**
+	 * all walls in these tests start and end on a grid with this spacing
+	 */
+	private static final int STEP = 8;
+
+	/**
+	 * Builds a maze with rooms at the given level with a fixed seed.
+	 * @param background true to complete a lazy tree in the background after delivery
+	 */
+	private static Maze buildMaze(int level, boolean lazy, boolean background) {
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(level);
+		order.setBuilder(Order.Builder.DFS);
+		order.setPerfect(false);
+		MazeBuilder builder = new MazeBuilder(new RandomStream(MazeBuilder.MAZE_SEED));
+		builder.setLazyBSP(lazy, background);
+		builder.buildOrder(order);
+		builder.run();
+		return order.getMaze();
+	}
+
+	/**
+	 * Builds a tree from scratch for the current floorplan of the maze.
+	 */
+	private static BSPNode buildTree(Maze maze) throws InterruptedException {
+		return new BSPBuilder(null, maze.getMazedists(), maze.getFloorplan(),
+				maze.getWidth(), maze.getHeight(), 42, 1, new CancellationToken()).generateBSPNodes();
+	}
+
+	/**
+	 * Gives the pieces of length {@link #STEP} that the walls of the tree cover, sorted,
+	 * each encoded by its start position and direction, such that trees that split walls
+	 * at different places give the same pieces.
+	 */
+	private static List<Long> getSides(BSPNode root) {
+		List<Wall> walls = new ArrayList<Wall>();
+		collectWalls(root, walls);
+		List<Long> sides = new ArrayList<Long>();
+		for (Wall w : walls) {
+			final int dx = Integer.signum(w.getExtensionX());
+			final int dy = Integer.signum(w.getExtensionY());
+			final int length = Math.abs(w.getExtensionX() + w.getExtensionY()) / STEP;
+			for (int i = 0; i < length; i++) {
+				final long x = w.getStartPositionX() + i*dx*STEP;
+				final long y = w.getStartPositionY() + i*dy*STEP;
+				sides.add((x << 32) | (y << 4) | ((dx + 1) << 2) | (dy + 1));
+			}
+		}
+		Collections.sort(sides);
+		return sides;
+	}
+
+	private static void collectWalls(BSPNode node, List<Wall> walls) {
+		if (node.isIsleaf()) {
+			walls.addAll(((BSPLeaf)node).getSlist());
+			return;
+		}
+		collectWalls(((BSPBranch)node).getLeftBranch(), walls);
+		collectWalls(((BSPBranch)node).getRightBranch(), walls);
+	}
+
+	private static int getDepth(BSPNode node) {
+		if (node.isIsleaf())
+			return 0;
+		return 1 + Math.max(getDepth(((BSPBranch)node).getLeftBranch()), getDepth(((BSPBranch)node).getRightBranch()));
+	}
+
+	private static int countLazyNodes(BSPNode node) {
+		if (node instanceof BSPLazyNode)
+			return 1;
+		if (node instanceof BSPLeaf)
+			return 0;
+		BSPBranch branch = (BSPBranch)node;
+		return countLazyNodes(branch.peekLeftBranch()) + countLazyNodes(branch.peekRightBranch());
+	}
+
+	/**
+	 * Checks that all walls are within the bounds of their nodes and on the correct side of each partition.
+	 */
+	private static void assertValidTree(BSPNode node) {
+		List<Wall> walls = new ArrayList<Wall>();
+		collectWalls(node, walls);
+		assertFalse(walls.isEmpty());
+		for (Wall w : walls) {
+			assertTrue(node.getLowerBoundX() <= Math.min(w.getStartPositionX(), w.getEndPositionX()));
+			assertTrue(node.getUpperBoundX() >= Math.max(w.getStartPositionX(), w.getEndPositionX()));
+			assertTrue(node.getLowerBoundY() <= Math.min(w.getStartPositionY(), w.getEndPositionY()));
+			assertTrue(node.getUpperBoundY() >= Math.max(w.getStartPositionY(), w.getEndPositionY()));
+		}
+		if (node.isIsleaf())
+			return;
+		BSPBranch b = (BSPBranch)node;
+		assertSide(b, b.getLeftBranch(), -1);
+		assertSide(b, b.getRightBranch(), 1);
+		assertValidTree(b.getLeftBranch());
+		assertValidTree(b.getRightBranch());
+	}
+
+	private static void assertSide(BSPBranch b, BSPNode child, int sign) {
+		List<Wall> walls = new ArrayList<Wall>();
+		collectWalls(child, walls);
+		for (Wall w : walls) {
+			final int dot1 = (w.getStartPositionX() - b.getX()) * b.getDy() - (w.getStartPositionY() - b.getY()) * b.getDx();
+			final int dot2 = (w.getEndPositionX() - b.getX()) * b.getDy() - (w.getEndPositionY() - b.getY()) * b.getDx();
+			assertTrue(dot1 * sign >= 0 && dot2 * sign >= 0, "wall on the wrong side of a partition");
+		}
+	}
+
+	/**
+	 * Gives the internal wallboards of the maze that are up (or down) in random order,
+	 * each as cell and direction East or South.
+	 */
+	private static List<int[]> getWallboards(Maze maze, boolean up, long seed) {
+		List<int[]> result = new ArrayList<int[]>();
+		Floorplan floorplan = maze.getFloorplan();
+		for (int x = 0; x < maze.getWidth(); x++) {
+			for (int y = 0; y < maze.getHeight(); y++) {
+				if (x+1 < maze.getWidth() && up == floorplan.hasWall(x, y, CardinalDirection.East)
+						&& up == floorplan.hasWall(x+1, y, CardinalDirection.West))
+					result.add(new int[] {x, y, CardinalDirection.East.ordinal()});
+				if (y+1 < maze.getHeight() && up == floorplan.hasWall(x, y, CardinalDirection.South)
+						&& up == floorplan.hasWall(x, y+1, CardinalDirection.North))
+					result.add(new int[] {x, y, CardinalDirection.South.ordinal()});
+			}
+		}
+		Collections.shuffle(result, new Random(seed));
+		return result;
+	}
+
+	/**
+	 * <b>***Expected result:</b> after deleting and adding wallboards, the tree covers the same
+	 * wallboard sides as a tree built from scratch for the new floorplan, it is a valid BSP tree
+	 * and the maze keeps its root.
+	 *
+	 * @param level the difficulty level of the maze
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {1,3,5})
+	final void testUpdatesMatchRebuild(int level) throws InterruptedException {
+		Maze maze = buildMaze(level, false, false);
+		BSPNode root = maze.getRootnode();
+		BSPUpdater updater = new BSPUpdater(maze, 42);
+		CardinalDirection[] directions = CardinalDirection.values();
+
+		for (int[] wb : getWallboards(maze, true, level).subList(0, 20))
+			updater.deleteWallboard(wb[0], wb[1], directions[wb[2]]);
+		assertSame(root, maze.getRootnode());
+		assertValidTree(root);
+		assertEquals(getSides(buildTree(maze)), getSides(root));
+
+		for (int[] wb : getWallboards(maze, false, level).subList(0, 20))
+			updater.addWallboard(wb[0], wb[1], directions[wb[2]]);
+		assertSame(root, maze.getRootnode());
+		assertValidTree(root);
+		assertEquals(getSides(buildTree(maze)), getSides(root));
+	}
+
+	/**
+	 * <b>***Expected result:</b> after many changes in one area the depth stays close
+	 * to the depth of a tree built from scratch, and taking them back gives the sides of the original tree.
+	 */
+	@Test
+	final void testDepthStaysBounded() throws InterruptedException {
+		Maze maze = buildMaze(3, false, false);
+		BSPNode root = maze.getRootnode();
+		List<Long> original = getSides(root);
+		BSPUpdater updater = new BSPUpdater(maze, 42);
+		CardinalDirection[] directions = CardinalDirection.values();
+		// all missing wallboards in a block of 8x8 cells go up, which gives walls on new lines
+		List<int[]> block = new ArrayList<int[]>();
+		for (int[] wb : getWallboards(maze, false, 0)) {
+			if (wb[0] < 8 && wb[1] < 8)
+				block.add(wb);
+		}
+		assertTrue(block.size() > 20);
+		for (int[] wb : block)
+			updater.addWallboard(wb[0], wb[1], directions[wb[2]]);
+		assertValidTree(root);
+		assertEquals(getSides(buildTree(maze)), getSides(root));
+		assertTrue(getDepth(root) <= getDepth(buildTree(maze)) + BSPUpdater.MAX_ADDED_DEPTH);
+
+		for (int[] wb : block)
+			updater.deleteWallboard(wb[0], wb[1], directions[wb[2]]);
+		assertValidTree(root);
+		assertEquals(original, getSides(root));
+	}
+
+	/**
+	 * <b>***Expected result:</b> parallel walls that each split the leaf of the wall before
+	 * make a chain of branches, which is rebuilt once it is longer than {@link BSPUpdater#MAX_ADDED_DEPTH},
+	 * and removing the walls gives the sides of the original tree.
+	 */
+	@Test
+	final void testChainIsRebuilt() throws InterruptedException {
+		Maze maze = buildMaze(1, false, false);
+		BSPNode root = maze.getRootnode();
+		List<Long> original = getSides(root);
+		final int depth = getDepth(root);
+		BSPUpdater updater = new BSPUpdater(maze, 42);
+		// short walls within cell (0,0), each on the right side of the one before
+		List<Wall> walls = new ArrayList<Wall>();
+		for (int x = 8; x < Constants.MAP_UNIT; x += 8)
+			walls.add(new Wall(x, 32, 0, 64, 0, 42));
+		for (Wall w : walls)
+			updater.insertWall(new Wall(w.getStartPositionX(), w.getStartPositionY(), 0, 64, 0, 42));
+
+		assertTrue(updater.rebuilds > 0);
+		assertValidTree(root);
+		assertTrue(getDepth(root) <= depth + BSPUpdater.MAX_ADDED_DEPTH);
+		for (Wall w : walls)
+			updater.removeWall(w);
+		assertValidTree(root);
+		assertEquals(original, getSides(root));
+	}
+
+	/**
+	 * <b>***Expected result:</b> a change in a tree that is built on demand
+	 * only builds the subtrees it reaches.
+	 */
+	@Test
+	final void testLazyTreeStaysLazy() throws InterruptedException {
+		Maze maze = buildMaze(9, true, false);
+		BSPNode root = maze.getRootnode();
+		final int lazyNodes = countLazyNodes(root);
+		assertTrue(lazyNodes > 1);
+		BSPUpdater updater = new BSPUpdater(maze, 42);
+		int[] wb = getWallboards(maze, true, 0).get(0);
+		updater.deleteWallboard(wb[0], wb[1], CardinalDirection.values()[wb[2]]);
+
+		assertTrue(countLazyNodes(root) > 0);
+		assertEquals(getSides(buildTree(maze)), getSides(root));
+	}
+
+	/**
+	 * <b>***Expected result:</b> changes while the tree is completed in the background
+	 * are kept, once the background is done the tree has no lazy nodes left
+	 * and covers the same wallboard sides as a tree built from scratch.
+	 */
+	@Test
+	final void testUpdatesWhileCompletingInBackground() throws InterruptedException {
+		Maze maze = buildMaze(9, true, true);
+		BSPNode root = maze.getRootnode();
+		BSPUpdater updater = new BSPUpdater(maze, 42);
+		CardinalDirection[] directions = CardinalDirection.values();
+		for (int[] wb : getWallboards(maze, true, 9).subList(0, 20))
+			updater.deleteWallboard(wb[0], wb[1], directions[wb[2]]);
+		for (int[] wb : getWallboards(maze, false, 9).subList(0, 20))
+			updater.addWallboard(wb[0], wb[1], directions[wb[2]]);
+		// wait for the background, the second task finds all nodes built or builds them
+		BSPBuilder.completeInBackground(root).join();
+		assertTrue(ForkJoinPool.commonPool().awaitQuiescence(1, TimeUnit.MINUTES));
+
+		assertEquals(0, countLazyNodes(root));
+		assertSame(root, maze.getRootnode());
+		assertValidTree(root);
+		assertEquals(getSides(buildTree(maze)), getSides(root));
+	}
+
+	/**
+	 * <b>***Expected result:</b> a branch that the updater sets while another thread
+	 * builds the old branch on demand stays in place, the other thread gets the subtree it built.
+	 */
+	@Test
+	final void testExpandKeepsBranchSetInTheMeantime() throws Exception {
+		final CountDownLatch expanding = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final BSPLeaf subtree = leaf(new Wall(0, 0, STEP, 0, 0, 42));
+		final BSPNode slow = new BSPNode() {
+			@Override
+			public BSPNode expand() {
+				expanding.countDown();
+				try {
+					release.await();
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				return subtree;
+			}
+		};
+		BSPLeaf right = leaf(new Wall(0, STEP, STEP, 0, 0, 42));
+		BSPBranch branch = new BSPBranch(0, STEP/2, STEP, 0, slow, right);
+		FutureTask<BSPNode> read = new FutureTask<BSPNode>(branch::getLeftBranch);
+		new Thread(read).start();
+		expanding.await();
+		BSPLeaf updated = leaf(new Wall(STEP, 0, STEP, 0, 0, 42));
+		branch.setBranches(updated, right);
+		release.countDown();
+
+		assertSame(subtree, read.get());
+		assertSame(updated, branch.peekLeftBranch());
+		assertSame(updated, branch.getLeftBranch());
+	}
+
+	private static BSPLeaf leaf(Wall wall) {
+		ArrayList<Wall> walls = new ArrayList<Wall>();
+		walls.add(wall);
+		return new BSPLeaf(walls);
+	}
+}
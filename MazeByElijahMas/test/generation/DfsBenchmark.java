@@ -0,0 +1,89 @@
+package generation;
+
+import gui.Constants;
+
+/**
+ * <p>DfsBenchmark compares the packed directions in
+ * {@link MazeBuilder#generatePathways()} with the original
+ * grid of CardinalDirection objects kept in {@link MazeBuilderDfsObjects}.</p>
+ *
+ * <p>For every skill level, both versions generate the pathways of a maze with rooms
+ * from the same seed. The benchmark checks that both produce the same floorplan
+ * and reports the average time per generation in milliseconds.</p>
+ *
+ * <p>This is not a JUnit test; run it as a Java application
+ * (preferably with {@code -ea} to enable the internal assertions).</p>
+ *
+ * @author Elijah Mas
+ *
+ */
+public class DfsBenchmark {
+
+	/**
+	 * number of untimed runs per version to let the JIT compiler settle
+	 */
+	static final int WARMUP = 5;
+
+	/**
+	 * number of timed runs per version
+	 */
+	static final int RUNS = 20;
+
+	public static void main(String[] args) throws InterruptedException {
+		System.out.println("level   width x height    objects [ms]  packed [ms]   speedup   same maze");
+		for(int level=0; level<Constants.SKILL_X.length; level++) {
+			double timeObjects = time(level, false);
+			double timePacked = time(level, true);
+			boolean same = generate(level, false, MazeBuilder.MAZE_SEED).equals(generate(level, true, MazeBuilder.MAZE_SEED));
+
+			System.out.printf("%5d   %5d x %-6d   %11.3f  %11.3f   %7.1f   %s\n",
+				level, Constants.SKILL_X[level], Constants.SKILL_Y[level],
+				timeObjects, timePacked, timeObjects/timePacked, same);
+		}
+	}
+
+	/**
+	 * Generate the rooms and pathways of a maze at the given skill level
+	 * without computing distances or the BSP tree.
+	 *
+	 * @param level the skill level
+	 * @param packed if true, use the packed directions, otherwise the grid of CardinalDirection objects
+	 * @param seed seed of the random number stream
+	 * @return floorplan of the maze
+	 * @throws InterruptedException never as the order is not cancelled
+	 */
+	static Floorplan generate(int level, boolean packed, long seed) throws InterruptedException {
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(level);
+		order.setBuilder(Order.Builder.DFS);
+		order.setPerfect(false);
+
+		RandomStream random = new RandomStream(seed);
+		MazeBuilder builder = packed ? new MazeBuilder(random) : new MazeBuilderDfsObjects(random);
+		builder.buildOrder(order);
+		builder.floorplan.initialize();
+		if(Constants.SKILL_ROOMS[level] > 0) builder.generateRooms();
+		builder.generatePathways();
+		return builder.floorplan;
+	}
+
+	/**
+	 * Time the generation of rooms and pathways at the given skill level,
+	 * including the allocation and initialization of the floorplan.
+	 *
+	 * @param level the skill level
+	 * @param packed if true, use the packed directions, otherwise the grid of CardinalDirection objects
+	 * @return average time per generation in milliseconds
+	 * @throws InterruptedException never as the order is not cancelled
+	 */
+	static double time(int level, boolean packed) throws InterruptedException {
+		for(int i=0; i<WARMUP; i++) {
+			generate(level, packed, MazeBuilder.MAZE_SEED);
+		}
+		long start = System.nanoTime();
+		for(int i=0; i<RUNS; i++) {
+			generate(level, packed, MazeBuilder.MAZE_SEED);
+		}
+		return (System.nanoTime()-start)/(RUNS*1e6);
+	}
+}
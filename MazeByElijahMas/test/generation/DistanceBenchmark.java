@@ -0,0 +1,100 @@
+package generation;
+
+import java.util.Arrays;
+
+import gui.Constants;
+
+/**
+ * <p>DistanceBenchmark compares the breadth-first search in
+ * {@link Distance#computeDistances(Floorplan)} with the original
+ * fixpoint iteration kept in {@link DistanceFixpoint}.</p>
+ *
+ * <p>For every skill level, a maze with rooms is generated deterministically,
+ * then both versions compute distances on the same floorplan.
+ * The benchmark checks that distance values, exit position and starting position
+ * are identical and reports the average time per computation in milliseconds.</p>
+ *
+ * <p>This is not a JUnit test; run it as a Java application
+ * (preferably with {@code -ea} to enable the internal assertions).</p>
+ *
+ * @author Elijah Mas
+ *
+ */
+public class DistanceBenchmark {
+
+	/**
+	 * number of untimed runs per version to let the JIT compiler settle
+	 */
+	static final int WARMUP = 5;
+
+	/**
+	 * number of timed runs per version
+	 */
+	static final int RUNS = 20;
+
+	public static void main(String[] args) throws InterruptedException {
+		System.out.println("level   width x height   fixpoint [ms]   bfs [ms]   speedup   identical");
+		for(int level=0; level<Constants.SKILL_X.length; level++) {
+			Floorplan floorplan = generateFloorplan(level);
+			int w=Constants.SKILL_X[level], h=Constants.SKILL_Y[level];
+
+			Distance fixpoint = new Distance(w,h);
+			Distance bfs = new Distance(w,h);
+
+			double timeFixpoint = time(fixpoint, floorplan, false);
+			double timeBFS = time(bfs, floorplan, true);
+
+			boolean identical =
+				Arrays.deepEquals(fixpoint.getAllDistanceValues(), bfs.getAllDistanceValues()) &&
+				Arrays.equals(fixpoint.getExitPosition(), bfs.getExitPosition()) &&
+				Arrays.equals(fixpoint.getStartPosition(), bfs.getStartPosition());
+
+			System.out.printf("%5d   %5d x %-6d   %13.3f   %8.3f   %7.1f   %s\n",
+				level, w, h, timeFixpoint, timeBFS, timeFixpoint/timeBFS, identical);
+		}
+	}
+
+	/**
+	 * Generate the pathways and rooms of a maze at the given skill level
+	 * without computing distances or the BSP tree.
+	 *
+	 * @param level the skill level
+	 * @return floorplan of a maze that is not perfect
+	 * @throws InterruptedException never as the order is not cancelled
+	 */
+	static Floorplan generateFloorplan(int level) throws InterruptedException {
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(level);
+		order.setBuilder(Order.Builder.DFS);
+		order.setPerfect(false);
+
+		MazeBuilder builder = new MazeBuilder(true);
+		builder.buildOrder(order);
+		builder.floorplan.initialize();
+		if(Constants.SKILL_ROOMS[level]>0) builder.generateRooms();
+		builder.generatePathways();
+		return builder.floorplan;
+	}
+
+	/**
+	 * Time the distance computation for the given floorplan.
+	 *
+	 * @param dists distance object to compute values on
+	 * @param floorplan the maze layout
+	 * @param bfs if true, use the breadth-first search, otherwise the fixpoint iteration
+	 * @return average time per computation in milliseconds
+	 */
+	static double time(Distance dists, Floorplan floorplan, boolean bfs) {
+		DistanceFixpoint fixpoint = new DistanceFixpoint(floorplan.getWidth(), floorplan.getHeight());
+		for(int i=0; i<WARMUP; i++) {
+			if(bfs) dists.computeDistances(floorplan);
+			else fixpoint.computeDistances(floorplan, dists);
+		}
+		long start = System.nanoTime();
+		for(int i=0; i<RUNS; i++) {
+			if(bfs) dists.computeDistances(floorplan);
+			else fixpoint.computeDistances(floorplan, dists);
+		}
+		return (System.nanoTime()-start)/(RUNS*1e6);
+	}
+}
@@ -0,0 +1,199 @@
+package generation;
+
+import java.util.Arrays;
+
+/**
+ * The original fixpoint iteration that computed distances before {@link Distance}
+ * switched to a breadth-first search, kept as a baseline for the {@link DistanceBenchmark}.
+ * It gives the same distance values, exit position and starting position.
+ *
+ * @author Elijah Mas
+ *
+ */
+class DistanceFixpoint {
+	private final int width;
+	private final int height;
+	private int[][] dists;
+
+	/**
+	 * Constructor
+	 * @param w is the width of the maze in the horizontal direction
+	 * @param h is the height of the maze in the vertical direction
+	 */
+	DistanceFixpoint(int w, int h) {
+		width = w;
+		height = h;
+	}
+
+	/**
+	 * Compute distances for given cells object of a maze and hands them to the given distance object,
+	 * which then gives the same values and positions as after {@link Distance#computeDistances(Floorplan)}.
+	 * @param cells with information on wallboards for a maze, can not be null, read only
+	 * @param result gets the distance values
+	 * @return exit position somewhere on the  border
+	 */
+	int[] computeDistances(Floorplan cells, Distance result) {
+		dists = new int[width][height];
+		computeDists(cells, width/2, height/2);
+		int[] exitPosition = getPositionWithMaxDistanceOnBorder();
+		computeDists(cells, exitPosition[0], exitPosition[1]);
+		// the exit is the only position with distance 1, the start is found with a full scan on demand
+		result.setAllDistanceValues(dists);
+		return exitPosition;
+	}
+
+	/**
+	 * Finds the most remote point in the maze somewhere on the border.
+	 * Requires that distances have been computed beforehand.
+	 * @return array of length 2 encodes position
+	 * {@code (x,y)=(array[0],array[1])}
+	 */
+	private int[] getPositionWithMaxDistanceOnBorder() {
+		// return result in an array of length 2
+		int[] result = new int[2] ;
+		int remoteDist = 0;
+		for (int x = 0; x < width; x++) {
+			remoteDist = keepMaxDistance(x, 0, remoteDist, result);
+			remoteDist = keepMaxDistance(x, height-1, remoteDist, result);
+		}
+		for (int y = 0; y < height; y++) {
+			remoteDist = keepMaxDistance(0, y, remoteDist, result);
+			remoteDist = keepMaxDistance(width-1, y, remoteDist, result);
+		}
+		return result;
+	}
+	/**
+	 * For a given candidate position (x,y), the method checks if it
+	 * exceeds the given threshold for the distance value. If so
+	 * it updates the result coordinates accordingly and returns
+	 * the new threshold value.
+	 */
+	private int keepMaxDistance(int x, int y, int d, int[] result) {
+		if (dists[x][y] > d) {
+			result[0] = x;
+			result[1] = y;
+			d = dists[x][y];
+		}
+		return d;
+	}
+	/**
+	 * Computes distances to the given position (ax,ay) for all cells in array dists
+	 * with a fixpoint iteration over the whole array.
+	 * @param cells with information on wallboards for a maze, can not be null
+	 * @param ax, position, x coordinate
+	 * @param ay, position, y coordinate
+	 */
+	private void computeDists(Floorplan cells, int ax, int ay) {
+		// initialize the distance array with a value for infinity
+		for (int[] column : dists)
+			Arrays.fill(column, Distance.INFINITY);
+		// set the final distance at the exit position
+		dists[ax][ay] = 1;
+		// distribute values from this position to get started
+		pushDistanceValuesDFS2(cells, ax, ay);
+		int toDoCounter = countInfinity();
+		int progress; // used to recognize fixpoint, no progress, then stop
+		// go over this array as long as we can find something to do
+		do {
+			// check all entries in the distance array
+			for (int x = 0; x != width; x++) {
+				for (int y = 0; y != height; y++)
+				{
+					if (dists[x][y] == Distance.INFINITY) {
+						continue;
+					}
+					// if the distance is not infinite,
+					// let's see if the cell has a neighbor that we can update and
+					// perform a depth first search on.
+					pushDistanceValuesDFS2(cells, x, y);
+				}
+			}
+			progress = toDoCounter - countInfinity();
+			toDoCounter -= progress; // update to current value
+		} while (0 < progress);
+		assert (0 == countInfinity()) :
+			"All positions should have a finite distance to the exit";
+		// the computation is not good enough to have truly minimum values
+		saturateDistances(cells);
+	}
+	/**
+	 * Follows a path as far as possible to push small distance values
+	 * into the maze
+	 */
+	private void pushDistanceValuesDFS2(Floorplan cells, int sx, int sy) {
+		while (true) {
+			CardinalDirection nextn = updateNeighborDistancesAndDirection(cells, sx, sy);
+			if (nextn == null)
+				break; // exit the loop if we cannot find another cell to proceed with
+			// update coordinates for next cell
+			int[] dir = nextn.getDirection();
+			sx += dir[0];
+			sy += dir[1];
+			// follow the nextn node on a depth-first-search path
+		}
+	}
+	/**
+	 * Counts how often infinity values is present in matrix
+	 */
+	private int countInfinity() {
+		int result = 0;
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				if (dists[x][y] == Distance.INFINITY)
+					result++;
+			}
+		}
+		return result;
+	}
+	/**
+	 * Updates distance values for adjacent cells that are reachable
+	 * if value can be reduced to current distance plus 1.
+	 * @return direction for a neighbor that has been updated or null if there is none
+	 */
+	private CardinalDirection updateNeighborDistancesAndDirection(Floorplan cells, int currentX, int currentY) {
+		CardinalDirection result = null; // returns null by default
+		int nextDistance = dists[currentX][currentY] + 1; // distance of a neighbor
+		// check all four directions, update distance as needed
+		for (CardinalDirection cd: CardinalDirection.values()) {
+			// check for reachable neighbors
+			if (cells.hasNoWall(currentX, currentY, cd)) {
+				// check if neighbor is on board
+				int[] dir = cd.getDirection();
+				int nextX = currentX+dir[0];
+				int nextY = currentY+dir[1];
+				// check if cell at (nextX,nextY) is within bounds
+				// and if neigbor's distance needs update
+				if ((0 <= nextX && nextX < width) && (0 <= nextY && nextY < height)
+						&& dists[nextX][nextY] > nextDistance) {
+					// mark that cell as the next one
+					dists[nextX][nextY] = nextDistance;
+					result = cd;
+				}
+			}
+		}
+		return result;
+	}
+	/**
+	 * Fix-point iteration on distance matrix.
+	 */
+	private void saturateDistances(Floorplan cells) {
+		boolean progress;
+		do {
+			progress = false; // reset termination criterion
+			// go through all positions
+			// check if we can update a neighbor to
+			// a shorter distance, if so we made progress
+			for (int x = 0; x < width; x++) {
+				for (int y = 0; y < height; y++) {
+					CardinalDirection nextn = updateNeighborDistancesAndDirection(cells, x, y);
+					if (null != nextn) {
+						progress = true; // something changed
+						// follow neighbor on a depth-first-search path
+						int[] dir = nextn.getDirection();
+						pushDistanceValuesDFS2(cells, x+dir[0], y+dir[1]);
+					}
+				}
+			}
+		} while (progress);
+	}
+}
@@ -0,0 +1,87 @@
+package generation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests distances that are frozen into a compact encoding once a maze is complete:
+ * they keep all values, exit and start position, and they can be computed again.
+ *
+ * @author Elijah Mas
+ *
+ */
+class DistanceTest {
+
+	/**
+	 * Generates pathways and distances of a maze with a deterministic builder.
+	 */
+	private static MazeBuilder generate(int level, boolean perfect) throws InterruptedException {
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(level);
+		order.setBuilder(Order.Builder.DFS);
+		order.setPerfect(perfect);
+		MazeBuilder builder = new MazeBuilder(true);
+		builder.buildOrder(order);
+		builder.floorplan.initialize();
+		builder.generateRooms();
+		builder.generate();
+		return builder;
+	}
+
+	/**
+	 * <b>***Expected result:</b> frozen distances have the same values, exit and start position,
+	 * and they need no more bits per value than the maximum distance.
+	 */
+	@Test
+	final void testFreeze() throws InterruptedException {
+		for (int level = 0; level < 6; level++) {
+			MazeBuilder builder = generate(level, level % 2 == 0);
+			Distance dists = builder.dists;
+			int[][] values = dists.getAllDistanceValues();
+			int[][] copy = new int[values.length][];
+			for (int x = 0; x < values.length; x++)
+				copy[x] = values[x].clone();
+			Distance expected = new Distance(copy);
+
+			assertTrue(dists.freeze());
+			assertTrue(dists.isFrozen());
+			assertArrayEquals(copy, dists.getAllDistanceValues());
+			assertArrayEquals(expected.getExitPosition(), dists.getExitPosition());
+			assertArrayEquals(expected.getStartPosition(), dists.getStartPosition());
+			assertEquals(expected.getMaxDistance(), dists.getMaxDistance());
+			assertEquals(1, dists.getMinDistance());
+			int bits = 32 - Integer.numberOfLeadingZeros(expected.getMaxDistance());
+			assertEquals(bits, NarrowIntGrid.pack(new HeapIntGrid(copy)).getBits());
+
+			// computing the distances again unpacks them
+			dists.computeDistances(builder.floorplan);
+			assertFalse(dists.isFrozen());
+			assertArrayEquals(copy, dists.getAllDistanceValues());
+		}
+	}
+
+	/**
+	 * <b>***Expected result:</b> values that span two longs of the encoding are kept,
+	 * negative values are not packed.
+	 */
+	@Test
+	final void testFreezeValues() {
+		int[][] values = new int[7][13];
+		for (int x = 0; x < 7; x++)
+			for (int y = 0; y < 13; y++)
+				values[x][y] = (x*13 + y)*97 % 1000;
+		Distance dists = new Distance(values);
+		assertTrue(dists.freeze());
+		for (int x = 0; x < 7; x++)
+			for (int y = 0; y < 13; y++)
+				assertEquals((x*13 + y)*97 % 1000, dists.getDistanceValue(x, y));
+
+		values = new int[3][3];
+		values[1][2] = -1;
+		dists = new Distance(values);
+		assertFalse(dists.freeze());
+		assertFalse(dists.isFrozen());
+		assertEquals(-1, dists.getDistanceValue(1, 2));
+	}
+}
@@ -544,4 +544,63 @@ public class FloorplanTest{
 		assertEquals(cell1.getCWConstantForDirection(CardinalDirection.North),Floorplan.CW_TOP);
 	}
 
+	/**
+	 * Test case: Correctness of the freeze method
+	 * <p>
+	 * Method under test: freeze(), isFrozen()
+	 * <p>
+	 * Correct behavior:
+	 * a floorplan with a room, an exit and deleted wallboards is packed
+	 * and keeps all cell values, changing a cell afterwards unpacks it again.
+	 */
+	@Test
+	public final void testFreeze() {
+		Floorplan plan = new Floorplan(12, 9);
+		plan.initialize();
+		plan.markAreaAsRoom(4, 3, 2, 2, 5, 4);
+		plan.deleteWallboard(0, 0, CardinalDirection.East);
+		plan.deleteWallboard(7, 8, CardinalDirection.North);
+		plan.setCellAsVisited(7, 8);
+		plan.setExitPosition(0, 5);
+		int[][] values = new int[12][9];
+		for (int x = 0; x < 12; x++)
+			for (int y = 0; y < 9; y++)
+				values[x][y] = plan.getValueOfCell(x, y);
+		Floorplan copy = new Floorplan(values);
+
+		assertTrue(plan.freeze());
+		assertTrue(plan.isFrozen());
+		assertEquals(copy, plan);
+		for (int x = 0; x < 12; x++)
+			for (int y = 0; y < 9; y++)
+				for (CardinalDirection cd : CardinalDirection.values()) {
+					assertEquals(copy.hasWall(x, y, cd), plan.hasWall(x, y, cd));
+					assertEquals(copy.isPartOfBorder(x, y, cd), plan.isPartOfBorder(x, y, cd));
+				}
+
+		plan.deleteWallboard(9, 1, CardinalDirection.South);
+		copy.deleteWallboard(9, 1, CardinalDirection.South);
+		assertFalse(plan.isFrozen());
+		assertEquals(copy, plan);
+	}
+	/**
+	 * Test case: freeze leaves a floorplan as is if it cannot be packed
+	 * <p>
+	 * Method under test: freeze()
+	 * <p>
+	 * Correct behavior:
+	 * cell values with bits outside of the encoding of wallboards, borders,
+	 * rooms and visits are kept as they are.
+	 */
+	@Test
+	public final void testFreezeUnpackable() {
+		int[][] values = new int[width][height];
+		for (int i = 0; i < width; i++)
+			for (int j = 0; j < height; j++)
+				values[i][j] = (i*height+j) << 10;
+		Floorplan plan = new Floorplan(values);
+		assertFalse(plan.freeze());
+		assertFalse(plan.isFrozen());
+		assertEquals(new Floorplan(values), plan);
+	}
 }
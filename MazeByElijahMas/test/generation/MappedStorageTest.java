@@ -0,0 +1,79 @@
+package generation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests floorplans and distances that are stored in files mapped into memory:
+ * a builder with a storage directory produces the same maze as a builder
+ * that keeps the maze on the heap, and a mapped floorplan keeps its cells
+ * when it is opened again.
+ *
+ * @author Elijah Mas
+ *
+ */
+class MappedStorageTest {
+
+	@TempDir
+	Path directory;
+
+	/**
+	 * Builds a maze with a deterministic builder and the given storage directory.
+	 */
+	private static MazeBuilder build(int level, boolean perfect, Path storageDirectory) {
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(level);
+		order.setBuilder(Order.Builder.DFS);
+		order.setPerfect(perfect);
+		MazeBuilder builder = new MazeBuilder(true);
+		builder.setStorageDirectory(storageDirectory);
+		builder.buildOrder(order);
+		return builder;
+	}
+
+	/**
+	 * <b>***Expected result:</b> floorplan, distances, exit and start position
+	 * of a maze that is mapped to files are the same as for a maze on the heap.
+	 */
+	@Test
+	final void testMappedMazeMatchesHeap() throws InterruptedException {
+		for (int level = 0; level < 5; level++) {
+			MazeBuilder heap = build(level, level % 2 == 0, null);
+			heap.floorplan.initialize();
+			heap.generateRooms();
+			heap.generate();
+			MazeBuilder mapped = build(level, level % 2 == 0, directory);
+			mapped.floorplan.initialize();
+			mapped.generateRooms();
+			mapped.generate();
+
+			assertEquals(heap.floorplan, mapped.floorplan);
+			assertArrayEquals(heap.dists.getAllDistanceValues(), mapped.dists.getAllDistanceValues());
+			assertArrayEquals(heap.dists.getExitPosition(), mapped.dists.getExitPosition());
+			assertArrayEquals(heap.dists.getStartPosition(), mapped.dists.getStartPosition());
+		}
+	}
+
+	/**
+	 * <b>***Expected result:</b> a mapped floorplan that is opened again from its file
+	 * has the same cells.
+	 */
+	@Test
+	final void testReopenMappedFloorplan() throws IOException {
+		Path file = directory.resolve("floorplan.grid");
+		Floorplan floorplan = new Floorplan(20, 30, file);
+		floorplan.initialize();
+		floorplan.deleteWallboard(3, 4, CardinalDirection.East);
+		floorplan.setInRoomToOne(7, 8);
+
+		Floorplan reopened = new Floorplan(20, 30, file);
+		assertEquals(floorplan, reopened);
+		assertTrue(reopened.hasNoWall(4, 4, CardinalDirection.West));
+		assertTrue(reopened.isInRoom(7, 8));
+	}
+}
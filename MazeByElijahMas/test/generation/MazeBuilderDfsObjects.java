@@ -0,0 +1,76 @@
+package generation;
+
+/**
+ * The original version of {@link MazeBuilder#generatePathways()} with a grid of CardinalDirection objects,
+ * kept as a baseline for the {@link DfsBenchmark} and the {@link MazeBuilderDfsTest}.
+ *
+ * Refactored by Peter Kemper
+ */
+class MazeBuilderDfsObjects extends MazeBuilder {
+
+	/**
+	 * Constructor for a builder with a random number stream of its own.
+	 * @param random random number stream for this builder
+	 */
+	MazeBuilderDfsObjects(RandomSource random) {
+		super(random);
+	}
+
+	/**
+	 * Generates pathways with a grid of CardinalDirection objects.
+	 * Comments have been removed to make students 
+	 * recognize the difference between readable and unreadable code
+	 * and what kind of comments are needed to understand code.
+	 * A previous version, which is even worse than this one,
+	 * is kept commented out in {@link MazeBuilder}.
+	 * @throws InterruptedException if the order is cancelled
+	 */
+	@Override
+	protected void generatePathways() throws InterruptedException {
+		int x = random.nextIntWithinInterval(0, width-1);
+		int y = 0; 
+		final int firstx = x; 
+		final int firsty = y;
+		
+		CardinalDirection[][] origcds = new CardinalDirection[width][height]; 
+		CardinalDirection cd = CardinalDirection.East;
+		CardinalDirection origcd = cd;
+		
+		floorplan.setCellAsVisited(x, y); 
+		Wallboard wallboard = new Wallboard(x, y, cd);
+		int steps = 0;
+		while (true) { 
+			if ((++steps & CancellationToken.CHECK_MASK) == 0)
+				cancellation.throwIfCancelled();
+			wallboard.setLocationDirection(x, y, cd);
+			if (!floorplan.canTearDown(wallboard)) {
+				cd = cd.rotateClockwise();
+				if (origcd == cd) {				
+					if (x == firstx && y == firsty)
+						break; 			
+					int[] dxy = origcds[x][y].getDirection();
+					x -= dxy[0];
+					y -= dxy[1];
+					if (null == origcds[x][y]) {
+						// Happens at starting position
+						assert (x == firstx && y == firsty) : "catching null elsewhere than starting position" ;
+						cd = cd.randomDirection(random) ;
+					}
+					else
+						cd = origcds[x][y] ;
+					cd = cd.rotateClockwise();
+					origcd = cd;
+				}
+			} else {
+				floorplan.deleteWallboard(wallboard);
+				int[] dxy = cd.getDirection();
+				x += dxy[0];
+				y += dxy[1];
+				floorplan.setCellAsVisited(x, y);
+				origcds[x][y] = cd;
+				cd = cd.randomDirection(random);
+				origcd = cd;
+			}
+		}
+	}
+}
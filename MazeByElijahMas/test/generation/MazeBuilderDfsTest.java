@@ -0,0 +1,100 @@
+package generation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests that the depth-first search with packed directions in {@link MazeBuilder#generatePathways()}
+ * gives the same mazes as the original version with a grid of CardinalDirection objects,
+ * so deterministic mazes stay as they were.
+ *
+ * @author Elijah Mas
+ *
+ */
+class MazeBuilderDfsTest {
+
+	/**
+	 * <b>***Expected result:</b> for several seeds, with and without rooms,
+	 * both versions produce equal floorplans.
+	 *
+	 * @param level the difficulty level of the maze
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {0,1,2,3,4,5,6,7,8,9})
+	final void testSameMazeAsOriginal(int level) throws InterruptedException {
+		for (long seed : new long[] {MazeBuilder.MAZE_SEED, 1, 42, 2021}) {
+			assertEquals(DfsBenchmark.generate(level, false, seed), DfsBenchmark.generate(level, true, seed),
+					"seed " + seed);
+		}
+	}
+
+	/**
+	 * <b>***Expected result:</b> a deterministic builder gives the same maze
+	 * as a builder with a random number sequence seeded with {@link MazeBuilder#MAZE_SEED},
+	 * which uses the original version.
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {0,3,6})
+	final void testDeterministicBuilder(int level) throws InterruptedException {
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(level);
+		order.setBuilder(Order.Builder.DFS);
+		order.setPerfect(true);
+		MazeBuilder builder = new MazeBuilder(true);
+		builder.buildOrder(order);
+		builder.floorplan.initialize();
+		builder.generatePathways();
+
+		MazeBuilder original = new MazeBuilderDfsObjects(new SeededRandom(MazeBuilder.MAZE_SEED));
+		original.buildOrder(order);
+		original.floorplan.initialize();
+		original.generatePathways();
+		assertEquals(original.floorplan, builder.floorplan);
+	}
+
+	/**
+	 * Checksums of the mazes that a deterministic builder delivered for levels 0 to 4,
+	 * without and with rooms, before its random numbers came from a sequence of its own.
+	 * Each covers all cell values and the starting position, see {@link #checksum(Maze)}.
+	 */
+	private static final long[] BASELINE = {
+			0xd5ba1452L, 0xd5ba1452L, 0x47cda8ddL, 0xe08f60d0L, 0x293b4ef8L,
+			0x4b41d762L, 0xee7ac645L, 0xb13f8275L, 0xb55ff3c4L, 0x7bcf208bL };
+
+	/**
+	 * <b>***Expected result:</b> a deterministic builder delivers the same mazes
+	 * as the shared generator seeded with {@link MazeBuilder#MAZE_SEED} gave.
+	 */
+	@Test
+	final void testSameMazesAsBaseline() {
+		for (int i = 0; i < BASELINE.length; i++) {
+			OrderStub order = new OrderStub();
+			order.setSkillLevel(i / 2);
+			order.setBuilder(Order.Builder.DFS);
+			order.setPerfect(i % 2 == 1);
+			MazeBuilder builder = new MazeBuilder(true);
+			builder.setBuildBSP(false); // takes no random numbers
+			builder.buildOrder(order);
+			builder.run();
+			assertEquals(BASELINE[i], checksum(order.getMaze()), "level " + i / 2 + " perfect " + (i % 2 == 1));
+		}
+	}
+
+	/**
+	 * Computes a checksum of all cell values and the starting position of the given maze.
+	 */
+	private static long checksum(Maze maze) {
+		CRC32 crc = new CRC32();
+		for (int x = 0; x < maze.getWidth(); x++)
+			for (int y = 0; y < maze.getHeight(); y++)
+				crc.update(maze.getFloorplan().getValueOfCell(x, y));
+		crc.update(maze.getStartingPosition()[0]);
+		crc.update(maze.getStartingPosition()[1]);
+		return crc.getValue();
+	}
+}
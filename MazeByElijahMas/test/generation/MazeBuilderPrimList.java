@@ -0,0 +1,86 @@
+package generation;
+
+import java.util.ArrayList;
+
+/**
+ * The original version of {@link MazeBuilderPrim#generatePathways()} that keeps the candidates
+ * as Wallboard objects in an ArrayList, kept as a baseline for the {@link PrimBenchmark}.
+ *
+ * @author Jones.Andrew, refactored by Peter Kemper
+ */
+class MazeBuilderPrimList extends MazeBuilderPrim {
+
+	/**
+	 * Constructor for a builder with a random number stream of its own.
+	 * @param random random number stream for this builder
+	 */
+	MazeBuilderPrimList(RandomSource random) {
+		super(random);
+	}
+
+	/**
+	 * Keeps the candidate wallboards as Wallboard objects in an ArrayList
+	 * and removes a random candidate from the list.
+	 * @throws InterruptedException if the order is cancelled
+	 */
+	@Override
+	protected void generatePathways() throws InterruptedException {
+		// pick initial position (x,y) at some random position on the maze
+		int x = random.nextIntWithinInterval(0, width-1);
+		int y = random.nextIntWithinInterval(0, height-1);
+		// create an initial list of all wallboards that could be removed
+		// those wallboards lead to adjacent cells that are not part of the spanning tree yet.
+		final ArrayList<Wallboard> candidates = new ArrayList<Wallboard>();
+		updateListOfWallboards(x, y, candidates);
+		
+		Wallboard curWallboard;
+		int steps = 0;
+		// we need to consider each candidate wallboard and consider it only once
+		while(!candidates.isEmpty()){
+			if ((++steps & CancellationToken.CHECK_MASK) == 0)
+				cancellation.throwIfCancelled();
+			// in order to have a randomized algorithm,
+			// we randomly select and extract a wallboard from our candidate set
+			// this also reduces the set to make sure we terminate the loop
+			curWallboard = extractWallboardFromCandidateSetRandomly(candidates);
+			// check if wallboard leads to a new cell that is not connected to the spanning tree yet
+			if (floorplan.canTearDown(curWallboard))
+			{
+				// delete wallboard from maze, note that this takes place from both directions
+				floorplan.deleteWallboard(curWallboard);
+				// update current position
+				x = curWallboard.getNeighborX();
+				y = curWallboard.getNeighborY();
+				
+				floorplan.setCellAsVisited(x, y); // the flag is never reset, so this ensure we never go to (x,y) again
+				updateListOfWallboards(x, y, candidates); // checks to see if it has wallboards to new cells, if it does it adds them to the list
+				// note that each wallboard can get added at most once. This is important for termination and efficiency
+			}
+		}
+	}
+	/**
+	 * Pick a random position in the list of candidates, remove the candidate from the list and return it
+	 * @param candidates
+	 * @return candidate from the list, randomly chosen
+	 */
+	private Wallboard extractWallboardFromCandidateSetRandomly(final ArrayList<Wallboard> candidates) {
+		return candidates.remove(random.nextIntWithinInterval(0, candidates.size()-1)); 
+	}
+	
+
+	/**
+	 * Updates a list of all wallboards that could be removed from the maze based on wallboards towards new cells
+	 * @param x
+	 * @param y
+	 */
+	private void updateListOfWallboards(int x, int y, ArrayList<Wallboard> wallboards) {
+		Wallboard wallboard = new Wallboard(x, y, CardinalDirection.East) ;
+		for (CardinalDirection cd : CardinalDirection.values()) {
+			wallboard.setLocationDirection(x, y, cd);
+			if (floorplan.canTearDown(wallboard)) // 
+			{
+				wallboards.add(new Wallboard(x, y, cd));
+			}
+		}
+	}
+}
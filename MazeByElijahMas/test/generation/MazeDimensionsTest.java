@@ -0,0 +1,109 @@
+package generation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.api.Test;
+
+import gui.Constants;
+
+/**
+ * Tests orders that give width, height and number of rooms explicitly instead of a skill level:
+ * the maze has the requested size, sizes out of range are rejected
+ * and partitions of walls far apart are graded correctly at coordinates of large mazes.
+ *
+ * @author Elijah Mas
+ *
+ */
+class MazeDimensionsTest {
+
+	/**
+	 * Builds a maze of the given size with a deterministic builder.
+	 */
+	private static Maze build(int width, int height, int rooms) {
+		OrderStub order = new OrderStub();
+		order.setBuilder(Order.Builder.DFS);
+		order.setPerfect(false);
+		order.setDimensions(width, height);
+		order.setRooms(rooms);
+		MazeBuilder builder = new MazeBuilder(new RandomStream(MazeBuilder.MAZE_SEED));
+		builder.buildOrder(order);
+		builder.run();
+		return order.getMaze();
+	}
+
+	/**
+	 * <b>***Expected result:</b> the maze has the requested size, every cell can reach the exit
+	 * and the BSP tree covers the whole maze.
+	 *
+	 * @param width the width of the maze
+	 * @param height the height of the maze
+	 * @param rooms the number of rooms
+	 */
+	@ParameterizedTest
+	@CsvSource({"1,9,0", "7,3,0", "500,20,5", "20,500,5", "400,400,40"})
+	final void testExplicitDimensions(int width, int height, int rooms) {
+		Maze maze = build(width, height, rooms);
+		assertNotNull(maze);
+		assertEquals(width, maze.getWidth());
+		assertEquals(height, maze.getHeight());
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++)
+				assertTrue(maze.getDistanceToExit(x, y) > 0);
+		}
+		BSPNode root = maze.getRootnode();
+		assertEquals(0, root.getLowerBoundX());
+		assertEquals(0, root.getLowerBoundY());
+		assertEquals(width*Constants.MAP_UNIT, root.getUpperBoundX());
+		assertEquals(height*Constants.MAP_UNIT, root.getUpperBoundY());
+	}
+
+	/**
+	 * <b>***Expected result:</b> sizes out of range are rejected when the order is taken.
+	 */
+	@Test
+	final void testInvalidDimensions() {
+		int[][] sizes = {{0, 5}, {5, 0}, {Constants.MAX_DIMENSION + 1, 5}, {Constants.MAX_DIMENSION, Constants.MAX_DIMENSION}};
+		for (int[] size : sizes) {
+			OrderStub order = new OrderStub();
+			order.setDimensions(size[0], size[1]);
+			assertThrows(IllegalArgumentException.class, () -> new MazeBuilder(true).buildOrder(order));
+		}
+	}
+
+	/**
+	 * <b>***Expected result:</b> the estimate of partition candidates
+	 * grows with the number of cells and does not overflow.
+	 */
+	@Test
+	final void testEstimatePartiters() {
+		assertTrue(MazeBuilder.estimatePartiters(1, 1) >= 1);
+		assertTrue(MazeBuilder.estimatePartiters(300, 240) > Constants.SKILL_PARTCT[15]);
+		assertTrue(MazeBuilder.estimatePartiters(2000, 2000) < MazeBuilder.estimatePartiters(10000, 500));
+		assertTrue(MazeBuilder.estimatePartiters(Constants.MAX_DIMENSION, Constants.MAX_CELLS / Constants.MAX_DIMENSION) > 0);
+	}
+
+	/**
+	 * <b>***Expected result:</b> a long partition far from the walls it grades
+	 * puts them on the correct sides, although the dot products exceed the range of an int.
+	 */
+	@Test
+	final void testGradeAtLargeCoordinates() {
+		final int u = Constants.MAP_UNIT;
+		final int far = 60000*u;
+		List<Wall> walls = new ArrayList<Wall>();
+		walls.add(new Wall(far/2, 0, 0, far, 0, 0)); // partition along x = far/2
+		walls.add(new Wall(u, u, 0, u, 0, 0)); // far on one side
+		walls.add(new Wall(far - u, u, 0, u, 0, 0)); // far on the other side
+		walls.add(new Wall(far - u, 3*u, 0, u, 0, 0));
+		WallList list = WallList.of(walls);
+		// one wall on the left, the partition and two walls on the right
+		assertEquals(2, list.calculateGrade(0, 0, list.size, 1));
+		assertEquals(2, walls.get(0).calculateGrade(new ArrayList<Wall>(walls), 1));
+		assertEquals(2, new PartitionGrader(list, 0, list.size).grade(list, 0));
+	}
+}
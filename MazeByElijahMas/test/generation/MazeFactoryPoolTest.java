@@ -0,0 +1,269 @@
+package generation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import gui.Controller;
+
+/**
+ * Tests a MazeFactory with a pool of workers:
+ * many orders are delivered, deterministic orders give the same mazes
+ * as the factory that takes one order at a time,
+ * a single order can be cancelled and a full queue blocks the caller.
+ *
+ * @author Elijah Mas
+ *
+ */
+class MazeFactoryPoolTest {
+
+	private MazeFactory factory;
+
+	/**
+	 * An order that blocks its builder on the first progress update
+	 * until it is released, such that a worker stays busy as long as a test needs it.
+	 */
+	private static class BlockingOrder extends OrderStub {
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final AtomicInteger deliveries = new AtomicInteger();
+
+		BlockingOrder(int level) {
+			setSkillLevel(level);
+			setBuilder(Order.Builder.Prim);
+		}
+		@Override
+		public void updateProgress(int percentage) {
+			blocked.countDown();
+			try {
+				release.await();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		@Override
+		public void deliver(Maze mazeConfig) {
+			deliveries.incrementAndGet();
+			super.deliver(mazeConfig);
+		}
+	}
+
+	private static OrderStub createOrder(Order.Builder builder, int level, boolean perfect) {
+		OrderStub order = new OrderStub();
+		order.setBuilder(builder);
+		order.setSkillLevel(level);
+		order.setPerfect(perfect);
+		return order;
+	}
+
+	@AfterEach
+	final void shutdownFactory() {
+		if (null != factory)
+			factory.shutdown();
+	}
+
+	/**
+	 * <b>***Expected result:</b> all orders given to a factory with fewer workers
+	 * and a smaller queue than orders are delivered, and each maze has the same floorplan
+	 * as the maze that a deterministic factory for a single order builds.
+	 */
+	@Test
+	final void testDeterministicOrdersMatchSingleOrderMode() {
+		Controller.suppressUpdates = true;
+		factory = new MazeFactory(true, 3, 2);
+		List<OrderStub> orders = new ArrayList<OrderStub>();
+		for (Order.Builder builder : Order.Builder.values()) {
+			for (int level = 0; level < 4; level++) {
+				OrderStub order = createOrder(builder, level, 1 == level % 2);
+				assertTrue(factory.order(order));
+				orders.add(order);
+			}
+		}
+		factory.waitTillDelivered();
+
+		for (OrderStub order : orders) {
+			assertNotNull(order.getMaze());
+			assertTrue(order.getMaze().getFloorplan().isFrozen());
+			assertTrue(order.getMaze().getMazedists().isFrozen());
+			OrderStub single = createOrder(order.getBuilder(), order.getSkillLevel(), order.isPerfect());
+			MazeFactory singleFactory = new MazeFactory(true);
+			assertTrue(singleFactory.order(single));
+			singleFactory.waitTillDelivered();
+			assertEquals(single.getMaze().getFloorplan(), order.getMaze().getFloorplan(),
+					order.getBuilder() + " level " + order.getSkillLevel());
+		}
+	}
+
+	/**
+	 * <b>***Expected result:</b> orders with the same seed give the same maze
+	 * in a randomized factory, also if they are built at the same time and in parallel tiles,
+	 * and orders with different seeds give different mazes.
+	 */
+	@Test
+	final void testOrderSeed() {
+		Controller.suppressUpdates = true;
+		factory = new MazeFactory(false, 3, 4);
+		factory.setParallel(true);
+		List<OrderStub> orders = new ArrayList<OrderStub>();
+		for (long seed : new long[] {11, 11, 11, 12}) {
+			OrderStub order = createOrder(Order.Builder.Prim, 6, false);
+			order.setSeed(seed);
+			assertTrue(factory.order(order));
+			orders.add(order);
+		}
+		factory.waitTillDelivered();
+
+		Floorplan first = orders.get(0).getMaze().getFloorplan();
+		assertEquals(first, orders.get(1).getMaze().getFloorplan());
+		assertEquals(first, orders.get(2).getMaze().getFloorplan());
+		assertNotEquals(first, orders.get(3).getMaze().getFloorplan());
+	}
+
+	/**
+	 * <b>***Expected result:</b> an order that waits in the queue is cancelled
+	 * without a delivery, the order before it is still delivered.
+	 */
+	@Test
+	final void testCancelSingleOrder() {
+		factory = new MazeFactory(false, 1, 2);
+		BlockingOrder running = new BlockingOrder(2);
+		OrderStub waiting = createOrder(Order.Builder.DFS, 1, false);
+		assertTrue(factory.order(running));
+		assertTrue(factory.order(waiting));
+
+		assertTrue(factory.cancel(waiting));
+		assertFalse(factory.cancel(waiting));
+		running.release.countDown();
+		factory.waitTillDelivered();
+
+		assertNotNull(running.getMaze());
+		assertNull(waiting.getMaze());
+	}
+
+	/**
+	 * <b>***Expected result:</b> an order with a size out of range is refused with an exception
+	 * before it takes a place, and an order that fails while its builder is set up
+	 * gives its place back, so later orders are still delivered.
+	 */
+	@Test
+	final void testInvalidOrdersGiveTheirPlaceBack() {
+		factory = new MazeFactory(false, 1, 1);
+		for (int i = 0; i < 3; i++) {
+			OrderStub invalid = createOrder(Order.Builder.DFS, 0, true);
+			invalid.setDimensions(-5, 10);
+			assertThrows(IllegalArgumentException.class, () -> factory.order(invalid));
+		}
+		// no such skill level, fails on the worker
+		List<OrderStub> failing = new ArrayList<OrderStub>();
+		for (int i = 0; i < 3; i++) {
+			OrderStub order = createOrder(Order.Builder.DFS, 99, true);
+			assertTrue(factory.order(order));
+			failing.add(order);
+		}
+		OrderStub valid = createOrder(Order.Builder.DFS, 1, true);
+		assertTrue(factory.order(valid));
+		factory.waitTillDelivered();
+
+		assertNotNull(valid.getMaze());
+		for (OrderStub order : failing)
+			assertNull(order.getMaze());
+	}
+
+	/**
+	 * <b>***Expected result:</b> with all workers busy and the queue full,
+	 * ordering blocks until a place is free, then the order is delivered.
+	 */
+	@Test
+	final void testFullQueueBlocks() throws InterruptedException {
+		factory = new MazeFactory(false, 1, 1);
+		BlockingOrder running = new BlockingOrder(1);
+		assertTrue(factory.order(running));
+		assertTrue(factory.order(createOrder(Order.Builder.Kruskal, 0, true)));
+
+		OrderStub blocked = createOrder(Order.Builder.Eller, 0, true);
+		Thread caller = new Thread(() -> factory.order(blocked));
+		caller.start();
+		caller.join(300);
+		assertTrue(caller.isAlive(), "order must wait for a free place");
+
+		running.release.countDown();
+		caller.join(TimeUnit.SECONDS.toMillis(30));
+		assertFalse(caller.isAlive());
+		factory.waitTillDelivered();
+		assertNotNull(blocked.getMaze());
+	}
+
+	/**
+	 * <b>***Expected result:</b> a running order that is cancelled keeps its place
+	 * till its builder returns: the next order still blocks, and gets through once the builder stopped.
+	 * The cancelled order is not delivered.
+	 */
+	@Test
+	final void testCancelRunningOrderKeepsPlace() throws InterruptedException {
+		factory = new MazeFactory(false, 1, 0);
+		BlockingOrder running = new BlockingOrder(1);
+		assertTrue(factory.order(running));
+		assertTrue(running.blocked.await(30, TimeUnit.SECONDS), "builder must be running");
+
+		assertTrue(factory.cancel(running));
+		assertFalse(factory.cancel(running));
+		OrderStub blocked = createOrder(Order.Builder.DFS, 0, true);
+		Thread caller = new Thread(() -> factory.order(blocked));
+		caller.start();
+		caller.join(300);
+		assertTrue(caller.isAlive(), "order must wait till the cancelled builder returns");
+
+		running.release.countDown();
+		caller.join(TimeUnit.SECONDS.toMillis(30));
+		assertFalse(caller.isAlive());
+		factory.waitTillDelivered();
+		assertNotNull(blocked.getMaze());
+		assertEquals(0, running.deliveries.get());
+	}
+
+	/**
+	 * <b>***Expected result:</b> if several threads give the same order at the same time,
+	 * exactly one of them gets it accepted and the maze is delivered once.
+	 */
+	@Test
+	final void testSameOrderFromManyThreads() throws InterruptedException {
+		factory = new MazeFactory(false, 1, 8);
+		BlockingOrder order = new BlockingOrder(1);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger accepted = new AtomicInteger();
+		List<Thread> callers = new ArrayList<Thread>();
+		for (int i = 0; i < 8; i++) {
+			Thread caller = new Thread(() -> {
+				try {
+					start.await();
+				}
+				catch (InterruptedException ex) {
+					return;
+				}
+				if (factory.order(order))
+					accepted.incrementAndGet();
+			});
+			caller.start();
+			callers.add(caller);
+		}
+		start.countDown();
+		for (Thread caller : callers)
+			caller.join();
+		assertEquals(1, accepted.get());
+
+		order.release.countDown();
+		factory.waitTillDelivered();
+		assertEquals(1, order.deliveries.get());
+		assertTrue(factory.order(order), "a delivered order can be given again");
+		factory.waitTillDelivered();
+		assertEquals(2, order.deliveries.get());
+	}
+}
@@ -0,0 +1,102 @@
+package generation;
+
+import static org.junit.Assert.*;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import gui.Controller;
+import generation.Order;
+import generation.OrderStub;
+
+/**
+ *
+ * <p>MazeFactoryTestKruskal tests the validity of a maze generated by Kruskal's algorithm
+ * via MazeBuilderKruskal.
+ * It inherits black-box tests from MazeFactoryTest and adds a test
+ * that a perfect maze is a spanning tree over its cells.</p>
+ *
+ * <p>JUnit {@code params} ({@code org.junit.jupiter.params}) is used
+ * to automate application of test cases to mazes of variable difficulty levels.</p>
+ *
+ * @author Elijah Mas
+ *
+ */
+public class MazeFactoryTestKruskal extends MazeFactoryTest {
+
+	/**
+	 * Runs all tests for mazes generated by Kruskal's algorithm, see {@link MazeFactoryTest#runAllTests(int)}.
+	 *
+	 * @param level the difficulty level of the maze
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {0,1,2,3,4,5,6,7,8})
+	@Override
+	public void runAllTests(int level) {
+		System.out.println("\n\n*   *   *   Kruskal: level="+level);
+		establishMazes(level, true);
+
+		allTests();
+	}
+
+	/**
+	 * Adds {@link #testPerfectMazeIsSpanningTree()} to the tests
+	 * in {@link #baselineTests()}.
+	 */
+	@Override
+	public void allTests() {
+		baselineTests();
+		testPerfectMazeIsSpanningTree();
+	}
+
+	/**
+	 * <p>A perfect maze is a spanning tree over its cells. Since all cells
+	 * are connected (see {@link #testEveryCellHasExit()}), it is sufficient
+	 * to count the openings between adjacent cells.</p>
+	 *
+	 * <b>***Expected result:</b> there are exactly {@code width*height-1} openings.
+	 */
+	public void testPerfectMazeIsSpanningTree() {
+		Floorplan floorplan = perfectMaze.getFloorplan();
+		int openings=0;
+		for(int x=0; x<width; x++) {
+			for(int y=0; y<height; y++) {
+				if(x+1<width && floorplan.hasNoWall(x, y, CardinalDirection.East)) openings++;
+				if(y+1<height && floorplan.hasNoWall(x, y, CardinalDirection.South)) openings++;
+			}
+		}
+		assertEquals(width*height-1, openings);
+	}
+
+	/**
+	 * Same as {@link MazeFactoryTest#getMaze(boolean, boolean, int)}
+	 * but with a MazeBuilderKruskal.
+	 */
+	@Override
+	public Maze getMaze(boolean perfect, boolean deterministic, int level){
+		Controller controller = new Controller();
+		controller.turnOffGraphics();
+
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(level);
+		order.setBuilder(Order.Builder.Kruskal);
+		order.setPerfect(perfect);
+		order.start(controller, null);
+
+		MazeBuilderKruskal builder = new MazeBuilderKruskal(deterministic);
+		deterministicTest(deterministic);
+		builder.buildOrder(order);
+		Thread buildThread = new Thread(builder);
+		buildThread.start();
+		try {
+			buildThread.join();
+			System.out.println("100");
+
+			return order.getMaze();
+		} catch (InterruptedException e) {
+			System.out.println("\n--Intteruption--");
+			e.printStackTrace();
+			return null;
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package generation;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import gui.Controller;
+import generation.Order;
+import generation.OrderStub;
+
+/**
+ *
+ * <p>MazeFactoryTestParallel tests the validity of a maze generated
+ * in tiles by MazeBuilderParallel, with each of the algorithms that can be used for the tiles.
+ * It runs the black-box tests from MazeFactoryTest and the test that
+ * a perfect maze is a spanning tree from MazeFactoryTestKruskal,
+ * which makes sure that joining the tiles along the seams adds no loops.</p>
+ *
+ * <p>JUnit {@code params} ({@code org.junit.jupiter.params}) is used
+ * to automate application of test cases to mazes of variable difficulty levels.</p>
+ *
+ * @author Elijah Mas
+ *
+ */
+public class MazeFactoryTestParallel extends MazeFactoryTestKruskal {
+
+	/**
+	 * algorithm for the tiles of the mazes currently being tested
+	 */
+	Order.Builder tileAlgorithm;
+
+	/**
+	 * Runs all tests for each tile algorithm, see {@link MazeFactoryTest#runAllTests(int)}.
+	 * Levels are large enough to have several tiles.
+	 *
+	 * @param level the difficulty level of the maze
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {0,3,6,8,9,10})
+	@Override
+	public void runAllTests(int level) {
+		for (Order.Builder algorithm : new Order.Builder[] {Order.Builder.DFS, Order.Builder.Prim, Order.Builder.Kruskal}) {
+			System.out.println("\n\n*   *   *   Parallel " + algorithm + ": level="+level);
+			tileAlgorithm = algorithm;
+			establishMazes(level, true);
+
+			allTests();
+		}
+	}
+
+	/**
+	 * Same as {@link MazeFactoryTest#getMaze(boolean, boolean, int)}
+	 * but with a MazeBuilderParallel.
+	 */
+	@Override
+	public Maze getMaze(boolean perfect, boolean deterministic, int level){
+		Controller controller = new Controller();
+		controller.turnOffGraphics();
+
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(level);
+		order.setBuilder(tileAlgorithm);
+		order.setPerfect(perfect);
+		order.start(controller, null);
+
+		MazeBuilderParallel builder = deterministic ?
+				new MazeBuilderParallel(tileAlgorithm, true) : new MazeBuilderParallel(tileAlgorithm);
+		deterministicTest(deterministic);
+		builder.buildOrder(order);
+		Thread buildThread = new Thread(builder);
+		buildThread.start();
+		try {
+			buildThread.join();
+			System.out.println("100");
+
+			return order.getMaze();
+		} catch (InterruptedException e) {
+			System.out.println("\n--Intteruption--");
+			e.printStackTrace();
+			return null;
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package generation;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import gui.Controller;
+import generation.Order;
+import generation.OrderStub;
+
+/**
+ *
+ * <p>MazeFactoryTestPrim tests the validity of a maze generated by Prim's algorithm
+ * via MazeBuilderPrim.
+ * It runs the black-box tests from MazeFactoryTest and the test that
+ * a perfect maze is a spanning tree from MazeFactoryTestKruskal.</p>
+ *
+ * <p>JUnit {@code params} ({@code org.junit.jupiter.params}) is used
+ * to automate application of test cases to mazes of variable difficulty levels.</p>
+ *
+ * @author Elijah Mas
+ *
+ */
+public class MazeFactoryTestPrim extends MazeFactoryTestKruskal {
+
+	/**
+	 * Runs all tests for mazes generated by Prim's algorithm, see {@link MazeFactoryTest#runAllTests(int)}.
+	 *
+	 * @param level the difficulty level of the maze
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {0,1,2,3,4,5,6,7,8})
+	@Override
+	public void runAllTests(int level) {
+		System.out.println("\n\n*   *   *   Prim: level="+level);
+		establishMazes(level, true);
+
+		allTests();
+	}
+
+	/**
+	 * Same as {@link MazeFactoryTest#getMaze(boolean, boolean, int)}
+	 * but with a MazeBuilderPrim.
+	 */
+	@Override
+	public Maze getMaze(boolean perfect, boolean deterministic, int level){
+		Controller controller = new Controller();
+		controller.turnOffGraphics();
+
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(level);
+		order.setBuilder(Order.Builder.Prim);
+		order.setPerfect(perfect);
+		order.start(controller, null);
+
+		MazeBuilderPrim builder = new MazeBuilderPrim(deterministic);
+		deterministicTest(deterministic);
+		builder.buildOrder(order);
+		Thread buildThread = new Thread(builder);
+		buildThread.start();
+		try {
+			buildThread.join();
+			System.out.println("100");
+
+			return order.getMaze();
+		} catch (InterruptedException e) {
+			System.out.println("\n--Intteruption--");
+			e.printStackTrace();
+			return null;
+		}
+	}
+}
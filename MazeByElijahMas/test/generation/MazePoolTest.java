@@ -0,0 +1,96 @@
+package generation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import gui.Constants;
+
+/**
+ * Tests the warm pool of pre-generated mazes:
+ * a warmed combination is served from the pool, a maze is handed out only once,
+ * the pool refills after a maze is taken and hits and misses are counted.
+ *
+ * @author Elijah Mas
+ *
+ */
+class MazePoolTest {
+
+	private MazePool pool;
+
+	@BeforeEach
+	final void createPool() {
+		pool = new MazePool(2);
+	}
+
+	@AfterEach
+	final void shutdownPool() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Waits till the pool holds the given number of mazes for the combination.
+	 */
+	private void awaitReady(int skillLevel, Order.Builder builder, boolean perfect, int count) throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + 60000;
+		while (pool.getReadyCount(skillLevel, builder, perfect) < count) {
+			assertTrue(System.currentTimeMillis() < deadline, "pool was not refilled in time");
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * <b>***Expected result:</b> a combination that was never asked for is a miss,
+	 * after warming it the pool fills up to its capacity and serves
+	 * mazes of the requested size, each maze only once.
+	 */
+	@Test
+	final void testWarmAndTake() throws InterruptedException {
+		assertNull(pool.take(2, Order.Builder.Prim, false));
+		assertEquals(1, pool.getMisses());
+
+		pool.warm(2, Order.Builder.Prim, false);
+		awaitReady(2, Order.Builder.Prim, false, 2);
+		assertEquals(0, pool.getReadyCount(2, Order.Builder.Prim, true));
+
+		Maze first = pool.take(2, Order.Builder.Prim, false);
+		assertNotNull(first);
+		assertEquals(Constants.SKILL_X[2], first.getWidth());
+		assertEquals(Constants.SKILL_Y[2], first.getHeight());
+		Maze second = pool.take(2, Order.Builder.Prim, false);
+		assertNotNull(second);
+		assertNotSame(first, second);
+		assertEquals(2, pool.getHits());
+		assertEquals(1, pool.getMisses());
+	}
+
+	/**
+	 * <b>***Expected result:</b> the builders of refills do not hand BSP subtrees
+	 * to the common ForkJoinPool, unlike builders for orders.
+	 */
+	@Test
+	final void testRefillBuildsOnItsOwnThread() {
+		for (Order.Builder builder : Order.Builder.values()) {
+			assertFalse(MazePool.createBuilder(builder).isParallelBSP());
+			assertTrue(MazeFactory.createBuilder(builder, new RandomStream(1), false).isParallelBSP());
+		}
+	}
+
+	/**
+	 * <b>***Expected result:</b> taking a maze refills the pool,
+	 * refills are counted and their latency is measured.
+	 */
+	@Test
+	final void testRefillAfterTake() throws InterruptedException {
+		assertNull(pool.take(1, Order.Builder.Eller, true));
+		awaitReady(1, Order.Builder.Eller, true, 2);
+		assertNotNull(pool.take(1, Order.Builder.Eller, true));
+		awaitReady(1, Order.Builder.Eller, true, 2);
+
+		assertEquals(3, pool.getRefills());
+		assertTrue(pool.getAverageRefillMillis() > 0);
+		assertTrue(pool.getMaxRefillMillis() >= pool.getAverageRefillMillis());
+	}
+}
@@ -0,0 +1,137 @@
+package generation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the streaming mode of MazeBuilderEller together with MazeRowFile:
+ * rows written to a file read back as a valid perfect maze,
+ * ranges of rows are read without the rest of the file,
+ * a file can be mapped as a floorplan,
+ * and streaming gives the same maze as the floorplan based generation
+ * for the same random seed.
+ *
+ * @author Elijah Mas
+ *
+ */
+class MazeRowFileTest {
+
+	/**
+	 * Streams a maze into a file and returns the file.
+	 * @param rows number of rows
+	 * @param rowLength length of each row
+	 * @return the file with the maze
+	 */
+	private Path streamToFile(int rows, int rowLength) throws IOException, InterruptedException {
+		Path file = Files.createTempFile("maze", ".rows");
+		file.toFile().deleteOnExit();
+		MazeBuilderEller builder = new MazeBuilderEller(true);
+		try (MazeRowFile.Writer writer = new MazeRowFile.Writer(file, rows, rowLength)) {
+			builder.generateRows(rows, rowLength, writer);
+		}
+		return file;
+	}
+
+	/**
+	 * <b>***Expected result:</b> the whole maze read back has the given dimensions,
+	 * is connected and has exactly {@code width*height-1} openings, i.e. it is a perfect maze,
+	 * and the outside of the maze is closed.
+	 */
+	@Test
+	final void testStreamedMazeIsPerfect() throws IOException, InterruptedException {
+		final int rows = 57, rowLength = 23;
+		Path file = streamToFile(rows, rowLength);
+		try (MazeRowFile reader = new MazeRowFile(file)) {
+			assertEquals(rows, reader.getRowCount());
+			assertEquals(rowLength, reader.getRowLength());
+			Floorplan floorplan = reader.readFloorplan(0, rows);
+
+			for (int[] column : MazeBuilderEller.labelGroups(floorplan)) {
+				for (int label : column)
+					assertEquals(1, label);
+			}
+			int openings = 0;
+			for (int x = 0; x < rows; x++) {
+				for (int y = 0; y < rowLength; y++) {
+					if (x+1 < rows && floorplan.hasNoWall(x, y, CardinalDirection.East))
+						openings++;
+					if (y+1 < rowLength && floorplan.hasNoWall(x, y, CardinalDirection.South))
+						openings++;
+				}
+				assertTrue(floorplan.isPartOfBorder(x, 0, CardinalDirection.North));
+				assertTrue(floorplan.isPartOfBorder(x, rowLength-1, CardinalDirection.South));
+			}
+			assertEquals(rows*rowLength-1, openings);
+		}
+	}
+
+	/**
+	 * <b>***Expected result:</b> a range of rows read on its own
+	 * matches the same rows in the whole maze.
+	 */
+	@Test
+	final void testReadRange() throws IOException, InterruptedException {
+		final int rows = 40, rowLength = 9;
+		Path file = streamToFile(rows, rowLength);
+		try (MazeRowFile reader = new MazeRowFile(file)) {
+			int[][] all = new int[rows][rowLength];
+			reader.readRows(0, all);
+			int[][] range = new int[5][rowLength];
+			reader.readRows(30, range);
+			for (int i = 0; i < range.length; i++)
+				assertArrayEquals(all[30+i], range[i]);
+			assertThrows(IndexOutOfBoundsException.class, () -> reader.readRows(38, range));
+		}
+	}
+
+	/**
+	 * <b>***Expected result:</b> the file mapped as a floorplan has the same cells
+	 * as the floorplan that is read into the heap, and changes go to the file.
+	 */
+	@Test
+	final void testMapFloorplan() throws IOException, InterruptedException {
+		final int rows = 31, rowLength = 17;
+		Path file = streamToFile(rows, rowLength);
+		Floorplan read;
+		try (MazeRowFile reader = new MazeRowFile(file)) {
+			read = reader.readFloorplan(0, rows);
+		}
+		Floorplan mapped = MazeRowFile.mapFloorplan(file);
+		assertEquals(read, mapped);
+
+		assertFalse(mapped.isExitPosition(0, 0));
+		mapped.setExitPosition(0, 0);
+		try (MazeRowFile reader = new MazeRowFile(file)) {
+			assertTrue(reader.readFloorplan(0, 1).isExitPosition(0, 0));
+		}
+	}
+
+	/**
+	 * <b>***Expected result:</b> for the same seed, the streamed rows are identical
+	 * to the floorplan that MazeBuilderEller produces for a perfect maze of the same size.
+	 */
+	@Test
+	final void testStreamingMatchesFloorplan() throws IOException, InterruptedException {
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(3);
+		order.setBuilder(Order.Builder.Eller);
+		order.setPerfect(true);
+		MazeBuilderEller builder = new MazeBuilderEller(true);
+		builder.buildOrder(order);
+		builder.floorplan.initialize();
+		builder.generatePathways();
+		Floorplan expected = builder.floorplan;
+		final int rows = builder.width, rowLength = builder.height;
+
+		// the deterministic builder resets the seed
+		int[][] streamed = new int[rows][];
+		new MazeBuilderEller(true).generateRows(rows, rowLength,
+				(rowIndex, cells) -> streamed[rowIndex] = cells.clone());
+		assertEquals(expected, new Floorplan(streamed));
+	}
+}
@@ -0,0 +1,100 @@
+package generation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests that a {@link PartitionGrader} gives the same grade for each candidate
+ * as {@link Wall#calculateGrade(ArrayList, int)} over all walls,
+ * and that the grades of a {@link WallList} match those of the Wall objects.
+ *
+ * @author Elijah Mas
+ *
+ */
+class PartitionGraderTest {
+
+	/**
+	 * Checks every wall in the list as a candidate.
+	 * The walls are put behind other walls in the list, as they are for a node in the BSPBuilder.
+	 */
+	private static void assertExactGrades(ArrayList<Wall> walls) {
+		WallList list = WallList.of(walls);
+		final int from = list.size;
+		list.addAll(list, 0, from);
+		for (int i = 0; i < from; i++) {
+			list.set(i, list.x[i] + 7, list.y[i] + 3, list.dx[i], list.dy[i], list.dist[i], false);
+		}
+		PartitionGrader grader = new PartitionGrader(list, from, list.size);
+		for (int i = 0; i < walls.size(); i++) {
+			Wall candidate = walls.get(i);
+			assertEquals(candidate.calculateGrade(walls, 1), grader.grade(list, from + i),
+					"wall at " + candidate.getStartPositionX() + "," + candidate.getStartPositionY()
+					+ " extension " + candidate.getExtensionX() + "," + candidate.getExtensionY());
+			// the sampled grade of the original heuristic on the arrays
+			assertEquals(candidate.calculateGrade(walls),
+					list.calculateGrade(from + i, from, list.size, (walls.size() >= 100) ? walls.size() / 50 : 1));
+		}
+	}
+
+	/**
+	 * Collects the walls in the leaves of a BSP tree.
+	 */
+	private static void collectWalls(BSPNode node, ArrayList<Wall> walls) {
+		if (node instanceof BSPLeaf) {
+			walls.addAll(((BSPLeaf)node).getSlist());
+			return;
+		}
+		collectWalls(((BSPBranch)node).getLeftBranch(), walls);
+		collectWalls(((BSPBranch)node).getRightBranch(), walls);
+	}
+
+	/**
+	 * <b>***Expected result:</b> for the walls of a maze with rooms,
+	 * all grades match the exact grade computed wall by wall.
+	 *
+	 * @param level the difficulty level of the maze
+	 */
+	@ParameterizedTest
+	@ValueSource(ints = {0,1,3,5})
+	final void testGradesOfMaze(int level) {
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(level);
+		order.setPerfect(false);
+		MazeBuilder builder = new MazeBuilder(new RandomStream(MazeBuilder.MAZE_SEED));
+		builder.buildOrder(order);
+		builder.run();
+		ArrayList<Wall> walls = new ArrayList<Wall>();
+		collectWalls(order.getMaze().getRootnode(), walls);
+		assertFalse(walls.isEmpty());
+		assertExactGrades(walls);
+	}
+
+	/**
+	 * <b>***Expected result:</b> for short random walls on a small area, with many walls
+	 * on the same line in both directions and many ends on a line, all grades match
+	 * the exact grade computed wall by wall.
+	 */
+	@Test
+	final void testGradesOfRandomWalls() {
+		Random random = new Random(MazeBuilder.MAZE_SEED);
+		for (int round = 0; round < 50; round++) {
+			ArrayList<Wall> walls = new ArrayList<Wall>();
+			for (int i = 0; i < 40; i++) {
+				int x = 4 + random.nextInt(8);
+				int y = 4 + random.nextInt(8);
+				int length = (1 + random.nextInt(4)) * (random.nextBoolean() ? 1 : -1);
+				if (random.nextBoolean())
+					walls.add(new Wall(x, y, length, 0, 0, 0));
+				else
+					walls.add(new Wall(x, y, 0, length, 0, 0));
+			}
+			assertExactGrades(walls);
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package generation;
+
+import gui.Constants;
+
+/**
+ * <p>PrimBenchmark compares the packed candidate array in
+ * {@link MazeBuilderPrim#generatePathways()} with the original
+ * list of Wallboard objects kept in {@link MazeBuilderPrimList}.</p>
+ *
+ * <p>For every skill level, both versions generate the pathways of a perfect maze
+ * from the same seed. The benchmark checks that each result is a spanning tree,
+ * i.e. it has exactly {@code width*height-1} openings between cells and no cell is left unvisited,
+ * and reports the average time per generation in milliseconds.
+ * Both versions extract a candidate uniformly at random, but from a different order of candidates,
+ * so they do not produce the same maze for the same seed.</p>
+ *
+ * <p>This is not a JUnit test; run it as a Java application
+ * (preferably with {@code -ea} to enable the internal assertions).</p>
+ *
+ * @author Elijah Mas
+ *
+ */
+public class PrimBenchmark {
+
+	/**
+	 * number of untimed runs per version to let the JIT compiler settle
+	 */
+	static final int WARMUP = 5;
+
+	/**
+	 * number of timed runs per version
+	 */
+	static final int RUNS = 20;
+
+	public static void main(String[] args) throws InterruptedException {
+		System.out.println("level   width x height       list [ms]  packed [ms]   speedup   spanning trees");
+		for(int level=0; level<Constants.SKILL_X.length; level++) {
+			double timeList = time(level, false);
+			double timePacked = time(level, true);
+			boolean trees = isSpanningTree(generate(level, false)) && isSpanningTree(generate(level, true));
+
+			System.out.printf("%5d   %5d x %-6d   %11.3f  %11.3f   %7.1f   %s\n",
+				level, Constants.SKILL_X[level], Constants.SKILL_Y[level],
+				timeList, timePacked, timeList/timePacked, trees);
+		}
+	}
+
+	/**
+	 * Generate the pathways of a perfect maze at the given skill level
+	 * without computing distances or the BSP tree.
+	 *
+	 * @param level the skill level
+	 * @param packed if true, use the packed candidates, otherwise the list of wallboards
+	 * @return floorplan of the maze
+	 * @throws InterruptedException never as the order is not cancelled
+	 */
+	static Floorplan generate(int level, boolean packed) throws InterruptedException {
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(level);
+		order.setBuilder(Order.Builder.Prim);
+		order.setPerfect(true);
+
+		RandomStream random = new RandomStream(MazeBuilder.MAZE_SEED);
+		MazeBuilderPrim builder = packed ? new MazeBuilderPrim(random) : new MazeBuilderPrimList(random);
+		builder.buildOrder(order);
+		builder.floorplan.initialize();
+		builder.generatePathways();
+		return builder.floorplan;
+	}
+
+	/**
+	 * Time the generation of pathways at the given skill level,
+	 * including the allocation and initialization of the floorplan.
+	 *
+	 * @param level the skill level
+	 * @param packed if true, use the packed candidates, otherwise the list of wallboards
+	 * @return average time per generation in milliseconds
+	 * @throws InterruptedException never as the order is not cancelled
+	 */
+	static double time(int level, boolean packed) throws InterruptedException {
+		for(int i=0; i<WARMUP; i++) {
+			generate(level, packed);
+		}
+		long start = System.nanoTime();
+		for(int i=0; i<RUNS; i++) {
+			generate(level, packed);
+		}
+		return (System.nanoTime()-start)/(RUNS*1e6);
+	}
+
+	/**
+	 * Checks that all cells are visited and there are exactly width*height-1 openings.
+	 * Together with the connectivity that Prim's algorithm guarantees, this means the pathways form a spanning tree.
+	 *
+	 * @param floorplan the maze layout
+	 * @return true if the pathways form a spanning tree
+	 */
+	static boolean isSpanningTree(Floorplan floorplan) {
+		int width = floorplan.getWidth(), height = floorplan.getHeight();
+		int openings = 0;
+		for(int x=0; x<width; x++) {
+			for(int y=0; y<height; y++) {
+				if((floorplan.getValueOfCell(x, y) & Floorplan.CW_VISITED) != 0) return false;
+				if(x+1<width && floorplan.hasNoWall(x, y, CardinalDirection.East)) openings++;
+				if(y+1<height && floorplan.hasNoWall(x, y, CardinalDirection.South)) openings++;
+			}
+		}
+		return openings == width*height-1;
+	}
+}
@@ -0,0 +1,126 @@
+package generation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Tests the progress channel between a builder and the party that ordered a maze:
+ * percentages only increase and stay within the range of their phase,
+ * the pathways and distances phases publish progress while they run,
+ * and an order with a channel is only called with 100 upon delivery.
+ *
+ * @author Elijah Mas
+ *
+ */
+class ProgressTest {
+
+	/**
+	 * An order with a progress channel that keeps the percentages it is called with.
+	 */
+	private static class ChannelOrder extends OrderStub {
+		final Progress progress = new Progress();
+		final List<Integer> calls = new ArrayList<Integer>();
+
+		@Override
+		public Progress getProgress() {
+			return progress;
+		}
+		@Override
+		public void updateProgress(int percentage) {
+			calls.add(percentage);
+		}
+	}
+
+	/**
+	 * <b>***Expected result:</b> a percentage of a phase maps into the range of the phase,
+	 * lower percentages and values above 100 are ignored.
+	 */
+	@Test
+	final void testUpdate() {
+		Progress progress = new Progress();
+		assertEquals(0, progress.getPercentage());
+		assertNull(progress.getPhase());
+
+		progress.update(Progress.Phase.Distances, 50);
+		assertEquals(25, progress.getPercentage());
+		assertEquals(Progress.Phase.Distances, progress.getPhase());
+		progress.update(Progress.Phase.BSP, 0);
+		assertEquals(30, progress.getPercentage());
+		assertEquals(Progress.Phase.BSP, progress.getPhase());
+		progress.update(Progress.Phase.BSP, 150);
+		assertEquals(100, progress.getPercentage());
+
+		progress.update(20);
+		assertEquals(100, progress.getPercentage());
+		progress.update(101);
+		assertEquals(100, progress.getPercentage());
+	}
+
+	/**
+	 * <b>***Expected result:</b> a maze built for an order with a channel
+	 * ends with 100 percent in the BSP phase and calls the order only once with 100.
+	 */
+	@Test
+	final void testBuilderPublishes() {
+		ChannelOrder order = new ChannelOrder();
+		order.setSkillLevel(4);
+		order.setBuilder(Order.Builder.DFS);
+		order.setPerfect(false);
+		MazeBuilder builder = new MazeBuilder(new RandomStream(MazeBuilder.MAZE_SEED));
+		builder.buildOrder(order);
+		builder.run();
+
+		assertNotNull(order.getMaze());
+		assertEquals(100, order.progress.getPercentage());
+		assertEquals(Progress.Phase.BSP, order.progress.getPhase());
+		assertEquals(1, order.calls.size());
+		assertEquals(100, order.calls.get(0).intValue());
+	}
+
+	/**
+	 * <b>***Expected result:</b> each algorithm publishes progress while it generates pathways
+	 * and the distances are published while they are computed, not only at the start of a phase.
+	 * @param algorithm the algorithm that builds the maze
+	 * @param parallel true to build the maze in tiles
+	 */
+	@ParameterizedTest
+	@CsvSource({"DFS,false", "Prim,false", "Kruskal,false", "Eller,false", "DFS,true"})
+	final void testPhasesPublishWhileRunning(Order.Builder algorithm, boolean parallel) {
+		// the percentages of each phase as they are published
+		final Map<Progress.Phase, List<Integer>> published = new EnumMap<Progress.Phase, List<Integer>>(Progress.Phase.class);
+		ChannelOrder order = new ChannelOrder() {
+			final Progress recorder = new Progress() {
+				@Override
+				public void update(Progress.Phase phase, int percentOfPhase) {
+					published.computeIfAbsent(phase, p -> new ArrayList<Integer>()).add(percentOfPhase);
+					super.update(phase, percentOfPhase);
+				}
+			};
+			@Override
+			public Progress getProgress() {
+				return recorder;
+			}
+		};
+		order.setDimensions(100, 100);
+		order.setBuilder(algorithm);
+		order.setPerfect(true);
+		MazeBuilder builder = MazeFactory.createBuilder(algorithm, new RandomStream(MazeBuilder.MAZE_SEED), parallel);
+		builder.setBuildBSP(false);
+		builder.buildOrder(order);
+		builder.run();
+
+		assertNotNull(order.getMaze());
+		for (Progress.Phase phase : new Progress.Phase[] {Progress.Phase.Pathways, Progress.Phase.Distances}) {
+			assertTrue(published.get(phase).stream().anyMatch(p -> 0 < p && p < 100),
+					phase + " published " + published.get(phase));
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package gui;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.awt.Color;
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.Test;
+
+import generation.Floorplan;
+import generation.Maze;
+import generation.MazeBuilder;
+import generation.Order;
+import generation.OrderStub;
+
+/**
+ * Tests the frame loop of the {@link FirstPersonView} without a display:
+ * once every wall has been seen, drawing frames allocates nothing,
+ * also during the steps of a walk and a rotation.
+ *
+ * @author Elijah Mas
+ *
+ */
+class FirstPersonViewTest {
+
+	/**
+	 * A panel that draws nothing but exports colors like the MazePanel does
+	 * and counts the polygons it gets.
+	 */
+	private static class CountingPanel extends MazePanel {
+		private static final long serialVersionUID = 1L;
+		Color color;
+		int polygons;
+
+		@Override
+		public boolean isInNoGraphicsMode() {
+			return false;
+		}
+		@Override
+		public void fillRect(int x, int y, int width, int height) {
+		}
+		@Override
+		public void fillPolygon(int[] xpoints, int[] ypoints, int npoints) {
+			polygons++;
+		}
+		@Override
+		public void setColor(MazeColor c) {
+			color = c.export();
+		}
+		@Override
+		public void setColor(MazeColor.Colors c) {
+			color = MazeColor.export(c);
+		}
+	}
+
+	/**
+	 * Draws a frame from every cell in every direction,
+	 * with the steps of a walk forward and of a rotation to the left.
+	 */
+	private static void drawAll(FirstPersonView view, Maze maze) {
+		for (int x = 0; x < maze.getWidth(); x++) {
+			for (int y = 0; y < maze.getHeight(); y++) {
+				for (int angle = 0; angle < 360; angle += 90) {
+					for (int step = 0; step < 4; step++)
+						view.draw(x, y, step, angle);
+					for (int step = 1; step < 4; step++)
+						view.draw(x, y, 0, (angle + step*90/4) % 360);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return bytes allocated by the current thread so far, -1 if the JVM does not tell
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return -1;
+	}
+
+	/**
+	 * <b>***Expected result:</b> after a first round of frames, in which walls are seen
+	 * and marked on the map, further rounds of the same frames draw the same polygons
+	 * and allocate nothing. A second round before the measured one lets the JIT settle,
+	 * as recompiling the drawing code can allocate once.
+	 */
+	@Test
+	final void testSteadyStateFramesDoNotAllocate() {
+		assumeTrue(allocatedBytes() >= 0, "JVM does not tell allocated bytes");
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(3);
+		order.setBuilder(Order.Builder.DFS);
+		order.setPerfect(false);
+		MazeBuilder builder = new MazeBuilder(true);
+		builder.buildOrder(order);
+		builder.run();
+		Maze maze = order.getMaze();
+		CountingPanel panel = new CountingPanel();
+		FirstPersonView view = new FirstPersonView(Constants.VIEW_WIDTH, Constants.VIEW_HEIGHT,
+				Constants.MAP_UNIT, Constants.STEP_SIZE,
+				new Floorplan(maze.getWidth()+1, maze.getHeight()+1), maze.getRootnode(), panel);
+
+		drawAll(view, maze);
+		final int polygons = panel.polygons;
+		assertTrue(polygons > 0);
+		drawAll(view, maze);
+		// the measurement itself may allocate a little, take it into account
+		final long before = allocatedBytes();
+		final long overhead = allocatedBytes() - before;
+		final long start = allocatedBytes();
+		drawAll(view, maze);
+		final long allocated = allocatedBytes() - start - overhead;
+
+		assertEquals(3*polygons, panel.polygons);
+		assertEquals(0, allocated, "bytes allocated by frames in steady state");
+	}
+}
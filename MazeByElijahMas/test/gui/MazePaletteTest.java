@@ -0,0 +1,123 @@
+package gui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import generation.BSPBranch;
+import generation.BSPLeaf;
+import generation.BSPNode;
+import generation.Maze;
+import generation.MazeBuilder;
+import generation.Order;
+import generation.OrderStub;
+import generation.Wall;
+
+/**
+ * Tests the {@link MazePalette} and the named colors of the {@link MazeColor}:
+ * equal colors share an index and a single {@link MazeColor} and {@link Color},
+ * and all walls of a maze draw with a few shared colors.
+ *
+ * @author Elijah Mas
+ *
+ */
+class MazePaletteTest {
+
+	/**
+	 * <b>***Expected result:</b> interning a color value twice gives the same index,
+	 * the shared color has that value and exports the same awt color each time.
+	 */
+	@Test
+	final void testIntern() {
+		final int index = MazePalette.intern(new MazeColor(1, 2, 3));
+		assertEquals(index, MazePalette.intern(new MazeColor(1, 2, 3)));
+		assertEquals(index, MazePalette.intern(new MazeColor(1, 2, 3).toInt()));
+		assertNotEquals(index, MazePalette.intern(new MazeColor(1, 2, 4)));
+		assertTrue(index < MazePalette.size());
+
+		MazeColor color = MazePalette.get(index);
+		assertEquals(new MazeColor(1, 2, 3), color);
+		assertSame(color.export(), MazePalette.get(index).export());
+		assertEquals(new Color(1, 2, 3), color.export());
+	}
+
+	/**
+	 * <b>***Expected result:</b> the palette grows beyond its initial capacity
+	 * and keeps the colors interned before.
+	 */
+	@Test
+	final void testGrow() {
+		final int first = MazePalette.intern(new MazeColor(7, 7, 7, 7));
+		for (int i = 0; i < 300; i++)
+			MazePalette.intern(new MazeColor(i % 256, i / 256, 99, 42));
+		assertEquals(new MazeColor(7, 7, 7, 7), MazePalette.get(first));
+		final int last = MazePalette.intern(new MazeColor(299 % 256, 299 / 256, 99, 42));
+		assertEquals(new MazeColor(299 % 256, 299 / 256, 99, 42), MazePalette.get(last));
+	}
+
+	/**
+	 * <b>***Expected result:</b> each named color exports the awt color of the same name,
+	 * grey as the awt gray.
+	 */
+	@Test
+	final void testNamedColors() throws ReflectiveOperationException {
+		for (MazeColor.Colors c : MazeColor.Colors.values()) {
+			String name = (MazeColor.Colors.grey == c) ? "gray" : c.name();
+			assertSame(Color.class.getDeclaredField(name).get(null), MazeColor.export(c));
+		}
+	}
+
+	/**
+	 * <b>***Expected result:</b> walls of equal color share one color object,
+	 * and a maze has no more wall colors than the 6 hues times 9 shades
+	 * that a distance and an orientation give.
+	 */
+	@Test
+	final void testWallsShareColors() {
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(4);
+		order.setBuilder(Order.Builder.DFS);
+		order.setPerfect(false);
+		MazeBuilder builder = new MazeBuilder(true);
+		builder.buildOrder(order);
+		builder.run();
+		Maze maze = order.getMaze();
+
+		Map<MazeColor, Boolean> colors = new IdentityHashMap<MazeColor, Boolean>();
+		int walls = collect(maze.getRootnode(), colors);
+		assertTrue(walls > colors.size());
+		assertTrue(colors.size() <= 6*9);
+		Map<Integer, MazeColor> byValue = new HashMap<Integer, MazeColor>();
+		for (MazeColor color : colors.keySet())
+			assertNull(byValue.put(color.toInt(), color), "two objects for one color");
+
+		Wall wall = new Wall(0, 0, Constants.MAP_UNIT, 0, 12, 0);
+		Wall other = new Wall(0, 0, Constants.MAP_UNIT, 0, 12, 0);
+		assertSame(wall.getColor(), other.getColor());
+		other.setColor(new MazeColor(wall.getColor().toInt()));
+		assertEquals(wall.getColorIndex(), other.getColorIndex());
+		assertEquals(wall, other);
+	}
+
+	/**
+	 * Puts the colors of the walls of the tree into the map.
+	 * @return number of walls in the tree
+	 */
+	private static int collect(BSPNode node, Map<MazeColor, Boolean> colors) {
+		if (node instanceof BSPLeaf) {
+			int walls = 0;
+			for (Wall wall : ((BSPLeaf)node).getSlist()) {
+				colors.put(wall.getColor(), Boolean.TRUE);
+				walls++;
+			}
+			return walls;
+		}
+		BSPBranch branch = (BSPBranch)node;
+		return collect(branch.getLeftBranch(), colors) + collect(branch.getRightBranch(), colors);
+	}
+}
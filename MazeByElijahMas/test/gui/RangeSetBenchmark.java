@@ -0,0 +1,237 @@
+package gui;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+
+import generation.Floorplan;
+import generation.Maze;
+import generation.MazeBuilder;
+import generation.Order;
+import generation.OrderStub;
+
+/**
+ * <p>RangeSetBenchmark compares the {@link RangeSet} with primitive arrays
+ * with the original version kept in {@link VectorRangeSet}.</p>
+ *
+ * <p>For a few skill levels, a maze with rooms is generated deterministically
+ * and the {@link FirstPersonView} draws a frame from every cell in each of the four directions
+ * on a panel that draws nothing. A range set that records its calls takes the place
+ * of the one of the view, which gives a trace of the calls of real frames.
+ * Both versions then replay the trace: the new one with the queries that give their result
+ * through an array of the caller or as a boolean, the original one with the queries
+ * that allocate. The benchmark reports the number of calls, the average time per call
+ * in nanoseconds and, where the JVM can tell, the bytes allocated per frame.</p>
+ *
+ * <p>This is not a JUnit test; run it as a Java application.</p>
+ *
+ * @author Elijah Mas
+ *
+ */
+public class RangeSetBenchmark {
+
+	/**
+	 * number of untimed replays per version to let the JIT compiler settle
+	 */
+	static final int WARMUP = 5;
+
+	/**
+	 * number of timed replays per version
+	 */
+	static final int RUNS = 20;
+
+	// operation codes in a trace, each is followed by two bounds
+	static final int SET = 0;
+	static final int REMOVE = 1;
+	static final int INTERSECTION = 2;
+	static final int INTERSECTS = 3;
+
+	public static void main(String[] args) throws Exception {
+		Controller.suppressUpdates = true;
+		System.out.println("level   frames      calls   vector [ns]   arrays [ns]   speedup   vector [B/frame]   arrays [B/frame]");
+		for (int level : new int[] {2, 6, 9, 12}) {
+			Maze maze = generate(level);
+			int[] trace = record(maze);
+			int frames = 4*maze.getWidth()*maze.getHeight();
+			int calls = trace.length/3;
+			double[] vector = measure(trace, false);
+			double[] arrays = measure(trace, true);
+			System.out.printf("%5d  %7d  %9d  %12.1f  %12.1f  %8.2f  %17.0f  %17.0f\n",
+				level, frames, calls, vector[0]/calls, arrays[0]/calls, vector[0]/arrays[0],
+				vector[1]/frames, arrays[1]/frames);
+		}
+	}
+
+	/**
+	 * Generate a maze with rooms at the given skill level deterministically.
+	 */
+	static Maze generate(int level) {
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(level);
+		order.setBuilder(Order.Builder.DFS);
+		order.setPerfect(false);
+		MazeBuilder builder = new MazeBuilder(true);
+		builder.buildOrder(order);
+		builder.run();
+		return order.getMaze();
+	}
+
+	/**
+	 * Draws a frame from every cell in each direction and records the calls to the range set.
+	 * @return the trace, an operation code and two bounds per call
+	 */
+	static int[] record(Maze maze) throws ReflectiveOperationException {
+		FirstPersonView view = new FirstPersonView(Constants.VIEW_WIDTH, Constants.VIEW_HEIGHT,
+				Constants.MAP_UNIT, Constants.STEP_SIZE,
+				new Floorplan(maze.getWidth()+1, maze.getHeight()+1), maze.getRootnode(), new NullPanel());
+		RecordingRangeSet recorder = new RecordingRangeSet();
+		Field field = FirstPersonView.class.getDeclaredField("rSet");
+		field.setAccessible(true);
+		field.set(view, recorder);
+		for (int x = 0; x < maze.getWidth(); x++) {
+			for (int y = 0; y < maze.getHeight(); y++) {
+				for (int angle = 0; angle < 360; angle += 90)
+					view.draw(x, y, 0, angle);
+			}
+		}
+		return Arrays.copyOf(recorder.trace, recorder.length);
+	}
+
+	/**
+	 * Replays the trace with one of the versions.
+	 * @return total time of a replay in nanoseconds and bytes allocated by a replay, NaN if unknown
+	 */
+	static double[] measure(int[] trace, boolean arrays) {
+		for (int i = 0; i < WARMUP; i++)
+			replay(trace, arrays);
+		long checksum = 0;
+		final long bytes = allocatedBytes();
+		final long start = System.nanoTime();
+		for (int i = 0; i < RUNS; i++)
+			checksum += replay(trace, arrays);
+		final long nanos = System.nanoTime() - start;
+		final long allocated = allocatedBytes() - bytes;
+		if (checksum == 42)
+			System.out.println(); // keeps the replays from being optimized away
+		return new double[] {(double)nanos/RUNS, (bytes < 0) ? Double.NaN : (double)allocated/RUNS};
+	}
+
+	/**
+	 * Replays the trace on a new set of one of the versions.
+	 * @return sum of the bounds of all intersections
+	 */
+	static long replay(int[] trace, boolean arrays) {
+		long sum = 0;
+		if (arrays) {
+			RangeSet set = new RangeSet();
+			int[] result = new int[2];
+			for (int i = 0; i < trace.length; i += 3) {
+				switch (trace[i]) {
+				case SET: set.set(trace[i+1], trace[i+2]); break;
+				case REMOVE: set.remove(trace[i+1], trace[i+2]); break;
+				case INTERSECTION:
+					if (set.getIntersection(trace[i+1], trace[i+2], result))
+						sum += result[0] + result[1];
+					break;
+				default:
+					if (set.intersects(trace[i+1], trace[i+2]))
+						sum++;
+				}
+			}
+		}
+		else {
+			VectorRangeSet set = new VectorRangeSet();
+			for (int i = 0; i < trace.length; i += 3) {
+				switch (trace[i]) {
+				case SET: set.set(trace[i+1], trace[i+2]); break;
+				case REMOVE: set.remove(trace[i+1], trace[i+2]); break;
+				case INTERSECTION:
+					int[] result = set.getIntersection(trace[i+1], trace[i+2]);
+					if (null != result)
+						sum += result[0] + result[1];
+					break;
+				default:
+					if (null != set.getIntersection(trace[i+1], trace[i+2]))
+						sum++;
+				}
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * @return bytes allocated by the current thread so far, -1 if the JVM does not tell
+	 */
+	static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return -1;
+	}
+
+	/**
+	 * A range set that records the calls it gets.
+	 */
+	static class RecordingRangeSet extends RangeSet {
+		int[] trace = new int[3*1024];
+		int length;
+
+		private void add(int op, int lowerBound, int upperBound) {
+			if (length + 3 > trace.length)
+				trace = Arrays.copyOf(trace, 2*trace.length);
+			trace[length++] = op;
+			trace[length++] = lowerBound;
+			trace[length++] = upperBound;
+		}
+		@Override
+		public void set(int lowerBound, int upperBound) {
+			add(SET, lowerBound, upperBound);
+			super.set(lowerBound, upperBound);
+		}
+		@Override
+		public void remove(int lowerBound, int upperBound) {
+			add(REMOVE, lowerBound, upperBound);
+			super.remove(lowerBound, upperBound);
+		}
+		@Override
+		public boolean getIntersection(int lowerBound, int upperBound, int[] result) {
+			add(INTERSECTION, lowerBound, upperBound);
+			return super.getIntersection(lowerBound, upperBound, result);
+		}
+		@Override
+		public boolean intersects(int lowerBound, int upperBound) {
+			add(INTERSECTS, lowerBound, upperBound);
+			return super.intersects(lowerBound, upperBound);
+		}
+	}
+
+	/**
+	 * A panel that draws nothing, such that frames can be drawn without a display.
+	 */
+	static class NullPanel extends MazePanel {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public boolean isInNoGraphicsMode() {
+			return false;
+		}
+		@Override
+		public void fillRect(int x, int y, int width, int height) {
+		}
+		@Override
+		public void drawLine(int x1, int y1, int x2, int y2) {
+		}
+		@Override
+		public void fillPolygon(int[] xpoints, int[] ypoints, int npoints) {
+		}
+		@Override
+		public void setColor(MazeColor c) {
+		}
+		@Override
+		public void setColor(MazeColor.Colors c) {
+		}
+		@Override
+		public void fillOval(int x, int y, int width, int height) {
+		}
+	}
+}
@@ -2,6 +2,8 @@ package gui;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.Random;
+
 import org.junit.jupiter.api.Test;
 
 import gui.RangeSet;
@@ -245,4 +247,40 @@ class RangeSetTest {
 		}
 		assertTrue(sut.isEmpty());
 	}
+	/**
+	 * Random scenario that compares the set with the original version, {@link VectorRangeSet}:
+	 * after each removal of a random interval, both give the same intersections,
+	 * as an array, through the given array and as a boolean.
+	 * Many small removals split intervals such that the arrays have to grow.
+	 */
+	@Test
+	final void testMatchesOriginal() {
+		Random random = new Random(0);
+		RangeSet sut = new RangeSet();
+		VectorRangeSet original = new VectorRangeSet();
+		int[] result = new int[2];
+		for (int round = 0; round < 20; round++) {
+			sut.set(0, 399);
+			original.set(0, 399);
+			while (!original.isEmpty()) {
+				// removal requests may be given in any order and reach beyond the bounds
+				int lb = random.nextInt(420) - 10;
+				int ub = lb + random.nextInt(round < 10 ? 4 : 60);
+				if (random.nextBoolean())
+					sut.remove(ub, lb);
+				else
+					sut.remove(lb, ub);
+				original.remove(lb, ub);
+				assertEquals(original.isEmpty(), sut.isEmpty());
+				for (int x = -10; x < 410; x += 7) {
+					int[] expected = original.getIntersection(x, x + 11);
+					assertArrayEquals(expected, sut.getIntersection(x, x + 11));
+					assertEquals(null != expected, sut.getIntersection(x, x + 11, result));
+					assertEquals(null != expected, sut.intersects(x, x + 11));
+					if (null != expected)
+						assertArrayEquals(expected, result);
+				}
+			}
+		}
+	}
 }
@@ -0,0 +1,170 @@
+package gui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import generation.Floorplan;
+import generation.Maze;
+import generation.MazeBuilder;
+import generation.Order;
+import generation.OrderStub;
+
+/**
+ * Tests the {@link RasterMazePanel}: it draws without a display,
+ * rectangles are clipped to the image, and the polygons of walls fill
+ * the same pixels as Java2D without antialiasing.
+ *
+ * @author Elijah Mas
+ *
+ */
+class RasterMazePanelTest {
+
+	private static final int WIDTH = 200;
+	private static final int HEIGHT = 150;
+
+	/**
+	 * @return a panel that is ready to draw
+	 */
+	private static RasterMazePanel createPanel(int width, int height) {
+		RasterMazePanel panel = new RasterMazePanel(width, height);
+		assertFalse(panel.isInNoGraphicsMode());
+		return panel;
+	}
+
+	/**
+	 * @return the pixels of the image of the panel without alpha
+	 */
+	private static int[] getPixels(MazePanel panel, int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		panel.paint(image.getGraphics());
+		return image.getRGB(0, 0, width, height, null, 0, width);
+	}
+
+	/**
+	 * <b>***Expected result:</b> a rectangle partly outside of the image fills exactly its part inside.
+	 */
+	@Test
+	final void testFillRect() {
+		RasterMazePanel panel = createPanel(WIDTH, HEIGHT);
+		panel.setColor(MazeColor.Colors.red);
+		panel.fillRect(-10, 100, 30, 200);
+		panel.setColor(new MazeColor(1, 2, 3));
+		panel.fillRect(WIDTH - 5, -5, 10, 10);
+		panel.fillRect(WIDTH, 0, 10, 10);
+		int[] pixels = getPixels(panel, WIDTH, HEIGHT);
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				int expected = Color.black.getRGB();
+				if (x < 20 && y >= 100)
+					expected = Color.red.getRGB();
+				else if (x >= WIDTH - 5 && y < 5)
+					expected = new Color(1, 2, 3).getRGB();
+				assertEquals(expected, pixels[y*WIDTH + x], "pixel " + x + "," + y);
+			}
+		}
+	}
+
+	/**
+	 * <b>***Expected result:</b> polygons with two vertical edges, also partly outside of the image,
+	 * fill the same pixels as Java2D without antialiasing and without normalization of coordinates,
+	 * also if the other two edges cross, except for pixels with a center exactly on an edge, where the rounding of Java2D decides.
+	 */
+	@Test
+	final void testPolygonsMatchJava2D() {
+		Random random = new Random(42);
+		int[] xs = new int[4];
+		int[] ys = new int[4];
+		for (int n = 0; n < 500; n++) {
+			xs[0] = xs[1] = random.nextInt(WIDTH + 40) - 20;
+			xs[2] = xs[3] = random.nextInt(WIDTH + 40) - 20;
+			// y of 0 and 3 are on one edge, y of 1 and 2 on the other,
+			// for the second half of polygons the edges may cross
+			ys[0] = random.nextInt(HEIGHT/2 + 20) - 20;
+			ys[3] = random.nextInt(HEIGHT/2 + 20) - 20;
+			ys[1] = ((n < 250) ? HEIGHT/2 : -20) + random.nextInt(HEIGHT/2 + 20);
+			ys[2] = ((n < 250) ? HEIGHT/2 : -20) + random.nextInt(HEIGHT/2 + 20);
+			if (0 == n % 10)
+				ys[3] = ys[0]; // a horizontal edge
+
+			RasterMazePanel panel = createPanel(WIDTH, HEIGHT);
+			panel.setColor(MazeColor.Colors.white);
+			panel.fillPolygon(xs, ys, 4);
+			int[] pixels = getPixels(panel, WIDTH, HEIGHT);
+
+			BufferedImage reference = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+			Graphics2D g = reference.createGraphics();
+			g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+			g.setColor(Color.white);
+			g.fillPolygon(xs, ys, 4);
+			int[] expected = reference.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH);
+
+			for (int i = 0; i < pixels.length; i++) {
+				if (expected[i] != pixels[i]) {
+					int x = i % WIDTH;
+					int y = i / WIDTH;
+					assertTrue(isOnEdge(x, y, xs[0], ys[0], xs[3], ys[3]) || isOnEdge(x, y, xs[1], ys[1], xs[2], ys[2]),
+							"polygon " + n + ", pixel " + x + "," + y);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return true if the center of pixel (x,y) lies on the line through (x1,y1) and (x2,y2)
+	 */
+	private static boolean isOnEdge(int x, int y, int x1, int y1, int x2, int y2) {
+		// (2x+1-2x1, 2y+1-2y1) is parallel to (x2-x1, y2-y1)
+		return (2L*x + 1 - 2L*x1)*(y2 - y1) == (2L*y + 1 - 2L*y1)*(x2 - x1);
+	}
+
+	/**
+	 * <b>***Expected result:</b> other polygons are drawn by the graphics object.
+	 */
+	@Test
+	final void testOtherPolygons() {
+		RasterMazePanel panel = createPanel(WIDTH, HEIGHT);
+		panel.setColor(MazeColor.Colors.yellow);
+		panel.fillPolygon(new int[] {10, 100, 10}, new int[] {10, 10, 100}, 3);
+		int[] pixels = getPixels(panel, WIDTH, HEIGHT);
+		assertEquals(Color.yellow.getRGB(), pixels[20*WIDTH + 20]);
+		assertEquals(Color.black.getRGB(), pixels[90*WIDTH + 90]);
+	}
+
+	/**
+	 * <b>***Expected result:</b> the first person view draws frames on the panel,
+	 * at the size of the view and at a larger size, and fills all pixels
+	 * with the colors of the background and of walls.
+	 */
+	@Test
+	final void testFirstPersonView() {
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(2);
+		order.setBuilder(Order.Builder.DFS);
+		order.setPerfect(false);
+		MazeBuilder builder = new MazeBuilder(true);
+		builder.buildOrder(order);
+		builder.run();
+		Maze maze = order.getMaze();
+		for (int[] size : new int[][] {{Constants.VIEW_WIDTH, Constants.VIEW_HEIGHT}, {1024, 768}}) {
+			RasterMazePanel panel = createPanel(size[0], size[1]);
+			FirstPersonView view = new FirstPersonView(size[0], size[1],
+					Constants.MAP_UNIT, Constants.STEP_SIZE,
+					new Floorplan(maze.getWidth()+1, maze.getHeight()+1), maze.getRootnode(), panel);
+			view.draw(0, 0, 0, 0);
+			int[] pixels = getPixels(panel, size[0], size[1]);
+			int walls = 0;
+			for (int pixel : pixels) {
+				if (pixel != Color.white.getRGB() && pixel != Color.darkGray.getRGB())
+					walls++;
+			}
+			assertTrue(walls > pixels.length/10, "walls fill " + walls + " pixels");
+		}
+	}
+}
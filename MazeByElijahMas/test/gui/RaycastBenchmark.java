@@ -0,0 +1,110 @@
+package gui;
+
+import generation.Floorplan;
+import generation.Maze;
+import generation.MazeBuilder;
+import generation.Order;
+import generation.OrderStub;
+
+/**
+ * <p>RaycastBenchmark compares the {@link RaycastView} with the {@link FirstPersonView}
+ * that traverses the BSP tree.</p>
+ *
+ * <p>It reports the time to build a maze with and without a BSP tree, and the frame rate of both views
+ * for several sizes of the view, the raycast view with 1, 2 and one thread per core.
+ * A maze with rooms is generated deterministically and each view draws a frame
+ * from every cell in each of the four directions on a {@link RasterMazePanel},
+ * such that the panel costs the same for both views.
+ * Threads only pay off with as many cores, on a single core they add overhead.</p>
+ *
+ * <p>This is not a JUnit test; run it as a Java application.</p>
+ *
+ * @author Elijah Mas
+ *
+ */
+public class RaycastBenchmark {
+
+	/**
+	 * skill level of the maze
+	 */
+	static final int LEVEL = 6;
+
+	public static void main(String[] args) {
+		Controller.suppressUpdates = true;
+		final int cores = Runtime.getRuntime().availableProcessors();
+		System.out.println("level " + LEVEL + ", " + cores + " cores");
+		for (int i = 0; i < RendererBenchmark.WARMUP; i++) {
+			generate(true);
+			generate(false);
+		}
+		System.out.printf("build with BSP: %8.1f ms, without: %8.1f ms\n",
+				measureBuild(true), measureBuild(false));
+
+		Maze maze = generate(true);
+		int frames = 4*maze.getWidth()*maze.getHeight();
+		int[] threads = (cores > 2) ? new int[] {1, 2, cores} : new int[] {1, 2};
+		System.out.println(frames + " frames per round, frames per second:");
+		System.out.print("     view      bsp");
+		for (int t : threads)
+			System.out.printf("  ray %2dT", t);
+		System.out.println();
+		for (int[] size : new int[][] {{400, 400}, {800, 800}, {1280, 960}, {1920, 1080}}) {
+			System.out.printf("%9s", size[0] + "x" + size[1]);
+			RasterMazePanel panel = new RasterMazePanel(size[0], size[1]);
+			System.out.printf(" %8.0f", frames/measure(new FirstPersonView(size[0], size[1],
+					Constants.MAP_UNIT, Constants.STEP_SIZE, createSeenWalls(maze), maze.getRootnode(), panel), maze));
+			for (int t : threads) {
+				System.out.printf(" %8.0f", frames/measure(new RaycastView(size[0], size[1],
+						Constants.MAP_UNIT, Constants.STEP_SIZE, createSeenWalls(maze), maze, panel, t), maze));
+			}
+			System.out.println();
+		}
+	}
+
+	/**
+	 * Generate a maze with rooms deterministically.
+	 * @param buildBSP false to skip the BSP tree
+	 */
+	static Maze generate(boolean buildBSP) {
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(LEVEL);
+		order.setBuilder(Order.Builder.DFS);
+		order.setPerfect(false);
+		MazeBuilder builder = new MazeBuilder(true);
+		builder.setBuildBSP(buildBSP);
+		builder.buildOrder(order);
+		builder.run();
+		return order.getMaze();
+	}
+
+	/**
+	 * Generates mazes.
+	 * @return time of a maze in milliseconds
+	 */
+	static double measureBuild(boolean buildBSP) {
+		final long start = System.nanoTime();
+		for (int i = 0; i < RendererBenchmark.RUNS; i++)
+			generate(buildBSP);
+		return (System.nanoTime() - start)/1e6/RendererBenchmark.RUNS;
+	}
+
+	/**
+	 * @return a floorplan to keep the seen walls of a view
+	 */
+	static Floorplan createSeenWalls(Maze maze) {
+		return new Floorplan(maze.getWidth()+1, maze.getHeight()+1);
+	}
+
+	/**
+	 * Draws rounds of frames with the view.
+	 * @return time of a round in seconds
+	 */
+	static double measure(FirstPersonDrawer view, Maze maze) {
+		for (int i = 0; i < RendererBenchmark.WARMUP; i++)
+			RendererBenchmark.drawAll(view, maze);
+		final long start = System.nanoTime();
+		for (int i = 0; i < RendererBenchmark.RUNS; i++)
+			RendererBenchmark.drawAll(view, maze);
+		return (System.nanoTime() - start)/1e9/RendererBenchmark.RUNS;
+	}
+}
@@ -0,0 +1,252 @@
+package gui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import generation.CardinalDirection;
+import generation.Floorplan;
+import generation.Maze;
+import generation.MazeBuilder;
+import generation.Order;
+import generation.OrderStub;
+
+/**
+ * Tests the {@link RaycastView} against the {@link FirstPersonView} that traverses the BSP tree:
+ * both show walls at the same pixels up to the edges of walls, both mark the same wallboards as seen,
+ * and the number of threads does not change a frame.
+ *
+ * @author Elijah Mas
+ *
+ */
+class RaycastViewTest {
+
+	private static final int WIDTH = Constants.VIEW_WIDTH;
+	private static final int HEIGHT = Constants.VIEW_HEIGHT;
+
+	private static Maze maze;
+
+	@BeforeAll
+	static void setUp() {
+		maze = buildMaze();
+	}
+
+	/**
+	 * @return a maze with rooms, the same each time
+	 */
+	private static Maze buildMaze() {
+		return buildMaze(true);
+	}
+
+	/**
+	 * @param buildBSP false to build the maze without a BSP tree
+	 * @return a maze with rooms, the same each time
+	 */
+	private static Maze buildMaze(boolean buildBSP) {
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(3);
+		order.setBuilder(Order.Builder.DFS);
+		order.setPerfect(false);
+		MazeBuilder builder = new MazeBuilder(true);
+		builder.setBuildBSP(buildBSP);
+		builder.buildOrder(order);
+		builder.run();
+		return order.getMaze();
+	}
+
+	/**
+	 * @return a panel that is ready to draw
+	 */
+	private static RasterMazePanel createPanel() {
+		RasterMazePanel panel = new RasterMazePanel(WIDTH, HEIGHT);
+		assertFalse(panel.isInNoGraphicsMode());
+		return panel;
+	}
+
+	/**
+	 * @return a floorplan to keep the seen walls of a view
+	 */
+	private static Floorplan createSeenWalls(Maze maze) {
+		return new Floorplan(maze.getWidth()+1, maze.getHeight()+1);
+	}
+
+	/**
+	 * @return the pixels of the image of the panel
+	 */
+	private static int[] getPixels(MazePanel panel) {
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		panel.paint(image.getGraphics());
+		return image.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH);
+	}
+
+	/**
+	 * @return for each pixel of the image of the panel, true if it shows a wall
+	 */
+	private static boolean[] getWallPixels(MazePanel panel) {
+		int[] pixels = getPixels(panel);
+		boolean[] result = new boolean[pixels.length];
+		for (int i = 0; i < pixels.length; i++)
+			result[i] = pixels[i] != Color.black.getRGB() && pixels[i] != Color.darkGray.getRGB();
+		return result;
+	}
+
+	/**
+	 * <b>***Expected result:</b> from every cell in every direction, also during a step and a rotation,
+	 * both views show walls at nearly the same pixels: they may disagree
+	 * where the edge of a wall or the corner of two walls falls between two pixels.
+	 */
+	@Test
+	final void testSameWallsAsBSP() {
+		RasterMazePanel bspPanel = createPanel();
+		RasterMazePanel rayPanel = createPanel();
+		FirstPersonView bspView = new FirstPersonView(WIDTH, HEIGHT, Constants.MAP_UNIT, Constants.STEP_SIZE,
+				createSeenWalls(maze), maze.getRootnode(), bspPanel);
+		RaycastView rayView = new RaycastView(WIDTH, HEIGHT, Constants.MAP_UNIT, Constants.STEP_SIZE,
+				createSeenWalls(maze), maze, rayPanel);
+		int frames = 0;
+		long differences = 0;
+		for (int x = 0; x < maze.getWidth(); x++) {
+			for (int y = 0; y < maze.getHeight(); y++) {
+				for (int angle = 0; angle < 360; angle += 45) {
+					final int walkStep = (0 == angle % 90) ? (x + y) % 4 : 0;
+					bspView.draw(x, y, walkStep, angle);
+					rayView.draw(x, y, walkStep, angle);
+					boolean[] expected = getWallPixels(bspPanel);
+					boolean[] actual = getWallPixels(rayPanel);
+					int frameDifferences = 0;
+					for (int i = 0; i < expected.length; i++) {
+						if (expected[i] != actual[i])
+							frameDifferences++;
+					}
+					assertTrue(frameDifferences < WIDTH*HEIGHT/50,
+							"frame at " + x + "," + y + ", angle " + angle + ": " + frameDifferences + " pixels differ");
+					differences += frameDifferences;
+					frames++;
+				}
+			}
+		}
+		assertTrue(differences < (long)frames*WIDTH*HEIGHT/200, "on average " + differences/frames + " pixels differ");
+	}
+
+	/**
+	 * <b>***Expected result:</b> the maze keeps the random color change of its walls,
+	 * such that both views give nearly all pixels that they both show as walls the same color.
+	 */
+	@Test
+	final void testSameColorsAsBSP() {
+		RasterMazePanel bspPanel = createPanel();
+		RasterMazePanel rayPanel = createPanel();
+		FirstPersonView bspView = new FirstPersonView(WIDTH, HEIGHT, Constants.MAP_UNIT, Constants.STEP_SIZE,
+				createSeenWalls(maze), maze.getRootnode(), bspPanel);
+		RaycastView rayView = new RaycastView(WIDTH, HEIGHT, Constants.MAP_UNIT, Constants.STEP_SIZE,
+				createSeenWalls(maze), maze, rayPanel);
+		long walls = 0;
+		long differences = 0;
+		for (int x = 0; x < maze.getWidth(); x++) {
+			for (int y = 0; y < maze.getHeight(); y++) {
+				for (int angle = 0; angle < 360; angle += 90) {
+					bspView.draw(x, y, 0, angle);
+					rayView.draw(x, y, 0, angle);
+					int[] expected = getPixels(bspPanel);
+					int[] actual = getPixels(rayPanel);
+					boolean[] expectedWalls = getWallPixels(bspPanel);
+					boolean[] actualWalls = getWallPixels(rayPanel);
+					for (int i = 0; i < expected.length; i++) {
+						if (expectedWalls[i] && actualWalls[i]) {
+							walls++;
+							if (expected[i] != actual[i])
+								differences++;
+						}
+					}
+				}
+			}
+		}
+		assertTrue(walls > 0);
+		assertTrue(differences < walls/100, differences + " of " + walls + " wall pixels differ in color");
+	}
+
+	/**
+	 * <b>***Expected result:</b> after frames from every cell in every direction,
+	 * both views have seen every wallboard of the maze and marked it the same way.
+	 */
+	@Test
+	final void testSameSeenWallsAsBSP() {
+		// walls of the BSP tree remember if they were seen, a fresh maze keeps other tests out
+		final Maze maze = buildMaze();
+		Floorplan bspSeen = createSeenWalls(maze);
+		Floorplan raySeen = createSeenWalls(maze);
+		FirstPersonView bspView = new FirstPersonView(WIDTH, HEIGHT, Constants.MAP_UNIT, Constants.STEP_SIZE,
+				bspSeen, maze.getRootnode(), createPanel());
+		RaycastView rayView = new RaycastView(WIDTH, HEIGHT, Constants.MAP_UNIT, Constants.STEP_SIZE,
+				raySeen, maze, createPanel());
+		for (int x = 0; x < maze.getWidth(); x++) {
+			for (int y = 0; y < maze.getHeight(); y++) {
+				for (int angle = 0; angle < 360; angle += 90) {
+					bspView.draw(x, y, 0, angle);
+					rayView.draw(x, y, 0, angle);
+				}
+			}
+		}
+		Floorplan floorplan = maze.getFloorplan();
+		for (int x = 0; x <= maze.getWidth(); x++) {
+			for (int y = 0; y <= maze.getHeight(); y++) {
+				for (CardinalDirection cd : new CardinalDirection[] {CardinalDirection.North, CardinalDirection.West}) {
+					final boolean seen = raySeen.hasWall(x, y, cd);
+					assertEquals(bspSeen.hasWall(x, y, cd), seen, "wallboard " + cd + " of " + x + "," + y);
+					// the north wallboard of a cell is the south wallboard of the cell above, same for west and east
+					final boolean wall = (x < maze.getWidth() && y < maze.getHeight() && floorplan.hasWall(x, y, cd))
+							|| (CardinalDirection.North == cd && 0 < y && x < maze.getWidth() && floorplan.hasWall(x, y-1, CardinalDirection.South))
+							|| (CardinalDirection.West == cd && 0 < x && y < maze.getHeight() && floorplan.hasWall(x-1, y, CardinalDirection.East));
+					assertEquals(wall, seen, "wallboard " + cd + " of " + x + "," + y);
+				}
+			}
+		}
+	}
+
+	/**
+	 * <b>***Expected result:</b> a maze that is built without a BSP tree has no root node
+	 * and the same floorplan as with a tree, such that its frames are the same.
+	 */
+	@Test
+	final void testWithoutBSP() {
+		Maze plain = buildMaze(false);
+		assertNull(plain.getRootnode());
+		assertArrayEquals(maze.getStartingPosition(), plain.getStartingPosition());
+		RasterMazePanel expected = createPanel();
+		RasterMazePanel actual = createPanel();
+		RaycastView expectedView = new RaycastView(WIDTH, HEIGHT, Constants.MAP_UNIT, Constants.STEP_SIZE,
+				createSeenWalls(maze), maze, expected);
+		RaycastView actualView = new RaycastView(WIDTH, HEIGHT, Constants.MAP_UNIT, Constants.STEP_SIZE,
+				createSeenWalls(plain), plain, actual);
+		for (int x = 0; x < maze.getWidth(); x++) {
+			for (int y = 0; y < maze.getHeight(); y++) {
+				expectedView.draw(x, y, 0, 90*((x + y) % 4));
+				actualView.draw(x, y, 0, 90*((x + y) % 4));
+				assertArrayEquals(getPixels(expected), getPixels(actual), "frame at " + x + "," + y);
+			}
+		}
+	}
+
+	/**
+	 * <b>***Expected result:</b> a view that casts rays on several threads
+	 * draws the same pixels as one that casts them on the calling thread.
+	 */
+	@Test
+	final void testThreadsDrawSameFrame() {
+		RasterMazePanel single = createPanel();
+		RasterMazePanel parallel = createPanel();
+		RaycastView singleView = new RaycastView(WIDTH, HEIGHT, Constants.MAP_UNIT, Constants.STEP_SIZE,
+				createSeenWalls(maze), maze, single, 1);
+		RaycastView parallelView = new RaycastView(WIDTH, HEIGHT, Constants.MAP_UNIT, Constants.STEP_SIZE,
+				createSeenWalls(maze), maze, parallel, 7);
+		for (int angle = 0; angle < 360; angle += 15) {
+			singleView.draw(2, 3, 1, angle);
+			parallelView.draw(2, 3, 1, angle);
+			assertArrayEquals(getWallPixels(single), getWallPixels(parallel), "angle " + angle);
+		}
+	}
+}
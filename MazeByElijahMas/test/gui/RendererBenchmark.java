@@ -0,0 +1,114 @@
+package gui;
+
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+
+import generation.Floorplan;
+import generation.Maze;
+import generation.MazeBuilder;
+import generation.Order;
+import generation.OrderStub;
+
+/**
+ * <p>RendererBenchmark compares the frame rate of the {@link FirstPersonView}
+ * with the Java2D {@link MazePanel} and with the {@link RasterMazePanel}.</p>
+ *
+ * <p>A maze with rooms is generated deterministically and the view draws a frame
+ * from every cell in each of the four directions, for several sizes of the view.
+ * Both panels draw on a {@link BufferedImage} of type {@link BufferedImage#TYPE_INT_RGB}
+ * as no display is needed; the Java2D panel keeps the rendering hints of the MazePanel.
+ * The benchmark reports frames per second for each panel and the speedup.</p>
+ *
+ * <p>This is not a JUnit test; run it as a Java application.</p>
+ *
+ * @author Elijah Mas
+ *
+ */
+public class RendererBenchmark {
+
+	/**
+	 * number of untimed rounds of frames per panel to let the JIT compiler settle
+	 */
+	static final int WARMUP = 2;
+
+	/**
+	 * number of timed rounds of frames per panel
+	 */
+	static final int RUNS = 5;
+
+	/**
+	 * skill level of the maze
+	 */
+	static final int LEVEL = 4;
+
+	public static void main(String[] args) {
+		Controller.suppressUpdates = true;
+		Maze maze = generate(LEVEL);
+		int frames = 4*maze.getWidth()*maze.getHeight();
+		System.out.println("level " + LEVEL + ", " + frames + " frames per round");
+		System.out.println("     view   java2d [fps]   raster [fps]   speedup");
+		for (int[] size : new int[][] {{400, 400}, {800, 800}, {1280, 960}, {1920, 1080}}) {
+			double java2d = measure(maze, new Java2DPanel(size[0], size[1]), size[0], size[1]);
+			double raster = measure(maze, new RasterMazePanel(size[0], size[1]), size[0], size[1]);
+			System.out.printf("%9s  %13.0f  %13.0f  %8.2f\n",
+				size[0] + "x" + size[1], frames/java2d, frames/raster, java2d/raster);
+		}
+	}
+
+	/**
+	 * Generate a maze with rooms at the given skill level deterministically.
+	 */
+	static Maze generate(int level) {
+		OrderStub order = new OrderStub();
+		order.setSkillLevel(level);
+		order.setBuilder(Order.Builder.DFS);
+		order.setPerfect(false);
+		MazeBuilder builder = new MazeBuilder(true);
+		builder.buildOrder(order);
+		builder.run();
+		return order.getMaze();
+	}
+
+	/**
+	 * Draws rounds of frames on the panel.
+	 * @return time of a round in seconds
+	 */
+	static double measure(Maze maze, MazePanel panel, int width, int height) {
+		FirstPersonView view = new FirstPersonView(width, height,
+				Constants.MAP_UNIT, Constants.STEP_SIZE,
+				new Floorplan(maze.getWidth()+1, maze.getHeight()+1), maze.getRootnode(), panel);
+		for (int i = 0; i < WARMUP; i++)
+			drawAll(view, maze);
+		final long start = System.nanoTime();
+		for (int i = 0; i < RUNS; i++)
+			drawAll(view, maze);
+		return (System.nanoTime() - start)/1e9/RUNS;
+	}
+
+	/**
+	 * Draws a frame from every cell in each direction.
+	 */
+	static void drawAll(FirstPersonDrawer view, Maze maze) {
+		for (int x = 0; x < maze.getWidth(); x++) {
+			for (int y = 0; y < maze.getHeight(); y++) {
+				for (int angle = 0; angle < 360; angle += 90)
+					view.draw(x, y, 0, angle);
+			}
+		}
+	}
+
+	/**
+	 * A MazePanel that draws with Java2D on a buffered image, such that it needs no display.
+	 */
+	static class Java2DPanel extends MazePanel {
+		private static final long serialVersionUID = 1L;
+
+		Java2DPanel(int width, int height) {
+			super(width, height);
+		}
+		@Override
+		protected Image createBufferImage() {
+			return new BufferedImage(getViewWidth(), getViewHeight(), BufferedImage.TYPE_INT_RGB);
+		}
+	}
+}